@@ -17,6 +17,7 @@ import org.aion.evtmgr.IEventMgr;
 import org.aion.evtmgr.IHandler;
 import org.aion.evtmgr.impl.callback.EventCallback;
 import org.aion.evtmgr.impl.es.EventExecuteService;
+import org.aion.evtmgr.impl.es.EventRingBuffer;
 import org.aion.evtmgr.impl.evt.EventConsensus;
 import org.aion.evtmgr.impl.evt.EventMiner;
 import org.aion.log.AionLoggerFactory;
@@ -110,7 +111,10 @@ public class EquihashMiner {
 
         setCpuThreads(cfg.getConsensus().getCpuMineThreads());
 
-        ees = new EventExecuteService(1000, "EpMiner", Thread.NORM_PRIORITY, LOG);
+        // a newer block template replaces the ones not mined yet
+        ees =
+                new EventExecuteService(
+                        1000, "EpMiner", Thread.NORM_PRIORITY, LOG, EventRingBuffer.Policy.COALESCE);
         ees.setFilter(setEvtFilter());
 
         this.evtMgr = a0Chain.getAionHub().getEventMgr();
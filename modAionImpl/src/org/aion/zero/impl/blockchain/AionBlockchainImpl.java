@@ -12,6 +12,8 @@ import static org.aion.zero.impl.core.ImportResult.IMPORTED_NOT_BEST;
 import static org.aion.zero.impl.core.ImportResult.INVALID_BLOCK;
 import static org.aion.zero.impl.core.ImportResult.NO_PARENT;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.File;
 import java.math.BigInteger;
 import java.util.ArrayDeque;
@@ -78,6 +80,7 @@ import org.aion.zero.impl.core.energy.AbstractEnergyStrategyLimit;
 import org.aion.zero.impl.core.energy.EnergyStrategies;
 import org.aion.zero.impl.db.AionBlockStore;
 import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.db.BloomBitsIndex;
 import org.aion.zero.impl.sync.DatabaseType;
 import org.aion.zero.impl.sync.SyncMgr;
 import org.aion.zero.impl.types.AionBlock;
@@ -164,6 +167,10 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
     private final boolean storeInternalTransactions;
 
+    // the blocks whose transaction trie was checked by preVerify, compared by identity
+    private final Cache<Block, Boolean> verifiedTxTries =
+            CacheBuilder.newBuilder().weakKeys().maximumSize(4096).build();
+
     private AionBlockchainImpl() {
         this(generateBCConfig(CfgAion.inst()), AionRepositoryImpl.inst(), new ChainConfiguration());
     }
@@ -454,6 +461,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return getBlockStore().getChainBlockByNumber(blockNr);
     }
 
+    @Override
+    public BlockHeader getHeaderByNumber(long blockNr) {
+        return getBlockStore().getChainHeaderByNumber(blockNr);
+    }
+
     @Override
     public List<Block> getBlocksByRange(long first, long last) {
         return getBlockStore().getBlocksByRange(first, last);
@@ -475,13 +487,13 @@ public class AionBlockchainImpl implements IAionBlockchain {
         } else {
             // pick up the receipt from the block on the main chain
             for (AionTxInfo info : infos) {
-                Block block = getBlockStore().getBlockByHash(info.getBlockHash());
-                if (block == null) continue;
+                BlockHeader header = getBlockStore().getHeaderByHash(info.getBlockHash());
+                if (header == null) continue;
 
-                Block mainBlock = getBlockStore().getChainBlockByNumber(block.getNumber());
-                if (mainBlock == null) continue;
+                byte[] mainHash = getBlockStore().getBlockHashByNumber(header.getNumber());
+                if (mainHash == null) continue;
 
-                if (Arrays.equals(info.getBlockHash(), mainBlock.getHash())) {
+                if (Arrays.equals(info.getBlockHash(), mainHash)) {
                     txInfo = info;
                     break;
                 }
@@ -511,6 +523,16 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return getBlockStore().getBlockByHash(hash);
     }
 
+    @Override
+    public BlockHeader getHeaderByHash(byte[] hash) {
+        return getBlockStore().getHeaderByHash(hash);
+    }
+
+    @Override
+    public byte[] getEncodedBodyByHash(byte[] hash) {
+        return getBlockStore().getEncodedBodyByHash(hash);
+    }
+
     @Override
     public List<byte[]> getListOfHashesEndWith(byte[] hash, int qty) {
         return getBlockStore().getListHashesEndWith(hash, qty < 1 ? 1 : qty);
@@ -533,9 +555,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
         long endNumber = blockNumber + qty - 1;
 
-        Block block = getBlockByNumber(endNumber);
+        byte[] endHash = getBlockStore().getBlockHashByNumber(endNumber);
 
-        List<byte[]> hashes = getBlockStore().getListHashesEndWith(block.getHash(), qty);
+        List<byte[]> hashes = getBlockStore().getListHashesEndWith(endHash, qty);
 
         // asc order of hashes is required in the response
         Collections.reverse(hashes);
@@ -905,7 +927,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
                         LOG.trace("IMPORTED_BEST");
                     }
                     IEvent evtOnBest = new EventBlock(EventBlock.CALLBACK.ONBEST0);
-                    evtOnBest.setFuncArgs(Arrays.asList(block, summary.getReceipts()));
+                    evtOnBest.setFuncArgs(Arrays.asList(block, summary.getReceipts(), summary));
                     evts.add(evtOnBest);
                 }
 
@@ -1214,7 +1236,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
     @Override
     public void flush() {
-        repository.flush();
+        repository.flushDatabases();
         try {
             getBlockStore().flush();
         } catch (Exception e) {
@@ -1222,6 +1244,8 @@ public class AionBlockchainImpl implements IAionBlockchain {
             e.printStackTrace();
         }
         transactionStore.commit();
+        // persists the state, blocks and transaction infos together
+        repository.commitShared();
     }
 
     @SuppressWarnings("unused")
@@ -1259,6 +1283,33 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 LOG);
     }
 
+    /**
+     * Performs the checks of a block that do not depend on the state of the chain ahead of its
+     * import, so that they can run in parallel with the execution of the preceding blocks: the
+     * transactions are decoded with their senders, the transaction trie root is verified and the
+     * signatures are checked into the cache of {@link TXValidator}. The import of the same block
+     * instance then skips these checks.
+     *
+     * <p>This method does not lock the blockchain and may be called concurrently for different
+     * blocks.
+     *
+     * @param block a block that is about to be imported
+     */
+    public void preVerify(Block block) {
+        if (block == null || block.isGenesis()) {
+            return;
+        }
+
+        List<AionTransaction> txs = block.getTransactionsList();
+        if (Arrays.equals(block.getTxTrieRoot(), calcTxTrie(txs))) {
+            verifiedTxTries.put(block, Boolean.TRUE);
+
+            for (AionTransaction tx : txs) {
+                TXValidator.isValid(tx);
+            }
+        }
+    }
+
     /**
      * This mechanism enforces a homeostasis in terms of the time between blocks; a smaller period
      * between the last two blocks results in an increase in the difficulty level and thus
@@ -1280,13 +1331,15 @@ public class AionBlockchainImpl implements IAionBlockchain {
             byte[] trieHash = block.getTxTrieRoot();
             List<AionTransaction> txs = block.getTransactionsList();
 
-            byte[] trieListHash = calcTxTrie(txs);
-            if (!Arrays.equals(trieHash, trieListHash)) {
-                LOG.warn(
-                        "Block's given Trie Hash doesn't match: {} != {}",
-                        toHexString(trieHash),
-                        toHexString(trieListHash));
-                return false;
+            if (verifiedTxTries.getIfPresent(block) == null) {
+                byte[] trieListHash = calcTxTrie(txs);
+                if (!Arrays.equals(trieHash, trieListHash)) {
+                    LOG.warn(
+                            "Block's given Trie Hash doesn't match: {} != {}",
+                            toHexString(trieHash),
+                            toHexString(trieListHash));
+                    return false;
+                }
             }
 
             if (txs != null && !txs.isEmpty()) {
@@ -1515,22 +1568,25 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
     private void storeBlock(Block block, List<AionTxReceipt> receipts, List<AionTxExecSummary> summaries) {
 
+        // the infos of the previous block must be stored before this block is
+        transactionStore.checkWrites();
+
         if (fork) {
             getBlockStore().saveBlock(block, totalDifficulty, false);
         } else {
             getBlockStore().saveBlock(block, totalDifficulty, true);
         }
 
-        AionTxInfo info;
+        List<AionTxInfo> infos = new ArrayList<>(receipts.size());
         for (int i = 0; i < receipts.size(); i++) {
             if (storeInternalTransactions) {
-                info = AionTxInfo.newInstanceWithInternalTransactions(receipts.get(i), block.getHash(), i, summaries.get(i).getInternalTransactions());
+                infos.add(AionTxInfo.newInstanceWithInternalTransactions(receipts.get(i), block.getHash(), i, summaries.get(i).getInternalTransactions()));
             } else {
-                info = AionTxInfo.newInstance(receipts.get(i), block.getHash(), i);
+                infos.add(AionTxInfo.newInstance(receipts.get(i), block.getHash(), i));
             }
-            transactionStore.putToBatch(info);
         }
-        transactionStore.flushBatch();
+        // written while the next block executes
+        transactionStore.storeAsync(infos);
 
         repository.commitBlock(block.getHashWrapper(), block.getNumber(), block.getStateRoot());
 
@@ -1622,6 +1678,12 @@ public class AionBlockchainImpl implements IAionBlockchain {
         bestBlock = block;
         updateBestKnownBlock(block);
         bestBlockNumber.set(bestBlock.getNumber());
+
+        // the log blooms of the confirmed blocks get indexed in the background
+        BloomBitsIndex bloomBitsIndex = repository.getBloomBitsIndex();
+        if (bloomBitsIndex != null) {
+            bloomBitsIndex.onNewBest(block.getNumber());
+        }
     }
 
     @Override
@@ -1681,10 +1743,10 @@ public class AionBlockchainImpl implements IAionBlockchain {
     public List<BlockHeader> getListOfHeadersStartFrom(long blockNumber, int limit) {
 
         // identifying block we'll move from
-        Block startBlock = getBlockByNumber(blockNumber);
+        byte[] startHash = getBlockStore().getBlockHashByNumber(blockNumber);
 
         // if nothing found on main chain, return empty array
-        if (startBlock == null) {
+        if (startHash == null) {
             return emptyList();
         }
 
@@ -1734,13 +1796,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
         startNumber = blockNumber + qty - 1;
 
-        Block block = getBlockByNumber(startNumber);
-
-        if (block == null) {
-            return null;
-        }
-
-        return block.getHash();
+        return getBlockStore().getBlockHashByNumber(startNumber);
     }
 
     // NOTE: Functionality removed because not used and untested
@@ -1907,11 +1963,12 @@ public class AionBlockchainImpl implements IAionBlockchain {
         List<byte[]> bodies = new ArrayList<>(hashes.size());
 
         for (byte[] hash : hashes) {
-            Block block = getBlockStore().getBlockByHash(hash);
-            if (block == null) {
+            // the bodies are sent as stored, without decoding the transactions
+            byte[] body = getBlockStore().getEncodedBodyByHash(hash);
+            if (body == null) {
                 break;
             }
-            bodies.add(block.getEncodedBody());
+            bodies.add(body);
         }
 
         return bodies;
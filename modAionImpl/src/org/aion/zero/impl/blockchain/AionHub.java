@@ -27,6 +27,7 @@ import org.aion.mcf.db.Repository;
 import org.aion.p2p.Handler;
 import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Priority;
 import org.aion.p2p.impl1.P2pMgr;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.zero.impl.pendingState.AionPendingStateImpl;
@@ -38,14 +39,17 @@ import org.aion.zero.impl.pow.AionPoW;
 import org.aion.zero.impl.sync.NodeWrapper;
 import org.aion.zero.impl.sync.SyncMgr;
 import org.aion.zero.impl.sync.handler.BlockPropagationHandler;
+import org.aion.zero.impl.sync.handler.BroadcastCompactBlockHandler;
 import org.aion.zero.impl.sync.handler.BroadcastNewBlockHandler;
 import org.aion.zero.impl.sync.handler.BroadcastTxHandler;
 import org.aion.zero.impl.sync.handler.ReqBlocksBodiesHandler;
 import org.aion.zero.impl.sync.handler.ReqBlocksHeadersHandler;
 import org.aion.zero.impl.sync.handler.ReqStatusHandler;
+import org.aion.zero.impl.sync.handler.RequestBlockTxsHandler;
 import org.aion.zero.impl.sync.handler.ResBlocksBodiesHandler;
 import org.aion.zero.impl.sync.handler.ResBlocksHeadersHandler;
 import org.aion.zero.impl.sync.handler.ResStatusHandler;
+import org.aion.zero.impl.sync.handler.ResponseBlockTxsHandler;
 import org.slf4j.Logger;
 
 public class AionHub {
@@ -170,7 +174,14 @@ public class AionHub {
                         cfgNetP2p.getMaxTempNodes(),
                         cfgNetP2p.getMaxActiveNodes(),
                         cfgNetP2p.getBootlistSyncOnly(),
-                        cfgNetP2p.getErrorTolerance());
+                        cfgNetP2p.getErrorTolerance(),
+                        cfgNetP2p.getInboundThreads(),
+                        cfgNetP2p.getInboundRouteCapacity(),
+                        cfgNetP2p.getInboundOverloadLimit(),
+                        Map.of(
+                                Priority.HIGH, cfgNetP2p.getRouteWeightHigh(),
+                                Priority.NORMAL, cfgNetP2p.getRouteWeightNormal(),
+                                Priority.LOW, cfgNetP2p.getRouteWeightLow()));
 
         this.syncMgr = SyncMgr.inst();
         this.syncMgr.init(
@@ -196,7 +207,8 @@ public class AionHub {
                         chainConfig.createBlockHeaderValidator(),
                         cfg.getNet().getP2p().inSyncOnlyMode(),
                         apiVersion,
-                        mempool);
+                        mempool,
+                        cfg.getSync().getCompactBlockRelay());
 
         registerCallback();
 
@@ -241,6 +253,10 @@ public class AionHub {
         cbs.add(new ResBlocksBodiesHandler(syncLOG, surveyLOG, syncMgr, p2pMgr));
         cbs.add(new BroadcastTxHandler(syncLOG, mempool, p2pMgr, inSyncOnlyMode));
         cbs.add(new BroadcastNewBlockHandler(syncLOG, surveyLOG, propHandler, p2pMgr));
+        // the compact blocks are accepted even when not sent by this node
+        cbs.add(new BroadcastCompactBlockHandler(syncLOG, propHandler, p2pMgr));
+        cbs.add(new RequestBlockTxsHandler(syncLOG, propHandler, p2pMgr));
+        cbs.add(new ResponseBlockTxsHandler(syncLOG, propHandler, p2pMgr));
         this.p2pMgr.register(cbs);
     }
 
@@ -21,6 +21,7 @@ import org.aion.vm.common.BulkExecutor;
 import org.aion.vm.exception.VMException;
 import org.aion.zero.impl.SystemExitCodes;
 import org.aion.zero.impl.config.CfgAion;
+import org.aion.zero.impl.db.AionRepositoryImpl;
 import org.aion.zero.impl.tx.TxCollector;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.base.AionTxReceipt;
@@ -39,9 +40,14 @@ public class AionImpl implements IAionChain {
 
     private TxCollector collector;
 
+    // null when the receipts of local calls are not cached
+    private final LocalCallCache callCache;
+
     private AionImpl() {
         this.cfg = CfgAion.inst();
         aionHub = new AionHub();
+        int callCacheSize = cfg.getTx().getCallCacheSize();
+        callCache = callCacheSize > 0 ? new LocalCallCache(callCacheSize) : null;
         LOG_GEN.info(
                 "<node-started endpoint=p2p://"
                         + cfg.getId()
@@ -104,46 +110,28 @@ public class AionImpl implements IAionChain {
     }
 
     public long estimateTxNrg(AionTransaction tx, Block block) {
-        RepositoryCache repository =
-                aionHub.getRepository().getSnapshotTo(block.getStateRoot()).startTracking();
-
-        try {
-            // Booleans moved out here so their meaning is explicit.
-            boolean isLocalCall = true;
-            boolean incrementSenderNonce = true;
-            boolean fork040enabled = false;
-            boolean checkBlockEnergyLimit = false;
-
-            return BulkExecutor.executeTransactionWithNoPostExecutionWork(
-                            block.getDifficulty(),
-                            block.getNumber(),
-                            block.getTimestamp(),
-                            block.getNrgLimit(),
-                            block.getCoinbase(),
-                            tx,
-                            repository,
-                            isLocalCall,
-                            incrementSenderNonce,
-                            fork040enabled,
-                            checkBlockEnergyLimit,
-                            LOG_VM,
-                            BlockCachingContext.CALL,
-                            block.getNumber())
-                    .getReceipt()
-                    .getEnergyUsed();
-        } catch (VMException e) {
-            LOG_GEN.error("Shutdown due to a VM fatal error.", e);
-            System.exit(SystemExitCodes.FATAL_VM_ERROR);
-            return 0;
-        } finally {
-            repository.rollback();
-        }
+        AionTxReceipt receipt = executeLocalCall(tx, block);
+        return receipt == null ? 0 : receipt.getEnergyUsed();
     }
 
     @Override
     public AionTxReceipt callConstant(AionTransaction tx, Block block) {
-        RepositoryCache repository =
-                aionHub.getRepository().getSnapshotTo(block.getStateRoot()).startTracking();
+        return executeLocalCall(tx, block);
+    }
+
+    /**
+     * Executes the transaction on the state of the given block without committing any changes,
+     * reusing the receipt of an identical earlier call on the same block when available.
+     */
+    private AionTxReceipt executeLocalCall(AionTransaction tx, Block block) {
+        if (callCache != null) {
+            AionTxReceipt cached = callCache.get(block.getHash(), tx);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        RepositoryCache repository = getSnapshotTo(block.getStateRoot()).startTracking();
 
         try {
             // Booleans moved out here so their meaning is explicit.
@@ -152,22 +140,28 @@ public class AionImpl implements IAionChain {
             boolean fork040enabled = false;
             boolean checkBlockEnergyLimit = false;
 
-            return BulkExecutor.executeTransactionWithNoPostExecutionWork(
-                            block.getDifficulty(),
-                            block.getNumber(),
-                            block.getTimestamp(),
-                            block.getNrgLimit(),
-                            block.getCoinbase(),
-                            tx,
-                            repository,
-                            isLocalCall,
-                            incrementSenderNonce,
-                            fork040enabled,
-                            checkBlockEnergyLimit,
-                            LOG_VM,
-                            BlockCachingContext.CALL,
-                            block.getNumber())
-                    .getReceipt();
+            AionTxReceipt receipt =
+                    BulkExecutor.executeTransactionWithNoPostExecutionWork(
+                                    block.getDifficulty(),
+                                    block.getNumber(),
+                                    block.getTimestamp(),
+                                    block.getNrgLimit(),
+                                    block.getCoinbase(),
+                                    tx,
+                                    repository,
+                                    isLocalCall,
+                                    incrementSenderNonce,
+                                    fork040enabled,
+                                    checkBlockEnergyLimit,
+                                    LOG_VM,
+                                    BlockCachingContext.CALL,
+                                    block.getNumber())
+                            .getReceipt();
+
+            if (callCache != null) {
+                callCache.put(block.getHash(), tx, receipt);
+            }
+            return receipt;
         } catch (VMException e) {
             LOG_GEN.error("Shutdown due to a VM fatal error.", e);
             System.exit(SystemExitCodes.FATAL_VM_ERROR);
@@ -187,12 +181,14 @@ public class AionImpl implements IAionChain {
         return aionHub.getPendingState().getRepository();
     }
 
+    /**
+     * Returns the read-only snapshot of the repository at the given root shared by the queries on
+     * the same state.
+     */
     @Override
     public Repository<?, ?> getSnapshotTo(byte[] root) {
-        Repository<?, ?> repository = aionHub.getRepository();
-        Repository<?, ?> snapshot = repository.getSnapshotTo(root);
-
-        return snapshot;
+        AionRepositoryImpl repository = (AionRepositoryImpl) aionHub.getRepository();
+        return repository.getCachedSnapshotTo(root);
     }
 
     @Override
@@ -252,12 +248,7 @@ public class AionImpl implements IAionChain {
         try {
             byte[] stateRoot =
                     this.aionHub.getBlockStore().getChainBlockByNumber(blockNumber).getStateRoot();
-            AccountState account =
-                    (AccountState)
-                            this.aionHub
-                                    .getRepository()
-                                    .getSnapshotTo(stateRoot)
-                                    .getAccountState(address);
+            AccountState account = (AccountState) getSnapshotTo(stateRoot).getAccountState(address);
 
             if (account == null) return Optional.empty();
 
@@ -273,12 +264,7 @@ public class AionImpl implements IAionChain {
         try {
             byte[] stateRoot =
                     this.aionHub.getBlockchain().getBlockByHash(blockHash).getStateRoot();
-            AccountState account =
-                    (AccountState)
-                            this.aionHub
-                                    .getRepository()
-                                    .getSnapshotTo(stateRoot)
-                                    .getAccountState(address);
+            AccountState account = (AccountState) getSnapshotTo(stateRoot).getAccountState(address);
 
             if (account == null) return Optional.empty();
 
@@ -292,12 +278,7 @@ public class AionImpl implements IAionChain {
     public Optional<AccountState> getAccountState(AionAddress address) {
         try {
             byte[] stateRoot = this.aionHub.getBlockchain().getBestBlock().getStateRoot();
-            AccountState account =
-                    (AccountState)
-                            this.aionHub
-                                    .getRepository()
-                                    .getSnapshotTo(stateRoot)
-                                    .getAccountState(address);
+            AccountState account = (AccountState) getSnapshotTo(stateRoot).getAccountState(address);
 
             if (account == null) return Optional.empty();
 
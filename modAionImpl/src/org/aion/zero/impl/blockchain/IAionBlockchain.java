@@ -29,6 +29,29 @@ public interface IAionBlockchain extends IPowChain {
 
     Block getBlockByNumber(long num);
 
+    /**
+     * Retrieves the header of the main chain block at the given height without loading the block
+     * body.
+     *
+     * @return the block header or {@code null} if there is no main chain block at the given height
+     */
+    BlockHeader getHeaderByNumber(long num);
+
+    /**
+     * Retrieves the header of the block with the given hash without loading the block body.
+     *
+     * @return the block header or {@code null} if the block is not stored
+     */
+    BlockHeader getHeaderByHash(byte[] hash);
+
+    /**
+     * Retrieves the RLP encoded body of the block with the given hash without decoding the
+     * transactions.
+     *
+     * @return the encoded block body or {@code null} if the block is not stored
+     */
+    byte[] getEncodedBodyByHash(byte[] hash);
+
     /**
      * Returns a range of main chain blocks.
      *
@@ -0,0 +1,75 @@
+package org.aion.zero.impl.blockchain;
+
+import java.util.Collections;
+import java.util.Map;
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxReceipt;
+import org.aion.crypto.HashUtil;
+import org.aion.rlp.RLP;
+import org.aion.util.types.ByteArrayWrapper;
+import org.apache.commons.collections4.map.LRUMap;
+
+/**
+ * The receipts of recent local calls, such as {@code eth_call} and energy estimates.
+ *
+ * <p>A local call executes against the immutable state of a block and commits nothing, so calling
+ * the same transaction again on the same block always produces the same receipt. Reusing the
+ * receipt spares the execution, which otherwise waits for the avm lock held while blocks are
+ * imported and serializes with every other call.
+ *
+ * <p>The key of a call covers the block hash and every transaction field visible to the virtual
+ * machines, leaving out the timestamp and the signature which the callers fill arbitrarily.
+ *
+ * <p>The receipts are kept encoded and each lookup decodes a new instance, since the callers are
+ * free to change the receipt they get.
+ */
+final class LocalCallCache {
+
+    private final Map<ByteArrayWrapper, byte[]> receipts;
+
+    /** @param size the maximum number of receipts kept, at least one */
+    LocalCallCache(int size) {
+        receipts = Collections.synchronizedMap(new LRUMap<>(size));
+    }
+
+    /**
+     * @return a copy of the receipt of the same call on the given block, for the given transaction,
+     *     or {@code null} if unknown
+     */
+    AionTxReceipt get(byte[] blockHash, AionTransaction tx) {
+        byte[] encoded = receipts.get(keyOf(blockHash, tx));
+        if (encoded == null) {
+            return null;
+        }
+        AionTxReceipt receipt = new AionTxReceipt(encoded);
+        receipt.setTransaction(tx);
+        return receipt;
+    }
+
+    void put(byte[] blockHash, AionTransaction tx, AionTxReceipt receipt) {
+        receipts.put(keyOf(blockHash, tx), receipt.getEncoded());
+    }
+
+    int size() {
+        return receipts.size();
+    }
+
+    static ByteArrayWrapper keyOf(byte[] blockHash, AionTransaction tx) {
+        byte[] destination =
+                tx.getDestinationAddress() == null
+                        ? new byte[0]
+                        : tx.getDestinationAddress().toByteArray();
+        byte[] encoded =
+                RLP.encodeList(
+                        RLP.encodeElement(blockHash),
+                        RLP.encodeElement(tx.getSenderAddress().toByteArray()),
+                        RLP.encodeElement(destination),
+                        RLP.encodeElement(tx.getNonce()),
+                        RLP.encodeElement(tx.getValue()),
+                        RLP.encodeElement(tx.getData()),
+                        RLP.encodeLong(tx.getEnergyLimit()),
+                        RLP.encodeLong(tx.getEnergyPrice()),
+                        RLP.encodeByte(tx.getType()));
+        return ByteArrayWrapper.wrap(HashUtil.h256(encoded));
+    }
+}
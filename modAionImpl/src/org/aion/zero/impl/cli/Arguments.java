@@ -121,6 +121,21 @@ public class Arguments {
                     "drops all databases except for block and index when not given a parameter or starting from 0 and redoes import of all known main chain blocks")
     private String redoImport = null;
 
+    @Option(
+            names = {"--export-state"},
+            arity = "2",
+            paramLabel = "<block_number> <file>",
+            description =
+                    "writes the world state and contract data at the given main chain block to a snapshot file")
+    private String[] exportState = null;
+
+    @Option(
+            names = {"--import-state"},
+            paramLabel = "<file>",
+            description =
+                    "loads a snapshot file created with --export-state into the state databases and sets the block of the snapshot as the best block")
+    private String importState = null;
+
     /** Compacts the account options into specific commands. */
     public static String[] preProcess(String[] arguments) {
         List<String> list = new ArrayList<>();
@@ -202,4 +217,12 @@ public class Arguments {
     public String isRedoImport() {
         return redoImport;
     }
+
+    public String[] getExportState() {
+        return exportState;
+    }
+
+    public String getImportState() {
+        return importState;
+    }
 }
@@ -87,7 +87,9 @@ public class Cli {
         PRUNE_STATE,
         DEV,
         DB_COMPACT,
-        REDO_IMPORT
+        REDO_IMPORT,
+        EXPORT_STATE,
+        IMPORT_STATE
     }
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
@@ -428,7 +430,7 @@ public class Cli {
                 String parameter = options.isRedoImport();
 
                 if (parameter.isEmpty()) {
-                    LongLivedAvm.createAndStartLongLivedAvm();
+                    LongLivedAvm.createAndStartLongLivedAvm(cfg.getTx().getExecutionThreads());
                     DBUtils.redoMainChainImport(height);
                     LongLivedAvm.destroy();
                     return EXIT;
@@ -443,13 +445,37 @@ public class Cli {
                         return ERROR;
                     }
 
-                    LongLivedAvm.createAndStartLongLivedAvm();
+                    LongLivedAvm.createAndStartLongLivedAvm(cfg.getTx().getExecutionThreads());
                     DBUtils.redoMainChainImport(height);
                     LongLivedAvm.destroy();
                     return EXIT;
                 }
             }
 
+            if (options.getExportState() != null) {
+                String[] parameters = options.getExportState();
+                long height;
+                try {
+                    height = Long.parseLong(parameters[0]);
+                } catch (NumberFormatException e) {
+                    System.out.println(
+                            "The given argument «"
+                                    + parameters[0]
+                                    + "» cannot be converted to a number.");
+                    return ERROR;
+                }
+
+                return DBUtils.exportState(height, parameters[1]) == DBUtils.Status.SUCCESS
+                        ? EXIT
+                        : ERROR;
+            }
+
+            if (options.getImportState() != null) {
+                return DBUtils.importState(options.getImportState()) == DBUtils.Status.SUCCESS
+                        ? EXIT
+                        : ERROR;
+            }
+
 
             // if no return happened earlier, run the kernel
             return RUN;
@@ -721,6 +747,12 @@ public class Cli {
         if (options.isRedoImport() != null) {
             return TaskPriority.REDO_IMPORT;
         }
+        if (options.getExportState() != null) {
+            return TaskPriority.EXPORT_STATE;
+        }
+        if (options.getImportState() != null) {
+            return TaskPriority.IMPORT_STATE;
+        }
         return TaskPriority.NONE;
     }
 
@@ -785,6 +817,14 @@ public class Cli {
                 && options.isRedoImport() != null) {
             skippedTasks.add("--redo-import");
         }
+        if (breakingTaskPriority.compareTo(TaskPriority.EXPORT_STATE) < 0
+                && options.getExportState() != null) {
+            skippedTasks.add("--export-state");
+        }
+        if (breakingTaskPriority.compareTo(TaskPriority.IMPORT_STATE) < 0
+                && options.getImportState() != null) {
+            skippedTasks.add("--import-state");
+        }
 
         return skippedTasks;
     }
@@ -15,6 +15,7 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.base.AccountState;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.db.impl.ByteArrayKeyValueStore;
 import org.aion.db.impl.DBVendor;
 import org.aion.db.store.ArchivedDataSource;
 import org.aion.db.store.JournalPruneDataSource;
@@ -47,13 +48,18 @@ public abstract class AbstractRepository<BSB extends IBlockStoreBase>
 
     protected static final String INDEX_DB = Names.INDEX;
     protected static final String BLOCK_DB = Names.BLOCK;
+    protected static final String HEADER_DB = Names.HEADER;
+    protected static final String BLOOM_BITS_DB = Names.BLOOM_BITS;
     protected static final String PENDING_BLOCK_DB = Names.PENDING_BLOCK;
     protected static final String CONTRACT_INDEX_DB = Names.CONTRACT_INDEX;
     protected static final String DETAILS_DB = Names.DETAILS;
     protected static final String STORAGE_DB = Names.STORAGE;
     protected static final String GRAPH_DB = Names.GRAPH;
     protected static final String STATE_DB = Names.STATE;
+    protected static final String FLAT_STATE_DB = Names.FLAT_STATE;
     protected static final String STATE_ARCHIVE_DB = Names.STATE_ARCHIVE;
+    protected static final String STATE_JOURNAL_DB = Names.STATE_JOURNAL;
+    protected static final String STORAGE_JOURNAL_DB = Names.STORAGE_JOURNAL;
     protected static final String PENDING_TX_POOL_DB = Names.TX_POOL;
     protected static final String PENDING_TX_CACHE_DB = Names.TX_CACHE;
     protected static final String CONTRACT_PERFORM_CODE_DB = Names.CONTRACT_PERFORM_CODE;
@@ -74,8 +80,13 @@ public abstract class AbstractRepository<BSB extends IBlockStoreBase>
     protected ByteArrayKeyValueDatabase graphDatabase;
     protected ByteArrayKeyValueDatabase indexDatabase;
     protected ByteArrayKeyValueDatabase blockDatabase;
+    protected ByteArrayKeyValueDatabase headerDatabase;
+    protected ByteArrayKeyValueDatabase bloomBitsDatabase;
     protected ByteArrayKeyValueDatabase stateDatabase;
+    protected ByteArrayKeyValueDatabase flatStateDatabase;
     protected ByteArrayKeyValueDatabase stateArchiveDatabase;
+    protected ByteArrayKeyValueDatabase stateJournalDatabase;
+    protected ByteArrayKeyValueDatabase storageJournalDatabase;
     protected ByteArrayKeyValueDatabase txPoolDatabase;
     protected ByteArrayKeyValueDatabase pendingTxCacheDatabase;
     protected ByteArrayKeyValueDatabase contractPerformCodeDatabase;
@@ -181,6 +192,14 @@ public abstract class AbstractRepository<BSB extends IBlockStoreBase>
             }
             databaseGroup.add(stateDatabase);
 
+            // using state specific properties
+            sharedProps.setProperty(Props.DB_NAME, FLAT_STATE_DB);
+            this.flatStateDatabase = connectAndOpen(sharedProps, LOG);
+            if (flatStateDatabase == null || flatStateDatabase.isClosed()) {
+                throw newException(FLAT_STATE_DB, sharedProps);
+            }
+            databaseGroup.add(flatStateDatabase);
+
             // getting transaction specific properties
             sharedProps = cfg.getDatabaseConfig(TRANSACTION_DB);
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
@@ -270,6 +289,22 @@ public abstract class AbstractRepository<BSB extends IBlockStoreBase>
             }
             databaseGroup.add(blockDatabase);
 
+            // using block specific properties
+            sharedProps.setProperty(Props.DB_NAME, HEADER_DB);
+            this.headerDatabase = connectAndOpen(sharedProps, LOG);
+            if (headerDatabase == null || headerDatabase.isClosed()) {
+                throw newException(HEADER_DB, sharedProps);
+            }
+            databaseGroup.add(headerDatabase);
+
+            // using block specific properties
+            sharedProps.setProperty(Props.DB_NAME, BLOOM_BITS_DB);
+            this.bloomBitsDatabase = connectAndOpen(sharedProps, LOG);
+            if (bloomBitsDatabase == null || bloomBitsDatabase.isClosed()) {
+                throw newException(BLOOM_BITS_DB, sharedProps);
+            }
+            databaseGroup.add(bloomBitsDatabase);
+
             // using block specific properties
             sharedProps.setProperty(Props.DB_NAME, PENDING_BLOCK_DB);
             this.pendingStoreProperties = sharedProps;
@@ -296,14 +331,51 @@ public abstract class AbstractRepository<BSB extends IBlockStoreBase>
             }
             databaseGroup.add(pendingTxCacheDatabase);
 
-            // Setup the cache for transaction data source.
-            this.detailsDS =
-                    new DetailsDataStore(detailsDatabase, storageDatabase, graphDatabase, LOG);
-
             // pruning config
             pruneEnabled = this.cfg.getPruneConfig().isEnabled();
             pruneBlockCount = this.cfg.getPruneConfig().getCurrentCount();
             archiveRate = this.cfg.getPruneConfig().getArchiveRate();
+            int journalWindow = this.cfg.getPruneConfig().getJournalWindow();
+
+            if (pruneEnabled && this.cfg.getPruneConfig().isJournalPersisted()) {
+                // using state config for the journals
+                sharedProps = cfg.getDatabaseConfig(STATE_DB);
+                sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+                sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+                sharedProps.setProperty(Props.DB_NAME, STATE_JOURNAL_DB);
+                this.stateJournalDatabase = connectAndOpen(sharedProps, LOG);
+                if (stateJournalDatabase == null || stateJournalDatabase.isClosed()) {
+                    throw newException(STATE_JOURNAL_DB, sharedProps);
+                }
+                databaseGroup.add(stateJournalDatabase);
+
+                sharedProps = cfg.getDatabaseConfig(STORAGE_DB);
+                sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+                sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+                sharedProps.setProperty(Props.DB_NAME, STORAGE_JOURNAL_DB);
+                this.storageJournalDatabase = connectAndOpen(sharedProps, LOG);
+                if (storageJournalDatabase == null || storageJournalDatabase.isClosed()) {
+                    throw newException(STORAGE_JOURNAL_DB, sharedProps);
+                }
+                databaseGroup.add(storageJournalDatabase);
+
+                LOGGEN.info(
+                        "Pruning journal PERSISTED. Updates kept in memory for the top {} blocks.",
+                        journalWindow);
+            } else {
+                stateJournalDatabase = null;
+                storageJournalDatabase = null;
+            }
+
+            // Setup the cache for transaction data source.
+            this.detailsDS =
+                    new DetailsDataStore(
+                            detailsDatabase,
+                            storageDatabase,
+                            graphDatabase,
+                            storageJournalDatabase,
+                            journalWindow,
+                            LOG);
 
             if (pruneEnabled && this.cfg.getPruneConfig().isArchived()) {
                 // using state config for state_archive
@@ -315,7 +387,7 @@ public abstract class AbstractRepository<BSB extends IBlockStoreBase>
                 databaseGroup.add(stateArchiveDatabase);
 
                 stateWithArchive = new ArchivedDataSource(stateDatabase, stateArchiveDatabase);
-                stateDSPrune = new JournalPruneDataSource(stateWithArchive, LOG);
+                stateDSPrune = newJournalPruneDataSource(stateWithArchive, journalWindow);
                 // the size is defined assuming for two side chain blocks at each level
                 // since the pruned blocks are removed according to their level
                 // in practice the cache is likely to be one third the allocated size
@@ -328,7 +400,7 @@ public abstract class AbstractRepository<BSB extends IBlockStoreBase>
             } else {
                 stateArchiveDatabase = null;
                 stateWithArchive = null;
-                stateDSPrune = new JournalPruneDataSource(stateDatabase, LOG);
+                stateDSPrune = newJournalPruneDataSource(stateDatabase, journalWindow);
 
                 if (pruneEnabled) {
                     LOGGEN.info("Pruning ENABLED. Top block count set to {}.", pruneBlockCount);
@@ -342,6 +414,15 @@ public abstract class AbstractRepository<BSB extends IBlockStoreBase>
         }
     }
 
+    private JournalPruneDataSource newJournalPruneDataSource(
+            ByteArrayKeyValueStore source, int journalWindow) {
+        if (stateJournalDatabase == null) {
+            return new JournalPruneDataSource(source, LOG);
+        } else {
+            return new JournalPruneDataSource(source, stateJournalDatabase, journalWindow, LOG);
+        }
+    }
+
     private InvalidFilePathException newException(String dbName, Properties props) {
         return new InvalidFilePathException(
                 "The «"
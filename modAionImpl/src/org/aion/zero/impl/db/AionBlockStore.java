@@ -4,6 +4,8 @@ import static java.math.BigInteger.ZERO;
 import static org.aion.crypto.HashUtil.shortHash;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -22,7 +24,6 @@ import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.store.ArrayStore;
@@ -39,18 +40,45 @@ import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPList;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.types.A0BlockHeader;
 import org.aion.zero.impl.types.AionBlock;
 import org.slf4j.Logger;
 
+/**
+ * Block store keeping the block headers, the block bodies and the index of blocks at each level.
+ * The headers and bodies are stored in separate databases keyed by the block hash, allowing
+ * header-only queries to avoid reading and decoding the transactions.
+ *
+ * <p>The main chain queries do not lock. They are answered from an immutable {@link
+ * MainChainView} covering the most recent {@link #VIEW_DEPTH} levels which is atomically
+ * replaced by the writers after each update. Only the writers coordinate through the {@link
+ * #lock}.
+ */
 public class AionBlockStore implements IBlockStorePow {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
     private static final Logger LOG_CONS = AionLoggerFactory.getLogger(LogEnum.CONS.name());
 
-    protected Lock lock = new ReentrantLock();
+    // the number of recent levels covered by the published main chain view
+    @VisibleForTesting static final int VIEW_DEPTH = 1024;
+
+    protected final ReentrantLock lock = new ReentrantLock();
 
     private ArrayStore<List<BlockInfo>> index;
-    private ObjectStore<Block> blocks;
+    private ObjectStore<byte[]> headers;
+    // block bodies; blocks stored by earlier versions are kept whole until rewritten
+    private ObjectStore<byte[]> bodies;
+    // fully decoded blocks by hash; only copies are returned since the callers modify the blocks
+    private final Cache<ByteArrayWrapper, AionBlock> decodedBlocks;
+
+    private volatile MainChainView view;
+    // odd while a writer is updating levels that were already published
+    private volatile long indexUpdates = 0L;
+    // the lowest level updated since the last published view; guarded by the lock
+    private long lowestUpdatedLevel = Long.MAX_VALUE;
+    // the highest level ever published; guarded by the lock
+    private long highestPublishedLevel = -1L;
 
     private boolean checkIntegrity = true;
 
@@ -59,76 +87,269 @@ public class AionBlockStore implements IBlockStorePow {
     private long branchingLevel;
 
     @VisibleForTesting
-    public AionBlockStore(ByteArrayKeyValueDatabase index, ByteArrayKeyValueDatabase blocks, boolean checkIntegrity) {
-        this(index, blocks, checkIntegrity, 0);
+    public AionBlockStore(ByteArrayKeyValueDatabase index, ByteArrayKeyValueDatabase headers, ByteArrayKeyValueDatabase blocks, boolean checkIntegrity) {
+        this(index, headers, blocks, checkIntegrity, 0);
     }
 
-    public AionBlockStore(ByteArrayKeyValueDatabase index, ByteArrayKeyValueDatabase blocks, boolean checkIntegrity, int blockCacheSize) {
+    public AionBlockStore(ByteArrayKeyValueDatabase index, ByteArrayKeyValueDatabase headers, ByteArrayKeyValueDatabase blocks, boolean checkIntegrity, int blockCacheSize) {
         this.index = Stores.newArrayStore(index, BLOCK_INFO_SERIALIZER);
-        // Note: because of cache use the blocks db should write lock on get as well
-        this.blocks = Stores.newObjectStoreWithCache(blocks, BLOCK_SERIALIZER, blockCacheSize);
+        // Note: the cached object stores are thread-safe allowing reads without the lock
+        // the raw headers and bodies share the cache size, the decoded blocks are cached in front
+        int headerCacheSize = blockCacheSize / 2;
+        this.headers = Stores.newObjectStoreWithCache(headers, RAW_SERIALIZER, headerCacheSize);
+        this.bodies = Stores.newObjectStoreWithCache(blocks, RAW_SERIALIZER, blockCacheSize - headerCacheSize);
+        this.decodedBlocks = CacheBuilder.newBuilder().maximumSize(blockCacheSize).build();
         this.checkIntegrity = checkIntegrity;
+
+        lock.lock();
+        try {
+            lowestUpdatedLevel = 0L;
+            publishView();
+        } finally {
+            lock.unlock();
+        }
     }
 
-    private static final Serializer<Block> BLOCK_SERIALIZER =
-        new Serializer<>() {
-            @Override
-            public byte[] serialize(Block block) {
-                return block.getEncoded();
-            }
+    /**
+     * Immutable view of the main chain for the most recent levels. Readers take the current view
+     * once and use it for all the levels it covers. Older levels are read from the index database.
+     */
+    private static final class MainChainView {
+        private final long maxNumber;
+        private final long firstLevel;
+        // the main chain info for each level from firstLevel to maxNumber; never modified
+        private final BlockInfo[] mainChain;
+
+        private MainChainView(long maxNumber, long firstLevel, BlockInfo[] mainChain) {
+            this.maxNumber = maxNumber;
+            this.firstLevel = firstLevel;
+            this.mainChain = mainChain;
+        }
 
-            @Override
-            // TODO: This will have to change to support PoS blocks
-            public AionBlock deserialize(byte[] bytes) {
-                return new AionBlock(bytes);
+        private boolean covers(long level) {
+            return level >= firstLevel && level <= maxNumber;
+        }
+
+        /** @implNote The calling method must check that the level is covered by the view. */
+        private BlockInfo get(long level) {
+            return mainChain[(int) (level - firstLevel)];
+        }
+    }
+
+    /**
+     * Returns the view used by the current thread. Writers holding the lock read the index
+     * directly to see their own updates, signalled by a {@code null} view.
+     */
+    private MainChainView currentView() {
+        return lock.isHeldByCurrentThread() ? null : view;
+    }
+
+    private long getMaxNumber(MainChainView current) {
+        return current == null ? index.size() - 1L : current.maxNumber;
+    }
+
+    /**
+     * Retrieves the main chain info at the given level as seen from the given view.
+     *
+     * @return the main chain info or {@code null} if the level has no main chain block
+     */
+    private BlockInfo getMainChainInfo(MainChainView current, long level) {
+        if (level < 0L || level > getMaxNumber(current)) {
+            return null;
+        }
+        if (current == null) {
+            return getMainChainInfo(index.get(level));
+        }
+        if (current.covers(level)) {
+            return current.get(level);
+        }
+
+        // older levels are read from the index unless a writer is updating published levels
+        long updates = indexUpdates;
+        if ((updates & 1L) == 0L) {
+            try {
+                BlockInfo info = getMainChainInfo(index.get(level));
+                if (updates == indexUpdates) {
+                    return info;
+                }
+            } catch (IndexOutOfBoundsException e) {
+                // the level was removed by a concurrent update
             }
-        };
+        }
 
-    public Block getBestBlock() {
         lock.lock();
-
         try {
-            long maxLevel = getMaxNumber();
-            if (maxLevel < 0) {
-                return null;
-            }
+            return level < index.size() ? getMainChainInfo(index.get(level)) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            Block bestBlock = getChainBlockByNumber(maxLevel);
-            if (bestBlock != null) {
-                return bestBlock;
+    private static BlockInfo getMainChainInfo(List<BlockInfo> blockInfos) {
+        if (blockInfos != null) {
+            for (BlockInfo blockInfo : blockInfos) {
+                if (blockInfo.isMainChain()) {
+                    return blockInfo;
+                }
             }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the published view with one reflecting the index updates made since the last
+     * publication. The levels below the lowest updated level are reused from the previous view.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void publishView() {
+        if (lowestUpdatedLevel == Long.MAX_VALUE) {
+            return;
+        }
 
-            while (bestBlock == null) {
-                --maxLevel;
-                bestBlock = getChainBlockByNumber(maxLevel);
+        MainChainView previous = view;
+        long maxNumber = index.size() - 1L;
+        long firstLevel = Math.max(0L, maxNumber - VIEW_DEPTH + 1);
+        BlockInfo[] mainChain = new BlockInfo[(int) (maxNumber - firstLevel + 1)];
+
+        for (long level = firstLevel; level <= maxNumber; level++) {
+            if (level < lowestUpdatedLevel && previous != null && previous.covers(level)) {
+                mainChain[(int) (level - firstLevel)] = previous.get(level);
+            } else {
+                mainChain[(int) (level - firstLevel)] = getMainChainInfo(index.get(level));
             }
+        }
 
-            return bestBlock;
+        view = new MainChainView(maxNumber, firstLevel, mainChain);
+        highestPublishedLevel = Math.max(highestPublishedLevel, maxNumber);
+        lowestUpdatedLevel = Long.MAX_VALUE;
+        if ((indexUpdates & 1L) == 1L) {
+            indexUpdates++;
+        }
+    }
+
+    /**
+     * Records an update of the given level. Updates to published levels are signalled to the
+     * readers accessing the index without the lock until the next view is published.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void markUpdated(long level) {
+        lowestUpdatedLevel = Math.min(lowestUpdatedLevel, level);
+        if (level <= highestPublishedLevel && (indexUpdates & 1L) == 0L) {
+            indexUpdates++;
+        }
+    }
+
+    /** Publishes the index updates and releases the lock. */
+    private void publishAndUnlock() {
+        try {
+            publishView();
         } finally {
             lock.unlock();
         }
     }
 
-    public byte[] getBlockHashByNumber(long blockNumber) {
-        lock.lock();
+    private static final Serializer<byte[]> RAW_SERIALIZER =
+        new Serializer<>() {
+            @Override
+            public byte[] serialize(byte[] encoding) {
+                return encoding;
+            }
 
-        try {
-            if (blockNumber < 0L || blockNumber >= index.size()) {
-                return null;
+            @Override
+            public byte[] deserialize(byte[] bytes) {
+                return bytes;
             }
+        };
 
-            List<BlockInfo> blockInfos = index.get(blockNumber);
+    /**
+     * Checks if the stored value is a complete block encoding, as written before the headers were
+     * stored separately, instead of a block body. The block encoding is a list containing the
+     * header and the transactions, while the body is a list containing only the transactions.
+     */
+    private static boolean isEncodedBlock(byte[] stored) {
+        int prefix = RLP.getPrefixSize(stored, 0);
+        return prefix + RLP.getElementSize(stored, prefix) < stored.length;
+    }
 
-            for (BlockInfo blockInfo : blockInfos) {
-                if (blockInfo.isMainChain()) {
-                    return blockInfo.getHash();
-                }
-            }
+    /** Stores the header and body of the given block. */
+    private void putBlock(Block block) {
+        headers.put(block.getHash(), block.getHeader().getEncoded());
+        bodies.put(block.getHash(), block.getEncodedBody());
+    }
+
+    /** Deletes the header and body of the block with the given hash. */
+    private void deleteBlock(byte[] hash) {
+        headers.delete(hash);
+        bodies.delete(hash);
+        decodedBlocks.invalidate(ByteArrayWrapper.wrap(hash));
+    }
 
+    /**
+     * Retrieves the header of the block with the given hash without reading the block body.
+     *
+     * @return the block header or {@code null} if the block is not stored
+     */
+    @Override
+    public BlockHeader getHeaderByHash(byte[] hash) {
+        byte[] header = headers.get(hash);
+        if (header != null) {
+            return new A0BlockHeader(header);
+        }
+
+        // blocks stored before the headers were separated
+        byte[] body = bodies.get(hash);
+        if (body != null && isEncodedBlock(body)) {
+            return new AionBlock(body).getHeader();
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieves the RLP encoded body of the block with the given hash without decoding it.
+     *
+     * @return the encoded body or {@code null} if the block is not stored
+     */
+    public byte[] getEncodedBodyByHash(byte[] hash) {
+        byte[] body = bodies.get(hash);
+        if (body != null && isEncodedBlock(body)) {
+            return new AionBlock(body).getEncodedBody();
+        }
+        return body;
+    }
+
+    /** @return the header of the main chain block at the given height or {@code null} if missing */
+    public BlockHeader getChainHeaderByNumber(long number) {
+        BlockInfo blockInfo = getMainChainInfo(currentView(), number);
+        return blockInfo == null ? null : getHeaderByHash(blockInfo.getHash());
+    }
+
+    public Block getBestBlock() {
+        MainChainView current = currentView();
+
+        long maxLevel = getMaxNumber(current);
+        if (maxLevel < 0) {
             return null;
-        } finally {
-            lock.unlock();
         }
+
+        Block bestBlock = getChainBlockByNumber(current, maxLevel);
+        if (bestBlock != null) {
+            return bestBlock;
+        }
+
+        while (bestBlock == null) {
+            --maxLevel;
+            bestBlock = getChainBlockByNumber(current, maxLevel);
+        }
+
+        return bestBlock;
+    }
+
+    public byte[] getBlockHashByNumber(long blockNumber) {
+        BlockInfo blockInfo = getMainChainInfo(currentView(), blockNumber);
+        return blockInfo == null ? null : blockInfo.getHash();
     }
 
     @Override
@@ -151,7 +372,8 @@ public class AionBlockStore implements IBlockStorePow {
     public void flush() {
         lock.lock();
         try {
-            blocks.commit();
+            headers.commit();
+            bodies.commit();
             index.commit();
         } finally {
             lock.unlock();
@@ -164,7 +386,7 @@ public class AionBlockStore implements IBlockStorePow {
         try {
             addInternalBlock(block, cummDifficulty, mainChain);
         } finally {
-            lock.unlock();
+            publishAndUnlock();
         }
     }
 
@@ -191,8 +413,8 @@ public class AionBlockStore implements IBlockStorePow {
 
         blockInfos.add(new BlockInfo(block.getHash(), cummDifficulty, mainChain));
 
-        blocks.put(block.getHash(), block);
-        index.set(block.getNumber(), blockInfos);
+        putBlock(block);
+        setBlockInfoForLevel(block.getNumber(), blockInfos);
     }
 
     public List<Map.Entry<Block, Map.Entry<BigInteger, Boolean>>> getBlocksByNumber(
@@ -211,7 +433,7 @@ public class AionBlockStore implements IBlockStorePow {
             for (BlockInfo blockInfo : blockInfos) {
 
                 byte[] hash = blockInfo.getHash();
-                Block block = blocks.get(hash);
+                Block block = getBlockByHash(hash);
 
                 result.add(
                         Map.entry(
@@ -227,35 +449,22 @@ public class AionBlockStore implements IBlockStorePow {
 
     @Override
     public Block getChainBlockByNumber(long number) {
-        lock.lock();
-
-        try {
-            long size = index.size();
-            if (number < 0L || number >= size) {
-                return null;
-            }
-
-            List<BlockInfo> blockInfos = index.get(number);
-
-            if (blockInfos == null) {
-                return null;
-            }
+        return getChainBlockByNumber(currentView(), number);
+    }
 
-            for (BlockInfo blockInfo : blockInfos) {
-                if (blockInfo.isMainChain()) {
-                    byte[] hash = blockInfo.getHash();
-                    Block block = blocks.get(hash);
-                    if (block != null) {
-                        block.setCumulativeDifficulty(blockInfo.cummDifficulty);
-                        return block;
-                    }
-                }
-            }
+    private Block getChainBlockByNumber(MainChainView current, long number) {
+        BlockInfo blockInfo = getMainChainInfo(current, number);
 
+        if (blockInfo == null) {
             return null;
-        } finally {
-            lock.unlock();
         }
+
+        // getBlockByHash returns an instance owned by the caller, safe to update without the lock
+        Block block = getBlockByHash(blockInfo.getHash());
+        if (block != null) {
+            block.setCumulativeDifficulty(blockInfo.cummDifficulty);
+        }
+        return block;
     }
 
     /**
@@ -280,7 +489,7 @@ public class AionBlockStore implements IBlockStorePow {
 
             List<Block> blockList = new ArrayList<>();
             for (BlockInfo blockInfo : blockInfos) {
-                Block b = blocks.get(blockInfo.getHash());
+                Block b = getBlockByHash(blockInfo.getHash());
                 if (blockInfo.isMainChain()) {
                     b.setMainChain();
                 }
@@ -401,61 +610,65 @@ public class AionBlockStore implements IBlockStorePow {
         }
     }
 
-    @SuppressWarnings("Duplicates")
     public Map.Entry<Block, BigInteger> getChainBlockByNumberWithTotalDifficulty(long number) {
-        lock.lock();
+        BlockInfo blockInfo = getMainChainInfo(currentView(), number);
 
-        try {
-            if (number < 0L || number >= index.size()) {
-                return null;
-            }
+        if (blockInfo == null) {
+            return null;
+        }
 
-            List<BlockInfo> blockInfos = index.get(number);
-            if (blockInfos == null) {
-                LOG.error(
-                        "Encountered a kernel database corruption: cannot find blockInfos at level {} in index data store.",
-                        number);
-                LOG.error(
-                        " Please shutdown the kernel and rollback the database by executing:\t./aion.sh -n <network> -r {}",
-                        number - 1);
-                return null;
-            }
+        return Map.entry(getBlockByHash(blockInfo.getHash()), blockInfo.getCummDifficulty());
+    }
 
-            for (BlockInfo blockInfo : blockInfos) {
-                if (blockInfo.isMainChain()) {
-                    byte[] hash = blockInfo.getHash();
-                    return Map.entry(blocks.get(hash), blockInfo.getCummDifficulty());
-                }
+    /**
+     * Returns a new block instance on every call, since the callers set the total difficulty and
+     * the main chain flag on the result without holding the lock. The decoded blocks are cached
+     * and copied, avoiding the decoding of recently read blocks.
+     */
+    @Override
+    public Block getBlockByHash(byte[] hash) {
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(hash);
+        AionBlock decoded = decodedBlocks.getIfPresent(key);
+        if (decoded == null) {
+            decoded = decodeBlock(hash);
+            if (decoded == null) {
+                return null;
             }
+            // decoded before being shared, the cached instance is never modified
+            decoded.parseRLP();
+            decodedBlocks.put(key, decoded);
+        }
+        return new AionBlock(decoded);
+    }
 
+    private AionBlock decodeBlock(byte[] hash) {
+        byte[] body = bodies.get(hash);
+        if (body == null) {
             return null;
-        } finally {
-            lock.unlock();
         }
-    }
 
-    @Override
-    public Block getBlockByHash(byte[] hash) {
-        lock.lock();
-        try {
-            return blocks.get(hash);
-        } finally {
-            lock.unlock();
+        // TODO: This will have to change to support PoS blocks
+        if (isEncodedBlock(body)) {
+            return new AionBlock(body);
         }
+
+        byte[] header = headers.get(hash);
+        if (header == null) {
+            return null;
+        }
+
+        // the block encoding is the list of the header followed by the body elements
+        int prefix = RLP.getPrefixSize(body, 0);
+        return new AionBlock(RLP.encodeList(header, Arrays.copyOfRange(body, prefix, body.length)));
     }
 
     @Override
     public boolean isBlockStored(byte[] hash, long number) {
-        lock.lock();
-        try {
-            // the index size is cached, making this check faster than reading from the db
-            if (number >= index.size()) {
-                return false;
-            } else {
-                return blocks.get(hash) != null;
-            }
-        } finally {
-            lock.unlock();
+        // the view is kept in memory, making this check faster than reading from the db
+        if (number > getMaxNumber(currentView())) {
+            return false;
+        } else {
+            return bodies.get(hash) != null;
         }
     }
 
@@ -468,15 +681,27 @@ public class AionBlockStore implements IBlockStorePow {
      */
     @Override
     public BigInteger getTotalDifficultyForHash(byte[] hash) {
+        Block block = this.getBlockByHash(hash);
+        if (block == null) {
+            return ZERO;
+        }
+
+        // main chain blocks are found in the published view
+        BlockInfo mainChainInfo = getMainChainInfo(currentView(), block.getNumber());
+        if (mainChainInfo != null && Arrays.equals(mainChainInfo.getHash(), hash)) {
+            return mainChainInfo.getCummDifficulty();
+        }
+
+        // side chain blocks are read from the index
+        return getTotalDifficultyFromIndex(block, hash);
+    }
+
+    private BigInteger getTotalDifficultyFromIndex(Block block, byte[] hash) {
         lock.lock();
 
         try {
-            Block block = this.getBlockByHash(hash);
-            if (block == null) {
-                return ZERO;
-            }
-
-            List<BlockInfo> blockInfos = index.get(block.getNumber());
+            List<BlockInfo> blockInfos =
+                    block.getNumber() < index.size() ? index.get(block.getNumber()) : null;
             if (blockInfos == null) {
                 LOG.error(
                         "Encountered a kernel database corruption: cannot find blockInfos at level {} in index data store.",
@@ -517,109 +742,80 @@ public class AionBlockStore implements IBlockStorePow {
      */
     @Override
     public BigInteger getTotalDifficulty() {
-        lock.lock();
+        MainChainView current = currentView();
+        long maxNumber = getMaxNumber(current);
 
-        try {
-            long maxNumber = getMaxNumber();
+        BlockInfo blockInfo = getMainChainInfo(current, maxNumber);
+        if (blockInfo != null) {
+            return blockInfo.getCummDifficulty();
+        }
 
-            List<BlockInfo> blockInfos = index.get(maxNumber);
-            if (blockInfos != null && !blockInfos.isEmpty()) {
-                for (BlockInfo blockInfo : blockInfos) {
-                    if (blockInfo.isMainChain()) {
-                        return blockInfo.getCummDifficulty();
-                    }
-                }
-            }
-
-            // Can't find the mainchain blockInfo in the highest block index. Looking backward to
-            // see
-            // have any mainchain block info in the previous levels.
-            int depth = 0;
-            while (depth < 128) {
-                --maxNumber;
-                List<BlockInfo> infos = getBlockInfoForLevel(maxNumber);
-
-                for (BlockInfo blockInfo : infos) {
-                    if (blockInfo.isMainChain()) {
-                        return blockInfo.getCummDifficulty();
-                    }
-                }
-                ++depth;
+        // Can't find the mainchain blockInfo in the highest block index. Looking backward to
+        // see
+        // have any mainchain block info in the previous levels.
+        int depth = 0;
+        while (depth < 128) {
+            --maxNumber;
+            blockInfo = getMainChainInfo(current, maxNumber);
+            if (blockInfo != null) {
+                return blockInfo.getCummDifficulty();
             }
+            ++depth;
+        }
 
-            LOG.error(
-                    "Encountered a kernel database corruption: cannot find blockInfos at level {} in index data store. "
-                            + "Or the branch is too deep, it should not happens. "
-                            + "Please shutdown the kernel and rollback the database by executing:\t./aion.sh -n <network> -r {}",
-                    maxNumber,
-                    maxNumber - 1);
+        LOG.error(
+                "Encountered a kernel database corruption: cannot find blockInfos at level {} in index data store. "
+                        + "Or the branch is too deep, it should not happens. "
+                        + "Please shutdown the kernel and rollback the database by executing:\t./aion.sh -n <network> -r {}",
+                maxNumber,
+                maxNumber - 1);
 
-            throw new IllegalStateException("Index DB corruption or branch too deep.");
-        } finally {
-            lock.unlock();
-        }
+        throw new IllegalStateException("Index DB corruption or branch too deep.");
     }
 
     @Override
     public long getMaxNumber() {
-        lock.lock();
-
-        try {
-            return index.size() - 1L;
-        } finally {
-            lock.unlock();
-        }
+        return getMaxNumber(currentView());
     }
 
     @Override
     public List<byte[]> getListHashesEndWith(byte[] hash, long number) {
-        lock.lock();
+        List<BlockHeader> headers = getListHeadersEndWith(hash, number);
+        List<byte[]> hashes = new ArrayList<>(headers.size());
 
-        try {
-            List<Block> blocks = getListBlocksEndWith(hash, number);
-            List<byte[]> hashes = new ArrayList<>(blocks.size());
-
-            for (Block b : blocks) {
-                hashes.add(b.getHash());
-            }
-
-            return hashes;
-        } finally {
-            lock.unlock();
+        for (BlockHeader h : headers) {
+            hashes.add(h.getHash());
         }
+
+        return hashes;
     }
 
     @Override
     public List<BlockHeader> getListHeadersEndWith(byte[] hash, long qty) {
-        lock.lock();
-        try {
-            List<Block> blocks = getListBlocksEndWith(hash, qty);
-            List<BlockHeader> headers = new ArrayList<>(blocks.size());
+        // the headers are immutable and retrieved by hash, not requiring the lock
+        BlockHeader header = getHeaderByHash(hash);
 
-            for (Block b : blocks) {
-                headers.add(b.getHeader());
-            }
+        if (header == null) {
+            return new ArrayList<>();
+        }
 
-            return headers;
-        } finally {
-            lock.unlock();
+        List<BlockHeader> headers = new ArrayList<>((int) qty);
+
+        for (int i = 0; i < qty; ++i) {
+            headers.add(header);
+            header = getHeaderByHash(header.getParentHash());
+            if (header == null) {
+                break;
+            }
         }
+
+        return headers;
     }
 
     @Override
     public List<Block> getListBlocksEndWith(byte[] hash, long qty) {
-        lock.lock();
-        try {
-            return getListBlocksEndWithInner(hash, qty);
-        } finally {
-            lock.unlock();
-        }
-    }
-
-    /** @implNote The method calling this method must handle the locking. */
-    private List<Block> getListBlocksEndWithInner(byte[] hash, long qty) {
-        // locks acquired by calling method
-        Block block = this.blocks.get(hash);
+        // the blocks are immutable and retrieved by hash, not requiring the lock
+        Block block = getBlockByHash(hash);
 
         if (block == null) {
             return new ArrayList<>();
@@ -629,7 +825,7 @@ public class AionBlockStore implements IBlockStorePow {
 
         for (int i = 0; i < qty; ++i) {
             blocks.add(block);
-            block = this.blocks.get(block.getParentHash());
+            block = getBlockByHash(block.getParentHash());
             if (block == null) {
                 break;
             }
@@ -707,7 +903,7 @@ public class AionBlockStore implements IBlockStorePow {
 
             return commonBlockNumber;
         } finally {
-            lock.unlock();
+            publishAndUnlock();
         }
     }
 
@@ -821,7 +1017,7 @@ public class AionBlockStore implements IBlockStorePow {
                 // remove all the blocks at that level
                 List<BlockInfo> currentLevelBlocks = getBlockInfoForLevel(currentLevel);
                 if (currentLevelBlocks == null || currentLevelBlocks.isEmpty()) {
-                    blocks.delete(bestLine.getHash());
+                    deleteBlock(bestLine.getHash());
                     LOG.error(
                             "Null block information found at "
                                     + currentLevel
@@ -831,12 +1027,12 @@ public class AionBlockStore implements IBlockStorePow {
                             "Please reboot your node to trigger automatic database recovery by the kernel.");
                 } else {
                     for (BlockInfo bk_info : currentLevelBlocks) {
-                        blocks.delete(bk_info.getHash());
+                        deleteBlock(bk_info.getHash());
                     }
                 }
 
                 // remove the level
-                index.remove(currentLevel);
+                removeBlockInfoForLevel(currentLevel);
                 if (bestLine != null) {
                     bestLine = getBlockByHash(bestLine.getParentHash());
                 } else {
@@ -897,7 +1093,7 @@ public class AionBlockStore implements IBlockStorePow {
                 }
             }
         } finally {
-            lock.unlock();
+            publishAndUnlock();
         }
     }
 
@@ -945,7 +1141,7 @@ public class AionBlockStore implements IBlockStorePow {
                 level++;
             }
         } finally {
-            lock.unlock();
+            publishAndUnlock();
         }
     }
 
@@ -969,7 +1165,7 @@ public class AionBlockStore implements IBlockStorePow {
 
         // deleting incorrect parallel blocks
         for (BlockInfo wrongBlock : levelBlocks) {
-            blocks.delete(wrongBlock.getHash());
+            deleteBlock(wrongBlock.getHash());
         }
 
         // set new block info with total difficulty = block difficulty
@@ -1045,7 +1241,7 @@ public class AionBlockStore implements IBlockStorePow {
 
             return blockInfo.getCummDifficulty();
         } finally {
-            lock.unlock();
+            publishAndUnlock();
         }
     }
 
@@ -1206,14 +1402,8 @@ public class AionBlockStore implements IBlockStorePow {
      *     block is not indexed or is a side chain block
      */
     public boolean isMainChain(byte[] hash, long level) {
-        lock.lock();
-
-        try {
-            BlockInfo info = getBlockInfoForHash(getBlockInfoForLevel(level), hash);
-            return info != null && info.mainChain;
-        } finally {
-            lock.unlock();
-        }
+        BlockInfo info = getMainChainInfo(currentView(), level);
+        return info != null && Arrays.equals(hash, info.getHash());
     }
 
     /**
@@ -1221,16 +1411,22 @@ public class AionBlockStore implements IBlockStorePow {
      * method attempts to correct it by setting it to the given level.
      */
     public void correctSize(long maxNumber, Logger log) {
-        // correcting the size if smaller than should be
-        long storedSize = index.size();
-        if (maxNumber >= storedSize) {
-            // can't change size directly, so we do a put + delete the next level to reset it
-            index.set(maxNumber + 1, new ArrayList<>());
-            index.remove(maxNumber + 1);
-            log.info(
-                    "Corrupted index size corrected from {} to {}.",
-                    storedSize,
-                    index.size());
+        lock.lock();
+
+        try {
+            // correcting the size if smaller than should be
+            long storedSize = index.size();
+            if (maxNumber >= storedSize) {
+                // can't change size directly, so we do a put + delete the next level to reset it
+                setBlockInfoForLevel(maxNumber + 1, new ArrayList<>());
+                removeBlockInfoForLevel(maxNumber + 1);
+                log.info(
+                        "Corrupted index size corrected from {} to {}.",
+                        storedSize,
+                        index.size());
+            }
+        } finally {
+            publishAndUnlock();
         }
     }
 
@@ -1268,7 +1464,7 @@ public class AionBlockStore implements IBlockStorePow {
                 }
             }
         } finally {
-            lock.unlock();
+            publishAndUnlock();
         }
     }
 
@@ -1290,15 +1486,15 @@ public class AionBlockStore implements IBlockStorePow {
                 // delete all the side-chain blocks
                 for (BlockInfo blockInfo : level) {
                     if (!Arrays.equals(currentHash, blockInfo.getHash())) {
-                        blocks.delete(blockInfo.getHash());
+                        deleteBlock(blockInfo.getHash());
                     }
                 }
 
                 // replace all the block info with empty list
-                index.set(block.getNumber(), Collections.emptyList());
+                setBlockInfoForLevel(block.getNumber(), Collections.emptyList());
             }
         } finally {
-            lock.unlock();
+            publishAndUnlock();
         }
     }
 
@@ -1483,9 +1679,17 @@ public class AionBlockStore implements IBlockStorePow {
     /** @implNote The method calling this method must handle the locking. */
     private void setBlockInfoForLevel(long level, List<BlockInfo> infos) {
         // locks acquired by calling method
+        markUpdated(level);
         index.set(level, infos);
     }
 
+    /** @implNote The method calling this method must handle the locking. */
+    private void removeBlockInfoForLevel(long level) {
+        // locks acquired by calling method
+        markUpdated(level);
+        index.remove(level);
+    }
+
     /**
      * @return the hash information if it is present in the list or {@code null} when the given
      *     block list is {@code null} or the hash is not present in the list
@@ -1518,6 +1722,17 @@ public class AionBlockStore implements IBlockStorePow {
     }
 
     public IntegrityCheckResult indexIntegrityCheck() {
+        lock.lock();
+
+        try {
+            return checkIndexIntegrity();
+        } finally {
+            publishAndUnlock();
+        }
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private IntegrityCheckResult checkIndexIntegrity() {
         if (index.size() > 0) {
             LOG_CONS.info("Checking the integrity of the total difficulty information...");
 
@@ -1658,11 +1873,17 @@ public class AionBlockStore implements IBlockStorePow {
             LOG.error("Not able to close the index database:", e);
         } finally {
             try {
-                blocks.close();
+                headers.close();
             } catch (Exception e) {
-                LOG.error("Not able to close the blocks database:", e);
+                LOG.error("Not able to close the headers database:", e);
             } finally {
-                lock.unlock();
+                try {
+                    bodies.close();
+                } catch (Exception e) {
+                    LOG.error("Not able to close the blocks database:", e);
+                } finally {
+                    lock.unlock();
+                }
             }
         }
     }
@@ -1682,13 +1903,13 @@ public class AionBlockStore implements IBlockStorePow {
                 List<BlockInfo> currentLevelBlocks = getBlockInfoForLevel(level);
 
                 for (BlockInfo bk_info : currentLevelBlocks) {
-                    blocks.delete(bk_info.getHash());
+                    deleteBlock(bk_info.getHash());
                 }
 
-                index.remove(level--);
+                removeBlockInfoForLevel(level--);
             }
         } finally {
-            lock.unlock();
+            publishAndUnlock();
         }
     }
 }
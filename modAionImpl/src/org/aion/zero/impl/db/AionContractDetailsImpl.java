@@ -16,6 +16,7 @@ import java.util.Optional;
 import org.aion.db.impl.ByteArrayKeyValueStore;
 import org.aion.db.store.XorDataSource;
 import org.aion.mcf.db.InternalVmType;
+import org.aion.zero.impl.trie.NodeCache;
 import org.aion.zero.impl.trie.SecureTrie;
 import org.aion.precompiled.ContractInfo;
 import org.aion.rlp.RLP;
@@ -44,6 +45,13 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
     private byte[] objectGraphHash = EMPTY_DATA_HASH;
     private byte[] concatenatedStorageHash = EMPTY_DATA_HASH;
 
+    // serves the storage reads while the storage is unchanged, see setFlatState
+    private FlatState flatState;
+    private ByteArrayWrapper flatRoot;
+
+    // the stored storage trie nodes shared across contracts and blocks, see setStorageNodes
+    private NodeCache storageNodes = null;
+
     public AionContractDetailsImpl() {}
 
     @VisibleForTesting
@@ -102,6 +110,7 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
 
         byte[] data = RLP.encodeElement(value.getData());
         storageTrie.update(key.getData(), data);
+        flatState = null;
 
         setDirty(true);
         rlpEncoded = null;
@@ -112,6 +121,7 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
         Objects.requireNonNull(key);
 
         storageTrie.delete(key.getData());
+        flatState = null;
 
         setDirty(true);
         rlpEncoded = null;
@@ -126,7 +136,13 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
      */
     @Override
     public ByteArrayWrapper get(ByteArrayWrapper key) {
-        byte[] data = storageTrie.get(key.getData());
+        byte[] data = flatState == null ? null : flatState.getStorage(flatRoot, address, key);
+        if (data == null) {
+            data = storageTrie.get(key.getData());
+            if (flatState != null) {
+                flatState.fillStorage(flatRoot, address, key, data);
+            }
+        }
         return (data == null || data.length == 0)
                 ? null
                 : new ByteArrayWrapper(RLP.decode2(data).get(0).getRLPData());
@@ -341,6 +357,18 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
             externalStorage = true;
             storageTrie.getCache().setDB(getExternalStorageDataSource());
         }
+
+        if (externalStorage) {
+            storageTrie.getCache().setSharedNodes(storageNodes);
+        }
+    }
+
+    /**
+     * Sets the cache of decoded storage trie nodes used by the external storage, which must be set
+     * before decoding.
+     */
+    void setStorageNodes(NodeCache storageNodes) {
+        this.storageNodes = storageNodes;
     }
 
     /**
@@ -581,6 +609,16 @@ public class AionContractDetailsImpl extends AbstractContractDetails {
         return details;
     }
 
+    /**
+     * Reads the storage through the flat view of the world state at the given root, which must be
+     * the state this snapshot was taken from. The flat view is no longer used once the storage is
+     * modified.
+     */
+    void setFlatState(FlatState flatState, ByteArrayWrapper root) {
+        this.flatState = flatState;
+        this.flatRoot = root;
+    }
+
     /**
      * Returns a sufficiently deep copy of this contract details object.
      *
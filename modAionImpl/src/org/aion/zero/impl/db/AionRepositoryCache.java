@@ -7,6 +7,7 @@ import java.math.BigInteger;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -421,6 +422,31 @@ public class AionRepositoryCache implements RepositoryCache<AccountState, IBlock
         }
     }
 
+    @Override
+    public void rollback(Collection<AionAddress> addresses) {
+        fullyWriteLock();
+        try {
+            for (AionAddress address : addresses) {
+                cachedAccounts.remove(address);
+                cachedDetails.remove(address);
+            }
+        } finally {
+            fullyWriteUnlock();
+        }
+    }
+
+    @Override
+    public Set<AionAddress> getCachedAddresses() {
+        fullyReadLock();
+        try {
+            Set<AionAddress> addresses = new HashSet<>(cachedAccounts.keySet());
+            addresses.addAll(cachedDetails.keySet());
+            return addresses;
+        } finally {
+            fullyReadUnlock();
+        }
+    }
+
     @Override
     public Repository getSnapshotTo(byte[] root) {
         return repository.getSnapshotTo(root);
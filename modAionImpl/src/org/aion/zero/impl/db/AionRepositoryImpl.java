@@ -6,6 +6,7 @@ import static org.aion.crypto.HashUtil.h256;
 import static org.aion.util.bytes.ByteUtil.EMPTY_BYTE_ARRAY;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheStats;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,6 +29,7 @@ import org.aion.mcf.db.ContractDetails;
 import org.aion.mcf.db.InternalVmType;
 import org.aion.mcf.db.Repository;
 import org.aion.mcf.db.RepositoryCache;
+import org.aion.zero.impl.trie.NodeCache;
 import org.aion.zero.impl.trie.SecureTrie;
 import org.aion.zero.impl.trie.Trie;
 import org.aion.zero.impl.trie.TrieImpl;
@@ -55,12 +57,29 @@ public class AionRepositoryImpl
     // pending block store
     private PendingBlockStore pendingStore;
 
+    // log bloom index of the main chain
+    private BloomBitsIndex bloomBitsIndex;
+
+    // flat view of the recent states, shared with the snapshots
+    private FlatState flatState;
+    // the state root served by the flat view, null while the world state has pending changes
+    private ByteArrayWrapper flatRoot;
+    // the changes applied to the world state since the last committed block
+    private FlatState.Diff stateDiff;
+
     // inferred contract information not used for consensus
     private ObjectStore<ContractInformation> contractInfoSource;
 
     // TODO: include in the repository config after the FVM is decoupled or remove RepositoryConfig and pass individual parameters
     private int blockCacheSize;
 
+    // the number of read-only snapshots for queries and the memory used by the state nodes they share
+    private static final int SNAPSHOT_CACHE_SIZE = 256;
+    private static final long SNAPSHOT_NODES_CACHE_SIZE = 64 * 1024 * 1024;
+
+    // the read-only snapshots at recent state roots, shared with the snapshots
+    private SnapshotCache snapshots;
+
     /**
      * used by getSnapShotTo
      *
@@ -93,13 +112,22 @@ public class AionRepositoryImpl
                             transactionDatabase, AionTransactionStoreSerializer.serializer);
 
             // Setup block store.
-            this.blockStore = new AionBlockStore(indexDatabase, blockDatabase, checkIntegrity, blockCacheSize);
+            this.blockStore = new AionBlockStore(indexDatabase, headerDatabase, blockDatabase, checkIntegrity, blockCacheSize);
+            this.bloomBitsIndex = new BloomBitsIndex(bloomBitsDatabase, blockStore);
 
             this.pendingStore = new PendingBlockStore(pendingStoreProperties);
             this.contractInfoSource = Stores.newObjectStoreWithCache(contractIndexDatabase, ContractInformation.RLP_SERIALIZER, 10);
 
             // Setup world trie.
             worldState = createStateTrie();
+            this.snapshots = new SnapshotCache(SNAPSHOT_CACHE_SIZE, SNAPSHOT_NODES_CACHE_SIZE);
+            // the shared nodes must not outlive the pruned ones
+            NodeCache stateNodes = snapshots.getStateNodes();
+            stateDSPrune.setPruneListener(
+                    keys -> keys.forEach(key -> stateNodes.remove(ByteArrayWrapper.wrap(key))));
+
+            this.flatState = new FlatState(flatStateDatabase);
+            this.flatRoot = ByteArrayWrapper.wrap(worldState.getRootHash());
         } catch (Exception e) {
             LOGGEN.error("Shutdown due to failure to initialize repository.");
             // the above message does not get logged without the printStackTrace below
@@ -118,7 +146,12 @@ public class AionRepositoryImpl
     }
 
     private Trie createStateTrie() {
-        return new SecureTrie(stateDSPrune).withPruningEnabled(pruneEnabled);
+        SecureTrie trie = new SecureTrie(stateDSPrune);
+        if (isSnapshot && snapshots != null) {
+            // the snapshots share the nodes they read, unlike the main world state
+            trie.getCache().setSharedNodes(snapshots.getStateNodes());
+        }
+        return trie.withPruningEnabled(pruneEnabled).withParallelHashingEnabled(true);
     }
 
     @Override
@@ -128,6 +161,11 @@ public class AionRepositoryImpl
         rwLock.writeLock().lock();
 
         try {
+            if (stateDiff == null && flatRoot != null && !isSnapshot) {
+                stateDiff = new FlatState.Diff(flatRoot);
+            }
+            flatRoot = null;
+
             for (Map.Entry<AionAddress, AccountState> entry : stateCache.entrySet()) {
                 AionAddress address = entry.getKey();
                 AccountState accountState = entry.getValue();
@@ -140,6 +178,9 @@ public class AionRepositoryImpl
                     } catch (Exception e) {
                         LOG.error("key deleted exception [{}]", e.toString());
                     }
+                    if (stateDiff != null) {
+                        stateDiff.deleteAccount(address);
+                    }
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("key deleted <key={}>", Hex.toHexString(address.toByteArray()));
                     }
@@ -187,6 +228,9 @@ public class AionRepositoryImpl
 
                     // this method requires the encoding functionality therefore can be applied only to AionContractDetailsImpl
                     updateContractDetails(address, (AionContractDetailsImpl) contractDetails);
+                    if (stateDiff != null) {
+                        stateDiff.putStorage(address, contractDetailsCache.getCachedStorage());
+                    }
 
                     // TODO: incorrect check codeHash != trie hash
                     if (!Arrays.equals(accountState.getCodeHash(), EMPTY_TRIE_HASH)) {
@@ -249,6 +293,15 @@ public class AionRepositoryImpl
 
     @Override
     public void flush() {
+        flushDatabases();
+        commitShared();
+    }
+
+    /**
+     * Syncs the world state and commits all the databases. For databases that share their storage
+     * the changes are only staged until {@link #commitShared()} is called.
+     */
+    public void flushDatabases() {
         if (LOG.isDebugEnabled()) {
             LOG.debug("------ FLUSH ON " + this.toString());
         }
@@ -271,6 +324,9 @@ public class AionRepositoryImpl
                 LOG.info("flush all databases");
             }
 
+            // When the databases are column families of a shared instance (see the rocksdbcf
+            // vendor), these commits only stage the writes, which are persisted together by
+            // commitShared() once all the stores were flushed.
             if (databaseGroup != null) {
                 for (ByteArrayKeyValueDatabase db : databaseGroup) {
                     if (!db.isAutoCommitEnabled()) {
@@ -291,6 +347,27 @@ public class AionRepositoryImpl
         }
     }
 
+    /**
+     * Persists the changes staged by the databases that share their storage in one atomic write,
+     * including the writes of the block and transaction stores and of the background index and
+     * flat state updates. Must be called only after all these stores were flushed, since it also
+     * persists whatever partial changes they have staged.
+     */
+    public void commitShared() {
+        rwLock.writeLock().lock();
+        try {
+            if (databaseGroup != null) {
+                for (ByteArrayKeyValueDatabase db : databaseGroup) {
+                    if (!db.isAutoCommitEnabled()) {
+                        db.commitShared();
+                    }
+                }
+            }
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
     @Override
     public void rollback() {
         throw new UnsupportedOperationException();
@@ -321,6 +398,8 @@ public class AionRepositoryImpl
         rwLock.writeLock().lock();
         try {
             worldState.setRoot(root);
+            stateDiff = null;
+            flatRoot = ByteArrayWrapper.wrap(root);
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -446,14 +525,18 @@ public class AionRepositoryImpl
     /** @implNote The method calling this method must handle the locking. */
     private void updateAccountState(AionAddress address, AccountState accountState) {
         // locked by calling method
-        worldState.update(address.toByteArray(), accountState.getEncoded());
+        byte[] encoded = accountState.getEncoded();
+        worldState.update(address.toByteArray(), encoded);
+        if (stateDiff != null) {
+            stateDiff.putAccount(address, encoded);
+        }
     }
 
     /**
      * @inheritDoc
      * @implNote Any other method calling this can rely on the fact that the contract details
-     *     returned is a newly created object by {@link AionContractDetailsImpl#getSnapshotTo(byte[],
-     *     InternalVmType)}. Since this querying method it locked, the methods calling it <b>may not
+     *     returned is a newly created object by {@link DetailsDataStore#getSnapshotTo(AionAddress,
+     *     byte[], InternalVmType)}. Since this querying method it locked, the methods calling it <b>may not
      *     need to be locked or synchronized</b>, depending on the specific use case.
      */
     @Override
@@ -475,14 +558,16 @@ public class AionRepositoryImpl
             }
 
             InternalVmType vm = getVMUsed(address, codeHash);
-            details = detailsDS.get(vm, address.toByteArray());
+            details = detailsDS.getSnapshotTo(address, storageRoot, vm);
 
             if (details != null) {
-                details = details.getSnapshotTo(storageRoot, vm);
                 Optional<byte[]> code = contractPerformCodeDatabase.get(address.toByteArray());
                 if (code.isPresent()) {
                     details.setTransformedCode(code.get());
                 }
+                if (flatRoot != null) {
+                    details.setFlatState(flatState, flatRoot);
+                }
             }
 
             return details;
@@ -514,7 +599,13 @@ public class AionRepositoryImpl
         AccountState result = null;
 
         try {
-            byte[] accountData = worldState.get(address.toByteArray());
+            byte[] accountData = flatRoot == null ? null : flatState.getAccount(flatRoot, address);
+            if (accountData == null) {
+                accountData = worldState.get(address.toByteArray());
+                if (flatRoot != null) {
+                    flatState.fillAccount(flatRoot, address, accountData);
+                }
+            }
 
             if (accountData.length != 0) {
                 result = new AccountState(accountData);
@@ -574,6 +665,8 @@ public class AionRepositoryImpl
         rwLock.writeLock().lock();
         try {
             worldState.setRoot(root);
+            stateDiff = null;
+            flatRoot = ByteArrayWrapper.wrap(root);
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -589,6 +682,15 @@ public class AionRepositoryImpl
         try {
             worldState.sync();
 
+            if (!isSnapshot) {
+                ByteArrayWrapper root = ByteArrayWrapper.wrap(worldState.getRootHash());
+                if (stateDiff != null) {
+                    flatState.addLayer(root, stateDiff);
+                    stateDiff = null;
+                }
+                flatRoot = root;
+            }
+
             if (pruneEnabled) {
                 // cache the block number & hash for retrieval during pruneBlocks
                 if (cacheForBlockPruning.containsKey(blockNumber)) {
@@ -660,6 +762,9 @@ public class AionRepositoryImpl
         try {
             AionRepositoryImpl repo = new AionRepositoryImpl();
             repo.blockStore = blockStore;
+            repo.bloomBitsIndex = bloomBitsIndex;
+            repo.flatState = flatState;
+            repo.flatRoot = ByteArrayWrapper.wrap(root);
             repo.contractInfoSource = contractInfoSource;
             repo.contractPerformCodeDatabase = contractPerformCodeDatabase;
             repo.cfg = cfg;
@@ -674,6 +779,7 @@ public class AionRepositoryImpl
             repo.archiveRate = this.archiveRate;
 
             repo.detailsDS = this.detailsDS;
+            repo.snapshots = this.snapshots;
             repo.isSnapshot = true;
 
             repo.worldState = repo.createStateTrie();
@@ -688,6 +794,30 @@ public class AionRepositoryImpl
         }
     }
 
+    /**
+     * Returns a read-only snapshot of the repository at the given state root, which is shared with
+     * the other queries on the same root. The snapshot must not be modified: the changes made
+     * during the execution of local calls must stay in a {@link #startTracking()} repository and
+     * be rolled back.
+     *
+     * @param root the state root of a block
+     * @return the shared snapshot at the given root
+     */
+    public Repository<?, ?> getCachedSnapshotTo(byte[] root) {
+        return snapshots.get(
+                root,
+                () -> {
+                    AionRepositoryImpl repo = (AionRepositoryImpl) getSnapshotTo(root);
+                    ((TrieImpl) repo.worldState).getCache().setRetainReads(false);
+                    return repo;
+                });
+    }
+
+    /** @return the hit and miss statistics of the read-only snapshots */
+    public CacheStats getSnapshotCacheStats() {
+        return snapshots.stats();
+    }
+
     @Override
     public void addTxBatch(Map<byte[], byte[]> pendingTx, boolean isPool) {
 
@@ -752,6 +882,24 @@ public class AionRepositoryImpl
                         "Exception occurred while closing the pendingTxCacheDatabase store.", e);
             }
 
+            try {
+                if (flatStateDatabase != null) {
+                    // the diff layers are kept in memory only
+                    if (flatRoot != null) {
+                        flatState.flatten(flatRoot);
+                    }
+                    flatState.close();
+                    if (!flatStateDatabase.isAutoCommitEnabled()) {
+                        flatStateDatabase.commit();
+                    }
+                    flatStateDatabase.close();
+                    LOGGEN.info("Flat state database closed.");
+                    flatStateDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the flat state database.", e);
+            }
+
             try {
                 if (stateDatabase != null) {
                     stateDatabase.close();
@@ -772,6 +920,16 @@ public class AionRepositoryImpl
                 LOGGEN.error("Exception occurred while closing the state archive database.", e);
             }
 
+            try {
+                if (stateJournalDatabase != null) {
+                    stateJournalDatabase.close();
+                    LOGGEN.info("State journal database closed.");
+                    stateJournalDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the state journal database.", e);
+            }
+
             try {
                 if (transactionStore != null) {
                     transactionStore.close();
@@ -782,6 +940,16 @@ public class AionRepositoryImpl
                 LOGGEN.error("Exception occurred while closing the transaction database.", e);
             }
 
+            try {
+                if (bloomBitsIndex != null) {
+                    bloomBitsIndex.close();
+                    LOGGEN.info("Bloom bits index closed.");
+                    bloomBitsIndex = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the bloom bits index.", e);
+            }
+
             try {
                 if (blockStore != null) {
                     blockStore.close();
@@ -871,6 +1039,21 @@ public class AionRepositoryImpl
         return this.blockDatabase;
     }
 
+    /** @return the index of the log blooms of the main chain blocks */
+    public BloomBitsIndex getBloomBitsIndex() {
+        return this.bloomBitsIndex;
+    }
+
+    /** @return the flat view of the recent states */
+    public FlatState getFlatState() {
+        return this.flatState;
+    }
+
+    /** For testing. */
+    public ByteArrayKeyValueDatabase getHeaderDatabase() {
+        return this.headerDatabase;
+    }
+
     /** For testing. */
     public ByteArrayKeyValueDatabase getIndexDatabase() {
         return this.indexDatabase;
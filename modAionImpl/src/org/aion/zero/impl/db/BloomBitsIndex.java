@@ -0,0 +1,378 @@
+package org.aion.zero.impl.db;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.base.Bloom;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.blockchain.BlockHeader;
+import org.aion.util.bytes.ByteUtil;
+import org.slf4j.Logger;
+
+/**
+ * Index of the log blooms of the main chain blocks, used to find the blocks that may contain logs
+ * matching a filter without reading every block in the queried range.
+ *
+ * <p>The chain is split into sections of {@link #SECTION_SIZE} blocks. For every section and every
+ * bit of the bloom, the index stores a bit vector marking the blocks of the section whose bloom has
+ * that bit set. A filter bloom is matched against a whole section by intersecting the vectors of
+ * the bits it sets.
+ *
+ * @implNote Sections are indexed on a background thread once their last block is {@link
+ *     #CONFIRMATIONS} blocks behind the best block. Each section records the hash of its last
+ *     block, so the sections that are no longer on the main chain are ignored by queries and
+ *     rebuilt. The blocks not covered by a valid section are matched by reading their headers.
+ *     The index is never committed from the background thread; when the database does not commit
+ *     automatically, its writes are persisted by the next repository flush.
+ */
+public class BloomBitsIndex {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** The number of blocks in a section. */
+    public static final int SECTION_SIZE = 4096;
+
+    /** The distance from the best block after which a complete section gets indexed. */
+    public static final int CONFIRMATIONS = 256;
+
+    private static final int BLOOM_BITS = Bloom.SIZE * 8;
+
+    private static final byte[] SECTIONS_KEY = "sections".getBytes(StandardCharsets.UTF_8);
+    private static final byte VECTOR_PREFIX = 0;
+    private static final byte HEAD_PREFIX = 1;
+
+    // the bit vectors are stored either as a bitmap or as the list of set positions
+    private static final byte BITMAP = 0;
+    private static final byte SPARSE = 1;
+
+    private final ByteArrayKeyValueDatabase database;
+    private final AionBlockStore blockStore;
+
+    private final ExecutorService indexer;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    // the number of indexed sections
+    private volatile long sections;
+    // the number of the latest best block
+    private volatile long best = -1;
+
+    public BloomBitsIndex(ByteArrayKeyValueDatabase database, AionBlockStore blockStore) {
+        this.database = database;
+        this.blockStore = blockStore;
+
+        Optional<byte[]> stored = database.get(SECTIONS_KEY);
+        this.sections = stored.isPresent() ? ByteUtil.byteArrayToLong(stored.get()) : 0L;
+
+        this.indexer =
+                Executors.newSingleThreadExecutor(
+                        r -> {
+                            Thread t = new Thread(r, "bloom-index");
+                            t.setDaemon(true);
+                            t.setPriority(Thread.MIN_PRIORITY);
+                            return t;
+                        });
+    }
+
+    /** @return the number of sections currently indexed */
+    public long getSectionCount() {
+        return sections;
+    }
+
+    /**
+     * Schedules the indexing of the sections completed up to the given best block, including the
+     * ones missing from earlier runs.
+     *
+     * @param bestNumber the number of the new best block
+     */
+    public void onNewBest(long bestNumber) {
+        best = bestNumber;
+
+        if (!closed && scheduled.compareAndSet(false, true)) {
+            try {
+                indexer.execute(this::update);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Finds the main chain blocks in the given range whose log bloom matches the filter. The filter
+     * is given as a conjunction of alternatives: a block matches when its bloom contains at least
+     * one of the blooms of every group. A group without blooms matches all the blocks.
+     *
+     * @param from the first block number of the range
+     * @param to the last block number of the range (inclusive)
+     * @param filter the groups of blooms to match
+     * @return the numbers of the matching blocks in ascending order
+     */
+    public List<Long> findMatchingBlocks(long from, long to, Bloom[][] filter) {
+        List<Long> matches = new ArrayList<>();
+        long indexed = sections;
+
+        long number = Math.max(0, from);
+        while (number <= to) {
+            long section = number / SECTION_SIZE;
+            long start = section * SECTION_SIZE;
+            long end = Math.min(to, start + SECTION_SIZE - 1);
+
+            if (section < indexed && isValid(section)) {
+                BitSet bits = matchSection(section, filter);
+                for (int i = bits.nextSetBit((int) (number - start));
+                        i >= 0 && start + i <= end;
+                        i = bits.nextSetBit(i + 1)) {
+                    matches.add(start + i);
+                }
+            } else {
+                for (long n = number; n <= end; n++) {
+                    BlockHeader header = blockStore.getChainHeaderByNumber(n);
+                    if (header == null) {
+                        // past the end of the main chain
+                        return matches;
+                    }
+                    if (matches(new Bloom(header.getLogsBloom()), filter)) {
+                        matches.add(n);
+                    }
+                }
+            }
+
+            number = end + 1;
+        }
+
+        return matches;
+    }
+
+    /** @return {@code true} if the given block bloom matches the filter */
+    private static boolean matches(Bloom blockBloom, Bloom[][] filter) {
+        for (Bloom[] group : filter) {
+            if (group.length == 0) {
+                continue;
+            }
+            boolean groupMatches = false;
+            for (Bloom bloom : group) {
+                if (blockBloom.matches(bloom)) {
+                    groupMatches = true;
+                    break;
+                }
+            }
+            if (!groupMatches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return the positions in the section of the blocks whose bloom matches the filter */
+    private BitSet matchSection(long section, Bloom[][] filter) {
+        Map<Integer, BitSet> vectors = new HashMap<>();
+
+        BitSet result = new BitSet(SECTION_SIZE);
+        result.set(0, SECTION_SIZE);
+
+        for (Bloom[] group : filter) {
+            if (group.length == 0) {
+                continue;
+            }
+
+            BitSet groupMatches = new BitSet(SECTION_SIZE);
+            for (Bloom bloom : group) {
+                BitSet bloomMatches = new BitSet(SECTION_SIZE);
+                bloomMatches.set(0, SECTION_SIZE);
+
+                for (int bit : setBits(bloom.getBloomFilterBytes())) {
+                    bloomMatches.and(vectors.computeIfAbsent(bit, b -> loadVector(section, b)));
+                }
+                groupMatches.or(bloomMatches);
+            }
+            result.and(groupMatches);
+        }
+
+        return result;
+    }
+
+    /** @return the positions of the bits set in the given bloom */
+    private static List<Integer> setBits(byte[] bloom) {
+        List<Integer> bits = new ArrayList<>();
+        for (int i = 0; i < bloom.length; i++) {
+            for (int j = 0; j < 8; j++) {
+                if ((bloom[i] & (1 << j)) != 0) {
+                    bits.add(i * 8 + j);
+                }
+            }
+        }
+        return bits;
+    }
+
+    /** @return {@code true} if the section was built from blocks that are still on the main chain */
+    private boolean isValid(long section) {
+        Optional<byte[]> head = database.get(headKey(section));
+        return head.isPresent()
+                && Arrays.equals(
+                        head.get(),
+                        blockStore.getBlockHashByNumber((section + 1) * SECTION_SIZE - 1));
+    }
+
+    /** Brings the index up to date with the main chain. Executed by the indexer thread. */
+    private void update() {
+        scheduled.set(false);
+
+        try {
+            // drop the sections affected by chain reorganizations
+            while (sections > 0 && !closed && !isValid(sections - 1)) {
+                removeSection(sections - 1);
+            }
+
+            long ready = (best - CONFIRMATIONS + 1) / SECTION_SIZE;
+            while (sections < ready && !closed) {
+                long start = System.currentTimeMillis();
+                if (!indexSection(sections)) {
+                    // the chain changed while reading the section; retry on the next block
+                    return;
+                }
+                LOG.debug(
+                        "Indexed the log blooms of section #{} in {} ms.",
+                        sections - 1,
+                        System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            if (!closed) {
+                LOG.error("Unable to update the bloom bits index.", e);
+            }
+        }
+    }
+
+    /**
+     * Reads the blooms of all the blocks in the section and stores the bit vectors.
+     *
+     * @return {@code true} if the section was indexed, {@code false} if the blocks read did not
+     *     form a chain
+     */
+    private boolean indexSection(long section) {
+        BitSet[] vectors = new BitSet[BLOOM_BITS];
+        byte[] previousHash = null;
+
+        for (int i = 0; i < SECTION_SIZE; i++) {
+            BlockHeader header = blockStore.getChainHeaderByNumber(section * SECTION_SIZE + i);
+            if (header == null
+                    || (previousHash != null
+                            && !Arrays.equals(previousHash, header.getParentHash()))) {
+                return false;
+            }
+            previousHash = header.getHash();
+
+            for (int bit : setBits(header.getLogsBloom())) {
+                if (vectors[bit] == null) {
+                    vectors[bit] = new BitSet(SECTION_SIZE);
+                }
+                vectors[bit].set(i);
+            }
+        }
+
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (int bit = 0; bit < BLOOM_BITS; bit++) {
+            if (vectors[bit] != null) {
+                batch.put(vectorKey(section, bit), encode(vectors[bit]));
+            }
+        }
+        // the section becomes visible to queries after the vectors are written
+        batch.put(headKey(section), previousHash);
+        batch.put(SECTIONS_KEY, ByteUtil.longToBytes(section + 1));
+
+        database.putBatch(batch);
+        sections = section + 1;
+        return true;
+    }
+
+    private void removeSection(long section) {
+        LOG.info("Removing the bloom bits of section #{} after a chain reorganization.", section);
+
+        // hidden from queries before the vectors are removed
+        sections = section;
+        database.put(SECTIONS_KEY, ByteUtil.longToBytes(section));
+
+        List<byte[]> keys = new ArrayList<>();
+        keys.add(headKey(section));
+        for (int bit = 0; bit < BLOOM_BITS; bit++) {
+            keys.add(vectorKey(section, bit));
+        }
+        database.deleteBatch(keys);
+    }
+
+    private BitSet loadVector(long section, int bit) {
+        Optional<byte[]> stored = database.get(vectorKey(section, bit));
+        return stored.isPresent() ? decode(stored.get()) : new BitSet(SECTION_SIZE);
+    }
+
+    /** Encodes the vector in the shorter of the bitmap and the sparse formats. */
+    static byte[] encode(BitSet vector) {
+        byte[] bitmap = vector.toByteArray();
+        int sparseSize = vector.cardinality() * Short.BYTES;
+
+        if (sparseSize < bitmap.length) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + sparseSize);
+            buffer.put(SPARSE);
+            for (int i = vector.nextSetBit(0); i >= 0; i = vector.nextSetBit(i + 1)) {
+                buffer.putShort((short) i);
+            }
+            return buffer.array();
+        } else {
+            byte[] encoded = new byte[1 + bitmap.length];
+            encoded[0] = BITMAP;
+            System.arraycopy(bitmap, 0, encoded, 1, bitmap.length);
+            return encoded;
+        }
+    }
+
+    static BitSet decode(byte[] encoded) {
+        if (encoded[0] == SPARSE) {
+            BitSet vector = new BitSet(SECTION_SIZE);
+            ByteBuffer buffer = ByteBuffer.wrap(encoded, 1, encoded.length - 1);
+            while (buffer.hasRemaining()) {
+                vector.set(buffer.getShort() & 0xFFFF);
+            }
+            return vector;
+        } else {
+            return BitSet.valueOf(ByteBuffer.wrap(encoded, 1, encoded.length - 1));
+        }
+    }
+
+    private static byte[] vectorKey(long section, int bit) {
+        return ByteBuffer.allocate(1 + Long.BYTES + Short.BYTES)
+                .put(VECTOR_PREFIX)
+                .putLong(section)
+                .putShort((short) bit)
+                .array();
+    }
+
+    private static byte[] headKey(long section) {
+        return ByteBuffer.allocate(1 + Long.BYTES).put(HEAD_PREFIX).putLong(section).array();
+    }
+
+    /** Stops the indexer thread and closes the database. */
+    public void close() {
+        closed = true;
+        indexer.shutdownNow();
+        try {
+            if (!indexer.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.warn("The bloom bits indexer did not stop in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        database.close();
+    }
+}
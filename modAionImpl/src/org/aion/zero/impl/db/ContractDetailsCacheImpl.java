@@ -110,6 +110,16 @@ public class ContractDetailsCacheImpl extends AbstractContractDetails {
         return value;
     }
 
+    /**
+     * Returns the storage rows read or written through this cache, as committed to the original
+     * contract.
+     *
+     * @return the values of the rows, {@code null} for the deleted ones
+     */
+    Map<ByteArrayWrapper, ByteArrayWrapper> getCachedStorage() {
+        return storage;
+    }
+
     public void setVmType(InternalVmType vmType) {
         if (this.vmType != vmType && vmType != InternalVmType.EITHER) {
             this.vmType = vmType;
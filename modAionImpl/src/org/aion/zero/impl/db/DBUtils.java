@@ -4,6 +4,8 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -510,6 +512,114 @@ public class DBUtils {
         System.out.println("Reorganizing the state storage COMPLETE.");
     }
 
+    /**
+     * Writes the world state at the given main chain block to a snapshot file that can be loaded
+     * by other nodes with {@link #importState(String)}. Used by the CLI call.
+     */
+    public static Status exportState(long blockNumber, String file) {
+        if (blockNumber < 0) {
+            System.out.println("Negative values are not valid block numbers.");
+            return Status.ILLEGAL_ARGUMENT;
+        }
+
+        // ensure mining is disabled
+        CfgAion cfg = CfgAion.inst();
+        cfg.dbFromXML();
+        cfg.getConsensus().setMining(false);
+
+        Map<String, String> cfgLog = new HashMap<>();
+        cfgLog.put("DB", "ERROR");
+
+        AionLoggerFactory.init(cfgLog);
+
+        AionRepositoryImpl repository = AionRepositoryImpl.inst();
+        try {
+            Map.Entry<Block, BigInteger> entry =
+                    repository.getBlockStore().getChainBlockByNumberWithTotalDifficulty(blockNumber);
+            if (entry == null) {
+                System.out.println("The requested block does not exist in the database.");
+                return Status.ILLEGAL_ARGUMENT;
+            }
+            Block block = entry.getKey();
+
+            System.out.println(
+                    "Exporting the state at block "
+                            + block.getShortHash()
+                            + ", number: "
+                            + blockNumber
+                            + " (may take a while) ...");
+            StateSnapshot.Summary summary =
+                    StateSnapshot.export(repository, block, entry.getValue(), new File(file));
+            System.out.println("Exporting the state COMPLETE. Wrote " + summary + ".");
+            return Status.SUCCESS;
+        } catch (RuntimeException e) {
+            System.out.println("Exporting the state FAILED due to: " + e.getMessage());
+            return Status.FAILURE;
+        } finally {
+            repository.close();
+        }
+    }
+
+    /**
+     * Loads a snapshot file created by {@link #exportState(long, String)} into the state, details
+     * and storage databases. Used by the CLI call.
+     *
+     * <p>The snapshot contains the block it was taken at and its total difficulty. After the state
+     * is loaded, the block is stored with its total difficulty as the best block, so that the node
+     * can sync from it without the earlier blocks. The import fails before loading anything when
+     * the local main chain already reaches the height of the block with a different block.
+     */
+    public static Status importState(String file) {
+        if (!new File(file).isFile()) {
+            System.out.println("The file «" + file + "» does not exist.");
+            return Status.ILLEGAL_ARGUMENT;
+        }
+
+        // ensure mining is disabled
+        CfgAion cfg = CfgAion.inst();
+        cfg.dbFromXML();
+        cfg.getConsensus().setMining(false);
+
+        Map<String, String> cfgLog = new HashMap<>();
+        cfgLog.put("DB", "ERROR");
+
+        AionLoggerFactory.init(cfgLog);
+
+        AionRepositoryImpl repository = AionRepositoryImpl.inst();
+        try {
+            StateSnapshot.Summary header = StateSnapshot.readSummary(new File(file));
+            AionBlockStore store = repository.getBlockStore();
+            Block local = store.getChainBlockByNumber(header.blockNumber);
+            boolean known = local != null && Arrays.equals(local.getHash(), header.blockHash);
+            Block best = store.getBestBlock();
+            if (!known && best != null && best.getNumber() >= header.blockNumber) {
+                System.out.println(
+                        "The local main chain already reaches block "
+                                + header.blockNumber
+                                + " with a different block than "
+                                + Hex.toHexString(header.blockHash)
+                                + ".");
+                return Status.ILLEGAL_ARGUMENT;
+            }
+
+            System.out.println("Importing the state from «" + file + "» (may take a while) ...");
+            StateSnapshot.Summary summary = StateSnapshot.load(repository, new File(file));
+
+            // the state root of the block was used to verify the loaded state
+            if (!known) {
+                store.saveBlock(summary.block, summary.totalDifficulty, true);
+                store.flush();
+            }
+            System.out.println("Importing the state COMPLETE. Loaded " + summary + ".");
+            return Status.SUCCESS;
+        } catch (RuntimeException e) {
+            System.out.println("Importing the state FAILED due to: " + e.getMessage());
+            return Status.FAILURE;
+        } finally {
+            repository.close();
+        }
+    }
+
     /**
      * Alternative to performing a full sync when the database already contains the <b>blocks</b>
      * and <b>index</b> databases. It will rebuild the entire blockchain structure other than these
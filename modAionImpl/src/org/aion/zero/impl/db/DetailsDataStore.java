@@ -2,6 +2,10 @@ package org.aion.zero.impl.db;
 
 import static org.aion.util.types.ByteArrayWrapper.wrap;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Optional;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
@@ -9,12 +13,27 @@ import org.aion.db.store.JournalPruneDataSource;
 import org.aion.mcf.db.InternalVmType;
 import org.aion.types.AionAddress;
 import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.trie.NodeCache;
 import org.slf4j.Logger;
 
 /** Detail data storage , */
 public class DetailsDataStore {
+    // the maximum size of the decoded contract details and of the storage trie nodes kept in memory
+    private static final long DETAILS_CACHE_SIZE = 32 * 1024 * 1024;
+    private static final long STORAGE_NODES_CACHE_SIZE = 64 * 1024 * 1024;
+    // the size of a cached contract in addition to its encoding
+    private static final int DETAILS_OVERHEAD = 512;
+
     private JournalPruneDataSource storageDSPrune;
 
+    // the recently used contracts, decoded for a single storage root each
+    private final Cache<AionAddress, CachedDetails> detailsCache =
+            CacheBuilder.newBuilder()
+                    .maximumWeight(DETAILS_CACHE_SIZE)
+                    .weigher((AionAddress address, CachedDetails cached) -> cached.weight)
+                    .build();
+    private final NodeCache storageNodes = new NodeCache(STORAGE_NODES_CACHE_SIZE);
+
     private ByteArrayKeyValueDatabase detailsSrc;
     private ByteArrayKeyValueDatabase storageSrc;
     private ByteArrayKeyValueDatabase graphSrc;
@@ -25,11 +44,33 @@ public class DetailsDataStore {
             ByteArrayKeyValueDatabase storageCache,
             ByteArrayKeyValueDatabase graphCache,
             Logger log) {
+        this(detailsCache, storageCache, graphCache, null, 0, log);
+    }
+
+    /**
+     * Creates a details data store where the storage pruning journal is persisted to the given
+     * database, unless the database is {@code null}.
+     */
+    public DetailsDataStore(
+            ByteArrayKeyValueDatabase detailsCache,
+            ByteArrayKeyValueDatabase storageCache,
+            ByteArrayKeyValueDatabase graphCache,
+            ByteArrayKeyValueDatabase storageJournal,
+            int journalWindow,
+            Logger log) {
         this.detailsSrc = detailsCache;
         this.storageSrc = storageCache;
         this.graphSrc = graphCache;
         this.log = log;
-        this.storageDSPrune = new JournalPruneDataSource(storageSrc, log);
+        if (storageJournal == null) {
+            this.storageDSPrune = new JournalPruneDataSource(storageSrc, log);
+        } else {
+            this.storageDSPrune =
+                    new JournalPruneDataSource(storageSrc, storageJournal, journalWindow, log);
+        }
+        // the shared nodes must not outlive the pruned ones
+        this.storageDSPrune.setPruneListener(
+                keys -> keys.forEach(key -> storageNodes.remove(wrap(key))));
     }
 
     /**
@@ -51,12 +92,56 @@ public class DetailsDataStore {
         // Found something from cache or database, return it by decoding it.
         AionContractDetailsImpl detailsImpl = new AionContractDetailsImpl(storageDSPrune, graphSrc);
         detailsImpl.setVmType(vm);
+        detailsImpl.setStorageNodes(storageNodes);
         detailsImpl.decode(rawDetails.get()); // We can safely get as we checked
         // if it is present.
 
         return detailsImpl;
     }
 
+    /**
+     * Returns the details of a contract with its storage at the given root.
+     *
+     * <p>The details are decoded once for each storage root and kept until the contract is updated,
+     * so that the contracts used repeatedly within and across blocks are not decoded again from the
+     * database on each access. The storage trie nodes read from the database are also kept and
+     * shared between the snapshots of all the contracts.
+     *
+     * @param address the contract address
+     * @param storageRoot the storage root from the account state of the contract
+     * @param vm the virtual machine used at contract deployment
+     * @return a new object with the details of the contract, or {@code null} if the contract is not
+     *     stored
+     */
+    public AionContractDetailsImpl getSnapshotTo(
+            AionAddress address, byte[] storageRoot, InternalVmType vm) {
+        CachedDetails cached = detailsCache.getIfPresent(address);
+        if (cached != null && cached.vm == vm && Arrays.equals(cached.storageRoot, storageRoot)) {
+            return cached.details.copy();
+        }
+
+        AionContractDetailsImpl snapshot;
+        synchronized (this) {
+            Optional<byte[]> rawDetails = detailsSrc.get(address.toByteArray());
+            if (!rawDetails.isPresent()) {
+                return null;
+            }
+
+            AionContractDetailsImpl detailsImpl =
+                    new AionContractDetailsImpl(storageDSPrune, graphSrc);
+            detailsImpl.setVmType(vm);
+            detailsImpl.setStorageNodes(storageNodes);
+            detailsImpl.decode(rawDetails.get());
+
+            snapshot = detailsImpl.getSnapshotTo(storageRoot, vm);
+            detailsCache.put(
+                    address,
+                    new CachedDetails(
+                            storageRoot, vm, snapshot, DETAILS_OVERHEAD + rawDetails.get().length));
+        }
+        return snapshot.copy();
+    }
+
     /** Determine if the contract exists in the database. */
     public synchronized boolean isPresent(byte[] key) {
         Optional<byte[]> rawDetails = detailsSrc.get(key);
@@ -71,6 +156,7 @@ public class DetailsDataStore {
         // Put into cache.
         byte[] rawDetails = contractDetails.getEncoded();
         detailsSrc.put(key.toByteArray(), rawDetails);
+        detailsCache.invalidate(key);
 
         contractDetails.syncStorage();
     }
@@ -78,6 +164,7 @@ public class DetailsDataStore {
     public synchronized void remove(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
         detailsSrc.delete(key);
+        detailsCache.invalidate(new AionAddress(key));
     }
 
     public synchronized void flush() {
@@ -131,6 +218,16 @@ public class DetailsDataStore {
         }
     }
 
+    @VisibleForTesting
+    long cachedDetailsCount() {
+        return detailsCache.size();
+    }
+
+    @VisibleForTesting
+    NodeCache getStorageNodes() {
+        return storageNodes;
+    }
+
     public JournalPruneDataSource getStorageDSPrune() {
         return storageDSPrune;
     }
@@ -140,15 +237,38 @@ public class DetailsDataStore {
     }
 
     public synchronized void close() {
+        detailsCache.invalidateAll();
         try {
             detailsSrc.close();
             storageSrc.close();
             graphSrc.close();
+            if (storageDSPrune.getJournal() != null) {
+                storageDSPrune.getJournal().close();
+            }
         } catch (Exception e) {
             throw new RuntimeException("error closing db");
         }
     }
 
+    /** The details of a contract decoded for one storage root, which are only read by copying. */
+    private static final class CachedDetails {
+        final byte[] storageRoot;
+        final InternalVmType vm;
+        final AionContractDetailsImpl details;
+        final int weight;
+
+        CachedDetails(
+                byte[] storageRoot,
+                InternalVmType vm,
+                AionContractDetailsImpl details,
+                int weight) {
+            this.storageRoot = storageRoot;
+            this.vm = vm;
+            this.details = details;
+            this.weight = weight;
+        }
+    }
+
     /**
      * A wrapper for the iterator needed by {@link DetailsDataStore} conforming to the {@link
      * Iterator} interface.
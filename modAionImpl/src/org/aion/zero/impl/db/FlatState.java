@@ -0,0 +1,634 @@
+package org.aion.zero.impl.db;
+
+import static org.aion.util.bytes.ByteUtil.EMPTY_BYTE_ARRAY;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
+import org.aion.types.AionAddress;
+import org.aion.util.types.ByteArrayWrapper;
+import org.slf4j.Logger;
+
+/**
+ * Flat key-value view of the world state, used to read accounts and storage rows with a single
+ * lookup instead of traversing the state and storage tries.
+ *
+ * <p>The view is made of a disk layer, which maps the addresses to the encoded account states and
+ * the (address, key) pairs to the encoded storage values of one state root, and of in-memory diff
+ * layers holding the changes made by each of the recent blocks. A diff layer is identified by the
+ * state root of its block and points to the layer of the parent block, so the layers of the side
+ * chains are kept next to the ones of the main chain. Once a chain is more than {@link
+ * #MAX_DIFF_LAYERS} blocks above the disk layer, its oldest layer is merged into the disk layer and
+ * the layers of the other chains are dropped.
+ *
+ * <p>A read for a state root walks the diff layers from that root down to the disk layer. Reads for
+ * roots that are not known by the view return {@code null} and must be served by the tries, which
+ * remain the source of the state roots and of the proofs.
+ *
+ * @implNote The disk layer is filled lazily: a row missing from it is unknown rather than absent
+ *     and gets stored after being read from the trie. Removing rows that became stale requires a
+ *     scan of the database, which is done by a background cleaner outside the lock: after the disk
+ *     layer is moved to an unrelated root all its rows are read from the trie until the cleaner
+ *     deleted them, and the storage of the destructed accounts is read from the trie until the
+ *     cleaner deleted their rows, after which they are removed from the destructed set.
+ */
+public class FlatState {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** The number of diff layers kept above the disk layer. */
+    public static final int MAX_DIFF_LAYERS = 128;
+
+    private static final byte[] ROOT_KEY = "root".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DESTRUCTED_KEY = "destructed".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CLEARING_KEY = "clearing".getBytes(StandardCharsets.UTF_8);
+    private static final byte ACCOUNT_PREFIX = 'a';
+    private static final byte STORAGE_PREFIX = 's';
+
+    // returned by the walks when no diff layer knows the value, compared by reference
+    private static final byte[] ON_DISK = new byte[0];
+
+    // the number of keys deleted at once by the cleaner
+    private static final int CLEAR_BATCH = 10_000;
+
+    // the number of destructed accounts that triggers a cleaning of their rows
+    private static final int CLEAN_THRESHOLD = 64;
+
+    private final ByteArrayKeyValueDatabase database;
+    private final int maxDiffLayers;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<ByteArrayWrapper, DiffLayer> layers = new HashMap<>();
+    private final Set<AionAddress> destructed = new HashSet<>();
+    private ByteArrayWrapper diskRoot;
+    // the root of the last dropped changes, used to detect a chain that continues without the view
+    private ByteArrayWrapper droppedRoot;
+
+    private final Executor cleaner;
+    // the destructed accounts whose rows are deleted by the running cleaner
+    private final Set<AionAddress> cleaning = new HashSet<>();
+    // set while the rows stored before the last reset are not all deleted
+    private boolean clearing;
+    private long resets;
+    private boolean cleanerRunning;
+    private volatile boolean closed;
+
+    public FlatState(ByteArrayKeyValueDatabase database) {
+        this(database, MAX_DIFF_LAYERS);
+    }
+
+    FlatState(ByteArrayKeyValueDatabase database, int maxDiffLayers) {
+        this(
+                database,
+                maxDiffLayers,
+                Executors.newSingleThreadExecutor(
+                        r -> {
+                            Thread t = new Thread(r, "flat-state-cleaner");
+                            t.setDaemon(true);
+                            t.setPriority(Thread.MIN_PRIORITY);
+                            return t;
+                        }));
+    }
+
+    FlatState(ByteArrayKeyValueDatabase database, int maxDiffLayers, Executor cleaner) {
+        if (maxDiffLayers < 1) {
+            throw new IllegalArgumentException("The number of diff layers must be positive.");
+        }
+        this.database = database;
+        this.maxDiffLayers = maxDiffLayers;
+        this.cleaner = cleaner;
+
+        Optional<byte[]> root = database.get(ROOT_KEY);
+        this.diskRoot = root.map(ByteArrayWrapper::wrap).orElse(null);
+        // a cleaning interrupted by a shutdown is resumed
+        this.clearing = database.get(CLEARING_KEY).isPresent();
+
+        Optional<byte[]> addresses = database.get(DESTRUCTED_KEY);
+        if (addresses.isPresent()) {
+            for (RLPElement address : (RLPList) RLP.decode2(addresses.get()).get(0)) {
+                destructed.add(new AionAddress(address.getRLPData()));
+            }
+        }
+
+        if (clearing || !destructed.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                scheduleClean();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the encoded account state at the given state root.
+     *
+     * @return the encoded account, an empty array if the account does not exist or {@code null} if
+     *     the account must be read from the trie
+     */
+    public byte[] getAccount(ByteArrayWrapper root, AionAddress address) {
+        lock.readLock().lock();
+        try {
+            byte[] value = findAccount(root, address);
+            if (value == ON_DISK) {
+                return database.get(accountKey(address)).orElse(null);
+            }
+            return value;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores an account read from the trie at the given state root after {@link
+     * #getAccount(ByteArrayWrapper, AionAddress)} returned {@code null} for it.
+     */
+    public void fillAccount(ByteArrayWrapper root, AionAddress address, byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            // the value at the root is the one of the disk layer only if no diff layer changed it
+            if (findAccount(root, address) == ON_DISK) {
+                database.put(accountKey(address), encoded);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the encoded storage value at the given state root, as stored in the storage trie.
+     *
+     * @return the encoded value, an empty array if the row does not exist or {@code null} if the
+     *     row must be read from the trie
+     */
+    public byte[] getStorage(ByteArrayWrapper root, AionAddress address, ByteArrayWrapper key) {
+        lock.readLock().lock();
+        try {
+            byte[] value = findStorage(root, address, key);
+            if (value == ON_DISK) {
+                return database.get(storageKey(address, key)).orElse(null);
+            }
+            return value;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a storage value read from the trie at the given state root after {@link
+     * #getStorage(ByteArrayWrapper, AionAddress, ByteArrayWrapper)} returned {@code null} for it.
+     */
+    public void fillStorage(
+            ByteArrayWrapper root, AionAddress address, ByteArrayWrapper key, byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (findStorage(root, address, key) == ON_DISK) {
+                database.put(storageKey(address, key), encoded);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Walks the layers from the root, the caller must hold the lock. */
+    private byte[] findAccount(ByteArrayWrapper root, AionAddress address) {
+        DiffLayer layer = layers.get(root);
+        if (layer == null && !root.equals(diskRoot)) {
+            return null;
+        }
+        for (; layer != null; layer = layer.parent) {
+            byte[] value = layer.diff.accounts.get(address);
+            if (value != null) {
+                return value;
+            }
+        }
+        return clearing ? null : ON_DISK;
+    }
+
+    /** Walks the layers from the root, the caller must hold the lock. */
+    private byte[] findStorage(ByteArrayWrapper root, AionAddress address, ByteArrayWrapper key) {
+        DiffLayer layer = layers.get(root);
+        if (layer == null && !root.equals(diskRoot)) {
+            return null;
+        }
+        for (; layer != null; layer = layer.parent) {
+            Map<ByteArrayWrapper, byte[]> rows = layer.diff.storage.get(address);
+            if (rows != null) {
+                byte[] value = rows.get(key);
+                if (value != null) {
+                    return value;
+                }
+            }
+            if (layer.diff.destructed.contains(address)) {
+                return EMPTY_BYTE_ARRAY;
+            }
+        }
+        return clearing || destructed.contains(address) ? null : ON_DISK;
+    }
+
+    /**
+     * Adds the changes made by a block as a new diff layer.
+     *
+     * <p>When the parent root is not known the changes cannot be applied. They are dropped when
+     * they may belong to a side chain, but when there are no diff layers or when they continue the
+     * previously dropped changes, the disk layer no longer follows the chain and is cleared and
+     * moved to the parent root, for example after the repository was reverted to an older root.
+     *
+     * @param root the state root after the changes
+     * @param diff the changes made to the state of the parent root
+     */
+    public void addLayer(ByteArrayWrapper root, Diff diff) {
+        lock.writeLock().lock();
+        try {
+            DiffLayer parent = layers.get(diff.parent);
+            if (parent == null && !diff.parent.equals(diskRoot)) {
+                if (!layers.isEmpty() && !diff.parent.equals(droppedRoot)) {
+                    LOG.debug("Flat state dropped the changes of unknown root {}.", diff.parent);
+                    droppedRoot = root;
+                    return;
+                }
+                reset(diff.parent);
+            }
+            droppedRoot = null;
+            if (root.equals(diff.parent) || layers.containsKey(root) || root.equals(diskRoot)) {
+                // the same state was already reached from another block
+                return;
+            }
+
+            DiffLayer layer = new DiffLayer(root, parent, diff);
+            layers.put(root, layer);
+
+            // merge the oldest layers of the new chain that exceed the limit
+            List<DiffLayer> chain = new ArrayList<>();
+            for (DiffLayer l = layer; l != null; l = l.parent) {
+                chain.add(l);
+            }
+            for (int i = chain.size() - 1; i >= maxDiffLayers; i--) {
+                merge(chain.get(i));
+            }
+            if (destructed.size() - cleaning.size() >= CLEAN_THRESHOLD) {
+                scheduleClean();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merges all the diff layers up to the given root into the disk layer, for example before
+     * shutting down, since the diff layers are not persisted.
+     */
+    public void flatten(ByteArrayWrapper root) {
+        lock.writeLock().lock();
+        try {
+            List<DiffLayer> chain = new ArrayList<>();
+            for (DiffLayer l = layers.get(root); l != null; l = l.parent) {
+                chain.add(l);
+            }
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                merge(chain.get(i));
+            }
+            if (!destructed.isEmpty()) {
+                scheduleClean();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a diff layer directly above the disk layer to the database and drops the layers that
+     * are not built on top of it. The caller must hold the write lock.
+     */
+    private void merge(DiffLayer bottom) {
+        Diff diff = bottom.diff;
+
+        if (!diff.destructed.isEmpty()) {
+            destructed.addAll(diff.destructed);
+            // the rows written before this destruction may be missed by the running cleaner
+            cleaning.removeAll(diff.destructed);
+            database.putToBatch(DESTRUCTED_KEY, encodeDestructed());
+        }
+        for (Map.Entry<AionAddress, byte[]> entry : diff.accounts.entrySet()) {
+            write(accountKey(entry.getKey()), entry.getValue());
+        }
+        for (Map.Entry<AionAddress, Map<ByteArrayWrapper, byte[]>> rows : diff.storage.entrySet()) {
+            for (Map.Entry<ByteArrayWrapper, byte[]> row : rows.getValue().entrySet()) {
+                write(storageKey(rows.getKey(), row.getKey()), row.getValue());
+            }
+        }
+        database.putToBatch(ROOT_KEY, bottom.root.getData());
+        database.commitBatch();
+
+        diskRoot = bottom.root;
+        layers.remove(bottom.root);
+
+        // the layers that do not descend from the merged layer were built on the previous disk root
+        Iterator<DiffLayer> it = layers.values().iterator();
+        while (it.hasNext()) {
+            DiffLayer layer = it.next();
+            DiffLayer l = layer;
+            while (l.parent != null && l.parent != bottom) {
+                l = l.parent;
+            }
+            if (l.parent == null) {
+                it.remove();
+            }
+        }
+        for (DiffLayer layer : layers.values()) {
+            if (layer.parent == bottom) {
+                layer.parent = null;
+            }
+        }
+    }
+
+    private byte[] encodeDestructed() {
+        List<byte[]> addresses = new ArrayList<>();
+        for (AionAddress address : destructed) {
+            addresses.add(RLP.encodeElement(address.toByteArray()));
+        }
+        return RLP.encodeList(addresses.toArray(new byte[0][]));
+    }
+
+    private void write(byte[] key, byte[] value) {
+        if (value.length == 0) {
+            database.deleteInBatch(key);
+        } else {
+            database.putToBatch(key, value);
+        }
+    }
+
+    /**
+     * Moves the disk layer to the given root. Its rows are ignored until they are deleted by the
+     * cleaner. The caller must hold the write lock.
+     */
+    private void reset(ByteArrayWrapper root) {
+        layers.clear();
+        destructed.clear();
+        cleaning.clear();
+        if (diskRoot != null) {
+            LOG.info(
+                    "Flat state moved from root {} to root {}, clearing the stored rows in the background.",
+                    diskRoot,
+                    root);
+            clearing = true;
+            resets++;
+            database.putToBatch(CLEARING_KEY, new byte[] {1});
+        }
+        database.deleteInBatch(DESTRUCTED_KEY);
+        database.putToBatch(ROOT_KEY, root.getData());
+        database.commitBatch();
+        diskRoot = root;
+
+        if (clearing) {
+            scheduleClean();
+        }
+    }
+
+    /** Starts the cleaner unless it is already running. The caller must hold the write lock. */
+    private void scheduleClean() {
+        if (cleanerRunning || closed) {
+            return;
+        }
+        cleanerRunning = true;
+        cleaner.execute(this::clean);
+    }
+
+    /**
+     * Deletes the rows stored before the last reset, or the storage rows of the destructed accounts,
+     * then removes the cleaned accounts from the destructed set.
+     */
+    private void clean() {
+        boolean clearAll;
+        long resetCount;
+        Set<ByteArrayWrapper> addresses = new HashSet<>();
+        lock.writeLock().lock();
+        try {
+            clearAll = clearing;
+            resetCount = resets;
+            cleaning.clear();
+            cleaning.addAll(destructed);
+            for (AionAddress address : cleaning) {
+                addresses.add(ByteArrayWrapper.wrap(address.toByteArray()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        boolean stopped;
+        try {
+            List<byte[]> keys = new ArrayList<>();
+            Iterator<byte[]> it = database.keys();
+            while (it.hasNext() && !closed) {
+                byte[] key = it.next();
+                if (clearAll ? isRow(key) : isStorageOf(key, addresses)) {
+                    keys.add(key);
+                }
+                if (keys.size() == CLEAR_BATCH) {
+                    deleteRows(keys);
+                    keys.clear();
+                }
+            }
+            stopped = closed;
+            if (!stopped) {
+                deleteRows(keys);
+            }
+        } catch (RuntimeException e) {
+            // the cleaning is resumed on restart
+            LOG.warn("Flat state cleaning failed.", e);
+            stopped = true;
+        }
+
+        lock.writeLock().lock();
+        try {
+            cleanerRunning = false;
+            if (stopped) {
+                cleaning.clear();
+                return;
+            }
+            if (clearAll && resetCount == resets) {
+                clearing = false;
+                database.deleteInBatch(CLEARING_KEY);
+                LOG.info("Flat state finished clearing the rows of the previous root.");
+            }
+            if (!cleaning.isEmpty()) {
+                destructed.removeAll(cleaning);
+                cleaning.clear();
+                if (destructed.isEmpty()) {
+                    database.deleteInBatch(DESTRUCTED_KEY);
+                } else {
+                    database.putToBatch(DESTRUCTED_KEY, encodeDestructed());
+                }
+            }
+            database.commitBatch();
+
+            if (clearing || destructed.size() >= CLEAN_THRESHOLD) {
+                scheduleClean();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Deletes rows while excluding the merges, which use the database batch. */
+    private void deleteRows(List<byte[]> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            database.deleteBatch(keys);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isRow(byte[] key) {
+        return key.length > AionAddress.LENGTH
+                && (key[0] == ACCOUNT_PREFIX || key[0] == STORAGE_PREFIX);
+    }
+
+    private static boolean isStorageOf(byte[] key, Set<ByteArrayWrapper> addresses) {
+        if (key.length <= AionAddress.LENGTH + 1 || key[0] != STORAGE_PREFIX) {
+            return false;
+        }
+        byte[] address = new byte[AionAddress.LENGTH];
+        System.arraycopy(key, 1, address, 0, AionAddress.LENGTH);
+        return addresses.contains(ByteArrayWrapper.wrap(address));
+    }
+
+    /** Stops the cleaner, which resumes its work on restart. */
+    public void close() {
+        closed = true;
+        if (cleaner instanceof ExecutorService) {
+            ExecutorService service = (ExecutorService) cleaner;
+            service.shutdown();
+            try {
+                if (!service.awaitTermination(10, TimeUnit.SECONDS)) {
+                    LOG.warn("The flat state cleaner did not stop in time.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** @return the state root of the disk layer, or {@code null} if it was never set */
+    public ByteArrayWrapper getDiskRoot() {
+        lock.readLock().lock();
+        try {
+            return diskRoot;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return the number of diff layers */
+    public int getLayerCount() {
+        lock.readLock().lock();
+        try {
+            return layers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static byte[] accountKey(AionAddress address) {
+        byte[] key = new byte[1 + AionAddress.LENGTH];
+        key[0] = ACCOUNT_PREFIX;
+        System.arraycopy(address.toByteArray(), 0, key, 1, AionAddress.LENGTH);
+        return key;
+    }
+
+    private static byte[] storageKey(AionAddress address, ByteArrayWrapper row) {
+        byte[] data = row.getData();
+        byte[] key = new byte[1 + AionAddress.LENGTH + data.length];
+        key[0] = STORAGE_PREFIX;
+        System.arraycopy(address.toByteArray(), 0, key, 1, AionAddress.LENGTH);
+        System.arraycopy(data, 0, key, 1 + AionAddress.LENGTH, data.length);
+        return key;
+    }
+
+    /**
+     * The changes made to the state of a parent root, collected while a block is applied to the
+     * repository. Deleted accounts and storage rows are recorded as empty arrays.
+     */
+    public static final class Diff {
+        private final ByteArrayWrapper parent;
+        private final Map<AionAddress, byte[]> accounts = new HashMap<>();
+        private final Map<AionAddress, Map<ByteArrayWrapper, byte[]>> storage = new HashMap<>();
+        private final Set<AionAddress> destructed = new HashSet<>();
+
+        public Diff(ByteArrayWrapper parent) {
+            this.parent = parent;
+        }
+
+        public void putAccount(AionAddress address, byte[] encoded) {
+            accounts.put(address, encoded);
+        }
+
+        /** Records the deletion of the account together with all its storage. */
+        public void deleteAccount(AionAddress address) {
+            accounts.put(address, EMPTY_BYTE_ARRAY);
+            storage.remove(address);
+            destructed.add(address);
+        }
+
+        /**
+         * Records storage rows of the account.
+         *
+         * @param rows the values of the rows, {@code null} for the deleted ones
+         */
+        public void putStorage(AionAddress address, Map<ByteArrayWrapper, ByteArrayWrapper> rows) {
+            if (rows.isEmpty()) {
+                return;
+            }
+            Map<ByteArrayWrapper, byte[]> values =
+                    storage.computeIfAbsent(address, a -> new HashMap<>());
+            for (Map.Entry<ByteArrayWrapper, ByteArrayWrapper> row : rows.entrySet()) {
+                ByteArrayWrapper value = row.getValue();
+                // encoded as in the storage trie
+                values.put(
+                        row.getKey(),
+                        value == null ? EMPTY_BYTE_ARRAY : RLP.encodeElement(value.getData()));
+            }
+        }
+    }
+
+    private static final class DiffLayer {
+        private final ByteArrayWrapper root;
+        private final Diff diff;
+        // null when the layer is directly above the disk layer
+        private DiffLayer parent;
+
+        private DiffLayer(ByteArrayWrapper root, DiffLayer parent, Diff diff) {
+            this.root = root;
+            this.parent = parent;
+            this.diff = diff;
+        }
+    }
+}
@@ -397,6 +397,7 @@ public class PendingBlockStore implements Closeable {
             indexSource.commitBatch();
             levelSource.flushBatch();
             queueSource.flushBatch();
+            commit();
 
             // the number of blocks added
             return stored;
@@ -670,6 +671,7 @@ public class PendingBlockStore implements Closeable {
             indexSource.commitBatch();
             queueSource.flushBatch();
             levelSource.flushBatch();
+            commit();
         } catch (Exception e) {
             LOG.error("Unable to delete used blocks due to: ", e);
             return;
@@ -778,6 +780,17 @@ public class PendingBlockStore implements Closeable {
         }
     }
 
+    /**
+     * Persists the staged writes when the databases do not commit automatically. The pending
+     * blocks databases are not part of the repository, so they are not committed by its flush.
+     */
+    private void commit() {
+        if (!indexSource.isAutoCommitEnabled()) {
+            indexSource.commit();
+            indexSource.commitShared();
+        }
+    }
+
     @Override
     public void close() {
         databaseLock.writeLock().lock();
@@ -0,0 +1,62 @@
+package org.aion.zero.impl.db;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.trie.NodeCache;
+
+/**
+ * The read-only snapshots of the repository used to answer the queries on recent blocks, such as
+ * account reads and local calls, mapped by state root.
+ *
+ * <p>The world state tries of all the snapshots share the decoded nodes they read, so the queries
+ * on the same or on nearby state roots do not read the same nodes from the database again. The
+ * cached snapshots do not keep the nodes they read themselves, so their footprint does not grow
+ * with the queries and the memory used is bounded by the shared nodes.
+ */
+final class SnapshotCache {
+
+    private final Cache<ByteArrayWrapper, AionRepositoryImpl> snapshots;
+
+    private final NodeCache stateNodes;
+
+    /**
+     * The snapshots are bounded by their number rather than by an estimate of their size, since
+     * the memory they use is dominated by the shared nodes, which are bounded separately.
+     *
+     * @param maxSnapshots the maximum number of cached snapshots
+     * @param maxNodesSize the maximum total size of the shared state trie nodes, in bytes
+     */
+    SnapshotCache(int maxSnapshots, long maxNodesSize) {
+        snapshots = CacheBuilder.newBuilder().maximumSize(maxSnapshots).recordStats().build();
+        stateNodes = new NodeCache(maxNodesSize);
+    }
+
+    /**
+     * Returns the snapshot at the given state root, created by the given supplier when not cached.
+     */
+    AionRepositoryImpl get(byte[] root, Supplier<AionRepositoryImpl> snapshot) {
+        try {
+            return snapshots.get(ByteArrayWrapper.wrap(root), snapshot::get);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new IllegalStateException("Unable to create a snapshot of the repository.", e);
+        }
+    }
+
+    /** @return the decoded state trie nodes shared by the snapshots */
+    NodeCache getStateNodes() {
+        return stateNodes;
+    }
+
+    CacheStats stats() {
+        return snapshots.stats();
+    }
+
+    long size() {
+        return snapshots.size();
+    }
+}
@@ -0,0 +1,658 @@
+package org.aion.zero.impl.db;
+
+import static org.aion.crypto.HashUtil.EMPTY_DATA_HASH;
+import static org.aion.crypto.HashUtil.EMPTY_TRIE_HASH;
+import static org.aion.crypto.HashUtil.h256;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+import org.aion.base.AccountState;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.db.impl.ByteArrayKeyValueStore;
+import org.aion.db.store.XorDataSource;
+import org.aion.mcf.blockchain.Block;
+import org.aion.mcf.db.InternalVmType;
+import org.aion.rlp.CompactEncoder;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
+import org.aion.rlp.Value;
+import org.aion.types.AionAddress;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.zero.impl.trie.SecureTrie;
+import org.aion.zero.impl.trie.Trie;
+import org.aion.zero.impl.trie.scan.CountNodes;
+import org.aion.zero.impl.trie.scan.ScanAction;
+import org.aion.zero.impl.types.AionBlock;
+
+/**
+ * Exports the world state at a given block to a file and loads it back into a repository, allowing
+ * a node to be bootstrapped with the state of another node instead of executing all the blocks.
+ *
+ * <p>The file starts with a header holding the block and its total difficulty, followed by chunks
+ * of key-value pairs from a single database each, i.e. the world state trie nodes, the details of
+ * the contracts present in the state, the nodes of their storage tries and their object graphs.
+ * The nodes of the storage tries and the object graphs are keyed by the contract address followed
+ * by their hash, since the keys in their databases are specific to each contract. Each chunk
+ * carries a checksum of its content and the whole file is compressed.
+ *
+ * <p>The snapshot is not trusted when loaded: each node must match its hash and the storage of
+ * every contract in the state must be complete.
+ *
+ * <p>The data is streamed while the tries are traversed, so the memory used by both the export and
+ * the import is bounded by the size of a chunk.
+ */
+final class StateSnapshot {
+
+    private static final int MAGIC = 0x41534e50; // ASNP
+    private static final int VERSION = 2;
+
+    // the size of the key-value pairs in a chunk after which the chunk is written
+    static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /** The databases the chunks are loaded into. */
+    enum Section {
+        STATE,
+        DETAILS,
+        STORAGE,
+        GRAPH,
+        CONTRACT_INDEX,
+        TRANSFORMED_CODE,
+        END;
+
+        ByteArrayKeyValueDatabase database(AionRepositoryImpl repository) {
+            switch (this) {
+                case STATE:
+                    return repository.stateDatabase;
+                case DETAILS:
+                    return repository.detailsDatabase;
+                case STORAGE:
+                    return repository.storageDatabase;
+                case GRAPH:
+                    return repository.graphDatabase;
+                case CONTRACT_INDEX:
+                    return repository.contractIndexDatabase;
+                case TRANSFORMED_CODE:
+                    return repository.contractPerformCodeDatabase;
+                default:
+                    throw new IllegalArgumentException("No database for section " + this + ".");
+            }
+        }
+    }
+
+    /** The content of a snapshot file, as reported by the export and the import. */
+    static final class Summary {
+        final Block block;
+        final BigInteger totalDifficulty;
+        final long blockNumber;
+        final byte[] blockHash;
+        final byte[] stateRoot;
+        final long[] counts = new long[Section.values().length];
+
+        Summary(Block block, BigInteger totalDifficulty) {
+            this.block = block;
+            this.totalDifficulty = totalDifficulty;
+            this.blockNumber = block.getNumber();
+            this.blockHash = block.getHash();
+            this.stateRoot = block.getStateRoot();
+        }
+
+        long count(Section section) {
+            return counts[section.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("block number: ").append(blockNumber);
+            for (Section section : Section.values()) {
+                if (section != Section.END) {
+                    sb.append(", ")
+                            .append(section.name().toLowerCase())
+                            .append(": ")
+                            .append(count(section));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private StateSnapshot() {}
+
+    /**
+     * Writes the given block with its total difficulty and the world state of the block, including
+     * the data of the contracts that exist in that state, to the given file.
+     *
+     * @throws IllegalStateException if a node of the state is missing from the database
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    static Summary export(
+            AionRepositoryImpl repository, Block block, BigInteger totalDifficulty, File file) {
+        byte[] stateRoot = block.getStateRoot();
+        SecureTrie worldState = readOnceTrie(repository.stateDSPrune, stateRoot);
+
+        try (DataOutputStream out =
+                new DataOutputStream(new GZIPOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeBytes(out, block.getEncoded());
+            writeBytes(out, totalDifficulty.toByteArray());
+
+            Summary summary = new Summary(block, totalDifficulty);
+            ChunkWriter writer = new ChunkWriter(out, summary);
+
+            // the world state trie nodes
+            writer.start(Section.STATE);
+            scan(worldState, stateRoot, (hash, node) -> writer.add(hash, node.encode()));
+
+            // the contracts from the details database which exist in the exported state
+            Iterator<byte[]> contracts = repository.detailsDatabase.keys();
+            while (contracts.hasNext()) {
+                AionAddress address = new AionAddress(contracts.next());
+                byte[] account = worldState.get(address.toByteArray());
+                if (account.length != 0) {
+                    exportContract(repository, address, new AccountState(account), writer);
+                }
+            }
+
+            writer.start(Section.END);
+            return summary;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void exportContract(
+            AionRepositoryImpl repository,
+            AionAddress address,
+            AccountState account,
+            ChunkWriter writer)
+            throws IOException {
+        byte[] key = address.toByteArray();
+        copy(repository.detailsDatabase, key, Section.DETAILS, writer);
+        copy(repository.contractIndexDatabase, key, Section.CONTRACT_INDEX, writer);
+        copy(repository.contractPerformCodeDatabase, key, Section.TRANSFORMED_CODE, writer);
+
+        byte[] storageRoot = account.getStateRoot();
+        InternalVmType vm = repository.getVMUsed(address, account.getCodeHash());
+        if (vm == InternalVmType.AVM) {
+            // the storage root points to the storage trie root and the object graph
+            byte[] graphKey = graphKey(address);
+            Optional<byte[]> concatenated =
+                    repository.graphDatabase.get(ByteUtil.xorAlignRight(storageRoot, graphKey));
+            if (!concatenated.isPresent()) {
+                return;
+            }
+            writer.start(Section.GRAPH);
+            writer.add(entryKey(address, storageRoot), concatenated.get());
+
+            RLPList pair = (RLPList) RLP.decode2(concatenated.get()).get(0);
+            storageRoot = pair.get(0).getRLPData();
+            byte[] graphHash = pair.get(1).getRLPData();
+            Optional<byte[]> graph =
+                    repository.graphDatabase.get(ByteUtil.xorAlignRight(graphHash, graphKey));
+            if (graph.isPresent()) {
+                writer.add(entryKey(address, graphHash), graph.get());
+            }
+        }
+
+        // contracts with small storage keep it in the details and have no storage trie
+        byte[] storageKey = storageKey(address);
+        if (!Arrays.equals(storageRoot, EMPTY_TRIE_HASH)
+                && repository.storageDatabase.get(ByteUtil.xorAlignRight(storageRoot, storageKey))
+                        .isPresent()) {
+            Trie storage =
+                    readOnceTrie(new XorDataSource(repository.storageDatabase, storageKey), null);
+            writer.start(Section.STORAGE);
+            scan(
+                    storage,
+                    storageRoot,
+                    (hash, node) -> writer.add(entryKey(address, hash), node.encode()));
+        }
+    }
+
+    /** The key of the storage trie nodes of the contract, see AionContractDetailsImpl. */
+    private static byte[] storageKey(AionAddress address) {
+        return h256(("details-storage/" + address.toString()).getBytes());
+    }
+
+    /** The key of the object graph of the contract, see AionContractDetailsImpl. */
+    private static byte[] graphKey(AionAddress address) {
+        return h256(("details-graph/" + address.toString()).getBytes());
+    }
+
+    /** The snapshot key of a storage trie node or object graph entry of the given contract. */
+    private static byte[] entryKey(AionAddress address, byte[] hash) {
+        return ByteUtil.merge(address.toByteArray(), hash);
+    }
+
+    /** Creates a trie which does not keep the nodes it reads, since each is read only once. */
+    private static SecureTrie readOnceTrie(ByteArrayKeyValueStore source, byte[] root) {
+        SecureTrie trie = root == null ? new SecureTrie(source) : new SecureTrie(source, root);
+        trie.getCache().setRetainReads(false);
+        return trie;
+    }
+
+    private static void copy(
+            ByteArrayKeyValueDatabase database, byte[] key, Section section, ChunkWriter writer)
+            throws IOException {
+        Optional<byte[]> value = database.get(key);
+        if (value.isPresent()) {
+            writer.start(section);
+            writer.add(key, value.get());
+        }
+    }
+
+    /** Traverses the trie, rethrowing the write failures of the action. */
+    private static void scan(Trie trie, byte[] root, IOAction action) throws IOException {
+        try {
+            trie.scanFullState(
+                    root,
+                    (hash, node) -> {
+                        try {
+                            action.doOnNode(hash, node);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("The state trie is incomplete.", e);
+        }
+    }
+
+    /**
+     * Loads the content of the given snapshot file into the repository. The key-value pairs of each
+     * chunk are checked against their hashes and written in key order as a single batch. After
+     * loading, the world state trie at the snapshot root and the storage of every contract in it
+     * are traversed to ensure they are complete.
+     *
+     * @throws IllegalArgumentException if the file is not a valid snapshot, is corrupted or holds a
+     *     node which does not match its hash
+     * @throws IllegalStateException if the loaded world state or contract storage is incomplete
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    static Summary load(AionRepositoryImpl repository, File file) {
+        try (DataInputStream in = open(file)) {
+            Summary summary = readHeader(in);
+
+            Section section;
+            while ((section = readSection(in)) != Section.END) {
+                Map<byte[], byte[]> batch = readChunk(in, section);
+                ByteArrayKeyValueDatabase database = section.database(repository);
+                database.putBatch(batch);
+                if (!database.isAutoCommitEnabled()) {
+                    // the nodes are stored by hash, so the chunks can be persisted one by one
+                    database.commit();
+                    database.commitShared();
+                }
+                summary.counts[section.ordinal()] += batch.size();
+            }
+
+            verifyState(repository, summary.stateRoot);
+            return summary;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("The state snapshot is truncated.", e);
+        } catch (ZipException e) {
+            throw new IllegalArgumentException("The state snapshot is corrupted.", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Traverses the loaded world state and the storage of the contracts in it, failing when a
+     * referenced node was not loaded.
+     */
+    private static void verifyState(AionRepositoryImpl repository, byte[] stateRoot) {
+        CountStorageAccounts accounts = new CountStorageAccounts();
+        try {
+            readOnceTrie(repository.stateDatabase, null).scanFullState(stateRoot, accounts);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("The loaded state trie is incomplete.", e);
+        }
+
+        // every account with storage must have its details loaded
+        SecureTrie worldState = readOnceTrie(repository.stateDatabase, stateRoot);
+        long verified = 0;
+        Iterator<byte[]> contracts = repository.detailsDatabase.keys();
+        while (contracts.hasNext()) {
+            byte[] key = contracts.next();
+            byte[] account = worldState.get(key);
+            if (account.length != 0) {
+                AccountState state = new AccountState(account);
+                if (!Arrays.equals(state.getStateRoot(), EMPTY_TRIE_HASH)) {
+                    verifyStorage(repository, new AionAddress(key), state);
+                    verified++;
+                }
+            }
+        }
+        if (verified != accounts.count) {
+            throw new IllegalStateException(
+                    "The details of "
+                            + (accounts.count - verified)
+                            + " accounts with storage are missing from the loaded state.");
+        }
+    }
+
+    private static void verifyStorage(
+            AionRepositoryImpl repository, AionAddress address, AccountState account) {
+        byte[] storageRoot = account.getStateRoot();
+        if (repository.getVMUsed(address, account.getCodeHash()) == InternalVmType.AVM) {
+            // the storage root points to the storage trie root and the object graph
+            byte[] graphKey = graphKey(address);
+            Optional<byte[]> concatenated =
+                    repository.graphDatabase.get(ByteUtil.xorAlignRight(storageRoot, graphKey));
+            if (!concatenated.isPresent()) {
+                throw incompleteStorage(address, null);
+            }
+            RLPList pair = (RLPList) RLP.decode2(concatenated.get()).get(0);
+            storageRoot = pair.get(0).getRLPData();
+            byte[] graphHash = pair.get(1).getRLPData();
+            if (!Arrays.equals(graphHash, EMPTY_DATA_HASH)
+                    && !repository.graphDatabase
+                            .get(ByteUtil.xorAlignRight(graphHash, graphKey))
+                            .isPresent()) {
+                throw incompleteStorage(address, null);
+            }
+            if (Arrays.equals(storageRoot, EMPTY_TRIE_HASH)) {
+                return;
+            }
+        }
+
+        byte[] storageKey = storageKey(address);
+        if (repository.storageDatabase.get(ByteUtil.xorAlignRight(storageRoot, storageKey))
+                .isPresent()) {
+            try {
+                readOnceTrie(new XorDataSource(repository.storageDatabase, storageKey), null)
+                        .scanFullState(storageRoot, new CountNodes());
+            } catch (RuntimeException e) {
+                throw incompleteStorage(address, e);
+            }
+        } else {
+            // contracts with small storage keep it in the details
+            RLPList details =
+                    (RLPList)
+                            RLP.decode2(repository.detailsDatabase.get(address.toByteArray()).get())
+                                    .get(0);
+            if (!hasStorageRoot(details.get(3).getRLPData(), storageRoot)) {
+                throw incompleteStorage(address, null);
+            }
+        }
+    }
+
+    /**
+     * Checks that each node of the storage serialized in the contract details matches its hash and
+     * that the root is one of them.
+     */
+    private static boolean hasStorageRoot(byte[] storage, byte[] storageRoot) {
+        if (storage == null || storage.length == 0) {
+            return false;
+        }
+        RLPList serialized = (RLPList) RLP.decode2(storage).get(0);
+        byte[] keys = serialized.get(0).getRLPData();
+        RLPList values = (RLPList) serialized.get(1);
+        if ((keys == null ? 0 : keys.length) != values.size() * 32) {
+            throw new IllegalArgumentException("Invalid contract storage in the state snapshot.");
+        }
+
+        boolean found = false;
+        for (int i = 0; i < values.size(); i++) {
+            byte[] hash = Arrays.copyOfRange(keys, i * 32, (i + 1) * 32);
+            if (!Arrays.equals(h256(values.get(i).getRLPData()), hash)) {
+                throw new IllegalArgumentException(
+                        "A contract storage node in the state snapshot does not match its hash.");
+            }
+            found |= Arrays.equals(hash, storageRoot);
+        }
+        return found;
+    }
+
+    private static IllegalStateException incompleteStorage(AionAddress address, Throwable cause) {
+        return new IllegalStateException(
+                "The loaded storage of the contract " + address + " is incomplete.", cause);
+    }
+
+    /**
+     * Reads only the header of the given snapshot file, i.e. the block the state belongs to.
+     *
+     * @return a summary with no loaded key-value pairs
+     * @throws IllegalArgumentException if the file is not a valid snapshot or is corrupted
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    static Summary readSummary(File file) {
+        try (DataInputStream in = open(file)) {
+            return readHeader(in);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("The state snapshot is truncated.", e);
+        } catch (ZipException e) {
+            throw new IllegalArgumentException("The state snapshot is corrupted.", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static DataInputStream open(File file) throws IOException {
+        return new DataInputStream(new GZIPInputStream(new FileInputStream(file), 1 << 16));
+    }
+
+    private static Summary readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("The file is not a state snapshot.");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException(
+                    "Unsupported state snapshot version " + version + ".");
+        }
+        AionBlock block = AionBlock.fromRLP(readBytes(in), true);
+        if (block == null) {
+            throw new IllegalArgumentException("Invalid block in the state snapshot.");
+        }
+        BigInteger totalDifficulty = new BigInteger(readBytes(in));
+        if (totalDifficulty.signum() <= 0) {
+            throw new IllegalArgumentException("Invalid total difficulty in the state snapshot.");
+        }
+        return new Summary(block, totalDifficulty);
+    }
+
+    private static Section readSection(DataInputStream in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= Section.values().length) {
+            throw new IllegalArgumentException("Unknown state snapshot section " + ordinal + ".");
+        }
+        return Section.values()[ordinal];
+    }
+
+    private static Map<byte[], byte[]> readChunk(DataInputStream in, Section section)
+            throws IOException {
+        int count = in.readInt();
+        byte[] payload = readBytes(in);
+        long checksum = in.readLong();
+        if (checksum != checksum(section, payload)) {
+            throw new IllegalArgumentException(
+                    "Invalid checksum for a chunk of the " + section + " section.");
+        }
+
+        // sorted keys make the batch writes cheaper for the log-structured databases
+        Map<byte[], byte[]> batch = new TreeMap<>(Arrays::compareUnsigned);
+        DataInputStream entries = new DataInputStream(new ByteArrayInputStream(payload));
+        for (int i = 0; i < count; i++) {
+            byte[] key = readBytes(entries);
+            byte[] value = readBytes(entries);
+            batch.put(databaseKey(section, key, value), value);
+        }
+        return batch;
+    }
+
+    /**
+     * Returns the key under which the pair is stored in the database of the section, rejecting the
+     * trie nodes and object graphs which do not match their hash.
+     */
+    private static byte[] databaseKey(Section section, byte[] key, byte[] value) {
+        switch (section) {
+            case STATE:
+                if (!Arrays.equals(h256(value), key)) {
+                    throw invalidNode(section);
+                }
+                return key;
+            case STORAGE:
+            case GRAPH:
+                if (key.length != AionAddress.LENGTH + 32) {
+                    throw new IllegalArgumentException(
+                            "Invalid key in the " + section + " section of the state snapshot.");
+                }
+                AionAddress address =
+                        new AionAddress(Arrays.copyOfRange(key, 0, AionAddress.LENGTH));
+                byte[] hash = Arrays.copyOfRange(key, AionAddress.LENGTH, key.length);
+                if (section == Section.STORAGE) {
+                    if (!Arrays.equals(h256(value), hash)) {
+                        throw invalidNode(section);
+                    }
+                    return ByteUtil.xorAlignRight(hash, storageKey(address));
+                }
+                // either an object graph or the pair of the storage root and the graph hash
+                if (!Arrays.equals(h256(value), hash) && !isStoragePair(value, hash)) {
+                    throw invalidNode(section);
+                }
+                return ByteUtil.xorAlignRight(hash, graphKey(address));
+            default:
+                return key;
+        }
+    }
+
+    private static boolean isStoragePair(byte[] value, byte[] hash) {
+        try {
+            RLPElement decoded = RLP.decode2(value).get(0);
+            if (!(decoded instanceof RLPList) || ((RLPList) decoded).size() != 2) {
+                return false;
+            }
+            RLPList pair = (RLPList) decoded;
+            return Arrays.equals(
+                    h256(ByteUtil.merge(pair.get(0).getRLPData(), pair.get(1).getRLPData())),
+                    hash);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static IllegalArgumentException invalidNode(Section section) {
+        return new IllegalArgumentException(
+                "A value in the "
+                        + section
+                        + " section of the state snapshot does not match its hash.");
+    }
+
+    private static long checksum(Section section, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(section.ordinal());
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] data) throws IOException {
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IllegalArgumentException("Invalid length in the state snapshot.");
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    /** Buffers the key-value pairs of the current section and writes them in chunks. */
+    private static final class ChunkWriter {
+        private final DataOutputStream out;
+        private final Summary summary;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final DataOutputStream entries = new DataOutputStream(buffer);
+        private Section section;
+        private int count = 0;
+
+        ChunkWriter(DataOutputStream out, Summary summary) {
+            this.out = out;
+            this.summary = summary;
+        }
+
+        /** Continues with the pairs of the given section, writing the pending ones if different. */
+        void start(Section next) throws IOException {
+            if (next != section) {
+                flush();
+                section = next;
+                if (next == Section.END) {
+                    out.writeByte(next.ordinal());
+                }
+            }
+        }
+
+        void add(byte[] key, byte[] value) throws IOException {
+            writeBytes(entries, key);
+            writeBytes(entries, value);
+            count++;
+            summary.counts[section.ordinal()]++;
+            if (buffer.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            if (count > 0) {
+                byte[] payload = buffer.toByteArray();
+                out.writeByte(section.ordinal());
+                out.writeInt(count);
+                writeBytes(out, payload);
+                out.writeLong(checksum(section, payload));
+                buffer.reset();
+                count = 0;
+            }
+        }
+    }
+
+    /** Counts the leaves of the world state trie holding accounts with storage. */
+    private static final class CountStorageAccounts implements ScanAction {
+        private long count = 0;
+
+        @Override
+        public void doOnNode(byte[] hash, Value node) {
+            if (node.isList()) {
+                List<Object> items = node.asList();
+                if (items.size() == 2 && CompactEncoder.hasTerminator((byte[]) items.get(0))) {
+                    AccountState account = new AccountState(new Value(items.get(1)).asBytes());
+                    if (!Arrays.equals(account.getStateRoot(), EMPTY_TRIE_HASH)) {
+                        count++;
+                    }
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IOAction {
+        void doOnNode(byte[] hash, Value node) throws IOException;
+    }
+}
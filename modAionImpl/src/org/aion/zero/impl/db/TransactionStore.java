@@ -7,6 +7,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
@@ -23,12 +29,103 @@ public class TransactionStore implements Closeable {
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    // writes the infos of the imported blocks in order, in the background
+    private final ThreadPoolExecutor writer;
+    // the last task submitted to the writer
+    private volatile Future<?> lastWrite = CompletableFuture.completedFuture(null);
+    // the infos of the failed background write, kept until they are written again
+    private volatile List<AionTxInfo> unwritten = null;
+
     public TransactionStore(
             ByteArrayKeyValueDatabase src, Serializer<List<AionTxInfo>> serializer) {
         source = Stores.newObjectStore(src, serializer);
+        writer =
+                new ThreadPoolExecutor(
+                        1,
+                        1,
+                        1,
+                        TimeUnit.MINUTES,
+                        new LinkedBlockingQueue<>(),
+                        r -> {
+                            Thread t = new Thread(r, "tx-store");
+                            t.setDaemon(true);
+                            return t;
+                        });
+        writer.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stores the infos of the transactions of a block in the background, so that their
+     * serialization overlaps with the flushing of the repository and the execution of the next
+     * block. The background write only stages the infos; they are committed by {@link #commit()}
+     * when the blockchain is flushed. At most one block is written at a time: the call first waits
+     * for the infos of the previous block, see {@link #checkWrites()}. The reads wait for the
+     * pending writes and always see the stored infos.
+     *
+     * @throws IllegalStateException if the infos of the previous block cannot be written
+     */
+    public void storeAsync(List<AionTxInfo> infos) {
+        checkWrites();
+        submit(infos);
+    }
+
+    private synchronized void submit(List<AionTxInfo> infos) {
+        lastWrite =
+                writer.submit(
+                        () -> {
+                            try {
+                                write(infos);
+                            } catch (RuntimeException e) {
+                                unwritten = infos;
+                            }
+                        });
+    }
+
+    private void write(List<AionTxInfo> infos) {
+        for (AionTxInfo info : infos) {
+            put(info);
+        }
+        source.flushBatch();
+    }
+
+    /** Waits for the background writes. */
+    private void awaitWrites() {
+        try {
+            lastWrite.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Waits for the background writes. When the last one failed, its infos are written again on
+     * the calling thread. The importing thread calls this before storing the next block, so that
+     * the block store never gets ahead of the stored infos.
+     *
+     * @throws IllegalStateException if the infos of the failed write cannot be written; they are
+     *     kept and written again by the next call
+     */
+    public synchronized void checkWrites() {
+        awaitWrites();
+        if (unwritten != null) {
+            try {
+                write(unwritten);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Storing the transaction infos failed.", e);
+            }
+            // the infos already staged before the failure are skipped by put
+            unwritten = null;
+        }
     }
 
     public boolean putToBatch(AionTxInfo tx) {
+        checkWrites();
+        return put(tx);
+    }
+
+    private boolean put(AionTxInfo tx) {
         lock.writeLock().lock();
 
         try {
@@ -59,10 +156,12 @@ public class TransactionStore implements Closeable {
     }
 
     public void flushBatch() {
+        checkWrites();
         source.flushBatch();
     }
 
     public AionTxInfo get(byte[] txHash, byte[] blockHash) {
+        awaitWrites();
         lock.readLock().lock();
 
         try {
@@ -79,6 +178,7 @@ public class TransactionStore implements Closeable {
     }
 
     public List<AionTxInfo> get(byte[] key) {
+        awaitWrites();
         lock.readLock().lock();
         try {
             return source.get(key);
@@ -87,7 +187,13 @@ public class TransactionStore implements Closeable {
         }
     }
 
+    /**
+     * Commits the stored infos after the pending background writes.
+     *
+     * @throws RuntimeException if a background write failed
+     */
     public void commit() {
+        checkWrites();
         lock.writeLock().lock();
         try {
             source.commit();
@@ -98,6 +204,11 @@ public class TransactionStore implements Closeable {
 
     @Override
     public void close() throws IOException {
+        try {
+            awaitWrites();
+        } finally {
+            writer.shutdown();
+        }
         lock.writeLock().lock();
         try {
             source.close();
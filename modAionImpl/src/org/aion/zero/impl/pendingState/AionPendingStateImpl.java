@@ -1,12 +1,15 @@
 package org.aion.zero.impl.pendingState;
 
 import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -52,8 +55,10 @@ import org.aion.txpool.Constant;
 import org.aion.txpool.ITxPool;
 import org.aion.txpool.TxPoolModule;
 import org.aion.types.AionAddress;
+import org.aion.types.InternalTransaction;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
+import org.aion.util.types.ByteArrayWrapper;
 import org.aion.vm.common.BlockCachingContext;
 import org.aion.vm.common.BulkExecutor;
 import org.aion.vm.exception.VMException;
@@ -61,6 +66,7 @@ import org.aion.zero.impl.SystemExitCodes;
 import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.db.AionRepositoryImpl;
 import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.types.AionBlockSummary;
 import org.aion.zero.impl.types.AionTxInfo;
 import org.aion.zero.impl.valid.TXValidator;
 import org.aion.zero.impl.valid.TransactionTypeValidator;
@@ -126,6 +132,29 @@ public class AionPendingStateImpl implements IPendingState {
      */
     private List<AionTransaction> replayTxBuffer;
 
+    /**
+     * The receipt and the accounts read or modified by each transaction applied to the pending
+     * state. Used to re-execute only the transactions affected by a new best block.
+     */
+    private final Map<ByteArrayWrapper, PendingExecution> pendingExecutions = new HashMap<>();
+
+    /** The outcome of executing a pooled transaction on top of the pending state. */
+    private static final class PendingExecution {
+        private final AionTxReceipt receipt;
+        private final Set<AionAddress> accounts;
+        // the assumed miner credited with the fee, which is not included in the accounts
+        private final AionAddress miner;
+        private final BigInteger fee;
+
+        private PendingExecution(
+                AionTxReceipt receipt, Set<AionAddress> accounts, AionAddress miner, BigInteger fee) {
+            this.receipt = receipt;
+            this.accounts = accounts;
+            this.miner = miner;
+            this.fee = fee;
+        }
+    }
+
     private boolean bufferEnable;
 
     private boolean test;
@@ -180,11 +209,16 @@ public class AionPendingStateImpl implements IPendingState {
 
                 int cnt = 0;
                 for (AionTxExecSummary summary : txBuffer) {
-                    if (newPending.get(cnt) != null
-                            && !newPending
-                                    .get(cnt)
-                                    .tx
-                                    .equals(summary.getTransaction())) {
+                    if (newPending.get(cnt) == null) {
+                        // a newer transaction with the same nonce is already pooled
+                        fireTxUpdate(
+                                createDroppedReceipt(txs.get(cnt), "REPAYTX_POOL_EXCEPTION"),
+                                PendingTransactionState.DROPPED,
+                                best.get());
+                        cnt++;
+                        continue;
+                    }
+                    if (!newPending.get(cnt).tx.equals(summary.getTransaction())) {
                         AionTxReceipt rp = new AionTxReceipt();
                         rp.setTransaction(newPending.get(cnt).tx);
                         fireTxUpdate(rp, PendingTransactionState.DROPPED, best.get());
@@ -235,7 +269,13 @@ public class AionPendingStateImpl implements IPendingState {
                 if (e.getEventType() == IHandler.TYPE.BLOCK0.getValue()
                         && e.getCallbackType() == EventBlock.CALLBACK.ONBEST0.getValue()) {
                     long t1 = System.currentTimeMillis();
-                    processBest((AionBlock) e.getFuncArgs().get(0), (List) e.getFuncArgs().get(1));
+                    List<Object> args = e.getFuncArgs();
+                    @SuppressWarnings("unchecked")
+                    List<AionTxReceipt> receipts = (List<AionTxReceipt>) args.get(1);
+                    processBest(
+                            (AionBlock) args.get(0),
+                            receipts,
+                            args.size() > 2 ? (AionBlockSummary) args.get(2) : null);
 
                     if (LOGGER_TX.isDebugEnabled()) {
                         long t2 = System.currentTimeMillis();
@@ -452,6 +492,14 @@ public class AionPendingStateImpl implements IPendingState {
         return isSeed ? new ArrayList<>() : this.txPool.snapshot();
     }
 
+    /**
+     * Returns the transactions of the pool without waiting for the pending state, e.g. for
+     * rebuilding the compact blocks received from the network.
+     */
+    public List<AionTransaction> getPooledTransactions() {
+        return isSeed ? new ArrayList<>() : this.txPool.getPooledTransactions();
+    }
+
     public synchronized Block getBestBlock() {
         best.set(blockchain.getBestBlock());
         return best.get();
@@ -771,7 +819,12 @@ public class AionPendingStateImpl implements IPendingState {
                 txBuffer.add(txSum);
             } else {
                 PooledTransaction rtn = this.txPool.add(pendingTx);
-                if (rtn != null && !rtn.equals(pendingTx)) {
+                if (rtn == null) {
+                    // a newer transaction with the same nonce is already pooled
+                    fireDroppedTx(tx, "REPAYTX_POOL_EXCEPTION");
+                    return TxResponse.DROPPED;
+                }
+                if (!rtn.equals(pendingTx)) {
                     AionTxReceipt rp = new AionTxReceipt();
                     rp.setTransaction(rtn.tx);
 
@@ -826,12 +879,29 @@ public class AionPendingStateImpl implements IPendingState {
     }
 
     public synchronized void processBest(AionBlock newBlock, List receipts) {
+        processBest(newBlock, receipts, null);
+    }
+
+    /**
+     * Updates the pending state on top of the new best block.
+     *
+     * @param newBlock the new best block
+     * @param receipts the receipts of the transactions in the new block
+     * @param summary the execution summary of the new block, used to re-execute only the pending
+     *     transactions touching the accounts it modified; when {@code null} all the pending
+     *     transactions are re-executed
+     */
+    public synchronized void processBest(
+            AionBlock newBlock, List<AionTxReceipt> receipts, AionBlockSummary summary) {
 
         if (isSeed) {
             // seed mode doesn't need to update the pendingState
             return;
         }
 
+        // the accounts changed since the last update of the pending state, if known
+        Set<AionAddress> modifiedAccounts = null;
+
         if (best.get() != null && !best.get().isParentOf(newBlock)) {
 
             // need to switch the state to another fork
@@ -886,8 +956,11 @@ public class AionPendingStateImpl implements IPendingState {
             if (LOGGER_TX.isDebugEnabled()) {
                 LOGGER_TX.debug("PendingStateImpl.processBest: " + newBlock.getShortDescr());
             }
-            //noinspection unchecked
             processBestInternal(newBlock, receipts);
+
+            if (summary != null) {
+                modifiedAccounts = getModifiedAccounts(summary);
+            }
         }
 
         best.set(newBlock);
@@ -899,7 +972,7 @@ public class AionPendingStateImpl implements IPendingState {
                     "PendingStateImpl.processBest: closeToNetworkBest[{}]", closeToNetworkBest);
         }
 
-        rerunTxsInPool(best.get());
+        rerunTxsInPool(best.get(), modifiedAccounts);
 
         txPool.updateBlkNrgLimit(best.get().getNrgLimit());
 
@@ -1047,10 +1120,36 @@ public class AionPendingStateImpl implements IPendingState {
         return info;
     }
 
-    @SuppressWarnings("UnusedReturnValue")
-    private List<AionTransaction> rerunTxsInPool(Block block) {
+    /** @return the accounts whose state was changed by the execution of the given block */
+    private static Set<AionAddress> getModifiedAccounts(AionBlockSummary summary) {
+        Set<AionAddress> accounts = new HashSet<>(summary.getRewards().keySet());
+        accounts.add(summary.getBlock().getCoinbase());
+
+        for (AionTxExecSummary txSummary : summary.getSummaries()) {
+            AionTransaction tx = txSummary.getTransaction();
+            accounts.add(tx.getSenderAddress());
+            accounts.add(
+                    tx.isContractCreationTransaction()
+                            ? TxUtil.calculateContractAddress(tx)
+                            : tx.getDestinationAddress());
+
+            for (InternalTransaction itx : txSummary.getInternalTransactions()) {
+                accounts.add(itx.sender);
+                accounts.add(itx.isCreate ? TxUtil.calculateContractAddress(itx) : itx.destination);
+            }
+            accounts.addAll(txSummary.getDeletedAccounts());
+        }
+        return accounts;
+    }
 
-        pendingState = repository.startTracking();
+    /**
+     * Re-executes the pooled transactions on top of the new best block.
+     *
+     * @param modifiedAccounts the accounts changed by the new best block; when {@code null} the
+     *     pending state is rebuilt by re-executing all the pooled transactions
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    private List<AionTransaction> rerunTxsInPool(Block block, Set<AionAddress> modifiedAccounts) {
 
         for (AionTransaction tx : replayTxBuffer) {
             // Add a junk energyConsumed value because it will get rerun soon after it is added
@@ -1060,31 +1159,165 @@ public class AionPendingStateImpl implements IPendingState {
 
         processTxBuffer();
         List<AionTransaction> pendingTxl = this.txPool.snapshotAll();
-        List<AionTransaction> rtn = new ArrayList<>();
-        if (LOGGER_TX.isInfoEnabled()) {
-            LOGGER_TX.info("rerunTxsInPool - snapshotAll tx[{}]", pendingTxl.size());
+
+        if (modifiedAccounts == null) {
+            return rerunAllTxsInPool(block, pendingTxl);
+        }
+
+        // the changes made by the transactions no longer in the pool must be reverted
+        Set<AionAddress> affected = new HashSet<>(modifiedAccounts);
+        // the fees credited to the previously assumed miners are reverted as well
+        for (PendingExecution execution : pendingExecutions.values()) {
+            affected.add(execution.miner);
         }
+        Set<ByteArrayWrapper> pooled = new HashSet<>();
         for (AionTransaction tx : pendingTxl) {
-            if (LOGGER_TX.isTraceEnabled()) {
-                LOGGER_TX.trace("rerunTxsInPool - loop: " + tx.toString());
+            pooled.add(ByteArrayWrapper.wrap(tx.getTransactionHash()));
+        }
+        Iterator<Map.Entry<ByteArrayWrapper, PendingExecution>> executions =
+                pendingExecutions.entrySet().iterator();
+        while (executions.hasNext()) {
+            Map.Entry<ByteArrayWrapper, PendingExecution> entry = executions.next();
+            if (!pooled.contains(entry.getKey())) {
+                affected.addAll(entry.getValue().accounts);
+                executions.remove();
             }
+        }
 
-            AionTxExecSummary txSum = executeTx(tx, false);
-            AionTxReceipt receipt = txSum.getReceipt();
-            receipt.setTransaction(tx);
+        boolean[] rerun = findAffectedTxs(pendingTxl, affected);
 
-            if (txSum.isRejected()) {
-                if (LOGGER_TX.isDebugEnabled()) {
-                    LOGGER_TX.debug("Invalid transaction in txpool: {}", tx);
+        // the state of the transactions carried forward is kept, the rest is reloaded
+        Set<AionAddress> carried = new HashSet<>();
+        int rerunCount = 0;
+        for (int i = 0; i < pendingTxl.size(); i++) {
+            if (rerun[i]) {
+                rerunCount++;
+            } else {
+                carried.addAll(getExecution(pendingTxl.get(i)).accounts);
+            }
+        }
+        pendingState.rollback(affected);
+
+        // the fees of the transactions carried forward are credited to the new assumed miner
+        AionAddress miner = block.getCoinbase();
+        for (int i = 0; i < pendingTxl.size(); i++) {
+            if (!rerun[i]) {
+                ByteArrayWrapper hash = ByteArrayWrapper.wrap(pendingTxl.get(i).getTransactionHash());
+                PendingExecution execution = pendingExecutions.get(hash);
+                pendingState.addBalance(miner, execution.fee);
+                pendingExecutions.put(
+                        hash,
+                        new PendingExecution(
+                                execution.receipt, execution.accounts, miner, execution.fee));
+            }
+        }
+
+        if (LOGGER_TX.isInfoEnabled()) {
+            LOGGER_TX.info(
+                    "rerunTxsInPool - snapshotAll tx[{}] affected tx[{}] accounts[{}]",
+                    pendingTxl.size(),
+                    rerunCount,
+                    affected.size());
+        }
+
+        List<AionTransaction> rtn = new ArrayList<>();
+        for (int i = 0; i < pendingTxl.size(); i++) {
+            AionTransaction tx = pendingTxl.get(i);
+
+            if (!rerun[i]) {
+                fireTxUpdate(getExecution(tx).receipt, PendingTransactionState.PENDING, block);
+                rtn.add(tx);
+            } else if (revalidateTx(tx, block)) {
+                rtn.add(tx);
+
+                for (AionAddress account : getExecution(tx).accounts) {
+                    if (carried.contains(account)) {
+                        // the new execution interferes with a transaction carried forward
+                        if (LOGGER_TX.isDebugEnabled()) {
+                            LOGGER_TX.debug(
+                                    "rerunTxsInPool - tx {} touched the carried account {}",
+                                    Hex.toHexString(tx.getTransactionHash()),
+                                    account);
+                        }
+                        return rerunAllTxsInPool(block, this.txPool.snapshotAll());
+                    }
                 }
-                txPool.remove(new PooledTransaction(tx, receipt.getEnergyUsed()));
+            }
+        }
+
+        return rtn;
+    }
 
-                if (poolBackUp) {
-                    backupPendingPoolRemove.add(tx.getTransactionHash().clone());
+    /**
+     * Marks the transactions that read or modified any of the affected accounts, directly or
+     * through an earlier marked transaction. The affected set is extended with the accounts
+     * touched by the marked transactions.
+     *
+     * @return for each given transaction, whether it must be re-executed
+     */
+    private boolean[] findAffectedTxs(List<AionTransaction> txs, Set<AionAddress> affected) {
+        boolean[] rerun = new boolean[txs.size()];
+        Map<AionAddress, List<Integer>> txsByAccount = new HashMap<>();
+        Deque<AionAddress> newlyAffected = new ArrayDeque<>(affected);
+
+        for (int i = 0; i < txs.size(); i++) {
+            AionTransaction tx = txs.get(i);
+            PendingExecution execution = getExecution(tx);
+
+            if (execution == null) {
+                // never executed on the pending state
+                rerun[i] = true;
+                addAffected(tx.getSenderAddress(), affected, newlyAffected);
+                if (tx.getDestinationAddress() != null) {
+                    addAffected(tx.getDestinationAddress(), affected, newlyAffected);
                 }
-                fireTxUpdate(receipt, PendingTransactionState.DROPPED, block);
             } else {
-                fireTxUpdate(receipt, PendingTransactionState.PENDING, block);
+                for (AionAddress account : execution.accounts) {
+                    txsByAccount.computeIfAbsent(account, k -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+
+        while (!newlyAffected.isEmpty()) {
+            List<Integer> touching = txsByAccount.remove(newlyAffected.poll());
+            if (touching == null) {
+                continue;
+            }
+            for (int i : touching) {
+                if (!rerun[i]) {
+                    rerun[i] = true;
+                    for (AionAddress account : getExecution(txs.get(i)).accounts) {
+                        addAffected(account, affected, newlyAffected);
+                    }
+                }
+            }
+        }
+
+        return rerun;
+    }
+
+    private static void addAffected(
+            AionAddress account, Set<AionAddress> affected, Deque<AionAddress> newlyAffected) {
+        if (affected.add(account)) {
+            newlyAffected.add(account);
+        }
+    }
+
+    private PendingExecution getExecution(AionTransaction tx) {
+        return pendingExecutions.get(ByteArrayWrapper.wrap(tx.getTransactionHash()));
+    }
+
+    private List<AionTransaction> rerunAllTxsInPool(Block block, List<AionTransaction> pendingTxl) {
+
+        pendingState = repository.startTracking();
+        pendingExecutions.clear();
+
+        List<AionTransaction> rtn = new ArrayList<>();
+        if (LOGGER_TX.isInfoEnabled()) {
+            LOGGER_TX.info("rerunTxsInPool - snapshotAll tx[{}]", pendingTxl.size());
+        }
+        for (AionTransaction tx : pendingTxl) {
+            if (revalidateTx(tx, block)) {
                 rtn.add(tx);
             }
         }
@@ -1092,6 +1325,37 @@ public class AionPendingStateImpl implements IPendingState {
         return rtn;
     }
 
+    /**
+     * Executes the pooled transaction on the pending state, dropping it from the pool if rejected.
+     *
+     * @return {@code true} if the transaction is still pending, {@code false} otherwise
+     */
+    private boolean revalidateTx(AionTransaction tx, Block block) {
+        if (LOGGER_TX.isTraceEnabled()) {
+            LOGGER_TX.trace("rerunTxsInPool - loop: " + tx.toString());
+        }
+
+        AionTxExecSummary txSum = executeTx(tx, false);
+        AionTxReceipt receipt = txSum.getReceipt();
+        receipt.setTransaction(tx);
+
+        if (txSum.isRejected()) {
+            if (LOGGER_TX.isDebugEnabled()) {
+                LOGGER_TX.debug("Invalid transaction in txpool: {}", tx);
+            }
+            txPool.remove(new PooledTransaction(tx, receipt.getEnergyUsed()));
+
+            if (poolBackUp) {
+                backupPendingPoolRemove.add(tx.getTransactionHash().clone());
+            }
+            fireTxUpdate(receipt, PendingTransactionState.DROPPED, block);
+            return false;
+        } else {
+            fireTxUpdate(receipt, PendingTransactionState.PENDING, block);
+            return true;
+        }
+    }
+
     private Set<AionAddress> getTxsAccounts(List<AionTransaction> txn) {
         Set<AionAddress> rtn = new HashSet<>();
         for (AionTransaction tx : txn) {
@@ -1128,21 +1392,45 @@ public class AionPendingStateImpl implements IPendingState {
             // assuming same person will mine the future block
             AionAddress miner = bestBlk.getCoinbase();
 
-            return BulkExecutor.executeTransactionWithNoPostExecutionWork(
-                    difficulty,
-                    currentBlockNumber,
-                    timestamp,
-                    blockNrgLimit,
-                    miner,
-                    tx,
-                    pendingState,
-                    isLocalCall,
-                    incrementSenderNonce,
-                    fork040Enable,
-                    checkBlockEnergyLimit,
-                    LOGGER_VM,
-                    BlockCachingContext.PENDING,
-                    bestBlk.getNumber());
+            // the accounts touched by the transaction are recorded by executing on a child cache
+            RepositoryCache<AccountState, IBlockStoreBase> track = pendingState.startTracking();
+
+            AionTxExecSummary summary =
+                    BulkExecutor.executeTransactionWithNoPostExecutionWork(
+                            difficulty,
+                            currentBlockNumber,
+                            timestamp,
+                            blockNrgLimit,
+                            miner,
+                            tx,
+                            track,
+                            isLocalCall,
+                            incrementSenderNonce,
+                            fork040Enable,
+                            checkBlockEnergyLimit,
+                            LOGGER_VM,
+                            BlockCachingContext.PENDING,
+                            bestBlk.getNumber());
+
+            ByteArrayWrapper hash = ByteArrayWrapper.wrap(tx.getTransactionHash());
+            if (summary.isRejected()) {
+                pendingExecutions.remove(hash);
+            } else {
+                Set<AionAddress> accounts = track.getCachedAddresses();
+                accounts.add(tx.getSenderAddress());
+                // all the transactions pay fees to the assumed miner, which is updated by every
+                // block, so it only counts as a dependency when used directly
+                if (!miner.equals(tx.getSenderAddress())
+                        && !miner.equals(tx.getDestinationAddress())) {
+                    accounts.remove(miner);
+                }
+                pendingExecutions.put(
+                        hash,
+                        new PendingExecution(summary.getReceipt(), accounts, miner, summary.getFee()));
+            }
+            track.flush();
+
+            return summary;
         } catch (VMException e) {
             LOGGER_VM.error("Shutdown due to a VM fatal error.", e);
             System.exit(SystemExitCodes.FATAL_VM_ERROR);
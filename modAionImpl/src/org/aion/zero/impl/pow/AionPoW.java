@@ -17,6 +17,7 @@ import org.aion.evtmgr.IEventMgr;
 import org.aion.evtmgr.IHandler;
 import org.aion.evtmgr.impl.callback.EventCallback;
 import org.aion.evtmgr.impl.es.EventExecuteService;
+import org.aion.evtmgr.impl.es.EventRingBuffer;
 import org.aion.evtmgr.impl.evt.EventBlock;
 import org.aion.evtmgr.impl.evt.EventConsensus;
 import org.aion.evtmgr.impl.evt.EventTx;
@@ -108,8 +109,16 @@ public class AionPoW {
             if (!config.getConsensus().getMining()) return;
 
             setupHandler();
-            ees = new EventExecuteService(100_000, "EpPow", Thread.NORM_PRIORITY, LOG);
+            // only the latest best block and pending tx notifications matter to the templates
+            ees =
+                    new EventExecuteService(
+                            100_000,
+                            "EpPow",
+                            Thread.NORM_PRIORITY,
+                            LOG,
+                            EventRingBuffer.Policy.COALESCE);
             ees.setFilter(setEvtFilter());
+            ees.setCoalescible(setCoalescibleEvents());
 
             registerCallback();
             ees.start(new EpPOW());
@@ -169,13 +178,27 @@ public class AionPoW {
         return eventSN;
     }
 
+    private Set<Integer> setCoalescibleEvents() {
+        Set<Integer> eventSN = new HashSet<>();
+        int sn = IHandler.TYPE.TX0.getValue() << 8;
+        eventSN.add(sn + EventTx.CALLBACK.PENDINGTXRECEIVED0.getValue());
+
+        sn = IHandler.TYPE.BLOCK0.getValue() << 8;
+        eventSN.add(sn + EventBlock.CALLBACK.ONBEST0.getValue());
+
+        return eventSN;
+    }
+
     /**
      * Registers callback for the {@link
      * org.aion.evtmgr.impl.evt.EventConsensus.CALLBACK#ON_SOLUTION} event.
      */
     public void registerCallback() {
+        // the solutions are never dropped: the other consensus publishers wait for this thread
+        // instead, while its own templates never block it (see EventRingBuffer.Policy.BLOCK) and
+        // the templates are published without holding the monitor it needs to read the bus
         IHandler consensusHandler = eventMgr.getHandler(IHandler.TYPE.CONSENSUS.getValue());
-        consensusHandler.eventCallback(new EventCallback(ees, LOG));
+        consensusHandler.eventCallback(new EventCallback(ees, LOG, EventRingBuffer.Policy.BLOCK));
 
         IHandler blockHandler = eventMgr.getHandler(IHandler.TYPE.BLOCK0.getValue());
         blockHandler.eventCallback(new EventCallback(ees, LOG));
@@ -243,14 +266,28 @@ public class AionPoW {
         }
     }
 
-    /** Creates a new block template. */
-    protected synchronized void createNewBlockTemplate() {
+    /**
+     * Creates and publishes a new block template. The template is published after releasing the
+     * monitor of this instance, since publishing may wait for the consensus thread, which needs the
+     * monitor to process solutions.
+     */
+    protected void createNewBlockTemplate() {
+        Block newBlock = buildBlockTemplate();
+        if (newBlock != null) {
+            EventConsensus ev = new EventConsensus(EventConsensus.CALLBACK.ON_BLOCK_TEMPLATE);
+            ev.setFuncArgs(Collections.singletonList(newBlock));
+            eventMgr.newEvent(ev);
+        }
+    }
+
+    /** @return a new block template, or {@code null} if none is needed */
+    private synchronized Block buildBlockTemplate() {
         if (!shutDown.get()) {
             // TODO: Validate the trustworthiness of getNetworkBestBlock - can
             // it be used in DDOS?
             if (this.syncMgr.getNetworkBestBlockNumber() - blockchain.getBestBlock().getNumber()
                     > syncLimit) {
-                return;
+                return null;
             }
 
             if (LOG.isDebugEnabled()) {
@@ -264,13 +301,11 @@ public class AionPoW {
 
             Block newBlock = blockchain.createNewBlock(bestBlock, txs, false);
 
-            EventConsensus ev = new EventConsensus(EventConsensus.CALLBACK.ON_BLOCK_TEMPLATE);
-            ev.setFuncArgs(Collections.singletonList(newBlock));
-            eventMgr.newEvent(ev);
-
             // update last timestamp
             lastUpdate.set(System.currentTimeMillis());
+            return newBlock;
         }
+        return null;
     }
 
     public synchronized void shutdown() {
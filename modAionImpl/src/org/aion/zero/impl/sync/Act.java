@@ -26,4 +26,10 @@ public final class Act {
     public static final byte REQUEST_BLOCKS = 12;
 
     public static final byte RESPONSE_BLOCKS = 13;
+
+    public static final byte BROADCAST_COMPACT_BLOCK = 14;
+
+    public static final byte REQUEST_BLOCK_TXS = 15;
+
+    public static final byte RESPONSE_BLOCK_TXS = 16;
 }
@@ -0,0 +1,385 @@
+package org.aion.zero.impl.sync;
+
+import static org.aion.p2p.P2pConstant.BACKWARD_SYNC_STEP;
+import static org.aion.p2p.P2pConstant.LARGE_REQUEST_SIZE;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collectors;
+import org.aion.mcf.blockchain.Block;
+import org.aion.p2p.INode;
+import org.aion.zero.impl.sync.statistics.RequestType;
+import org.slf4j.Logger;
+
+/**
+ * Splits the blocks between the local best block and the best block of the peers into disjoint
+ * ranges and assigns them to the idle peers, so that catch-up sync downloads each block once and
+ * keeps all the peers busy.
+ *
+ * <p>The ranges closest to the local chain are assigned to the peers that delivered ranges the
+ * fastest, falling back to the response times recorded in {@link SyncStats} for the peers that
+ * have not delivered one yet. A range not delivered within {@link #RANGE_TIMEOUT} is assigned
+ * again. The delivered ranges are released in block order so they can be imported directly.
+ *
+ * @implNote The methods are synchronized, the requests for the assigned ranges are sent by the
+ *     caller.
+ */
+final class RangeScheduler {
+
+    /** The distance to the best block of a peer from which the ranges are used. */
+    static final int CATCH_UP_DISTANCE = BACKWARD_SYNC_STEP;
+    /** The number of blocks in a range. */
+    static final int RANGE_SIZE = LARGE_REQUEST_SIZE;
+    /** The maximum number of ranges assigned or waiting for release. */
+    static final int MAX_RANGES = 64;
+    /** The time in milliseconds after which an assigned range is given to another peer. */
+    static final long RANGE_TIMEOUT = 10_000L;
+    /** The time in milliseconds without import progress after which the ranges are restarted. */
+    static final long STALL_TIMEOUT = 60_000L;
+
+    // the weight of the last delivery in the throughput of a peer
+    private static final double THROUGHPUT_WEIGHT = 0.3;
+
+    private final SyncStats stats;
+    private final BlockingQueue<BlocksWrapper> downloadedBlocks;
+    private final Logger log;
+
+    // the ranges not released yet by their first block number
+    private final TreeMap<Long, Range> ranges = new TreeMap<>();
+    // the range assigned to each peer
+    private final Map<Integer, Range> assigned = new HashMap<>();
+    // the first block of the range each peer was asked for after another peer delivered it
+    private final Map<Integer, Long> superseded = new HashMap<>();
+    // the blocks per millisecond delivered by each peer
+    private final Map<Integer, Double> throughput = new HashMap<>();
+
+    // the first block number not covered by a range
+    private long nextFrom = 0;
+    private long lastSelfNumber = -1;
+    private long lastProgress = 0;
+
+    /** A range of blocks assigned to at most one peer at a time. */
+    private static final class Range {
+        private final long from;
+        private int size;
+
+        private int nodeIdHash;
+        private String displayId;
+        private long requestTime;
+        // the peers the range was assigned to, including the ones which timed out
+        private final Set<Integer> assignees = new HashSet<>();
+
+        private int deliveredBy;
+        private String deliveredDisplayId;
+        private List<Block> blocks;
+
+        private Range(long from, int size) {
+            this.from = from;
+            this.size = size;
+        }
+
+        private long last() {
+            return from + size - 1;
+        }
+
+        private boolean isAssigned() {
+            return displayId != null;
+        }
+
+        private boolean isDelivered() {
+            return blocks != null;
+        }
+
+        private void unassign() {
+            nodeIdHash = 0;
+            displayId = null;
+        }
+    }
+
+    /** A range to be requested from a peer. */
+    static final class Assignment {
+        final INode node;
+        final long from;
+        final int size;
+
+        private Assignment(INode node, long from, int size) {
+            this.node = node;
+            this.from = from;
+            this.size = size;
+        }
+    }
+
+    /**
+     * @param stats the statistics with the response times of the peers
+     * @param downloadedBlocks the queue receiving the delivered ranges in block order
+     */
+    RangeScheduler(
+            final SyncStats stats,
+            final BlockingQueue<BlocksWrapper> downloadedBlocks,
+            final Logger log) {
+        this.stats = stats;
+        this.downloadedBlocks = downloadedBlocks;
+        this.log = log;
+    }
+
+    /**
+     * Assigns a range to each of the given peers that is not already downloading one, after
+     * dropping the ranges imported in the meantime and reclaiming the timed out ones.
+     *
+     * @param selfNumber the local best block number
+     * @param peers the peers eligible for downloading blocks
+     * @param now the current time in milliseconds
+     * @return the ranges to be requested, at most one per peer
+     */
+    synchronized List<Assignment> assign(long selfNumber, Collection<INode> peers, long now) {
+        restartIfStalled(selfNumber, now);
+        dropImported(selfNumber);
+        reclaimTimedOut(now);
+
+        List<INode> idle =
+                peers.stream()
+                        .filter(n -> !assigned.containsKey(n.getIdHash()))
+                        .sorted(Comparator.comparingDouble(this::expectedRangeTime))
+                        .collect(Collectors.toList());
+        if (idle.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Assignment> assignments = new ArrayList<>();
+        for (INode node : idle) {
+            Range range = nextRange(node.getBestBlockNumber());
+            if (range == null) {
+                continue;
+            }
+
+            superseded.remove(node.getIdHash());
+            range.nodeIdHash = node.getIdHash();
+            range.displayId = node.getIdShort();
+            range.requestTime = now;
+            range.assignees.add(node.getIdHash());
+            assigned.put(node.getIdHash(), range);
+            assignments.add(new Assignment(node, range.from, range.size));
+        }
+        return assignments;
+    }
+
+    /**
+     * Records the blocks delivered by a peer and queues the delivered ranges that follow the
+     * imported blocks without gaps.
+     *
+     * @param nodeIdHash the peer that delivered the blocks
+     * @param displayId the display identifier of the peer
+     * @param blocks consecutive blocks
+     * @param now the current time in milliseconds
+     * @return {@code false} when the blocks do not belong to a range assigned to the peer and
+     *     should be queued as they are, {@code true} otherwise
+     */
+    synchronized boolean deliver(
+            int nodeIdHash, String displayId, List<Block> blocks, long now) {
+        long first = blocks.get(0).getNumber();
+        long last = blocks.get(blocks.size() - 1).getNumber();
+
+        if (superseded.remove(nodeIdHash, first)) {
+            if (log.isDebugEnabled()) {
+                log.debug(
+                        "<range-duplicate from={} size={} node={}>",
+                        first,
+                        blocks.size(),
+                        displayId);
+            }
+            return true;
+        }
+
+        Map.Entry<Long, Range> entry = ranges.floorEntry(first);
+        if (entry == null || entry.getValue().last() < first) {
+            return false;
+        }
+
+        Range range = entry.getValue();
+        if (!range.assignees.contains(nodeIdHash)) {
+            // not requested through the scheduler, e.g. blocks of a side chain
+            return false;
+        }
+
+        if (range.isDelivered()) {
+            // already downloaded from another peer
+            if (log.isDebugEnabled()) {
+                log.debug(
+                        "<range-duplicate from={} size={} node={}>",
+                        first,
+                        blocks.size(),
+                        displayId);
+            }
+            return true;
+        }
+
+        if (range.isAssigned() && range.nodeIdHash == nodeIdHash) {
+            double delivered = (double) blocks.size() / Math.max(1, now - range.requestTime);
+            throughput.merge(nodeIdHash, delivered, RangeScheduler::average);
+        }
+        if (range.isAssigned()) {
+            assigned.remove(range.nodeIdHash, range);
+            if (range.nodeIdHash != nodeIdHash) {
+                // a late delivery after the range was assigned again
+                superseded.put(range.nodeIdHash, range.from);
+            }
+        }
+
+        if (last > range.last()) {
+            // the following blocks belong to the next range
+            blocks = blocks.subList(0, (int) (range.last() - first + 1));
+        } else if (last < range.last()) {
+            // the peer may return fewer blocks than requested, the rest is assigned again
+            int rest = (int) (range.last() - last);
+            range.size -= rest;
+            ranges.put(last + 1, new Range(last + 1, rest));
+        }
+        range.unassign();
+        range.blocks = blocks;
+        range.deliveredBy = nodeIdHash;
+        range.deliveredDisplayId = displayId;
+
+        release();
+        return true;
+    }
+
+    /** Returns the number of ranges assigned or waiting for release. */
+    synchronized int size() {
+        return ranges.size();
+    }
+
+    /** Returns the number of peers downloading a range. */
+    synchronized int assignedCount() {
+        return assigned.size();
+    }
+
+    private void release() {
+        Iterator<Range> it = ranges.values().iterator();
+        while (it.hasNext()) {
+            Range range = it.next();
+            if (!range.isDelivered()) {
+                break;
+            }
+            downloadedBlocks.add(
+                    new BlocksWrapper(range.deliveredBy, range.deliveredDisplayId, range.blocks));
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the lowest unassigned range the peer can serve, covering new blocks when all the
+     * existing ranges are taken.
+     */
+    private Range nextRange(long peerBest) {
+        for (Range range : ranges.values()) {
+            if (range.from > peerBest) {
+                return null;
+            }
+            if (!range.isAssigned() && !range.isDelivered()) {
+                return range;
+            }
+        }
+
+        if (ranges.size() >= MAX_RANGES || nextFrom > peerBest) {
+            return null;
+        }
+        Range range = new Range(nextFrom, (int) Math.min(RANGE_SIZE, peerBest - nextFrom + 1));
+        ranges.put(range.from, range);
+        nextFrom += range.size;
+        return range;
+    }
+
+    /** Drops the ranges below the local best block, which no longer need downloading. */
+    private void dropImported(long selfNumber) {
+        Iterator<Range> it = ranges.values().iterator();
+        while (it.hasNext()) {
+            Range range = it.next();
+            if (range.last() > selfNumber) {
+                break;
+            }
+            if (range.isAssigned()) {
+                assigned.remove(range.nodeIdHash, range);
+            }
+            it.remove();
+        }
+        nextFrom = Math.max(nextFrom, selfNumber + 1);
+    }
+
+    private void reclaimTimedOut(long now) {
+        Iterator<Range> it = assigned.values().iterator();
+        while (it.hasNext()) {
+            Range range = it.next();
+            if (now - range.requestTime > RANGE_TIMEOUT) {
+                if (log.isDebugEnabled()) {
+                    log.debug(
+                            "<range-timeout from={} size={} node={}>",
+                            range.from,
+                            range.size,
+                            range.displayId);
+                }
+                // rank the peer as if it took twice the timeout, after the peers without deliveries
+                throughput.merge(
+                        range.nodeIdHash,
+                        (double) range.size / (2 * RANGE_TIMEOUT),
+                        RangeScheduler::average);
+                range.unassign();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Restarts from the local best block when it has not advanced for a while, e.g. because the
+     * released blocks failed to import.
+     */
+    private void restartIfStalled(long selfNumber, long now) {
+        if (selfNumber != lastSelfNumber) {
+            lastSelfNumber = selfNumber;
+            lastProgress = now;
+        } else if (now - lastProgress > STALL_TIMEOUT && nextFrom > selfNumber + 1) {
+            if (log.isDebugEnabled()) {
+                log.debug(
+                        "<range-restart self-num={} next-from={} ranges={}>",
+                        selfNumber,
+                        nextFrom,
+                        ranges.size());
+            }
+            ranges.clear();
+            assigned.clear();
+            superseded.clear();
+            nextFrom = selfNumber + 1;
+            lastProgress = now;
+        }
+    }
+
+    private static double average(double old, double latest) {
+        return old * (1 - THROUGHPUT_WEIGHT) + latest * THROUGHPUT_WEIGHT;
+    }
+
+    /** Returns the expected time in milliseconds for a peer to deliver a range. */
+    private double expectedRangeTime(INode node) {
+        Double rate = throughput.get(node.getIdHash());
+        if (rate != null) {
+            return RANGE_SIZE / rate;
+        }
+
+        // the peers without deliveries are ranked by their response times
+        double headers = stats.getAverageResponseTime(node.getIdShort(), RequestType.HEADERS);
+        double bodies = stats.getAverageResponseTime(node.getIdShort(), RequestType.BODIES);
+        if (headers < 0 || bodies < 0) {
+            // the unknown peers are expected to deliver within the timeout
+            return RANGE_TIMEOUT;
+        }
+        return (headers + bodies) / 1_000_000;
+    }
+}
@@ -4,7 +4,6 @@ import static org.aion.util.string.StringUtils.getNodeIdShort;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -28,7 +27,6 @@ import org.aion.mcf.blockchain.Block;
 import org.aion.mcf.blockchain.BlockHeader;
 import org.aion.mcf.config.StatsType;
 import org.aion.p2p.IP2pMgr;
-import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
 import org.aion.util.types.ByteArrayWrapper;
 import org.aion.zero.impl.blockchain.AionBlockchainImpl;
@@ -44,12 +42,18 @@ public final class SyncMgr {
     // interval - show status
     private static final int INTERVAL_SHOW_STATUS = 10000;
 
+    // header batches waiting for validation; the batches received beyond it are dropped
+    private static final int MAX_RECEIVED_HEADERS = 256;
+
     private static final Logger log = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
     private static final Logger survey_log = AionLoggerFactory.getLogger(LogEnum.SURVEY.name());
 
     private final NetworkStatus networkStatus = new NetworkStatus();
     // peer syncing states
     private final Map<Integer, PeerState> peerStates = new ConcurrentHashMap<>();
+    // store the headers received from network before they are validated
+    private final BlockingQueue<HeadersWrapper> receivedHeaders =
+            new LinkedBlockingQueue<>(MAX_RECEIVED_HEADERS);
     // store the downloaded headers from network
     private final BlockingQueue<HeadersWrapper> downloadedHeaders = new LinkedBlockingQueue<>();
     // store the headers whose bodies have been requested from corresponding peer
@@ -65,6 +69,8 @@ public final class SyncMgr {
     private IP2pMgr p2pMgr;
     private IEventMgr evtMgr;
     private SyncStats stats;
+    // splits the catch-up download into ranges for the available peers
+    private RangeScheduler rangeScheduler;
     private AtomicBoolean start = new AtomicBoolean(true);
     // private ExecutorService workers = Executors.newFixedThreadPool(5);
     private ExecutorService workers =
@@ -78,7 +84,21 @@ public final class SyncMgr {
                             return new Thread(r, "sync-gh-" + cnt.incrementAndGet());
                         }
                     });
+    // check the header rules of a batch in parallel
+    private ExecutorService headerValidators =
+            Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+
+                        private AtomicInteger cnt = new AtomicInteger(0);
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            return new Thread(r, "sync-vh-" + cnt.incrementAndGet());
+                        }
+                    });
 
+    private Thread syncVh = null;
     private Thread syncGb = null;
     private Thread syncIb = null;
     private Thread syncGs = null;
@@ -184,7 +204,20 @@ public final class SyncMgr {
 
         long selfBest = chain.getBestBlock().getNumber();
         stats = new SyncStats(selfBest, _showStatus, showStatistics, maxActivePeers);
+        rangeScheduler = new RangeScheduler(stats, downloadedBlocks, log);
 
+        syncVh =
+                new Thread(
+                        new TaskValidateHeaders(
+                                start,
+                                receivedHeaders,
+                                downloadedHeaders,
+                                importedBlockHashes,
+                                blockHeaderValidator,
+                                headerValidators,
+                                log),
+                        "sync-vh");
+        syncVh.start();
         syncGb =
                 new Thread(
                         new TaskGetBodies(
@@ -255,6 +288,7 @@ public final class SyncMgr {
                                 _selfTd,
                                 peerStates,
                                 stats,
+                                rangeScheduler,
                                 log));
                 queueFull.set(false);
             }
@@ -264,7 +298,8 @@ public final class SyncMgr {
     /**
      * @param _nodeIdHashcode int
      * @param _displayId String
-     * @param _headers List validate headers batch and add batch to imported headers
+     * @param _headers List queue headers batch for validation, after which it is added to the
+     *     imported headers
      */
     public void validateAndAddHeaders(
             int _nodeIdHashcode, String _displayId, List<BlockHeader> _headers) {
@@ -280,48 +315,16 @@ public final class SyncMgr {
                     _displayId);
         }
 
-        // filter imported block headers
-        List<BlockHeader> filtered = new ArrayList<>();
-        BlockHeader prev = null;
-        for (BlockHeader current : _headers) {
-
-            // ignore this batch if any invalidated header
-            if (!this.blockHeaderValidator.validate(current, log)) {
+        // validated by the sync-vh thread to keep the expensive checks off the p2p threads; when
+        // it falls behind, the batch is dropped like an invalid one and requested again later
+        if (!receivedHeaders.offer(new HeadersWrapper(_nodeIdHashcode, _displayId, _headers))) {
+            if (log.isDebugEnabled()) {
                 log.debug(
-                        "<invalid-header num={} hash={}>", current.getNumber(), current.getHash());
-
-                // Print header to allow debugging
-                log.debug("Invalid header: {}", current.toString());
-
-                return;
+                        "<incoming-headers dropped from={} size={} node={} queue-full>",
+                        _headers.get(0).getNumber(),
+                        _headers.size(),
+                        _displayId);
             }
-
-            // break if not consisting
-            if (prev != null
-                    && (current.getNumber() != (prev.getNumber() + 1)
-                            || !Arrays.equals(current.getParentHash(), prev.getHash()))) {
-                log.debug(
-                        "<inconsistent-block-headers from={}, num={}, prev+1={}, p_hash={}, prev={}>",
-                        _displayId,
-                        current.getNumber(),
-                        prev.getNumber() + 1,
-                        ByteUtil.toHexString(current.getParentHash()),
-                        ByteUtil.toHexString(prev.getHash()));
-                return;
-            }
-
-            // add if not cached
-            if (!importedBlockHashes.containsKey(ByteArrayWrapper.wrap(current.getHash()))) {
-                filtered.add(current);
-            }
-
-            prev = current;
-        }
-
-        // NOTE: the filtered headers is still continuous
-
-        if (!filtered.isEmpty()) {
-            downloadedHeaders.add(new HeadersWrapper(_nodeIdHashcode, _displayId, filtered));
         }
     }
 
@@ -367,8 +370,19 @@ public final class SyncMgr {
                     _displayId);
         }
 
-        // add batch
-        downloadedBlocks.add(new BlocksWrapper(_nodeIdHashcode, _displayId, blocks));
+        // the ranges downloaded in parallel are queued in order by the scheduler, the peers
+        // searching for a fork point deliver side chain blocks outside of the ranges
+        PeerState state = peerStates.get(_nodeIdHashcode);
+        boolean forkSearch =
+                state != null
+                        && (state.getMode() == PeerState.Mode.BACKWARD
+                                || state.getMode() == PeerState.Mode.FORWARD);
+        if (forkSearch
+                || !rangeScheduler.deliver(
+                        _nodeIdHashcode, _displayId, blocks, System.currentTimeMillis())) {
+            // add batch
+            downloadedBlocks.add(new BlocksWrapper(_nodeIdHashcode, _displayId, blocks));
+        }
     }
 
     public long getNetworkBestBlockNumber() {
@@ -381,6 +395,8 @@ public final class SyncMgr {
         start.set(false);
         workers.shutdown();
 
+        interruptAndWait(syncVh, 10000);
+        headerValidators.shutdown();
         interruptAndWait(syncGb, 10000);
         interruptAndWait(syncIb, 10000);
         interruptAndWait(syncGs, 10000);
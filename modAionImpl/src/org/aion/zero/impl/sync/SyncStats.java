@@ -81,12 +81,9 @@ public final class SyncStats {
             leechesTracker = null;
         }
 
+        // the response times are always tracked since they are used for scheduling requests
         responseEnabled = showStatistics.contains(StatsType.RESPONSES);
-        if (responseEnabled) {
-            responseTracker = new ResponseStatsTracker(maxActivePeers);
-        } else {
-            responseTracker = null;
-        }
+        responseTracker = new ResponseStatsTracker(maxActivePeers);
     }
 
     /**
@@ -263,9 +260,7 @@ public final class SyncStats {
      * @param requestType type of request
      */
     public void updateRequestTime(String displayId, long requestTime, RequestType requestType) {
-        if (responseEnabled) {
-            responseTracker.updateRequestTime(displayId, requestTime, requestType);
-        }
+        responseTracker.updateRequestTime(displayId, requestTime, requestType);
     }
 
     /**
@@ -277,9 +272,18 @@ public final class SyncStats {
      * @param requestType type of request
      */
     public void updateResponseTime(String displayId, long responseTime, RequestType requestType) {
-        if (responseEnabled) {
-            responseTracker.updateResponseTime(displayId, responseTime, requestType);
-        }
+        responseTracker.updateResponseTime(displayId, responseTime, requestType);
+    }
+
+    /**
+     * Returns the average time a peer took to respond to the given type of request.
+     *
+     * @param displayId peer display identifier
+     * @param requestType type of request
+     * @return the average response time in nanoseconds or {@code -1} when no response was recorded
+     */
+    public double getAverageResponseTime(String displayId, RequestType requestType) {
+        return responseTracker.getAverageResponseTime(displayId, requestType);
     }
 
     @VisibleForTesting
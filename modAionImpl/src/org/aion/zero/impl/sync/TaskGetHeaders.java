@@ -5,10 +5,13 @@ import static org.aion.p2p.P2pConstant.CLOSE_OVERLAPPING_BLOCKS;
 import static org.aion.p2p.P2pConstant.FAR_OVERLAPPING_BLOCKS;
 import static org.aion.p2p.P2pConstant.LARGE_REQUEST_SIZE;
 import static org.aion.p2p.P2pConstant.REQUEST_SIZE;
+import static org.aion.zero.impl.sync.PeerState.Mode.BACKWARD;
+import static org.aion.zero.impl.sync.PeerState.Mode.FORWARD;
 import static org.aion.zero.impl.sync.PeerState.Mode.NORMAL;
 import static org.aion.zero.impl.sync.PeerState.Mode.THUNDER;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +19,7 @@ import java.util.Random;
 import java.util.stream.Collectors;
 import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
+import org.aion.zero.impl.sync.PeerState.Mode;
 import org.aion.zero.impl.sync.msg.ReqBlocksHeaders;
 import org.aion.zero.impl.sync.statistics.RequestType;
 import org.slf4j.Logger;
@@ -33,6 +37,8 @@ final class TaskGetHeaders implements Runnable {
 
     private final SyncStats stats;
 
+    private final RangeScheduler scheduler;
+
     private final Logger log;
 
     private final Random random = new Random(System.currentTimeMillis());
@@ -43,12 +49,14 @@ final class TaskGetHeaders implements Runnable {
             BigInteger selfTd,
             Map<Integer, PeerState> peerStates,
             final SyncStats _stats,
+            final RangeScheduler scheduler,
             Logger log) {
         this.p2p = p2p;
         this.selfNumber = selfNumber;
         this.selfTd = selfTd;
         this.peerStates = peerStates;
         this.stats = _stats;
+        this.scheduler = scheduler;
         this.log = log;
     }
 
@@ -59,10 +67,20 @@ final class TaskGetHeaders implements Runnable {
 
     /** Checks that the required time has passed since the last request. */
     private boolean isTimelyRequest(long now, INode n) {
-        return (now - 5000)
-                > peerStates
-                        .computeIfAbsent(n.getIdHash(), k -> new PeerState(NORMAL, selfNumber))
-                        .getLastHeaderRequest();
+        return (now - 5000) > getPeerState(n).getLastHeaderRequest();
+    }
+
+    private PeerState getPeerState(INode n) {
+        return peerStates.computeIfAbsent(n.getIdHash(), k -> new PeerState(NORMAL, selfNumber));
+    }
+
+    /** Checks that some peer is far enough ahead for downloading disjoint ranges in parallel. */
+    private boolean isCatchingUp(List<INode> nodes) {
+        return nodes.stream()
+                .anyMatch(
+                        n ->
+                                n.getBestBlockNumber()
+                                        >= selfNumber + RangeScheduler.CATCH_UP_DISTANCE);
     }
 
     @Override
@@ -74,13 +92,61 @@ final class TaskGetHeaders implements Runnable {
         long now = System.currentTimeMillis();
         List<INode> nodesFiltered =
                 nodes.stream()
-                        .filter(n -> isAdequateTotalDifficulty(n) && isTimelyRequest(now, n))
+                        .filter(this::isAdequateTotalDifficulty)
                         .collect(Collectors.toList());
 
         if (nodesFiltered.isEmpty()) {
             return;
         }
 
+        if (scheduler != null && isCatchingUp(nodesFiltered)) {
+            requestRanges(nodesFiltered, now);
+        } else {
+            requestFromRandomPeer(
+                    nodesFiltered.stream()
+                            .filter(n -> isTimelyRequest(now, n))
+                            .collect(Collectors.toList()),
+                    now);
+        }
+    }
+
+    /**
+     * Requests the ranges assigned by the scheduler from all the idle peers. The peers searching
+     * for a fork point continue with their own requests.
+     */
+    private void requestRanges(List<INode> nodes, long now) {
+        List<INode> scheduled = new ArrayList<>();
+        List<INode> sideChain = new ArrayList<>();
+        for (INode node : nodes) {
+            Mode mode = getPeerState(node).getMode();
+            if (mode == BACKWARD || mode == FORWARD) {
+                if (isTimelyRequest(now, node)) {
+                    sideChain.add(node);
+                }
+            } else {
+                scheduled.add(node);
+            }
+        }
+
+        for (RangeScheduler.Assignment assignment : scheduler.assign(selfNumber, scheduled, now)) {
+            INode node = assignment.node;
+            PeerState state = peerStates.get(node.getIdHash());
+            state.setLastBestBlock(node.getBestBlockNumber());
+            // the ranges are imported in order, there is no need to jump ahead
+            if (state.isInFastMode()) {
+                state.setMode(NORMAL);
+            }
+            sendRequest(node, state, assignment.from, assignment.size, now);
+        }
+
+        requestFromRandomPeer(sideChain, now);
+    }
+
+    private void requestFromRandomPeer(List<INode> nodesFiltered, long now) {
+        if (nodesFiltered.isEmpty()) {
+            return;
+        }
+
         // pick one random node
         INode node = nodesFiltered.get(random.nextInt(nodesFiltered.size()));
 
@@ -161,7 +227,10 @@ final class TaskGetHeaders implements Runnable {
                 }
         }
 
-        // send request
+        sendRequest(node, state, from, size, now);
+    }
+
+    private void sendRequest(INode node, PeerState state, long from, int size, long now) {
         if (log.isDebugEnabled()) {
             log.debug(
                     "<get-headers mode={} from-num={} size={} node={}>",
@@ -10,16 +10,24 @@ import static org.aion.zero.impl.sync.PeerState.Mode.NORMAL;
 import static org.aion.zero.impl.sync.PeerState.Mode.THUNDER;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -95,6 +103,31 @@ final class TaskImportBlocks implements Runnable {
     ExecutorService executors =
             Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
+    // the number of threads verifying the blocks ahead of their import
+    private static final int PRE_VERIFY_THREADS =
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    // the number of blocks verified ahead of the one being imported
+    private static final int PRE_VERIFY_AHEAD = 2 * PRE_VERIFY_THREADS;
+
+    /**
+     * Verifies the blocks ahead of their import, separately from the executors storing the pending
+     * blocks. The queue holds at most the blocks verified ahead and, should the cancelled tasks of
+     * the previous batch still fill it, the import thread verifies the block itself.
+     */
+    private final ExecutorService preVerifier =
+            new ThreadPoolExecutor(
+                    PRE_VERIFY_THREADS,
+                    PRE_VERIFY_THREADS,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(PRE_VERIFY_AHEAD),
+                    r -> {
+                        Thread t = new Thread(r, "sync-verify");
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+
     @Override
     public void run() {
         // for runtime survey information
@@ -164,6 +197,7 @@ final class TaskImportBlocks implements Runnable {
                             + "] performing block imports was shutdown.");
         }
         executors.shutdown();
+        preVerifier.shutdownNow();
     }
 
     /**
@@ -276,8 +310,17 @@ final class TaskImportBlocks implements Runnable {
         ImportResult importResult;
 
         startTime = System.nanoTime();
+        // the following blocks are verified while each block is executed
+        Deque<Future<?>> preVerified = new ArrayDeque<>(PRE_VERIFY_AHEAD);
+        Iterator<Block> ahead = batch.iterator();
+
         for (Block b : batch) {
+            while (ahead.hasNext() && preVerified.size() < PRE_VERIFY_AHEAD) {
+                Block next = ahead.next();
+                preVerified.add(preVerifier.submit(() -> chain.preVerify(next)));
+            }
             try {
+                awaitPreVerify(preVerified.poll());
                 importResult = importBlock(b, displayId, givenState);
 
                 if (importResult.isStored()) {
@@ -391,6 +434,8 @@ final class TaskImportBlocks implements Runnable {
                 }
             }
         }
+        // not needed when the import stopped early
+        preVerified.forEach(f -> f.cancel(false));
         duration = System.nanoTime() - startTime;
         surveyLog.info("Import Stage 4.A: import received batch, duration = {} ns.", duration);
 
@@ -426,6 +471,18 @@ final class TaskImportBlocks implements Runnable {
         return state;
     }
 
+    /**
+     * Waits for the verification of a block ahead of its import. A failed verification is ignored
+     * since the import repeats any check that was not completed.
+     */
+    private void awaitPreVerify(Future<?> preVerify) throws InterruptedException {
+        try {
+            preVerify.get();
+        } catch (ExecutionException e) {
+            log.debug("<pre-verify-block throw> ", e.getCause());
+        }
+    }
+
     /**
      * Utility method that updates the given state to a LIGHTNING jump when the jump conditions
      * (balancing the number of fast and normal states) are met. If a jump is not possible (due to
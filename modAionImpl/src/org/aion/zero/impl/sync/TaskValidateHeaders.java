@@ -0,0 +1,165 @@
+package org.aion.zero.impl.sync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.mcf.blockchain.BlockHeader;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.valid.BlockHeaderValidator;
+import org.slf4j.Logger;
+
+/**
+ * Validates the header batches received from the network and queues the valid ones for requesting
+ * the block bodies.
+ *
+ * <p>The header rules, dominated by the Equihash solution check, are independent for each header
+ * and are run in parallel on the given workers. The linkage between consecutive headers is then
+ * checked in order, so the batch is rejected at the first invalid or inconsistent header exactly
+ * as when validating sequentially.
+ */
+final class TaskValidateHeaders implements Runnable {
+
+    private final AtomicBoolean run;
+
+    private final BlockingQueue<HeadersWrapper> receivedHeaders;
+
+    private final BlockingQueue<HeadersWrapper> downloadedHeaders;
+
+    private final Map<ByteArrayWrapper, Object> importedBlockHashes;
+
+    private final BlockHeaderValidator blockHeaderValidator;
+
+    private final ExecutorService workers;
+
+    private final Logger log;
+
+    /**
+     * @param _run AtomicBoolean
+     * @param _receivedHeaders the header batches waiting for validation
+     * @param _downloadedHeaders the validated header batches
+     * @param _importedBlockHashes the hashes of the recently imported blocks
+     * @param _blockHeaderValidator the rules checked for each header
+     * @param _workers the threads checking the header rules
+     */
+    TaskValidateHeaders(
+            final AtomicBoolean _run,
+            final BlockingQueue<HeadersWrapper> _receivedHeaders,
+            final BlockingQueue<HeadersWrapper> _downloadedHeaders,
+            final Map<ByteArrayWrapper, Object> _importedBlockHashes,
+            final BlockHeaderValidator _blockHeaderValidator,
+            final ExecutorService _workers,
+            final Logger log) {
+        this.run = _run;
+        this.receivedHeaders = _receivedHeaders;
+        this.downloadedHeaders = _downloadedHeaders;
+        this.importedBlockHashes = _importedBlockHashes;
+        this.blockHeaderValidator = _blockHeaderValidator;
+        this.workers = _workers;
+        this.log = log;
+    }
+
+    @Override
+    public void run() {
+        while (run.get()) {
+            HeadersWrapper hw;
+            try {
+                hw = receivedHeaders.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+
+            try {
+                HeadersWrapper valid = validate(hw);
+                if (valid != null) {
+                    downloadedHeaders.add(valid);
+                }
+            } catch (InterruptedException e) {
+                // shutting down
+            }
+        }
+    }
+
+    /**
+     * Validates a header batch and drops the headers of the recently imported blocks.
+     *
+     * @return the remaining headers, which are still continuous, or {@code null} if the batch is
+     *     invalid or none remain
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    HeadersWrapper validate(HeadersWrapper hw) throws InterruptedException {
+        List<BlockHeader> headers = hw.getHeaders();
+        String displayId = hw.getDisplayId();
+
+        List<Future<Boolean>> checks = new ArrayList<>(headers.size());
+        for (BlockHeader header : headers) {
+            checks.add(workers.submit(() -> blockHeaderValidator.validate(header, log)));
+        }
+
+        try {
+            List<BlockHeader> filtered = new ArrayList<>();
+            BlockHeader prev = null;
+            for (int i = 0; i < headers.size(); i++) {
+                BlockHeader current = headers.get(i);
+
+                // ignore this batch if any invalidated header
+                if (!isValid(checks.get(i))) {
+                    log.debug(
+                            "<invalid-header num={} hash={}>",
+                            current.getNumber(),
+                            current.getHash());
+
+                    // Print header to allow debugging
+                    log.debug("Invalid header: {}", current.toString());
+
+                    return null;
+                }
+
+                // break if not consisting
+                if (prev != null
+                        && (current.getNumber() != (prev.getNumber() + 1)
+                                || !Arrays.equals(current.getParentHash(), prev.getHash()))) {
+                    log.debug(
+                            "<inconsistent-block-headers from={}, num={}, prev+1={}, p_hash={}, prev={}>",
+                            displayId,
+                            current.getNumber(),
+                            prev.getNumber() + 1,
+                            ByteUtil.toHexString(current.getParentHash()),
+                            ByteUtil.toHexString(prev.getHash()));
+                    return null;
+                }
+
+                // add if not cached
+                if (!importedBlockHashes.containsKey(ByteArrayWrapper.wrap(current.getHash()))) {
+                    filtered.add(current);
+                }
+
+                prev = current;
+            }
+
+            return filtered.isEmpty()
+                    ? null
+                    : new HeadersWrapper(hw.getNodeIdHash(), displayId, filtered);
+        } finally {
+            // the checks that are no longer needed once the batch is rejected
+            for (Future<Boolean> check : checks) {
+                check.cancel(false);
+            }
+        }
+    }
+
+    private boolean isValid(Future<Boolean> check) throws InterruptedException {
+        try {
+            return check.get();
+        } catch (ExecutionException e) {
+            log.debug("<header-validation-failed>", e.getCause());
+            return false;
+        }
+    }
+}
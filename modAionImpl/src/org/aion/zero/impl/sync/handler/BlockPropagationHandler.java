@@ -1,8 +1,16 @@
 package org.aion.zero.impl.sync.handler;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.base.AionTransaction;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.mcf.blockchain.Block;
@@ -10,13 +18,19 @@ import org.aion.zero.impl.pendingState.AionPendingStateImpl;
 import org.aion.zero.impl.core.ImportResult;
 import org.aion.zero.impl.valid.BlockHeaderValidator;
 import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
+import org.aion.rlp.RLP;
+import org.aion.util.conversions.Hex;
 import org.aion.util.types.ByteArrayWrapper;
 import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.blockchain.IAionBlockchain;
 import org.aion.zero.impl.sync.SyncStats;
+import org.aion.zero.impl.sync.msg.BroadcastCompactBlock;
 import org.aion.zero.impl.sync.msg.BroadcastNewBlock;
+import org.aion.zero.impl.sync.msg.RequestBlockTxs;
 import org.aion.zero.impl.sync.msg.ResStatus;
 import org.aion.zero.impl.sync.statistics.BlockType;
+import org.aion.zero.impl.types.A0BlockHeader;
 import org.aion.zero.impl.types.AionBlock;
 import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
@@ -32,9 +46,22 @@ public class BlockPropagationHandler {
         DROPPED, // block was invalid, drop no propagation
         PROPAGATED, // block was propagated, but was not connected
         CONNECTED, // block was ONLY connected, not propagated
-        PROP_CONNECTED // block propagated and connected
+        PROP_CONNECTED, // block propagated and connected
+        REQUESTED // compact block waiting for the transactions missing from the pool
     }
 
+    /** The number of blocks relayed as compact blocks kept for answering transaction requests. */
+    private static final int RELAYED_CACHE_SIZE = 32;
+
+    /** The number of compact blocks waiting for their missing transactions. */
+    private static final int INCOMPLETE_CACHE_SIZE = 16;
+
+    /** The time a peer has to send the transactions of a compact block before another is asked. */
+    public static final long BLOCK_TXS_TIMEOUT_MS = 2_000;
+
+    /** The number of peers asked for the transactions of a compact block before it is evicted. */
+    private static final int MAX_BLOCK_TXS_REQUESTS = 3;
+
     /** Connection to blockchain */
     private IAionBlockchain blockchain;
 
@@ -57,6 +84,15 @@ public class BlockPropagationHandler {
 
     private final AionPendingStateImpl pendingState;
 
+    /** Broadcast the new blocks as compact blocks instead of full blocks. */
+    private final boolean compactRelay;
+
+    /** The blocks recently relayed as compact blocks, guarded by the instance. */
+    private final Map<ByteArrayWrapper, AionBlock> relayedBlocks;
+
+    /** The compact blocks waiting for their missing transactions, guarded by the instance. */
+    private final Map<ByteArrayWrapper, IncompleteBlock> incompleteBlocks;
+
     public BlockPropagationHandler(
             final int cacheSize,
             final IAionBlockchain blockchain,
@@ -66,6 +102,28 @@ public class BlockPropagationHandler {
             final boolean isSyncOnlyNode,
             final byte apiVersion,
             final AionPendingStateImpl pendingState) {
+        this(
+                cacheSize,
+                blockchain,
+                syncStats,
+                p2pManager,
+                headerValidator,
+                isSyncOnlyNode,
+                apiVersion,
+                pendingState,
+                false);
+    }
+
+    public BlockPropagationHandler(
+            final int cacheSize,
+            final IAionBlockchain blockchain,
+            final SyncStats syncStats,
+            final IP2pMgr p2pManager,
+            BlockHeaderValidator headerValidator,
+            final boolean isSyncOnlyNode,
+            final byte apiVersion,
+            final AionPendingStateImpl pendingState,
+            final boolean compactRelay) {
         /*
          * Size of the cache maintained within the map, a lower cacheSize
          * saves space, but indicates we may "forget" about a block sooner.
@@ -90,6 +148,42 @@ public class BlockPropagationHandler {
         this.isSyncOnlyNode = isSyncOnlyNode;
         this.apiVersion = apiVersion;
         this.pendingState = pendingState;
+        this.compactRelay = compactRelay;
+        this.relayedBlocks = new LRUMap<>(RELAYED_CACHE_SIZE);
+        this.incompleteBlocks = new LRUMap<>(INCOMPLETE_CACHE_SIZE);
+    }
+
+    /**
+     * Creates the message broadcasting a new block, remembering the block for answering the
+     * transaction requests when it is relayed as a compact block.
+     */
+    private Msg newBlockMessage(final AionBlock block) {
+        if (!compactRelay) {
+            return new BroadcastNewBlock(block);
+        }
+
+        synchronized (this.relayedBlocks) {
+            this.relayedBlocks.put(new ByteArrayWrapper(block.getHash()), block);
+        }
+        return new BroadcastCompactBlock(block);
+    }
+
+    /**
+     * Returns a block recently relayed by this node, for answering the transaction requests of the
+     * peers rebuilding it.
+     *
+     * @return the block with the given hash, or {@code null} if unknown
+     */
+    public Block getRelayedBlock(final byte[] hash) {
+        Block block;
+        synchronized (this.relayedBlocks) {
+            block = this.relayedBlocks.get(new ByteArrayWrapper(hash));
+        }
+        if (block == null) {
+            // the block may have been relayed before being evicted, or by another node
+            block = this.blockchain.getBlockByHash(hash);
+        }
+        return block;
     }
 
     // assumption here is that blocks propagated have unique hashes
@@ -101,6 +195,7 @@ public class BlockPropagationHandler {
             this.cacheMap.put(hashWrapped, true);
         }
 
+        Msg message = newBlockMessage(block);
         this.p2pManager
                 .getActiveNodes()
                 .values()
@@ -113,8 +208,7 @@ public class BlockPropagationHandler {
                                                 + " to="
                                                 + n.getIdShort()
                                                 + ">");
-                            this.p2pManager.send(
-                                    n.getIdHash(), n.getIdShort(), new BroadcastNewBlock(block));
+                            this.p2pManager.send(n.getIdHash(), n.getIdShort(), message);
                         });
     }
 
@@ -138,6 +232,11 @@ public class BlockPropagationHandler {
             this.cacheMap.put(hashWrapped, true);
         }
 
+        // the transactions requested for the compact block are not needed anymore
+        synchronized (this.incompleteBlocks) {
+            this.incompleteBlocks.remove(hashWrapped);
+        }
+
         // process
         long t1 = System.currentTimeMillis();
         ImportResult result;
@@ -251,9 +350,255 @@ public class BlockPropagationHandler {
         return PropStatus.DROPPED;
     }
 
+    /**
+     * Rebuilds a compact block from the transactions in the pool. The block is processed as a full
+     * block when all its transactions are found, otherwise the missing ones are requested from the
+     * sender.
+     */
+    public PropStatus processIncomingCompactBlock(
+            final int nodeId, final String displayId, final BroadcastCompactBlock compact) {
+        if (compact == null) return PropStatus.DROPPED;
+
+        A0BlockHeader header = compact.getBlockHeader();
+        ByteArrayWrapper hashWrapped = new ByteArrayWrapper(header.getHash());
+
+        if (!this.blockHeaderValidator.validate(header, log)) return PropStatus.DROPPED;
+
+        // the cache is only updated once the full block is processed
+        synchronized (this.cacheMap) {
+            if (this.cacheMap.get(hashWrapped) != null) {
+                if (log.isTraceEnabled()) {
+                    log.trace("block {} already cached", shortHash(header));
+                }
+                return PropStatus.DROPPED;
+            }
+        }
+
+        long[] shortIds = compact.getShortIds();
+        byte[][] txs = new byte[shortIds.length][];
+        List<Integer> missing = new ArrayList<>();
+
+        if (shortIds.length > 0) {
+            Map<Long, AionTransaction> pool = new HashMap<>();
+            for (AionTransaction tx : this.pendingState.getPooledTransactions()) {
+                pool.put(BroadcastCompactBlock.shortId(tx.getTransactionHash()), tx);
+            }
+
+            for (int i = 0; i < shortIds.length; i++) {
+                AionTransaction tx = pool.get(shortIds[i]);
+                if (tx != null) {
+                    txs[i] = tx.getEncoded();
+                } else {
+                    missing.add(i);
+                }
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "<compact-block node={} hash={} number={} txs={} missing={}>",
+                    displayId,
+                    shortHash(header),
+                    header.getNumber(),
+                    shortIds.length,
+                    missing.size());
+        }
+
+        IncompleteBlock incomplete = new IncompleteBlock(header, txs);
+        if (missing.isEmpty()) {
+            return completeBlock(nodeId, displayId, incomplete);
+        }
+
+        RequestBlockTxs request;
+        synchronized (this.incompleteBlocks) {
+            IncompleteBlock requested = this.incompleteBlocks.get(hashWrapped);
+            if (requested != null) {
+                // already requested from another peer, this one is asked if that one times out
+                if (!requested.asked.contains(nodeId)) {
+                    requested.announcers.putIfAbsent(nodeId, displayId);
+                }
+                return PropStatus.DROPPED;
+            }
+            request = incomplete.request(nodeId, displayId, missing, System.currentTimeMillis());
+            this.incompleteBlocks.put(hashWrapped, incomplete);
+        }
+        this.p2pManager.send(nodeId, displayId, request);
+        return PropStatus.REQUESTED;
+    }
+
+    /**
+     * Completes a compact block with the transactions received from the peer and processes it.
+     *
+     * @param transactions the encoded transactions, in the order they were requested
+     */
+    public PropStatus processIncomingBlockTxs(
+            final int nodeId,
+            final String displayId,
+            final byte[] blockHash,
+            final List<byte[]> transactions) {
+        ByteArrayWrapper hashWrapped = new ByteArrayWrapper(blockHash);
+
+        IncompleteBlock incomplete;
+        synchronized (this.incompleteBlocks) {
+            incomplete = this.incompleteBlocks.get(hashWrapped);
+            // a peer which timed out may still answer
+            if (incomplete == null
+                    || !incomplete.asked.contains(nodeId)
+                    || incomplete.requested.length != transactions.size()) {
+                return PropStatus.DROPPED;
+            }
+            this.incompleteBlocks.remove(hashWrapped);
+        }
+
+        for (int i = 0; i < incomplete.requested.length; i++) {
+            incomplete.txs[incomplete.requested[i]] = transactions.get(i);
+        }
+        return completeBlock(nodeId, displayId, incomplete);
+    }
+
+    /**
+     * Asks the transactions of the compact blocks whose request timed out to another peer which
+     * announced them. The blocks no other peer announced, or asked to too many peers already, are
+     * evicted and left to the regular sync.
+     *
+     * @param now the current time in milliseconds
+     */
+    public void retryIncompleteBlocks(final long now) {
+        List<Integer> nodeIds = new ArrayList<>();
+        List<String> displayIds = new ArrayList<>();
+        List<RequestBlockTxs> requests = new ArrayList<>();
+
+        synchronized (this.incompleteBlocks) {
+            Iterator<IncompleteBlock> it = this.incompleteBlocks.values().iterator();
+            while (it.hasNext()) {
+                IncompleteBlock incomplete = it.next();
+                if (now - incomplete.requestedAt < BLOCK_TXS_TIMEOUT_MS) {
+                    continue;
+                }
+
+                Iterator<Map.Entry<Integer, String>> announcers =
+                        incomplete.announcers.entrySet().iterator();
+                if (!announcers.hasNext() || incomplete.asked.size() >= MAX_BLOCK_TXS_REQUESTS) {
+                    it.remove();
+                    if (log.isDebugEnabled()) {
+                        log.debug(
+                                "<compact-block evicted hash={} number={} asked={}>",
+                                shortHash(incomplete.header),
+                                incomplete.header.getNumber(),
+                                incomplete.asked.size());
+                    }
+                    continue;
+                }
+
+                Map.Entry<Integer, String> next = announcers.next();
+                announcers.remove();
+                if (log.isDebugEnabled()) {
+                    log.debug(
+                            "<compact-block txs timed out node={} hash={}, asking node={}>",
+                            incomplete.displayId,
+                            shortHash(incomplete.header),
+                            next.getValue());
+                }
+                nodeIds.add(next.getKey());
+                displayIds.add(next.getValue());
+                requests.add(incomplete.request(next.getKey(), next.getValue(), now));
+            }
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            this.p2pManager.send(nodeIds.get(i), displayIds.get(i), requests.get(i));
+        }
+    }
+
+    private PropStatus completeBlock(int nodeId, String displayId, IncompleteBlock incomplete) {
+        // the transaction trie root of the header is checked while decoding the body
+        AionBlock block =
+                AionBlock.createBlockFromNetwork(
+                        incomplete.header, RLP.encodeList(RLP.encodeList(incomplete.txs)));
+
+        if (block != null) {
+            return processIncomingBlock(nodeId, displayId, block);
+        }
+
+        if (incomplete.requestedAll) {
+            return PropStatus.DROPPED;
+        }
+
+        // a short id matched another transaction of the pool, requests the whole body instead
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "<compact-block rebuild failed node={} hash={}, requesting all transactions>",
+                    displayId,
+                    shortHash(incomplete.header));
+        }
+        List<Integer> all = new ArrayList<>(incomplete.txs.length);
+        for (int i = 0; i < incomplete.txs.length; i++) {
+            all.add(i);
+        }
+        incomplete.requestedAll = true;
+        RequestBlockTxs request;
+        synchronized (this.incompleteBlocks) {
+            request = incomplete.request(nodeId, displayId, all, System.currentTimeMillis());
+            this.incompleteBlocks.put(new ByteArrayWrapper(incomplete.header.getHash()), incomplete);
+        }
+        this.p2pManager.send(nodeId, displayId, request);
+        return PropStatus.REQUESTED;
+    }
+
+    private static String shortHash(A0BlockHeader header) {
+        return Hex.toHexString(header.getHash()).substring(0, 6);
+    }
+
+    /**
+     * A compact block with the encodings of the transactions found so far. The request state is
+     * guarded by the map of the incomplete blocks.
+     */
+    private static final class IncompleteBlock {
+        private final A0BlockHeader header;
+        private final byte[][] txs;
+        private int[] requested;
+        private boolean requestedAll = false;
+
+        /** The peer asked last and the time it was asked. */
+        private String displayId;
+        private long requestedAt;
+
+        /** The peers asked for the transactions so far. */
+        private final Set<Integer> asked = new HashSet<>();
+
+        /** The other peers which announced the block, in order, by node id. */
+        private final Map<Integer, String> announcers = new LinkedHashMap<>();
+
+        private IncompleteBlock(A0BlockHeader header, byte[][] txs) {
+            this.header = header;
+            this.txs = txs;
+        }
+
+        /** Records the request of the given transactions from the peer. */
+        private RequestBlockTxs request(
+                int nodeId, String displayId, List<Integer> missing, long now) {
+            requested = new int[missing.size()];
+            for (int i = 0; i < requested.length; i++) {
+                requested[i] = missing.get(i);
+            }
+            return request(nodeId, displayId, now);
+        }
+
+        /** Records the request of the same transactions from another peer. */
+        private RequestBlockTxs request(int nodeId, String displayId, long now) {
+            this.displayId = displayId;
+            this.requestedAt = now;
+            asked.add(nodeId);
+            announcers.remove(nodeId);
+            return new RequestBlockTxs(header.getHash(), requested);
+        }
+    }
+
     private boolean send(AionBlock block, int nodeId) {
         if (isSyncOnlyNode) return true;
 
+        Msg message = newBlockMessage(block);
+
         // current proposal is to send to all peers with lower blockNumbers
         AtomicBoolean sent = new AtomicBoolean();
         this.p2pManager.getActiveNodes().values().stream()
@@ -273,8 +618,7 @@ public class BlockPropagationHandler {
                                                 + " to-node="
                                                 + n.getIdShort()
                                                 + ">");
-                            this.p2pManager.send(
-                                    n.getIdHash(), n.getIdShort(), new BroadcastNewBlock(block));
+                            this.p2pManager.send(n.getIdHash(), n.getIdShort(), message);
                             sent.getAndSet(true);
                         });
         return sent.get();
@@ -0,0 +1,95 @@
+package org.aion.zero.impl.sync.handler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Priority;
+import org.aion.p2p.Ver;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.msg.BroadcastCompactBlock;
+import org.slf4j.Logger;
+
+/** Handler for new compact blocks broadcast from the network. */
+public final class BroadcastCompactBlockHandler extends Handler {
+
+    private final Logger log;
+
+    private final BlockPropagationHandler propHandler;
+
+    private final IP2pMgr p2pMgr;
+
+    private final ScheduledExecutorService ex;
+
+    public BroadcastCompactBlockHandler(
+            final Logger syncLog, final BlockPropagationHandler propHandler, final IP2pMgr p2pMgr) {
+        super(Ver.V0, Ctrl.SYNC, Act.BROADCAST_COMPACT_BLOCK);
+        this.log = syncLog;
+        this.propHandler = propHandler;
+        this.p2pMgr = p2pMgr;
+
+        // asks the missing transactions to another peer when the one asked does not answer
+        this.ex =
+                Executors.newSingleThreadScheduledExecutor(
+                        r -> {
+                            Thread t = new Thread(r, "sync-cb");
+                            t.setDaemon(true);
+                            return t;
+                        });
+        this.ex.scheduleWithFixedDelay(
+                new RetryTask(),
+                BlockPropagationHandler.BLOCK_TXS_TIMEOUT_MS,
+                BlockPropagationHandler.BLOCK_TXS_TIMEOUT_MS / 4,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private class RetryTask implements Runnable {
+        @Override
+        public void run() {
+            try {
+                propHandler.retryIncompleteBlocks(System.currentTimeMillis());
+            } catch (Exception e) {
+                // the next runs are cancelled if the task throws
+                log.error("<compact-block-handler retry failed>", e);
+            }
+        }
+    }
+
+    @Override
+    public Priority getPriority() {
+        return Priority.HIGH;
+    }
+
+    @Override
+    public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
+        if (_msgBytes == null) return;
+
+        BroadcastCompactBlock compact = BroadcastCompactBlock.decode(_msgBytes);
+
+        if (compact == null) {
+            p2pMgr.errCheck(_nodeIdHashcode, _displayId);
+            log.error(
+                    "<compact-block-handler decode-error, from {} len: {}>",
+                    _displayId,
+                    _msgBytes.length);
+            if (log.isTraceEnabled()) {
+                log.trace("compact-block-handler dump: {}", ByteUtil.toHexString(_msgBytes));
+            }
+            return;
+        }
+
+        BlockPropagationHandler.PropStatus result =
+                this.propHandler.processIncomingCompactBlock(_nodeIdHashcode, _displayId, compact);
+
+        if (this.log.isDebugEnabled()) {
+            this.log.debug(
+                    "<compact-block-prop node={} block-number={} status={}>",
+                    _displayId,
+                    compact.getBlockHeader().getNumber(),
+                    result.name());
+        }
+    }
+}
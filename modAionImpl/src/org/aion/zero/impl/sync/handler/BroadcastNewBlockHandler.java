@@ -3,6 +3,7 @@ package org.aion.zero.impl.sync.handler;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
 import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Priority;
 import org.aion.p2p.Ver;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.zero.impl.sync.Act;
@@ -29,6 +30,11 @@ public final class BroadcastNewBlockHandler extends Handler {
         this.p2pMgr = _p2pMgr;
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.HIGH;
+    }
+
     @Override
     public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
         // for runtime survey information
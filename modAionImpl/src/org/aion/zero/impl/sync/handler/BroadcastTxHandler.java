@@ -12,6 +12,7 @@ import org.aion.zero.impl.pendingState.AionPendingStateImpl;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
 import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Priority;
 import org.aion.p2p.Ver;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.types.ByteArrayWrapper;
@@ -75,6 +76,11 @@ public final class BroadcastTxHandler extends Handler {
         }
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.LOW;
+    }
+
     @Override
     public final void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
         if (isSyncOnlyNode) return;
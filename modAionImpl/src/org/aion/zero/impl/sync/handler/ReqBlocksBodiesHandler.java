@@ -5,7 +5,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
-import org.aion.mcf.blockchain.Block;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
 import org.aion.p2p.IP2pMgr;
@@ -83,11 +82,11 @@ public final class ReqBlocksBodiesHandler extends Handler {
                 if (blockBytes != null) {
                     blockBytesForadd = blockBytes;
                 } else {
-                    Block block = blockchain.getBlockByHash(hash);
+                    byte[] body = blockchain.getEncodedBodyByHash(hash);
 
-                    if (block != null) {
-                        blockBytesForadd = block.getEncodedBody();
-                        cache.put(ByteArrayWrapper.wrap(hash), block.getEncodedBody());
+                    if (body != null) {
+                        blockBytesForadd = body;
+                        cache.put(ByteArrayWrapper.wrap(hash), body);
                     } else {
                         // not found
                         break;
@@ -0,0 +1,82 @@
+package org.aion.zero.impl.sync.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.base.AionTransaction;
+import org.aion.mcf.blockchain.Block;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Ver;
+import org.aion.util.conversions.Hex;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.msg.RequestBlockTxs;
+import org.aion.zero.impl.sync.msg.ResponseBlockTxs;
+import org.slf4j.Logger;
+
+/** Handler for the requests of the transactions missing to rebuild a compact block. */
+public final class RequestBlockTxsHandler extends Handler {
+
+    private final Logger log;
+
+    private final BlockPropagationHandler propHandler;
+
+    private final IP2pMgr p2pMgr;
+
+    public RequestBlockTxsHandler(
+            final Logger syncLog, final BlockPropagationHandler propHandler, final IP2pMgr p2pMgr) {
+        super(Ver.V0, Ctrl.SYNC, Act.REQUEST_BLOCK_TXS);
+        this.log = syncLog;
+        this.propHandler = propHandler;
+        this.p2pMgr = p2pMgr;
+    }
+
+    @Override
+    public void receive(int peerId, String displayId, final byte[] message) {
+        if (message == null || message.length == 0) {
+            this.log.debug("<request-block-txs empty message from peer={}>", displayId);
+            return;
+        }
+
+        RequestBlockTxs request = RequestBlockTxs.decode(message);
+
+        if (request == null) {
+            p2pMgr.errCheck(peerId, displayId);
+            this.log.error(
+                    "<request-block-txs decode-error msg-bytes={} peer={}>",
+                    message.length,
+                    displayId);
+            return;
+        }
+
+        Block block = propHandler.getRelayedBlock(request.getBlockHash());
+        if (block == null) {
+            if (log.isDebugEnabled()) {
+                this.log.debug(
+                        "<request-block-txs unknown block={} peer={}>",
+                        Hex.toHexString(request.getBlockHash()),
+                        displayId);
+            }
+            return;
+        }
+
+        List<AionTransaction> txs = block.getTransactionsList();
+        List<byte[]> response = new ArrayList<>(request.getIndexes().length);
+        for (int index : request.getIndexes()) {
+            if (index >= txs.size()) {
+                p2pMgr.errCheck(peerId, displayId);
+                return;
+            }
+            response.add(txs.get(index).getEncoded());
+        }
+
+        if (log.isDebugEnabled()) {
+            this.log.debug(
+                    "<request-block-txs block={} txs={} peer={}>",
+                    block.getShortHash(),
+                    response.size(),
+                    displayId);
+        }
+        this.p2pMgr.send(peerId, displayId, new ResponseBlockTxs(block.getHash(), response));
+    }
+}
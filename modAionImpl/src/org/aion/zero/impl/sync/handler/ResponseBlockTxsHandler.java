@@ -0,0 +1,64 @@
+package org.aion.zero.impl.sync.handler;
+
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Priority;
+import org.aion.p2p.Ver;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.msg.ResponseBlockTxs;
+import org.slf4j.Logger;
+
+/** Handler for the transactions received to complete a compact block. */
+public final class ResponseBlockTxsHandler extends Handler {
+
+    private final Logger log;
+
+    private final BlockPropagationHandler propHandler;
+
+    private final IP2pMgr p2pMgr;
+
+    public ResponseBlockTxsHandler(
+            final Logger syncLog, final BlockPropagationHandler propHandler, final IP2pMgr p2pMgr) {
+        super(Ver.V0, Ctrl.SYNC, Act.RESPONSE_BLOCK_TXS);
+        this.log = syncLog;
+        this.propHandler = propHandler;
+        this.p2pMgr = p2pMgr;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return Priority.HIGH;
+    }
+
+    @Override
+    public void receive(int peerId, String displayId, final byte[] message) {
+        if (message == null || message.length == 0) {
+            this.log.debug("<response-block-txs empty message from peer={}>", displayId);
+            return;
+        }
+
+        ResponseBlockTxs response = ResponseBlockTxs.decode(message);
+
+        if (response == null) {
+            p2pMgr.errCheck(peerId, displayId);
+            this.log.error(
+                    "<response-block-txs decode-error msg-bytes={} peer={}>",
+                    message.length,
+                    displayId);
+            return;
+        }
+
+        BlockPropagationHandler.PropStatus result =
+                this.propHandler.processIncomingBlockTxs(
+                        peerId, displayId, response.getBlockHash(), response.getTransactions());
+
+        if (this.log.isDebugEnabled()) {
+            this.log.debug(
+                    "<response-block-txs node={} txs={} status={}>",
+                    displayId,
+                    response.getTransactions().size(),
+                    result.name());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Arrays;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
 import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Priority;
 import org.aion.p2p.Ver;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.sync.FastSyncManager;
@@ -38,6 +39,11 @@ public final class ResponseBlocksHandler extends Handler {
         this.p2pMgr = p2pMgr;
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.HIGH;
+    }
+
     @Override
     public void receive(int peerId, String displayId, final byte[] message) {
         if (message == null || message.length == 0) {
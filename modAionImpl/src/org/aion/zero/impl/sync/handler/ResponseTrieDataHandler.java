@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.concurrent.BlockingQueue;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
+import org.aion.p2p.Priority;
 import org.aion.p2p.Ver;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.sync.TrieNodeWrapper;
@@ -33,6 +34,11 @@ public final class ResponseTrieDataHandler extends Handler {
         this.states = states;
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.HIGH;
+    }
+
     @Override
     public void receive(int peerId, String displayId, final byte[] message) {
         if (message == null || message.length == 0) {
@@ -0,0 +1,114 @@
+package org.aion.zero.impl.sync.msg;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import org.aion.base.AionTransaction;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPView;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.types.A0BlockHeader;
+import org.aion.zero.impl.types.AionBlock;
+
+/**
+ * Broadcast message for a new block where the transactions are replaced by short identifiers. The
+ * receiver rebuilds the block from the transactions in its pool and requests the missing ones with
+ * {@link RequestBlockTxs}.
+ */
+public final class BroadcastCompactBlock extends Msg {
+
+    /** The size in bytes of a short transaction identifier. */
+    public static final int SHORT_ID_SIZE = Long.BYTES;
+
+    private final A0BlockHeader header;
+    private final long[] shortIds;
+
+    /**
+     * Constructor for compact block broadcasts.
+     *
+     * @param block the block to be broadcast
+     * @throws NullPointerException if the given block is {@code null}
+     */
+    public BroadcastCompactBlock(final AionBlock block) {
+        super(Ver.V0, Ctrl.SYNC, Act.BROADCAST_COMPACT_BLOCK);
+
+        Objects.requireNonNull(block);
+
+        this.header = block.getHeader();
+        List<AionTransaction> txs = block.getTransactionsList();
+        this.shortIds = new long[txs.size()];
+        for (int i = 0; i < shortIds.length; i++) {
+            shortIds[i] = shortId(txs.get(i).getTransactionHash());
+        }
+    }
+
+    private BroadcastCompactBlock(final A0BlockHeader header, final long[] shortIds) {
+        super(Ver.V0, Ctrl.SYNC, Act.BROADCAST_COMPACT_BLOCK);
+        this.header = header;
+        this.shortIds = shortIds;
+    }
+
+    /**
+     * Returns the short identifier of a transaction, i.e. the first bytes of its hash.
+     *
+     * @param txHash the hash of the transaction
+     * @return the short identifier of the transaction
+     */
+    public static long shortId(final byte[] txHash) {
+        return ByteBuffer.wrap(txHash, 0, SHORT_ID_SIZE).getLong();
+    }
+
+    /**
+     * Decodes a message into a compact block broadcast.
+     *
+     * @param message a {@code byte} array representing a compact block
+     * @return the decoded compact block if valid or {@code null} when the decoding encounters
+     *     invalid input
+     */
+    public static BroadcastCompactBlock decode(final byte[] message) {
+        if (message == null || message.length == 0) {
+            return null;
+        }
+
+        try {
+            RLPView list = RLPView.decode(message);
+            if (!list.isList() || list.size() != 2) {
+                return null;
+            }
+
+            RLPView ids = list.get(1);
+            if (ids.isList() || ids.getContentLength() % SHORT_ID_SIZE != 0) {
+                return null;
+            }
+            long[] shortIds = new long[ids.getContentLength() / SHORT_ID_SIZE];
+            ids.asByteBuffer().asLongBuffer().get(shortIds);
+
+            return new BroadcastCompactBlock(A0BlockHeader.fromRLP(list.get(0), true), shortIds);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public byte[] encode() {
+        ByteBuffer ids = ByteBuffer.allocate(shortIds.length * SHORT_ID_SIZE);
+        ids.asLongBuffer().put(shortIds);
+        return RLP.encodeList(header.getEncoded(), RLP.encodeElement(ids.array()));
+    }
+
+    public A0BlockHeader getBlockHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the short identifiers of the block transactions, in the block order.
+     *
+     * @return the short identifiers of the block transactions
+     */
+    public long[] getShortIds() {
+        return shortIds;
+    }
+}
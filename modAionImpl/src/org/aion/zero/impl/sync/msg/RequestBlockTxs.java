@@ -0,0 +1,104 @@
+package org.aion.zero.impl.sync.msg;
+
+import static org.aion.p2p.V1Constants.HASH_SIZE;
+
+import java.util.Arrays;
+import java.util.Objects;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPView;
+import org.aion.zero.impl.sync.Act;
+
+/**
+ * Request message for the transactions of a compact block missing from the pool of the receiver.
+ * The transactions are identified by their index in the block.
+ */
+public final class RequestBlockTxs extends Msg {
+
+    private final byte[] blockHash;
+    private final int[] indexes;
+
+    /**
+     * Constructor for block transaction requests.
+     *
+     * @param blockHash the hash of the block containing the transactions
+     * @param indexes the indexes of the requested transactions in the block
+     * @throws NullPointerException if any of the given parameters are {@code null}
+     * @throws IllegalArgumentException if the given hash does not have the size of a hash
+     */
+    public RequestBlockTxs(final byte[] blockHash, final int[] indexes) {
+        super(Ver.V0, Ctrl.SYNC, Act.REQUEST_BLOCK_TXS);
+
+        Objects.requireNonNull(blockHash);
+        Objects.requireNonNull(indexes);
+        if (blockHash.length != HASH_SIZE) {
+            throw new IllegalArgumentException(
+                    "The given value " + Arrays.toString(blockHash) + " is not a correct hash.");
+        }
+
+        this.blockHash = blockHash;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Decodes a message into a block transaction request.
+     *
+     * @param message a {@code byte} array representing a request for block transactions
+     * @return the decoded request if valid or {@code null} when the decoding encounters invalid
+     *     input
+     */
+    public static RequestBlockTxs decode(final byte[] message) {
+        if (message == null || message.length == 0) {
+            return null;
+        }
+
+        try {
+            RLPView list = RLPView.decode(message);
+            if (!list.isList() || list.size() != 2) {
+                return null;
+            }
+
+            RLPView hash = list.get(0);
+            if (hash.isList() || hash.getContentLength() != HASH_SIZE) {
+                return null;
+            }
+
+            RLPView encodedIndexes = list.get(1);
+            int[] indexes = new int[encodedIndexes.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = encodedIndexes.get(i).asInt();
+                if (indexes[i] < 0) {
+                    return null;
+                }
+            }
+
+            return new RequestBlockTxs(hash.asBytes(), indexes);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public byte[] encode() {
+        byte[][] encodedIndexes = new byte[indexes.length][];
+        for (int i = 0; i < indexes.length; i++) {
+            encodedIndexes[i] = RLP.encodeInt(indexes[i]);
+        }
+        return RLP.encodeList(RLP.encodeElement(blockHash), RLP.encodeList(encodedIndexes));
+    }
+
+    public byte[] getBlockHash() {
+        return blockHash;
+    }
+
+    /**
+     * Returns the indexes of the requested transactions in the block.
+     *
+     * @return the indexes of the requested transactions in the block
+     */
+    public int[] getIndexes() {
+        return indexes;
+    }
+}
@@ -8,8 +8,7 @@ import org.aion.p2p.Ctrl;
 import org.aion.p2p.Msg;
 import org.aion.p2p.Ver;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.types.A0BlockHeader;
 
@@ -27,11 +26,10 @@ public final class ResBlocksHeaders extends Msg {
         if (_msgBytes == null || _msgBytes.length == 0) return null;
         else {
             try {
-                RLPList list = (RLPList) RLP.decode2(_msgBytes).get(0);
+                RLPView list = RLPView.decode(_msgBytes);
                 List<BlockHeader> blockHeaders = new ArrayList<>();
-                for (RLPElement aList : list) {
-                    RLPList rlpData = ((RLPList) aList);
-                    blockHeaders.add(A0BlockHeader.fromRLP(rlpData, true));
+                for (int i = 0; i < list.size(); i++) {
+                    blockHeaders.add(A0BlockHeader.fromRLP(list.get(i), true));
                 }
                 return new ResBlocksHeaders(blockHeaders);
             } catch (Exception ex) {
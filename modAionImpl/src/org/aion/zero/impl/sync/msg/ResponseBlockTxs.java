@@ -0,0 +1,107 @@
+package org.aion.zero.impl.sync.msg;
+
+import static org.aion.p2p.V1Constants.HASH_SIZE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPView;
+import org.aion.zero.impl.sync.Act;
+
+/**
+ * Response message to a {@link RequestBlockTxs}, containing the encoded transactions in the order
+ * of the requested indexes.
+ */
+public final class ResponseBlockTxs extends Msg {
+
+    private final byte[] blockHash;
+    private final List<byte[]> transactions;
+
+    /**
+     * Constructor for block transaction responses.
+     *
+     * @param blockHash the hash of the block containing the transactions
+     * @param transactions the encoded transactions, in the order of the request
+     * @throws NullPointerException if any of the given parameters are {@code null}
+     * @throws IllegalArgumentException if the given hash does not have the size of a hash
+     */
+    public ResponseBlockTxs(final byte[] blockHash, final List<byte[]> transactions) {
+        super(Ver.V0, Ctrl.SYNC, Act.RESPONSE_BLOCK_TXS);
+
+        Objects.requireNonNull(blockHash);
+        Objects.requireNonNull(transactions);
+        if (blockHash.length != HASH_SIZE) {
+            throw new IllegalArgumentException(
+                    "The given value " + Arrays.toString(blockHash) + " is not a correct hash.");
+        }
+
+        this.blockHash = blockHash;
+        this.transactions = transactions;
+    }
+
+    /**
+     * Decodes a message into a block transaction response.
+     *
+     * @param message a {@code byte} array representing a response with block transactions
+     * @return the decoded response if valid or {@code null} when the decoding encounters invalid
+     *     input
+     * @implNote The transactions are only checked to be RLP lists, they are decoded when the block
+     *     is rebuilt.
+     */
+    public static ResponseBlockTxs decode(final byte[] message) {
+        if (message == null || message.length == 0) {
+            return null;
+        }
+
+        try {
+            RLPView list = RLPView.decode(message);
+            if (!list.isList() || list.size() != 2) {
+                return null;
+            }
+
+            RLPView hash = list.get(0);
+            if (hash.isList() || hash.getContentLength() != HASH_SIZE) {
+                return null;
+            }
+
+            RLPView encodedTxs = list.get(1);
+            List<byte[]> transactions = new ArrayList<>(encodedTxs.size());
+            for (int i = 0; i < encodedTxs.size(); i++) {
+                RLPView tx = encodedTxs.get(i);
+                if (!tx.isList()) {
+                    return null;
+                }
+                transactions.add(tx.getEncoded());
+            }
+
+            return new ResponseBlockTxs(hash.asBytes(), transactions);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public byte[] encode() {
+        return RLP.encodeList(
+                RLP.encodeElement(blockHash),
+                RLP.encodeList(transactions.toArray(new byte[0][])));
+    }
+
+    public byte[] getBlockHash() {
+        return blockHash;
+    }
+
+    /**
+     * Returns the encoded transactions, in the order of the request.
+     *
+     * @return the encoded transactions, in the order of the request
+     */
+    public List<byte[]> getTransactions() {
+        return transactions;
+    }
+}
@@ -68,6 +68,17 @@ public class ResponseStats {
         }
     }
 
+    /**
+     * Returns the average response time of a peer.
+     *
+     * @param nodeId peer display identifier
+     * @return the average response time in nanoseconds or {@code -1} when no response was recorded
+     */
+    public double getAverageResponseTime(String nodeId) {
+        Pair<Double, Integer> stats = responseStatsByPeers.get(nodeId);
+        return stats == null ? -1 : stats.getLeft();
+    }
+
     /**
      * Returns the average response time and the number of recorded request/response pairs for each
      * peer.
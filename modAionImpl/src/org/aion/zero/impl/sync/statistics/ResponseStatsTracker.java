@@ -54,6 +54,16 @@ public class ResponseStatsTracker {
         }
     }
 
+    public double getAverageResponseTime(String displayId, RequestType requestType) {
+        Lock responseLock = locks.get(requestType);
+        responseLock.lock();
+        try {
+            return stats.get(requestType).getAverageResponseTime(displayId);
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
     public Map<String, Map<String, Pair<Double, Integer>>> getResponseStats() {
         // acquire lock for all resources, unlock in reverse order
         List lockTypes = Arrays.asList(RequestType.values());
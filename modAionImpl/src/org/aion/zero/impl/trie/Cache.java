@@ -31,15 +31,43 @@ public class Cache {
     private Map<ByteArrayWrapper, Node> nodes = new LinkedHashMap<>();
     private Set<ByteArrayWrapper> removedNodes = new HashSet<>();
     private boolean isDirty;
+    // the stored nodes shared with other tries over the same data, if any
+    private NodeCache sharedNodes = null;
+    // whether the nodes read are also kept in this cache
+    private boolean retainReads = true;
 
     public Cache(ByteArrayKeyValueStore dataSource) {
         this.dataSource = dataSource;
     }
 
+    /**
+     * Shares the nodes read from and written to the data source with the other caches using the
+     * given node cache.
+     */
+    public synchronized void setSharedNodes(NodeCache sharedNodes) {
+        this.sharedNodes = sharedNodes;
+    }
+
+    public synchronized NodeCache getSharedNodes() {
+        return sharedNodes;
+    }
+
+    /**
+     * Sets whether the nodes read from the data source or from the shared nodes are kept in this
+     * cache. Read-only tries, such as long-lived ones using shared nodes or the ones traversed once
+     * from end to end, can avoid growing with each read.
+     */
+    public synchronized void setRetainReads(boolean retainReads) {
+        this.retainReads = retainReads;
+    }
+
     public synchronized void markRemoved(byte[] key) {
         ByteArrayWrapper keyW = new ByteArrayWrapper(key);
         removedNodes.add(keyW);
         nodes.remove(keyW);
+        if (sharedNodes != null) {
+            sharedNodes.remove(keyW);
+        }
     }
 
     /**
@@ -63,6 +91,22 @@ public class Cache {
         return value;
     }
 
+    /**
+     * Adds nodes already hashed by the caller to the cache. Equivalent to calling {@link
+     * #put(Object)} for each of the given values.
+     *
+     * @param hashedNodes the nodes with RLP encodings of at least 32 bytes mapped by their hash
+     */
+    public synchronized void putHashed(Map<ByteArrayWrapper, Value> hashedNodes) {
+        for (Entry<ByteArrayWrapper, Value> entry : hashedNodes.entrySet()) {
+            this.nodes.put(entry.getKey(), new Node(entry.getValue(), true));
+            this.removedNodes.remove(entry.getKey());
+        }
+        if (!hashedNodes.isEmpty()) {
+            this.isDirty = true;
+        }
+    }
+
     public synchronized Value get(byte[] key) {
 
         ByteArrayWrapper wrappedKey = wrap(key);
@@ -72,11 +116,26 @@ public class Cache {
             return node.getValue();
         }
         if (this.dataSource != null) {
+            if (sharedNodes != null) {
+                Value val = sharedNodes.get(wrappedKey);
+                if (val != null) {
+                    if (retainReads) {
+                        nodes.put(wrappedKey, new Node(val, false));
+                    }
+                    return val;
+                }
+            }
+
             Optional<byte[]> data = this.dataSource.get(key);
             if (data.isPresent()) {
                 // dbhits++;
                 Value val = fromRlpEncoded(data.get());
-                nodes.put(wrappedKey, new Node(val, false));
+                if (retainReads) {
+                    nodes.put(wrappedKey, new Node(val, false));
+                }
+                if (sharedNodes != null) {
+                    sharedNodes.put(wrappedKey, val);
+                }
                 return val;
             }
         }
@@ -87,6 +146,9 @@ public class Cache {
     public synchronized void delete(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
         this.nodes.remove(wrappedKey);
+        if (sharedNodes != null) {
+            sharedNodes.remove(wrappedKey);
+        }
 
         if (dataSource != null) {
             this.dataSource.delete(key);
@@ -115,8 +177,14 @@ public class Cache {
                 if (node != null) {
                     node.setDirty(false);
                     value = node.getValue().encode();
+                    if (sharedNodes != null) {
+                        sharedNodes.put(nodeKey, node.getValue());
+                    }
                 } else {
                     value = null;
+                    if (sharedNodes != null) {
+                        sharedNodes.remove(nodeKey);
+                    }
                 }
 
                 byte[] key = nodeKey.getData();
@@ -127,6 +195,9 @@ public class Cache {
         }
         for (ByteArrayWrapper removedNode : removedNodes) {
             deleteBatch.add(removedNode.getData());
+            if (sharedNodes != null) {
+                sharedNodes.remove(removedNode);
+            }
         }
 
         this.dataSource.putBatch(batch);
@@ -214,14 +285,16 @@ public class Cache {
     /**
      * Returns a copy of this cache.
      *
-     * <p>The copied cache and this cache will each hold a reference to the same data source, and
-     * each copied {@link Node} object will retain the same reference to its {@link Value} object as
+     * <p>The copied cache and this cache will each hold a reference to the same data source and
+     * shared nodes, and each copied {@link Node} object will retain the same reference to its {@link Value} object as
      * its original.
      *
      * @return A copy of this cache.
      */
     public Cache copy() {
         Cache cacheCopy = new Cache(this.dataSource);
+        cacheCopy.sharedNodes = this.sharedNodes;
+        cacheCopy.retainReads = this.retainReads;
         cacheCopy.isDirty = this.isDirty;
         cacheCopy.nodes = copyOfNodes();
         cacheCopy.removedNodes = copyOfRemovedNodes();
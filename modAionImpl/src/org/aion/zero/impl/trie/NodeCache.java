@@ -0,0 +1,54 @@
+package org.aion.zero.impl.trie;
+
+import com.google.common.cache.CacheBuilder;
+import org.aion.rlp.Value;
+import org.aion.util.types.ByteArrayWrapper;
+
+/**
+ * A bounded cache of decoded trie nodes shared by the {@link Cache} objects of different tries over
+ * the same data. The cache holds only nodes that are stored in the database, which are identified
+ * by their hash and never change, so the tries can read them without decoding them again. The
+ * nodes deleted from the database, including the ones deleted by pruning, must be removed.
+ *
+ * <p>The cached {@link Value} objects are fully decoded before being shared and are not modified
+ * by the tries afterwards, which makes them safe to read from different threads.
+ */
+public final class NodeCache {
+
+    // the size of a cache entry in addition to the node encoding
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final com.google.common.cache.Cache<ByteArrayWrapper, Value> nodes;
+
+    /** @param maxSize the maximum total size of the cached node encodings, in bytes */
+    public NodeCache(long maxSize) {
+        nodes =
+                CacheBuilder.newBuilder()
+                        .maximumWeight(maxSize)
+                        .weigher(
+                                (ByteArrayWrapper key, Value value) ->
+                                        ENTRY_OVERHEAD + value.encode().length)
+                        .build();
+    }
+
+    /** @return the node with the given hash, or {@code null} if not cached */
+    public Value get(ByteArrayWrapper key) {
+        return nodes.getIfPresent(key);
+    }
+
+    /** Caches a node that is stored in the database under the given hash. */
+    public void put(ByteArrayWrapper key, Value value) {
+        // decode and encode ahead of sharing the value
+        value.asObj();
+        value.encode();
+        nodes.put(key, value);
+    }
+
+    public void remove(ByteArrayWrapper key) {
+        nodes.invalidate(key);
+    }
+
+    public long size() {
+        return nodes.size();
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Map;
 import java.util.Set;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.trie.scan.ScanAction;
 
 /**
  * Trie interface for the main data structure in Ethereum which is used to store both the account
@@ -101,5 +102,15 @@ public interface Trie {
 
     long saveFullStateToDatabase(byte[] stateRoot, ByteArrayKeyValueDatabase db);
 
+    /**
+     * Performs the given action on every node of the trie with the given root, visiting the nodes
+     * in breadth-first order without loading the whole trie in memory.
+     *
+     * @param stateRoot the root of the trie to be traversed
+     * @param action the action performed on each node
+     * @throws RuntimeException if a node referenced by the trie is missing from the database
+     */
+    void scanFullState(byte[] stateRoot, ScanAction action);
+
     long saveDiffStateToDatabase(byte[] stateRoot, ByteArrayKeyValueDatabase db);
 }
@@ -17,17 +17,20 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import org.aion.crypto.HashUtil;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.impl.ByteArrayKeyValueStore;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPItem;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 import org.aion.rlp.Value;
 import org.aion.util.conversions.Hex;
 import org.aion.util.types.ByteArrayWrapper;
@@ -61,6 +64,12 @@ import org.aion.zero.impl.trie.scan.TraceAllNodes;
  * implemented. As soon as the real life tree keys are hashes it is very unlikely the case so the
  * pruning algorithm is simplified in this implementation.
  *
+ * <p>When parallel hashing is enabled, the nodes created by updates and deletions are kept in
+ * memory without being encoded and hashed. The pending nodes are hashed bottom-up when the root
+ * hash is requested or the trie is synced, with the independent subtrees below the top branch
+ * nodes hashed in parallel on the common {@link ForkJoinPool}. The resulting roots are identical
+ * to the ones obtained by hashing each node on creation.
+ *
  * @author Nick Savers
  * @since 20.05.2014
  */
@@ -68,6 +77,10 @@ public class TrieImpl implements Trie {
     private static final byte PAIR_SIZE = 2;
     private static final byte LIST_SIZE = 17;
     private static final int MAX_SIZE = 20;
+    // the minimum number of pending nodes for which hashing is split across threads
+    private static final int PARALLEL_HASHING_THRESHOLD = 256;
+    // the children of branch nodes above this depth are hashed as separate tasks
+    private static final int PARALLEL_HASHING_DEPTH = 2;
 
     // private Object prevRoot;
     private Object root;
@@ -75,6 +88,10 @@ public class TrieImpl implements Trie {
 
     private boolean pruningEnabled;
 
+    private boolean parallelHashingEnabled;
+    // the number of nodes created since the last time the pending nodes were hashed
+    private int pendingNodes = 0;
+
     public TrieImpl(ByteArrayKeyValueStore db) {
         this(db, "");
     }
@@ -90,10 +107,13 @@ public class TrieImpl implements Trie {
     }
 
     public void setCache(Cache cache) {
+        hashPendingNodes();
         this.cache = cache;
     }
 
+    /** @implNote Any nodes pending hashing are added to the cache before it is returned. */
     public Cache getCache() {
+        hashPendingNodes();
         return this.cache;
     }
 
@@ -107,16 +127,19 @@ public class TrieImpl implements Trie {
     //    }
 
     public Object getRoot() {
+        hashPendingNodes();
         return root;
     }
 
     /** for testing TrieTest.testRollbackToRootScenarios */
     public void setRoot(Object root) {
+        hashPendingNodes();
         this.root = root;
     }
 
     @Override
     public void setRoot(byte[] root) {
+        hashPendingNodes();
         this.root = root;
     }
 
@@ -145,6 +168,22 @@ public class TrieImpl implements Trie {
         return this;
     }
 
+    public boolean isParallelHashingEnabled() {
+        return parallelHashingEnabled;
+    }
+
+    public void setParallelHashingEnabled(boolean parallelHashingEnabled) {
+        synchronized (cache) {
+            hashPendingNodes();
+            this.parallelHashingEnabled = parallelHashingEnabled;
+        }
+    }
+
+    public TrieImpl withParallelHashingEnabled(boolean parallelHashingEnabled) {
+        setParallelHashingEnabled(parallelHashingEnabled);
+        return this;
+    }
+
     /** Retrieve a value from a key as String. */
     public byte[] get(String key) {
         return this.get(key.getBytes());
@@ -218,6 +257,7 @@ public class TrieImpl implements Trie {
     @Override
     public byte[] getRootHash() {
         synchronized (cache) {
+            hashPendingNodes();
             if (root == null
                     || (root instanceof byte[] && ((byte[]) root).length == 0)
                     || (root instanceof String && "".equals(root))) {
@@ -319,7 +359,7 @@ public class TrieImpl implements Trie {
                 newHash = this.putToCache(scaledSlice);
             }
 
-            markRemoved(HashUtil.h256(currentNode.encode()));
+            markRemoved(node, currentNode);
 
             if (matchingLength == 0) {
                 // End of the chain, return
@@ -341,12 +381,15 @@ public class TrieImpl implements Trie {
                             copyOfRange(key, 1, key.length),
                             value);
 
-            if (!Arrays.equals(
-                    HashUtil.h256(getNode(newNode).encode()),
-                    HashUtil.h256(currentNode.encode()))) {
+            boolean modified = isModified(node, currentNode, newNode);
+            if (modified) {
                 markRemoved(HashUtil.h256(currentNode.encode()));
-                if (!isEmptyNode(currentNode.get(key[0]))) {
-                    markRemoved(currentNode.get(key[0]).asBytes());
+            }
+            // with parallel hashing the current node may be pending while the child is stored
+            if (modified || (pruningEnabled && parallelHashingEnabled)) {
+                Value child = currentNode.get(key[0]);
+                if (!isEmptyNode(child) && !isPending(child.asObj())) {
+                    markRemoved(child.asBytes());
                 }
             }
 
@@ -386,7 +429,7 @@ public class TrieImpl implements Trie {
                 } else {
                     newNode = new Object[] {currentNode.get(0), hash};
                 }
-                markRemoved(HashUtil.h256(currentNode.encode()));
+                markRemoved(node, currentNode);
                 return this.putToCache(newNode);
             } else {
                 return node;
@@ -424,9 +467,7 @@ public class TrieImpl implements Trie {
                 newNode = itemList;
             }
 
-            if (!Arrays.equals(
-                    HashUtil.h256(getNode(newNode).encode()),
-                    HashUtil.h256(currentNode.encode()))) {
+            if (isModified(node, currentNode, newNode)) {
                 markRemoved(HashUtil.h256(currentNode.encode()));
             }
 
@@ -440,6 +481,31 @@ public class TrieImpl implements Trie {
         }
     }
 
+    /** Marks the given node as removed unless it is pending hashing, i.e. was never stored. */
+    private void markRemoved(Object node, Value currentNode) {
+        if (pruningEnabled && !isPending(node)) {
+            cache.markRemoved(HashUtil.h256(currentNode.encode()));
+        }
+    }
+
+    /**
+     * Checks if the replacement of a stored node requires marking the old node as removed.
+     *
+     * @implNote Only relevant when pruning is enabled. When parallel hashing is enabled the new node
+     *     is not compared to the old one since that would require hashing its pending subtree. If
+     *     the content turns out to be unchanged, the old node is restored when the pending nodes
+     *     get hashed.
+     */
+    private boolean isModified(Object node, Value currentNode, Object[] newNode) {
+        if (!pruningEnabled || isPending(node)) {
+            return false;
+        }
+        return parallelHashingEnabled
+                || !Arrays.equals(
+                        HashUtil.h256(getNode(newNode).encode()),
+                        HashUtil.h256(currentNode.encode()));
+    }
+
     /**
      * Helper method to retrieve the actual node. If the node is not a list and length is > 32 bytes
      * get the actual node from the db.
@@ -464,9 +530,109 @@ public class TrieImpl implements Trie {
     }
 
     private Object putToCache(Object node) {
+        if (parallelHashingEnabled && isPending(node)) {
+            // hashed later together with the other pending nodes
+            pendingNodes++;
+            return node;
+        }
         return this.cache.put(node);
     }
 
+    /**
+     * Nodes pending hashing are kept as object arrays. Nodes retrieved from storage may also
+     * contain object arrays for embedded nodes shorter than 32 bytes, which are handled the same
+     * way and produce the same encoding.
+     */
+    private static boolean isPending(Object node) {
+        return node instanceof Object[];
+    }
+
+    /**
+     * Hashes all the nodes pending hashing and stores the ones with encodings of at least 32 bytes
+     * in the cache. Replaces the root with its hash.
+     */
+    private void hashPendingNodes() {
+        synchronized (cache) {
+            if (!isPending(root)) {
+                pendingNodes = 0;
+                return;
+            }
+
+            Map<ByteArrayWrapper, Value> hashed = new ConcurrentHashMap<>();
+            boolean parallel = pendingNodes >= PARALLEL_HASHING_THRESHOLD;
+            HashTask task = new HashTask((Object[]) root, 0, parallel, hashed);
+            Object newRoot = parallel ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+
+            cache.putHashed(hashed);
+            root = newRoot;
+            pendingNodes = 0;
+        }
+    }
+
+    /**
+     * Hashes a pending node after hashing its pending descendants. Mirrors {@link Cache#put(Object)}
+     * without accessing the cache, such that it can be executed by several threads while the cache
+     * is locked by the caller.
+     *
+     * <p>The result is the reference to the node as stored by its parent: the hash when the RLP
+     * encoding is at least 32 bytes long, or the node itself otherwise.
+     */
+    private static final class HashTask extends RecursiveTask<Object> {
+        private static final long serialVersionUID = -6313874092648829573L;
+
+        private final Object[] node;
+        private final int depth;
+        private final boolean parallel;
+        private final Map<ByteArrayWrapper, Value> hashed;
+
+        HashTask(Object[] node, int depth, boolean parallel, Map<ByteArrayWrapper, Value> hashed) {
+            this.node = node;
+            this.depth = depth;
+            this.parallel = parallel;
+            this.hashed = hashed;
+        }
+
+        @Override
+        protected Object compute() {
+            // the pending nodes are not modified since they may be shared with trie copies
+            Object[] resolved = Arrays.copyOf(node, node.length);
+
+            if (parallel && depth < PARALLEL_HASHING_DEPTH && resolved.length == LIST_SIZE) {
+                List<HashTask> tasks = new ArrayList<>();
+                int[] positions = new int[LIST_SIZE];
+                for (int i = 0; i < resolved.length; i++) {
+                    if (isPending(resolved[i])) {
+                        positions[tasks.size()] = i;
+                        tasks.add(new HashTask((Object[]) resolved[i], depth + 1, true, hashed));
+                    }
+                }
+                invokeAll(tasks);
+                for (int i = 0; i < tasks.size(); i++) {
+                    resolved[positions[i]] = tasks.get(i).join();
+                }
+            } else {
+                // pair nodes have a single child which may still be split across threads
+                boolean split = parallel && resolved.length == PAIR_SIZE;
+                for (int i = 0; i < resolved.length; i++) {
+                    if (isPending(resolved[i])) {
+                        resolved[i] =
+                                new HashTask((Object[]) resolved[i], depth, split, hashed)
+                                        .compute();
+                    }
+                }
+            }
+
+            Value value = new Value(resolved);
+            byte[] enc = value.encode();
+            if (enc.length >= 32) {
+                byte[] sha = HashUtil.h256(enc);
+                hashed.put(wrap(sha), value);
+                return sha;
+            }
+            return value;
+        }
+    }
+
     private static boolean isEmptyNode(Object node) {
         Value n = new Value(node);
         return (node == null
@@ -496,6 +662,7 @@ public class TrieImpl implements Trie {
     @Override
     public void sync() {
         synchronized (cache) {
+            hashPendingNodes();
             boolean flushCache = !cache.isDirty() || cache.getSize() > MAX_SIZE;
             sync(flushCache);
         }
@@ -504,6 +671,7 @@ public class TrieImpl implements Trie {
     @Override
     public void sync(boolean flushCache) {
         synchronized (cache) {
+            hashPendingNodes();
             this.cache.commit(flushCache);
             // this.prevRoot = this.root;
         }
@@ -521,7 +689,9 @@ public class TrieImpl implements Trie {
     // Returns a copy of this trie
     public TrieImpl copy() {
         synchronized (cache) {
+            hashPendingNodes();
             TrieImpl trie = new TrieImpl(this.cache.getDb(), this.root);
+            trie.cache.setSharedNodes(this.cache.getSharedNodes());
             for (ByteArrayWrapper key : this.cache.getNodes().keySet()) {
                 Node node = this.cache.getNodes().get(key);
                 trie.cache.getNodes().put(key, node.copy());
@@ -601,12 +771,12 @@ public class TrieImpl implements Trie {
 
     private void scanTreeLoop(byte[] hash, ScanAction scanAction) {
 
-        ArrayList<byte[]> hashes = new ArrayList<>();
+        ArrayDeque<byte[]> hashes = new ArrayDeque<>();
         hashes.add(hash);
 
         while (!hashes.isEmpty()) {
             synchronized (cache) {
-                byte[] myHash = hashes.remove(0);
+                byte[] myHash = hashes.poll();
                 Value node = this.getCache().get(myHash);
                 if (node == null) {
                     throw new RuntimeException("Not found: " + Hex.toHexString(myHash));
@@ -688,29 +858,32 @@ public class TrieImpl implements Trie {
 
     public void deserialize(byte[] data) {
         synchronized (cache) {
-            RLPList rlpList = (RLPList) RLP.decode2(data).get(0);
+            RLPView rlpList = RLPView.decode(data);
+
+            RLPView keysElement = rlpList.get(0);
+            RLPView valsList = rlpList.get(1);
+            RLPView root = rlpList.get(2);
 
-            RLPItem keysElement = (RLPItem) rlpList.get(0);
-            RLPList valsList = (RLPList) rlpList.get(1);
-            RLPItem root = (RLPItem) rlpList.get(2);
+            byte[] keys = keysElement.asBytes();
 
             for (int i = 0; i < valsList.size(); ++i) {
 
-                byte[] val = valsList.get(i).getRLPData();
+                byte[] val = valsList.get(i).asBytes();
                 byte[] key = new byte[32];
 
                 Value value = Value.fromRlpEncoded(val);
-                System.arraycopy(keysElement.getRLPData(), i * 32, key, 0, 32);
+                System.arraycopy(keys, i * 32, key, 0, 32);
                 cache.getNodes().put(wrap(key), new Node(value));
             }
 
-            this.deserializeRoot(root.getRLPData());
+            this.deserializeRoot(root.asBytes());
         }
     }
 
     public byte[] serialize() {
 
         synchronized (cache) {
+            hashPendingNodes();
             Map<ByteArrayWrapper, Node> map = getCache().getNodes();
 
             int keysTotalSize = 0;
@@ -821,6 +994,7 @@ public class TrieImpl implements Trie {
     public String getTrieDump() {
 
         synchronized (cache) {
+            hashPendingNodes();
             TraceAllNodes traceAction = new TraceAllNodes();
             Value value = new Value(root);
             if (value.isHashCode()) {
@@ -1007,6 +1181,11 @@ public class TrieImpl implements Trie {
         return traceAction.count;
     }
 
+    @Override
+    public void scanFullState(byte[] stateRoot, ScanAction action) {
+        traceTrie(stateRoot, action);
+    }
+
     private void traceDiffTrie(byte[] stateRoot, ScanAction action, ByteArrayKeyValueDatabase db) {
         synchronized (cache) {
             Value value = new Value(stateRoot);
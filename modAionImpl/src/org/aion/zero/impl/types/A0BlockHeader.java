@@ -12,7 +12,7 @@ import java.util.Objects;
 import org.aion.crypto.HashUtil;
 import org.aion.zero.impl.exceptions.HeaderStructureException;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 import org.aion.types.AionAddress;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.types.AddressUtils;
@@ -76,77 +76,68 @@ public class A0BlockHeader extends AbstractBlockHeader {
     }
 
     public A0BlockHeader(byte[] encoded) {
-        this((RLPList) RLP.decode2(encoded).get(0));
+        this(RLPView.decode(encoded));
     }
 
-    public A0BlockHeader(RLPList rlpHeader) {
+    public A0BlockHeader(RLPView rlpHeader) {
 
         // Version
-        byte[] versionBytes = rlpHeader.get(RPL_BH_VERSION).getRLPData();
+        byte[] versionBytes = rlpHeader.get(RPL_BH_VERSION).asBytes();
         this.version = versionBytes.length == 1 ? versionBytes[0] : 1;
 
         // Number
-        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getRLPData();
-        this.number = nrBytes == null ? 0 : (new BigInteger(1, nrBytes)).longValue();
+        this.number = rlpHeader.get(RPL_BH_NUMBER).asLong();
 
         // ParentHash
-        this.parentHash = rlpHeader.get(RPL_BH_PARENTHASH).getRLPData();
+        this.parentHash = rlpHeader.get(RPL_BH_PARENTHASH).asBytes();
 
         // CoinBase
-        byte[] data = rlpHeader.get(RPL_BH_COINBASE).getRLPData();
+        byte[] data = rlpHeader.get(RPL_BH_COINBASE).asBytes();
         if (data == null || data.length != AionAddress.LENGTH) {
             throw new IllegalArgumentException("Coinbase can not be null!");
         }
         this.coinbase = new AionAddress(data);
 
         // StateRoot
-        this.stateRoot = rlpHeader.get(RPL_BH_STATEROOT).getRLPData();
+        this.stateRoot = rlpHeader.get(RPL_BH_STATEROOT).asBytes();
 
         // TxTrieRoot
-        this.txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getRLPData();
+        this.txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).asBytes();
         if (this.txTrieRoot == null) {
             this.txTrieRoot = EMPTY_TRIE_HASH;
         }
 
         // ReceiptTrieRoot
-        this.receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getRLPData();
+        this.receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).asBytes();
         if (this.receiptTrieRoot == null) {
             this.receiptTrieRoot = EMPTY_TRIE_HASH;
         }
 
         // LogsBloom
-        this.logsBloom = rlpHeader.get(RPL_BH_LOGSBLOOM).getRLPData();
+        this.logsBloom = rlpHeader.get(RPL_BH_LOGSBLOOM).asBytes();
 
         // Difficulty
-        this.difficulty = rlpHeader.get(RPL_BH_DIFFICULTY).getRLPData();
+        this.difficulty = rlpHeader.get(RPL_BH_DIFFICULTY).asBytes();
 
         // ExtraData
-        this.extraData = rlpHeader.get(RPL_BH_EXTRADATA).getRLPData();
+        this.extraData = rlpHeader.get(RPL_BH_EXTRADATA).asBytes();
 
         // Energy Consumed
-        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getRLPData();
-        this.energyConsumed =
-                energyConsumedBytes == null
-                        ? 0
-                        : (new BigInteger(1, energyConsumedBytes).longValue());
+        this.energyConsumed = rlpHeader.get(RPL_BH_NRG_CONSUMED).asLong();
 
         // Energy Limit
-        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getRLPData();
-        this.energyLimit =
-                energyLimitBytes == null ? 0 : (new BigInteger(1, energyLimitBytes).longValue());
+        this.energyLimit = rlpHeader.get(RPL_BH_NRG_LIMIT).asLong();
 
         // Timestamp
-        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getRLPData();
-
         // TODO: not a huge concern, but how should we handle possible
         // overflows?
-        this.timestamp = tsBytes == null ? 0 : (new BigInteger(1, tsBytes)).longValue();
+        this.timestamp = rlpHeader.get(RPL_BH_TIMESTAMP).asLong();
 
         // Nonce
-        this.nonce = rlpHeader.get(RPL_BH_NONCE).getRLPData();
+        this.nonce = rlpHeader.get(RPL_BH_NONCE).asBytes();
 
         // Solution
-        this.solution = rlpHeader.get(RPL_BH_SOLUTION).getRLPData();
+        this.solution = rlpHeader.get(RPL_BH_SOLUTION).asBytes();
     }
 
     /**
@@ -481,7 +472,7 @@ public class A0BlockHeader extends AbstractBlockHeader {
     }
 
     public static A0BlockHeader fromRLP(byte[] rawData, boolean isUnsafe) throws Exception {
-        return fromRLP((RLPList) RLP.decode2(rawData).get(0), isUnsafe);
+        return fromRLP(RLPView.decode(rawData), isUnsafe);
     }
 
     /**
@@ -491,75 +482,75 @@ public class A0BlockHeader extends AbstractBlockHeader {
      * @param isUnsafe
      * @return
      */
-    public static A0BlockHeader fromRLP(RLPList rlpHeader, boolean isUnsafe) throws Exception {
+    public static A0BlockHeader fromRLP(RLPView rlpHeader, boolean isUnsafe) throws Exception {
         Builder builder = new Builder();
         if (isUnsafe) {
             builder.fromUnsafeSource();
         }
 
         // Version
-        byte[] version = rlpHeader.get(RPL_BH_VERSION).getRLPData();
+        byte[] version = rlpHeader.get(RPL_BH_VERSION).asBytes();
         if (version != null && version.length == 1) builder.withVersion(version[0]);
 
         // Number
-        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getRLPData();
+        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).asBytes();
         if (nrBytes != null) {
             builder.withNumber(nrBytes);
         }
 
         // Parent Hash
-        builder.withParentHash(rlpHeader.get(RPL_BH_PARENTHASH).getRLPData());
+        builder.withParentHash(rlpHeader.get(RPL_BH_PARENTHASH).asBytes());
 
         // Coinbase (miner)
-        builder.withCoinbase(new AionAddress(rlpHeader.get(RPL_BH_COINBASE).getRLPData()));
+        builder.withCoinbase(new AionAddress(rlpHeader.get(RPL_BH_COINBASE).asBytes()));
 
         // State root
-        builder.withStateRoot(rlpHeader.get(RPL_BH_STATEROOT).getRLPData());
+        builder.withStateRoot(rlpHeader.get(RPL_BH_STATEROOT).asBytes());
 
         // TxTrie root
-        byte[] txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getRLPData();
+        byte[] txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).asBytes();
         if (txTrieRoot != null) {
             builder.withTxTrieRoot(txTrieRoot);
         }
 
         // Receipt Trie root
-        byte[] receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getRLPData();
+        byte[] receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).asBytes();
         if (receiptTrieRoot != null) {
             builder.withReceiptTrieRoot(receiptTrieRoot);
         }
 
         // LogsBloom
-        builder.withLogsBloom(rlpHeader.get(RPL_BH_LOGSBLOOM).getRLPData());
+        builder.withLogsBloom(rlpHeader.get(RPL_BH_LOGSBLOOM).asBytes());
 
         // Difficulty
-        builder.withDifficulty(rlpHeader.get(RPL_BH_DIFFICULTY).getRLPData());
+        builder.withDifficulty(rlpHeader.get(RPL_BH_DIFFICULTY).asBytes());
 
         // ExtraData
-        builder.withExtraData(rlpHeader.get(RPL_BH_EXTRADATA).getRLPData());
+        builder.withExtraData(rlpHeader.get(RPL_BH_EXTRADATA).asBytes());
 
         // Energy Consumed
-        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getRLPData();
+        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).asBytes();
         if (energyConsumedBytes != null) {
             builder.withEnergyConsumed(energyConsumedBytes);
         }
 
         // Energy limit
-        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getRLPData();
+        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).asBytes();
         if (energyLimitBytes != null) {
             builder.withEnergyLimit(energyLimitBytes);
         }
 
         // Timestamp
-        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getRLPData();
+        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).asBytes();
         if (tsBytes != null) {
             builder.withTimestamp(tsBytes);
         }
 
         // Nonce
-        builder.withNonce(rlpHeader.get(RPL_BH_NONCE).getRLPData());
+        builder.withNonce(rlpHeader.get(RPL_BH_NONCE).asBytes());
 
         // Solution
-        builder.withSolution(rlpHeader.get(RPL_BH_SOLUTION).getRLPData());
+        builder.withSolution(rlpHeader.get(RPL_BH_SOLUTION).asBytes());
 
         return builder.build();
     }
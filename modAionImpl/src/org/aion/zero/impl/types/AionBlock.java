@@ -14,8 +14,7 @@ import org.aion.mcf.blockchain.BlockHeader;
 import org.aion.zero.impl.trie.Trie;
 import org.aion.zero.impl.trie.TrieImpl;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 import org.aion.types.AionAddress;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
@@ -164,15 +163,14 @@ public class AionBlock extends AbstractBlock implements Block {
         synchronized (this) {
             if (this.parsed) return;
 
-            RLPList params = RLP.decode2(rlpEncoded);
-            RLPList block = (RLPList) params.get(0);
+            RLPView block = RLPView.decode(rlpEncoded);
 
             // Parse Header
-            RLPList header = (RLPList) block.get(0);
+            RLPView header = block.get(0);
             this.header = new A0BlockHeader(header);
 
             // Parse Transactions
-            RLPList txTransactions = (RLPList) block.get(1);
+            RLPView txTransactions = block.get(1);
             this.parseTxs(this.header.getTxTrieRoot(), txTransactions);
 
             this.parsed = true;
@@ -398,18 +396,18 @@ public class AionBlock extends AbstractBlock implements Block {
         return toStringBuff.toString();
     }
 
-    private byte[] parseTxs(RLPList txTransactions) {
+    private byte[] parseTxs(RLPView txTransactions) {
 
         Trie txsState = new TrieImpl(null);
         for (int i = 0; i < txTransactions.size(); i++) {
-            RLPElement transactionRaw = txTransactions.get(i);
-            this.transactionsList.add(TxUtil.decode(transactionRaw.getRLPData()));
-            txsState.update(RLP.encodeInt(i), transactionRaw.getRLPData());
+            byte[] transactionRaw = txTransactions.get(i).getEncoded();
+            this.transactionsList.add(TxUtil.decode(transactionRaw));
+            txsState.update(RLP.encodeInt(i), transactionRaw);
         }
         return txsState.getRootHash().clone();
     }
 
-    private boolean parseTxs(byte[] expectedRoot, RLPList txTransactions) {
+    private boolean parseTxs(byte[] expectedRoot, RLPView txTransactions) {
 
         byte[] txStateRoot = parseTxs(txTransactions);
         String calculatedRoot = Hex.toHexString(txStateRoot);
@@ -504,8 +502,8 @@ public class AionBlock extends AbstractBlock implements Block {
         block.header = (A0BlockHeader) header;
         block.parsed = true;
 
-        RLPList items = (RLPList) RLP.decode2(body).get(0);
-        RLPList transactions = (RLPList) items.get(0);
+        RLPView items = RLPView.decode(body);
+        RLPView transactions = items.get(0);
 
         if (!block.parseTxs(header.getTxTrieRoot(), transactions)) {
             return null;
@@ -515,16 +513,15 @@ public class AionBlock extends AbstractBlock implements Block {
     }
 
     public static AionBlock fromRLP(byte[] rlpEncoded, boolean isUnsafe) {
-        RLPList params = RLP.decode2(rlpEncoded);
+        RLPView blockRLP = RLPView.decode(rlpEncoded);
 
-        // ensuring the expected types list before type casting
-        if (params.get(0) instanceof RLPList) {
-            RLPList blockRLP = (RLPList) params.get(0);
+        // ensuring the expected types list before accessing the elements
+        if (blockRLP.isList()) {
 
-            if (blockRLP.get(0) instanceof RLPList && blockRLP.get(1) instanceof RLPList) {
+            if (blockRLP.get(0).isList() && blockRLP.get(1).isList()) {
 
                 // Parse Header
-                RLPList headerRLP = (RLPList) blockRLP.get(0);
+                RLPView headerRLP = blockRLP.get(0);
                 A0BlockHeader header;
                 try {
                     header = A0BlockHeader.fromRLP(headerRLP, isUnsafe);
@@ -540,7 +537,7 @@ public class AionBlock extends AbstractBlock implements Block {
                 block.parsed = true;
 
                 // Parse Transactions
-                RLPList transactions = (RLPList) blockRLP.get(1);
+                RLPView transactions = blockRLP.get(1);
                 if (!block.parseTxs(header.getTxTrieRoot(), transactions)) {
                     return null;
                 }
@@ -0,0 +1,107 @@
+package org.aion.zero.impl.blockchain;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxReceipt;
+import org.aion.base.TransactionTypes;
+import org.aion.types.AionAddress;
+import org.aion.util.types.AddressUtils;
+import org.junit.Test;
+
+/** Unit tests for {@link LocalCallCache}. */
+public class LocalCallCacheTest {
+
+    private static final byte[] block = new byte[] {1, 2, 3};
+    private static final AionAddress sender = AddressUtils.ZERO_ADDRESS;
+    private static final AionAddress contract =
+            AddressUtils.wrapAddress(
+                    "a0c7d1b8a2b9b3c1d2e0f4a5b6c7d8e9f0a1b2c3d4e5f6a7b8c9d0e1f2a3b4c5");
+
+    private static AionTransaction call(byte[] data, long energyLimit) {
+        return AionTransaction.createWithoutKey(
+                new byte[] {0},
+                sender,
+                contract,
+                new byte[] {0},
+                data,
+                energyLimit,
+                1L,
+                TransactionTypes.DEFAULT);
+    }
+
+    @Test
+    public void testIdenticalCallReused() {
+        LocalCallCache cache = new LocalCallCache(4);
+        AionTxReceipt receipt = new AionTxReceipt();
+        receipt.setExecutionResult(new byte[] {1});
+        receipt.setNrgUsed(21_000);
+        cache.put(block, call(new byte[] {7}, 2_000_000), receipt);
+
+        // a new transaction with the same fields and a different signature and timestamp
+        AionTransaction tx = call(new byte[] {7}, 2_000_000);
+        AionTxReceipt cached = cache.get(block, tx);
+        assertThat(cached.getEncoded()).isEqualTo(receipt.getEncoded());
+        assertThat(cached.getTransaction()).isSameAs(tx);
+    }
+
+    @Test
+    public void testReturnedReceiptChangesNotCached() {
+        LocalCallCache cache = new LocalCallCache(4);
+        AionTxReceipt receipt = new AionTxReceipt();
+        receipt.setExecutionResult(new byte[] {1});
+        receipt.setNrgUsed(21_000);
+        cache.put(block, call(new byte[] {7}, 2_000_000), receipt);
+
+        AionTxReceipt first = cache.get(block, call(new byte[] {7}, 2_000_000));
+        first.setExecutionResult(new byte[] {2});
+        first.setError("changed");
+        first.setNrgUsed(1);
+
+        // later changes to the receipt put in the cache are not visible either
+        receipt.setExecutionResult(new byte[] {3});
+
+        AionTxReceipt second = cache.get(block, call(new byte[] {7}, 2_000_000));
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getTransactionOutput()).isEqualTo(new byte[] {1});
+        assertThat(second.getError()).isEmpty();
+        assertThat(second.getEnergyUsed()).isEqualTo(21_000);
+    }
+
+    @Test
+    public void testDifferentCallsNotReused() {
+        LocalCallCache cache = new LocalCallCache(4);
+        cache.put(block, call(new byte[] {7}, 2_000_000), new AionTxReceipt());
+
+        assertThat(cache.get(new byte[] {1, 2, 4}, call(new byte[] {7}, 2_000_000))).isNull();
+        assertThat(cache.get(block, call(new byte[] {8}, 2_000_000))).isNull();
+        assertThat(cache.get(block, call(new byte[] {7}, 2_000_001))).isNull();
+    }
+
+    @Test
+    public void testContractCreation() {
+        AionTransaction create =
+                AionTransaction.createWithoutKey(
+                        new byte[] {0},
+                        sender,
+                        null,
+                        new byte[] {0},
+                        new byte[] {7},
+                        2_000_000,
+                        1L,
+                        TransactionTypes.DEFAULT);
+        assertThat(LocalCallCache.keyOf(block, create))
+                .isNotEqualTo(LocalCallCache.keyOf(block, call(new byte[] {7}, 2_000_000)));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        LocalCallCache cache = new LocalCallCache(2);
+        for (int i = 0; i < 3; i++) {
+            cache.put(block, call(new byte[] {(byte) i}, 2_000_000), new AionTxReceipt());
+        }
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(block, call(new byte[] {0}, 2_000_000))).isNull();
+        assertThat(cache.get(block, call(new byte[] {2}, 2_000_000))).isNotNull();
+    }
+}
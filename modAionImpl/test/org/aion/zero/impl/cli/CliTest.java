@@ -1958,6 +1958,15 @@ public class CliTest {
         skippedTasks = new HashSet<>();
         skippedTasks.add("--db-compact");
         parameters.add(new Object[] {input, TaskPriority.DEV, skippedTasks});
+
+        input =
+                new String[] {
+                    "--redo-import", "--export-state", "100", "state.out", "--import-state", "in"
+                };
+        skippedTasks = new HashSet<>();
+        skippedTasks.add("--export-state");
+        skippedTasks.add("--import-state");
+        parameters.add(new Object[] {input, TaskPriority.REDO_IMPORT, skippedTasks});
         return parameters.toArray();
     }
 
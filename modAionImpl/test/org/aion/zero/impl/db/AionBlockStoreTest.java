@@ -18,6 +18,7 @@ import java.util.concurrent.TimeUnit;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.impl.mockdb.MockDB;
 import org.aion.mcf.blockchain.Block;
+import org.aion.mcf.blockchain.BlockHeader;
 import org.aion.util.TestResources;
 import org.aion.util.types.AddressUtils;
 import org.aion.zero.impl.types.AionBlock;
@@ -39,6 +40,7 @@ public class AionBlockStoreTest {
     // simply mocking the dbs didn't work possibly because of the use of locks
     // for some reason index.size() gets called by store.getChainBlockByNumber(X)
     ByteArrayKeyValueDatabase index = new MockDB("index", log);
+    ByteArrayKeyValueDatabase headers = new MockDB("headers", log);
     ByteArrayKeyValueDatabase blocks = new MockDB("blocks", log);
 
     // returns a list of blocks in ascending order of height
@@ -47,24 +49,26 @@ public class AionBlockStoreTest {
     @Before
     public void openDatabases() {
         index.open();
+        headers.open();
         blocks.open();
     }
 
     @After
     public void closeDatabases() {
         index.close();
+        headers.close();
         blocks.close();
     }
 
     @Test
     public void testGetBlocksByRange_withGensisFirstBlock() {
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
         assertThat(store.getBlocksByRange(0L, 11L)).isNull();
     }
 
     @Test
     public void testGetBlocksByRange_withNullFirstBlock() {
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
         when(store.getChainBlockByNumber(10L)).thenReturn(null);
         when(store.getBlocksByRange(10L, 11L)).thenCallRealMethod();
 
@@ -75,7 +79,7 @@ public class AionBlockStoreTest {
     public void testGetBlocksByRange_withSingleBlock() {
         Block block = consecutiveBlocks.get(0);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
         when(store.getChainBlockByNumber(10L)).thenReturn(block);
         when(store.getBlocksByRange(10L, 10L)).thenCallRealMethod();
 
@@ -90,7 +94,7 @@ public class AionBlockStoreTest {
         Block middle = consecutiveBlocks.get(1);
         Block last = consecutiveBlocks.get(0);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getBlockByHash(first.getParentHash())).thenReturn(middle);
         when(store.getBlockByHash(middle.getParentHash())).thenReturn(last);
@@ -109,7 +113,7 @@ public class AionBlockStoreTest {
         Block middle = consecutiveBlocks.get(1);
         Block last = consecutiveBlocks.get(0);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getBlockByHash(first.getParentHash())).thenReturn(middle);
         when(store.getBlockByHash(middle.getParentHash())).thenReturn(null);
@@ -125,7 +129,7 @@ public class AionBlockStoreTest {
         Block middle = consecutiveBlocks.get(1); // assumed height 1
         Block last = consecutiveBlocks.get(0); // assumed height 0
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
         // returning the block at a different number than its height
         when(store.getChainBlockByNumber(2L)).thenReturn(first);
         when(store.getBlockByHash(first.getParentHash())).thenReturn(middle);
@@ -149,7 +153,7 @@ public class AionBlockStoreTest {
         Block middle = consecutiveBlocks.get(1);
         Block last = consecutiveBlocks.get(2);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getChainBlockByNumber(last.getNumber())).thenReturn(last);
         when(store.getBlockByHash(last.getParentHash())).thenReturn(middle);
@@ -167,7 +171,7 @@ public class AionBlockStoreTest {
         Block first = consecutiveBlocks.get(0);
         Block last = consecutiveBlocks.get(2);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getChainBlockByNumber(last.getNumber())).thenReturn(last);
         when(store.getBlockByHash(last.getParentHash())).thenReturn(null);
@@ -184,7 +188,7 @@ public class AionBlockStoreTest {
         Block best = consecutiveBlocks.get(2);
         Block last = consecutiveBlocks.get(3);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
 
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getChainBlockByNumber(last.getNumber())).thenReturn(null);
@@ -204,7 +208,7 @@ public class AionBlockStoreTest {
         Block first = consecutiveBlocks.get(0);
         Block last = consecutiveBlocks.get(3);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getChainBlockByNumber(last.getNumber())).thenReturn(null);
         when(store.getBestBlock()).thenReturn(null);
@@ -220,7 +224,7 @@ public class AionBlockStoreTest {
         Block last = consecutiveBlocks.get(1);
         Block best = consecutiveBlocks.get(2);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, headers, blocks, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getChainBlockByNumber(last.getNumber())).thenReturn(null);
         when(store.getBestBlock()).thenReturn(best);
@@ -266,7 +270,7 @@ public class AionBlockStoreTest {
                         new byte[0],
                         1,
                         1);
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, headers, blocks, false);
 
         store.saveBlock(blk1, BigInteger.TEN, true);
         store.saveBlock(blk2, BigInteger.TEN.add(BigInteger.ONE), true);
@@ -278,6 +282,147 @@ public class AionBlockStoreTest {
         assertThat(storedBlk.getDifficulty().equals(BigInteger.TEN.toByteArray()));
     }
 
+    /** @return a chain of empty blocks in ascending order of height starting from genesis */
+    private static List<Block> chainOfBlocks(int count) {
+        List<Block> chain = new ArrayList<>();
+        byte[] parentHash = new byte[32];
+        for (int i = 0; i < count; i++) {
+            AionBlock block =
+                    new AionBlock(
+                            parentHash,
+                            AddressUtils.ZERO_ADDRESS,
+                            new byte[0],
+                            BigInteger.TEN.toByteArray(),
+                            i,
+                            i,
+                            new byte[0],
+                            new byte[0],
+                            new byte[0],
+                            new byte[0],
+                            new byte[0],
+                            null,
+                            new byte[0],
+                            1,
+                            1);
+            chain.add(block);
+            parentHash = block.getHash();
+        }
+        return chain;
+    }
+
+    private static void saveChain(AionBlockStore store, List<Block> chain) {
+        for (Block block : chain) {
+            store.saveBlock(
+                    block, BigInteger.TEN.multiply(BigInteger.valueOf(block.getNumber() + 1)), true);
+        }
+    }
+
+    @Test
+    public void testMainChainReadsWhileWriterHoldsLock() throws Exception {
+        List<Block> chain = chainOfBlocks(10);
+        AionBlockStore store = new AionBlockStore(index, headers, blocks, false);
+        saveChain(store, chain);
+        Block best = chain.get(chain.size() - 1);
+        Block first = chain.get(0);
+
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        store.lock.lock();
+        try {
+            // the main chain queries must not wait for the writer
+            assertThat(reader.submit(store::getBestBlock).get(5, TimeUnit.SECONDS)).isEqualTo(best);
+            assertThat(reader.submit(store::getMaxNumber).get(5, TimeUnit.SECONDS))
+                    .isEqualTo(best.getNumber());
+            assertThat(
+                            reader.submit(() -> store.getBlockHashByNumber(first.getNumber()))
+                                    .get(5, TimeUnit.SECONDS))
+                    .isEqualTo(first.getHash());
+            assertThat(
+                            reader.submit(() -> store.isMainChain(best.getHash(), best.getNumber()))
+                                    .get(5, TimeUnit.SECONDS))
+                    .isTrue();
+            assertThat(
+                            reader.submit(() -> store.getTotalDifficultyForHash(best.getHash()))
+                                    .get(5, TimeUnit.SECONDS))
+                    .isEqualTo(BigInteger.valueOf(100));
+        } finally {
+            store.lock.unlock();
+            reader.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMainChainViewAfterRevert() {
+        List<Block> chain = chainOfBlocks(AionBlockStore.VIEW_DEPTH + 10);
+        AionBlockStore store = new AionBlockStore(index, headers, blocks, false);
+        saveChain(store, chain);
+
+        // levels below the published view are read from the index
+        assertThat(store.getBlockHashByNumber(5)).isEqualTo(chain.get(5).getHash());
+        assertThat(store.isMainChain(chain.get(5).getHash(), 5)).isTrue();
+        assertThat(store.getChainBlockByNumber(chain.size() - 1))
+                .isEqualTo(chain.get(chain.size() - 1));
+
+        // reverting below the view republishes the recent levels
+        store.revert(5);
+
+        assertThat(store.getMaxNumber()).isEqualTo(5);
+        assertThat(store.getBestBlock()).isEqualTo(chain.get(5));
+        assertThat(store.getTotalDifficulty()).isEqualTo(BigInteger.valueOf(60));
+        assertThat(store.getChainBlockByNumber(6)).isNull();
+        assertThat(store.isMainChain(chain.get(6).getHash(), 6)).isFalse();
+
+        // a new store built over the same databases publishes the same view
+        AionBlockStore reopened = new AionBlockStore(index, headers, blocks, false);
+        assertThat(reopened.getBestBlock()).isEqualTo(chain.get(5));
+        assertThat(reopened.getTotalDifficulty()).isEqualTo(BigInteger.valueOf(60));
+    }
+
+    @Test
+    public void testHeadersAndBodiesStoredSeparately() {
+        List<Block> chain = chainOfBlocks(5);
+        AionBlockStore store = new AionBlockStore(index, headers, blocks, false);
+        saveChain(store, chain);
+        store.flush();
+
+        Block block = chain.get(3);
+        assertThat(headers.get(block.getHash()).get()).isEqualTo(block.getHeader().getEncoded());
+        assertThat(blocks.get(block.getHash()).get()).isEqualTo(block.getEncodedBody());
+
+        assertThat(store.getHeaderByHash(block.getHash()).getEncoded())
+                .isEqualTo(block.getHeader().getEncoded());
+        assertThat(store.getChainHeaderByNumber(3).getEncoded())
+                .isEqualTo(block.getHeader().getEncoded());
+        assertThat(store.getEncodedBodyByHash(block.getHash())).isEqualTo(block.getEncodedBody());
+        assertThat(store.getBlockByHash(block.getHash()).getEncoded())
+                .isEqualTo(block.getEncoded());
+
+        List<BlockHeader> list = store.getListHeadersEndWith(block.getHash(), 10);
+        assertThat(list.size()).isEqualTo(4);
+        assertThat(list.get(3).getHash()).isEqualTo(chain.get(0).getHash());
+    }
+
+    @Test
+    public void testReadsLegacyEncodedBlocks() {
+        List<Block> chain = chainOfBlocks(5);
+        AionBlockStore store = new AionBlockStore(index, headers, blocks, false);
+        saveChain(store, chain);
+        store.flush();
+
+        // blocks written by earlier versions are stored whole without a separate header
+        Block block = chain.get(2);
+        blocks.put(block.getHash(), block.getEncoded());
+        headers.delete(block.getHash());
+
+        AionBlockStore reopened = new AionBlockStore(index, headers, blocks, false);
+        assertThat(reopened.getBlockByHash(block.getHash()).getEncoded())
+                .isEqualTo(block.getEncoded());
+        assertThat(reopened.getHeaderByHash(block.getHash()).getEncoded())
+                .isEqualTo(block.getHeader().getEncoded());
+        assertThat(reopened.getEncodedBodyByHash(block.getHash()))
+                .isEqualTo(block.getEncodedBody());
+        assertThat(reopened.getListHashesEndWith(chain.get(4).getHash(), 5)).hasSize(5);
+    }
+
     private static final int TIME_OUT = 100; // in seconds
 
     private void addThread_saveBlock(List<Runnable> threads, AionBlockStore store, Block block) {
@@ -330,7 +475,7 @@ public class AionBlockStoreTest {
         System.out.println("Note: If this test fails there may be a thread synchronization issue inside the AionBlockStore.");
 
         // set up block store with cache to replicate normal execution
-        AionBlockStore store = new AionBlockStore(index, blocks, false, 10);
+        AionBlockStore store = new AionBlockStore(index, headers, blocks, false, 10);
 
         List<Block> testBlocks = TestResources.consecutiveBlocks(20);
         List<Runnable> threads = new ArrayList<>();
@@ -284,6 +284,114 @@ public class AionRepositoryImplTest {
         assertThat(repository.getBalance(FIRST_ACC)).isEqualTo(BigInteger.ONE);
     }
 
+    /** Applies the changes of a block on top of the current root of the repository. */
+    private static byte[] commitBlock(
+            AionRepositoryImpl repository, AionAddress account, ByteArrayWrapper key, int value) {
+        RepositoryCache track = repository.startTracking();
+        track.addBalance(account, BigInteger.ONE);
+        track.addStorageRow(account, key, new DataWord(value).toWrapper());
+        track.saveVmType(account, InternalVmType.FVM);
+        track.flush();
+
+        byte[] root = repository.getRoot();
+        repository.commitBlock(ByteArrayWrapper.wrap(HashUtil.h256(root)), value, root);
+        return root;
+    }
+
+    @Test
+    public void testFlatStateAcrossForks() {
+        final AionAddress account = AddressUtils.wrapAddress(value2);
+        final ByteArrayWrapper key = new DataWord(HashUtil.blake128("hello".getBytes())).toWrapper();
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(repoConfig);
+
+        byte[] firstRoot = commitBlock(repository, account, key, 1);
+        byte[] secondRoot = commitBlock(repository, account, key, 2);
+
+        // a side chain forking from the first block
+        repository.syncToRoot(firstRoot);
+        assertThat(repository.getStorageValue(account, key)).isEqualTo(new DataWord(1).toWrapper());
+        byte[] forkRoot = commitBlock(repository, account, key, 3);
+
+        FlatState flatState = repository.getFlatState();
+        assertThat(flatState.getLayerCount()).isEqualTo(3);
+        assertThat(flatState.getAccount(ByteArrayWrapper.wrap(forkRoot), account))
+                .isEqualTo(repository.getAccountState(account).getEncoded());
+
+        assertThat(repository.getBalance(account)).isEqualTo(BigInteger.TWO);
+        assertThat(repository.getStorageValue(account, key)).isEqualTo(new DataWord(3).toWrapper());
+
+        repository.syncToRoot(secondRoot);
+        assertThat(repository.getBalance(account)).isEqualTo(BigInteger.TWO);
+        assertThat(repository.getStorageValue(account, key)).isEqualTo(new DataWord(2).toWrapper());
+
+        repository.syncToRoot(firstRoot);
+        assertThat(repository.getBalance(account)).isEqualTo(BigInteger.ONE);
+        assertThat(repository.getStorageValue(account, key)).isEqualTo(new DataWord(1).toWrapper());
+
+        Repository snapshot = repository.getSnapshotTo(forkRoot);
+        assertThat(snapshot.getStorageValue(account, key)).isEqualTo(new DataWord(3).toWrapper());
+    }
+
+    @Test
+    public void testContractDetailsCachedPerStorageRoot() {
+        final AionAddress account = AddressUtils.wrapAddress(value2);
+        final ByteArrayWrapper key = new DataWord(HashUtil.blake128("hello".getBytes())).toWrapper();
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(repoConfig);
+
+        byte[] firstRoot = commitBlock(repository, account, key, 1);
+
+        // each access returns a separate object decoded once
+        AionContractDetailsImpl first = repository.getContractDetails(account);
+        AionContractDetailsImpl second = repository.getContractDetails(account);
+        assertThat(first).isNotSameAs(second);
+        assertThat(repository.detailsDS.cachedDetailsCount()).isEqualTo(1);
+
+        first.put(key, new DataWord(5).toWrapper());
+        assertThat(second.get(key)).isEqualTo(new DataWord(1).toWrapper());
+        assertThat(repository.getContractDetails(account).get(key))
+                .isEqualTo(new DataWord(1).toWrapper());
+
+        // the cached details are replaced when the contract is updated
+        commitBlock(repository, account, key, 2);
+        assertThat(repository.detailsDS.cachedDetailsCount()).isEqualTo(0);
+        assertThat(repository.getContractDetails(account).get(key))
+                .isEqualTo(new DataWord(2).toWrapper());
+
+        repository.syncToRoot(firstRoot);
+        assertThat(repository.getContractDetails(account).get(key))
+                .isEqualTo(new DataWord(1).toWrapper());
+    }
+
+    @Test
+    public void testCachedSnapshots() {
+        final AionAddress account = AddressUtils.wrapAddress(value2);
+        final ByteArrayWrapper key = new DataWord(HashUtil.blake128("hello".getBytes())).toWrapper();
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(repoConfig);
+
+        byte[] firstRoot = commitBlock(repository, account, key, 1);
+        byte[] secondRoot = commitBlock(repository, account, key, 2);
+
+        Repository first = repository.getCachedSnapshotTo(firstRoot);
+        assertThat(repository.getCachedSnapshotTo(firstRoot)).isSameAs(first);
+        Repository second = repository.getCachedSnapshotTo(secondRoot);
+        assertThat(second).isNotSameAs(first);
+
+        assertThat(first.getBalance(account)).isEqualTo(BigInteger.ONE);
+        assertThat(first.getStorageValue(account, key)).isEqualTo(new DataWord(1).toWrapper());
+        assertThat(second.getBalance(account)).isEqualTo(BigInteger.TWO);
+        assertThat(second.getStorageValue(account, key)).isEqualTo(new DataWord(2).toWrapper());
+
+        assertThat(repository.getSnapshotCacheStats().hitCount()).isEqualTo(1);
+        assertThat(repository.getSnapshotCacheStats().missCount()).isEqualTo(2);
+
+        // the changes made on top of a snapshot are not visible to the other queries
+        RepositoryCache track = first.startTracking();
+        track.addBalance(account, BigInteger.TEN);
+        track.rollback();
+        assertThat(repository.getCachedSnapshotTo(firstRoot).getBalance(account))
+                .isEqualTo(BigInteger.ONE);
+    }
+
     // test that intermediate nodes also get rolled back properly
     // intermediate nodes get created when two accounts have a common substring
     @Test
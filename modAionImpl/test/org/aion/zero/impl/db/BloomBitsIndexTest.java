@@ -0,0 +1,215 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.aion.base.Bloom;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.blockchain.BlockHeader;
+import org.aion.util.bytes.ByteUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Unit tests for {@link BloomBitsIndex}. */
+public class BloomBitsIndexTest {
+
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    // two complete sections and an incomplete one
+    private static final int CHAIN_LENGTH = 2 * BloomBitsIndex.SECTION_SIZE + 300;
+
+    private static final Bloom topicA = Bloom.create("topicA".getBytes());
+    private static final Bloom topicB = Bloom.create("topicB".getBytes());
+
+    private ByteArrayKeyValueDatabase database;
+    private AionBlockStore blockStore;
+    private BlockHeader[] chain;
+    private BloomBitsIndex index;
+
+    private static byte[] hash(long number, int fork) {
+        return ByteUtil.merge(ByteUtil.longToBytes(number), ByteUtil.intToBytes(fork));
+    }
+
+    private static BlockHeader header(long number, int fork, Bloom bloom) {
+        BlockHeader header = mock(BlockHeader.class);
+        when(header.getNumber()).thenReturn(number);
+        when(header.getHash()).thenReturn(hash(number, fork));
+        when(header.getParentHash()).thenReturn(hash(number - 1, fork));
+        when(header.getLogsBloom()).thenReturn(bloom.getBloomFilterBytes());
+        return header;
+    }
+
+    /** Blocks divisible by 100 log topic A, blocks divisible by 150 also log topic B. */
+    private static Bloom bloomOf(long number) {
+        Bloom bloom = new Bloom();
+        if (number % 100 == 0) {
+            bloom.or(topicA);
+        }
+        if (number % 150 == 0) {
+            bloom.or(topicB);
+        }
+        return bloom;
+    }
+
+    @Before
+    public void setup() {
+        database = new MockDB("bloomBits", log);
+        database.open();
+
+        chain = new BlockHeader[CHAIN_LENGTH];
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+            chain[i] = header(i, 0, bloomOf(i));
+        }
+
+        blockStore = mock(AionBlockStore.class);
+        when(blockStore.getChainHeaderByNumber(anyLong()))
+                .thenAnswer(
+                        invocation -> {
+                            long number = invocation.getArgument(0);
+                            return number < chain.length ? chain[(int) number] : null;
+                        });
+        when(blockStore.getBlockHashByNumber(anyLong()))
+                .thenAnswer(
+                        invocation -> {
+                            long number = invocation.getArgument(0);
+                            return number < chain.length ? chain[(int) number].getHash() : null;
+                        });
+
+        index = new BloomBitsIndex(database, blockStore);
+    }
+
+    @After
+    public void teardown() {
+        index.close();
+    }
+
+    private void indexChain() throws InterruptedException {
+        index.onNewBest(CHAIN_LENGTH - 1);
+        for (int i = 0; i < 100 && index.getSectionCount() < 2; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(index.getSectionCount()).isEqualTo(2L);
+    }
+
+    /** @return the hash of the last block the section was built from */
+    private byte[] storedHead(long section) {
+        byte[] key = ByteBuffer.allocate(1 + Long.BYTES).put((byte) 1).putLong(section).array();
+        return database.get(key).orElse(null);
+    }
+
+    private static List<Long> expected(long from, long to, long divisor) {
+        List<Long> numbers = new ArrayList<>();
+        for (long n = from; n <= Math.min(to, CHAIN_LENGTH - 1); n++) {
+            if (n % divisor == 0) {
+                numbers.add(n);
+            }
+        }
+        return numbers;
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        BitSet sparse = new BitSet(BloomBitsIndex.SECTION_SIZE);
+        sparse.set(0);
+        sparse.set(1000);
+        sparse.set(BloomBitsIndex.SECTION_SIZE - 1);
+        byte[] encoded = BloomBitsIndex.encode(sparse);
+        // the positions take less space than the bitmap
+        assertThat(encoded.length).isEqualTo(1 + 3 * Short.BYTES);
+        assertThat(BloomBitsIndex.decode(encoded)).isEqualTo(sparse);
+
+        BitSet dense = new BitSet(BloomBitsIndex.SECTION_SIZE);
+        dense.set(0, BloomBitsIndex.SECTION_SIZE, true);
+        dense.clear(17);
+        encoded = BloomBitsIndex.encode(dense);
+        assertThat(encoded.length).isEqualTo(1 + BloomBitsIndex.SECTION_SIZE / 8);
+        assertThat(BloomBitsIndex.decode(encoded)).isEqualTo(dense);
+    }
+
+    @Test
+    public void testNotIndexedBeforeConfirmations() throws InterruptedException {
+        index.onNewBest(BloomBitsIndex.SECTION_SIZE + BloomBitsIndex.CONFIRMATIONS - 2);
+        Thread.sleep(500);
+        assertThat(index.getSectionCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testFindMatchingBlocks() throws InterruptedException {
+        Bloom[][] filterA = new Bloom[][] {{topicA}};
+        Bloom[][] filterAandB = new Bloom[][] {{topicA}, {topicB}};
+        Bloom[][] filterAorB = new Bloom[][] {{topicA, topicB}, {}};
+
+        // before indexing all the blocks are scanned
+        assertThat(index.findMatchingBlocks(0, CHAIN_LENGTH, filterA))
+                .containsExactlyElementsIn(expected(0, CHAIN_LENGTH, 100))
+                .inOrder();
+
+        indexChain();
+
+        // the ranges start and end within sections and go past the end of the chain
+        long from = 123;
+        long to = CHAIN_LENGTH + 10;
+        assertThat(index.findMatchingBlocks(from, to, filterA))
+                .containsExactlyElementsIn(expected(from, to, 100))
+                .inOrder();
+        assertThat(index.findMatchingBlocks(from, to, filterAandB))
+                .containsExactlyElementsIn(expected(from, to, 300))
+                .inOrder();
+
+        List<Long> any = new ArrayList<>();
+        for (long n = from; n < CHAIN_LENGTH; n++) {
+            if (n % 100 == 0 || n % 150 == 0) {
+                any.add(n);
+            }
+        }
+        assertThat(index.findMatchingBlocks(from, to, filterAorB))
+                .containsExactlyElementsIn(any)
+                .inOrder();
+
+        // a range inside a single indexed section
+        assertThat(index.findMatchingBlocks(5000, 5500, filterA))
+                .containsExactlyElementsIn(expected(5000, 5500, 100))
+                .inOrder();
+    }
+
+    @Test
+    public void testReorganizedSectionIgnoredAndRebuilt() throws InterruptedException {
+        indexChain();
+
+        // replace the end of the second section with blocks that do not log topic A
+        int forkStart = 2 * BloomBitsIndex.SECTION_SIZE - 500;
+        for (int i = forkStart; i < CHAIN_LENGTH; i++) {
+            chain[i] = header(i, 1, new Bloom());
+        }
+        when(chain[forkStart].getParentHash()).thenReturn(hash(forkStart - 1, 0));
+        byte[] newHead = chain[2 * BloomBitsIndex.SECTION_SIZE - 1].getHash();
+
+        // the stale section is not used by queries
+        Bloom[][] filterA = new Bloom[][] {{topicA}};
+        assertThat(index.findMatchingBlocks(0, CHAIN_LENGTH, filterA))
+                .containsExactlyElementsIn(expected(0, forkStart - 1, 100))
+                .inOrder();
+
+        // and gets rebuilt with the new blocks
+        index.onNewBest(CHAIN_LENGTH - 1);
+        for (int i = 0; i < 100 && !Arrays.equals(storedHead(1), newHead); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(storedHead(1)).isEqualTo(newHead);
+        assertThat(index.getSectionCount()).isEqualTo(2L);
+        assertThat(index.findMatchingBlocks(0, CHAIN_LENGTH, filterA))
+                .containsExactlyElementsIn(expected(0, forkStart - 1, 100))
+                .inOrder();
+    }
+}
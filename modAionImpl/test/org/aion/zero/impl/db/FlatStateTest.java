@@ -0,0 +1,297 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.rlp.RLP;
+import org.aion.types.AionAddress;
+import org.aion.util.types.ByteArrayWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Unit tests for {@link FlatState}. */
+public class FlatStateTest {
+
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    private static final AionAddress alice = address(1);
+    private static final AionAddress bob = address(2);
+    private static final ByteArrayWrapper slot = ByteArrayWrapper.wrap(new byte[] {1, 2, 3});
+
+    private ByteArrayKeyValueDatabase database;
+    // the cleaner tasks, run explicitly by the tests
+    private List<Runnable> tasks;
+
+    private static AionAddress address(int id) {
+        byte[] bytes = new byte[AionAddress.LENGTH];
+        bytes[0] = (byte) 0xa0;
+        bytes[AionAddress.LENGTH - 1] = (byte) id;
+        return new AionAddress(bytes);
+    }
+
+    private static ByteArrayWrapper root(int id) {
+        return ByteArrayWrapper.wrap(new byte[] {'r', (byte) id});
+    }
+
+    private static byte[] account(int id) {
+        return new byte[] {'a', (byte) id};
+    }
+
+    private static Map<ByteArrayWrapper, ByteArrayWrapper> rows(int value) {
+        Map<ByteArrayWrapper, ByteArrayWrapper> rows = new HashMap<>();
+        rows.put(slot, value == 0 ? null : ByteArrayWrapper.wrap(new byte[] {(byte) value}));
+        return rows;
+    }
+
+    private static byte[] encoded(int value) {
+        return RLP.encodeElement(new byte[] {(byte) value});
+    }
+
+    /** Creates a diff changing the account and the storage row of alice. */
+    private static FlatState.Diff diff(ByteArrayWrapper parent, int value) {
+        FlatState.Diff diff = new FlatState.Diff(parent);
+        diff.putAccount(alice, account(value));
+        diff.putStorage(alice, rows(value));
+        return diff;
+    }
+
+    @Before
+    public void setup() {
+        database = new MockDB("flatState", log);
+        database.open();
+        tasks = new ArrayList<>();
+    }
+
+    private FlatState newState() {
+        return newState(FlatState.MAX_DIFF_LAYERS);
+    }
+
+    private FlatState newState(int maxDiffLayers) {
+        return new FlatState(database, maxDiffLayers, tasks::add);
+    }
+
+    private void runCleaner() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLayerCount() {
+        new FlatState(database, 0);
+    }
+
+    @Test
+    public void testUnknownRoot() {
+        FlatState state = newState();
+        assertThat(state.getDiskRoot()).isNull();
+        assertThat(state.getAccount(root(0), alice)).isNull();
+        assertThat(state.getStorage(root(0), alice, slot)).isNull();
+
+        // the filled values are ignored for unknown roots
+        state.fillAccount(root(0), alice, account(9));
+        assertThat(state.getAccount(root(0), alice)).isNull();
+    }
+
+    @Test
+    public void testReadsThroughLayers() {
+        FlatState state = newState();
+        state.addLayer(root(1), diff(root(0), 1));
+        state.addLayer(root(2), diff(root(1), 2));
+
+        // the first layer moved the empty disk layer to its parent root
+        assertThat(state.getDiskRoot()).isEqualTo(root(0));
+        assertThat(state.getLayerCount()).isEqualTo(2);
+
+        assertThat(state.getAccount(root(1), alice)).isEqualTo(account(1));
+        assertThat(state.getAccount(root(2), alice)).isEqualTo(account(2));
+        assertThat(state.getStorage(root(1), alice, slot)).isEqualTo(encoded(1));
+        assertThat(state.getStorage(root(2), alice, slot)).isEqualTo(encoded(2));
+
+        // rows unknown to the layers are read from the trie until filled
+        assertThat(state.getAccount(root(2), bob)).isNull();
+        state.fillAccount(root(2), bob, account(7));
+        assertThat(state.getAccount(root(0), bob)).isEqualTo(account(7));
+        assertThat(state.getAccount(root(2), bob)).isEqualTo(account(7));
+    }
+
+    @Test
+    public void testFillIgnoredWhenChangedByLayer() {
+        FlatState state = newState();
+        state.addLayer(root(1), diff(root(0), 1));
+
+        // the value at root 1 is not the one of the disk layer
+        state.fillAccount(root(1), alice, account(1));
+        assertThat(state.getAccount(root(0), alice)).isNull();
+    }
+
+    @Test
+    public void testDeletedRows() {
+        FlatState state = newState();
+        state.addLayer(root(1), diff(root(0), 1));
+        state.addLayer(root(2), diff(root(1), 0));
+
+        assertThat(state.getStorage(root(1), alice, slot)).isEqualTo(encoded(1));
+        assertThat(state.getStorage(root(2), alice, slot)).isEmpty();
+    }
+
+    @Test
+    public void testDestructedAccount() {
+        FlatState state = newState();
+        state.addLayer(root(1), diff(root(0), 1));
+        database.put(storageKeyOf(bob), encoded(5));
+        assertThat(state.getStorage(root(1), bob, slot)).isEqualTo(encoded(5));
+
+        FlatState.Diff destruct = new FlatState.Diff(root(1));
+        destruct.putStorage(alice, rows(3));
+        destruct.deleteAccount(alice);
+        destruct.deleteAccount(bob);
+        state.addLayer(root(2), destruct);
+
+        assertThat(state.getAccount(root(2), alice)).isEmpty();
+        assertThat(state.getStorage(root(2), alice, slot)).isEmpty();
+        assertThat(state.getStorage(root(2), bob, slot)).isEmpty();
+        assertThat(state.getStorage(root(1), alice, slot)).isEqualTo(encoded(1));
+
+        // once merged, the storage of the destructed accounts is read from the trie
+        state.flatten(root(2));
+        assertThat(state.getDiskRoot()).isEqualTo(root(2));
+        assertThat(state.getStorage(root(2), bob, slot)).isNull();
+        state.fillStorage(root(2), bob, slot, encoded(6));
+        assertThat(state.getStorage(root(2), bob, slot)).isNull();
+
+        // the destructed accounts are persisted
+        FlatState reloaded = newState();
+        assertThat(reloaded.getStorage(root(2), bob, slot)).isNull();
+
+        // the cleaner deletes their rows and removes them from the destructed set
+        tasks.remove(1);
+        runCleaner();
+        assertThat(database.get(storageKeyOf(bob)).isPresent()).isFalse();
+        state.fillStorage(root(2), bob, slot, encoded(6));
+        assertThat(state.getStorage(root(2), bob, slot)).isEqualTo(encoded(6));
+        assertThat(newState().getStorage(root(2), bob, slot)).isEqualTo(encoded(6));
+    }
+
+    @Test
+    public void testMergeOldestLayer() {
+        FlatState state = newState(3);
+        for (int i = 1; i <= 3; i++) {
+            state.addLayer(root(i), diff(root(i - 1), i));
+        }
+        // a side chain forking from root 1
+        state.addLayer(root(10), diff(root(1), 10));
+        assertThat(state.getLayerCount()).isEqualTo(4);
+        assertThat(state.getDiskRoot()).isEqualTo(root(0));
+
+        state.addLayer(root(4), diff(root(3), 4));
+        assertThat(state.getDiskRoot()).isEqualTo(root(1));
+        assertThat(state.getLayerCount()).isEqualTo(4);
+        assertThat(state.getAccount(root(1), alice)).isEqualTo(account(1));
+        assertThat(state.getAccount(root(10), alice)).isEqualTo(account(10));
+        assertThat(state.getAccount(root(0), alice)).isNull();
+
+        state.addLayer(root(5), diff(root(4), 5));
+        assertThat(state.getDiskRoot()).isEqualTo(root(2));
+        // the side chain was not built on the new disk layer
+        assertThat(state.getLayerCount()).isEqualTo(3);
+        assertThat(state.getAccount(root(10), alice)).isNull();
+        assertThat(state.getAccount(root(2), alice)).isEqualTo(account(2));
+        assertThat(state.getStorage(root(2), alice, slot)).isEqualTo(encoded(2));
+        assertThat(state.getStorage(root(5), alice, slot)).isEqualTo(encoded(5));
+    }
+
+    @Test
+    public void testUnknownParent() {
+        FlatState state = newState();
+        state.addLayer(root(1), diff(root(0), 1));
+
+        // dropped while layers exist
+        state.addLayer(root(21), diff(root(20), 21));
+        assertThat(state.getAccount(root(21), alice)).isNull();
+        assertThat(state.getDiskRoot()).isEqualTo(root(0));
+
+        // the disk layer no longer follows the chain
+        state.fillAccount(root(0), bob, account(7));
+        state.flatten(root(1));
+        state.addLayer(root(31), diff(root(30), 31));
+        assertThat(state.getDiskRoot()).isEqualTo(root(30));
+        assertThat(state.getAccount(root(31), alice)).isEqualTo(account(31));
+        assertThat(state.getAccount(root(31), bob)).isNull();
+
+        // the stored rows are ignored until the cleaner deleted them
+        state.fillAccount(root(30), bob, account(8));
+        assertThat(state.getAccount(root(30), bob)).isNull();
+        runCleaner();
+        assertThat(database.get(accountKeyOf(bob)).isPresent()).isFalse();
+        state.fillAccount(root(30), bob, account(8));
+        assertThat(state.getAccount(root(30), bob)).isEqualTo(account(8));
+    }
+
+    @Test
+    public void testChainContinuesFromUnknownRoot() {
+        FlatState state = newState();
+        state.addLayer(root(1), diff(root(0), 1));
+        state.fillAccount(root(0), bob, account(7));
+
+        // for example after the repository was reverted below the diff layers
+        state.addLayer(root(21), diff(root(20), 21));
+        assertThat(state.getDiskRoot()).isEqualTo(root(0));
+
+        // the next block shows the chain continues without the view, which is re-enabled
+        state.addLayer(root(22), diff(root(21), 22));
+        assertThat(state.getDiskRoot()).isEqualTo(root(21));
+        assertThat(state.getLayerCount()).isEqualTo(1);
+        assertThat(state.getAccount(root(22), alice)).isEqualTo(account(22));
+        assertThat(state.getAccount(root(22), bob)).isNull();
+        assertThat(state.getAccount(root(1), alice)).isNull();
+
+        // the clearing is resumed after a restart
+        assertThat(newState().getAccount(root(21), bob)).isNull();
+        runCleaner();
+        assertThat(database.get(accountKeyOf(bob)).isPresent()).isFalse();
+        assertThat(newState().getAccount(root(21), bob)).isNull();
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    public void testFlattenPersists() {
+        FlatState state = newState();
+        state.addLayer(root(1), diff(root(0), 1));
+        state.addLayer(root(2), diff(root(1), 2));
+        state.flatten(root(2));
+        assertThat(state.getLayerCount()).isEqualTo(0);
+
+        FlatState reloaded = newState();
+        assertThat(reloaded.getDiskRoot()).isEqualTo(root(2));
+        assertThat(reloaded.getAccount(root(2), alice)).isEqualTo(account(2));
+        assertThat(reloaded.getStorage(root(2), alice, slot)).isEqualTo(encoded(2));
+
+        // the next block continues from the stored root
+        reloaded.addLayer(root(3), diff(root(2), 3));
+        assertThat(reloaded.getAccount(root(3), alice)).isEqualTo(account(3));
+        assertThat(reloaded.getDiskRoot()).isEqualTo(root(2));
+    }
+
+    private static byte[] accountKeyOf(AionAddress address) {
+        byte[] key = new byte[1 + AionAddress.LENGTH];
+        key[0] = 'a';
+        System.arraycopy(address.toByteArray(), 0, key, 1, AionAddress.LENGTH);
+        return key;
+    }
+
+    private static byte[] storageKeyOf(AionAddress address) {
+        byte[] key = new byte[1 + AionAddress.LENGTH + slot.getData().length];
+        key[0] = 's';
+        System.arraycopy(address.toByteArray(), 0, key, 1, AionAddress.LENGTH);
+        System.arraycopy(slot.getData(), 0, key, 1 + AionAddress.LENGTH, slot.getData().length);
+        return key;
+    }
+}
@@ -0,0 +1,205 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.mcf.config.CfgPrune;
+import org.aion.mcf.config.PruneConfig;
+import org.aion.mcf.db.InternalVmType;
+import org.aion.mcf.db.Repository;
+import org.aion.mcf.db.RepositoryCache;
+import org.aion.rlp.CompactEncoder;
+import org.aion.types.AionAddress;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.util.types.DataWord;
+import org.aion.zero.impl.trie.SecureTrie;
+import org.aion.zero.impl.types.A0BlockHeader;
+import org.aion.zero.impl.types.AionBlock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Unit tests for {@link StateSnapshot}. */
+public class StateSnapshotTest {
+
+    private final RepositoryConfig repoConfig =
+            new RepositoryConfig() {
+                @Override
+                public String getDbPath() {
+                    return "";
+                }
+
+                @Override
+                public PruneConfig getPruneConfig() {
+                    return new CfgPrune(false);
+                }
+
+                @Override
+                public Properties getDatabaseConfig(String db_name) {
+                    Properties props = new Properties();
+                    props.setProperty(DatabaseFactory.Props.DB_TYPE, DBVendor.MOCKDB.toValue());
+                    props.setProperty(DatabaseFactory.Props.ENABLE_HEAP_CACHE, "false");
+                    return props;
+                }
+            };
+
+    // enough storage rows to move the storage out of the contract details
+    private static final int LARGE_STORAGE = 2_000;
+
+    private final AionAddress small = address(1);
+    private final AionAddress large = address(2);
+
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        file = File.createTempFile("state", ".snapshot");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static AionAddress address(int value) {
+        byte[] address = new byte[32];
+        address[0] = (byte) 0xa0;
+        address[31] = (byte) value;
+        return new AionAddress(address);
+    }
+
+    private static ByteArrayWrapper row(int value) {
+        return new DataWord(HashUtil.blake128(BigInteger.valueOf(value).toByteArray()))
+                .toWrapper();
+    }
+
+    private AionBlock createState(AionRepositoryImpl repository) throws Exception {
+        RepositoryCache track = repository.startTracking();
+        for (int i = 10; i < 60; i++) {
+            track.addBalance(address(i), BigInteger.valueOf(i));
+        }
+
+        track.saveVmType(small, InternalVmType.FVM);
+        track.saveCode(small, new byte[] {1, 2, 3});
+        track.addStorageRow(small, row(0), new DataWord(7).toWrapper());
+
+        track.saveVmType(large, InternalVmType.FVM);
+        track.saveCode(large, new byte[] {4, 5, 6});
+        for (int i = 0; i < LARGE_STORAGE; i++) {
+            track.addStorageRow(large, row(i), new DataWord(i + 1).toWrapper());
+        }
+        track.flush();
+        repository.flush();
+
+        A0BlockHeader header =
+                new A0BlockHeader.Builder()
+                        .withNumber(12)
+                        .withStateRoot(repository.getRoot())
+                        .build();
+        return new AionBlock(header, Collections.emptyList());
+    }
+
+    @Test
+    public void testExportAndLoad() throws Exception {
+        AionRepositoryImpl source = AionRepositoryImpl.createForTesting(repoConfig);
+        AionBlock block = createState(source);
+        byte[] root = block.getStateRoot();
+
+        // later changes are not part of the exported state
+        RepositoryCache track = source.startTracking();
+        track.addStorageRow(large, row(LARGE_STORAGE), new DataWord(1).toWrapper());
+        track.addBalance(address(99), BigInteger.ONE);
+        track.flush();
+        source.flush();
+
+        StateSnapshot.Summary exported =
+                StateSnapshot.export(source, block, BigInteger.TEN, file);
+        assertThat(exported.blockNumber).isEqualTo(12);
+        assertThat(exported.stateRoot).isEqualTo(root);
+        assertThat(exported.count(StateSnapshot.Section.DETAILS)).isEqualTo(2);
+        assertThat(exported.count(StateSnapshot.Section.STORAGE)).isGreaterThan(0L);
+
+        // the header is read without loading the state
+        StateSnapshot.Summary header = StateSnapshot.readSummary(file);
+        assertThat(header.blockNumber).isEqualTo(12);
+        assertThat(header.blockHash).isEqualTo(block.getHash());
+        assertThat(header.stateRoot).isEqualTo(root);
+        assertThat(header.block.getEncoded()).isEqualTo(block.getEncoded());
+        assertThat(header.totalDifficulty).isEqualTo(BigInteger.TEN);
+
+        AionRepositoryImpl target = AionRepositoryImpl.createForTesting(repoConfig);
+        StateSnapshot.Summary loaded = StateSnapshot.load(target, file);
+        for (StateSnapshot.Section section : StateSnapshot.Section.values()) {
+            assertThat(loaded.count(section)).isEqualTo(exported.count(section));
+        }
+        assertThat(loaded.blockHash).isEqualTo(block.getHash());
+
+        Repository state = target.getSnapshotTo(root);
+        for (int i = 10; i < 60; i++) {
+            assertThat(state.getBalance(address(i))).isEqualTo(BigInteger.valueOf(i));
+        }
+        assertThat(state.hasAccountState(address(99))).isFalse();
+        assertThat(state.getCode(small)).isEqualTo(new byte[] {1, 2, 3});
+        assertThat(state.getStorageValue(small, row(0))).isEqualTo(new DataWord(7).toWrapper());
+        assertThat(state.getCode(large)).isEqualTo(new byte[] {4, 5, 6});
+        for (int i = 0; i < LARGE_STORAGE; i++) {
+            assertThat(state.getStorageValue(large, row(i)))
+                    .isEqualTo(new DataWord(i + 1).toWrapper());
+        }
+        assertThat(state.getStorageValue(large, row(LARGE_STORAGE))).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCorruptedChunkRejected() throws Exception {
+        AionRepositoryImpl source = AionRepositoryImpl.createForTesting(repoConfig);
+        StateSnapshot.export(source, createState(source), BigInteger.TEN, file);
+
+        // flip a byte inside the compressed data
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long position = raf.length() / 2;
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xff);
+        }
+
+        StateSnapshot.load(AionRepositoryImpl.createForTesting(repoConfig), file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNodeNotMatchingHashRejected() throws Exception {
+        AionRepositoryImpl source = AionRepositoryImpl.createForTesting(repoConfig);
+        AionBlock block = createState(source);
+        byte[] root = block.getStateRoot();
+
+        // replace the root of the exported state with one of its leaves
+        List<byte[]> leaves = new ArrayList<>();
+        new SecureTrie(source.stateDatabase)
+                .scanFullState(
+                        root,
+                        (hash, node) -> {
+                            List<Object> items = node.asList();
+                            if (items.size() == 2
+                                    && CompactEncoder.hasTerminator((byte[]) items.get(0))) {
+                                leaves.add(node.encode());
+                            }
+                        });
+        source.stateDatabase.put(root, leaves.get(0));
+        if (!source.stateDatabase.isAutoCommitEnabled()) {
+            source.stateDatabase.commit();
+        }
+        StateSnapshot.export(source, block, BigInteger.TEN, file);
+
+        StateSnapshot.load(AionRepositoryImpl.createForTesting(repoConfig), file);
+    }
+}
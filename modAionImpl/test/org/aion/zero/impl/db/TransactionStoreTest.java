@@ -0,0 +1,158 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxReceipt;
+import org.aion.base.TransactionTypes;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.db.store.Serializer;
+import org.aion.types.AionAddress;
+import org.aion.zero.impl.types.AionTxInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Unit tests for {@link TransactionStore}. */
+public class TransactionStoreTest {
+
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    private static final ECKey key = ECKeyFac.inst().create();
+
+    // when set, the serialization of the infos fails
+    private volatile boolean failing = false;
+
+    private TransactionStore store;
+
+    @Before
+    public void setup() {
+        MockDB database = new MockDB("transaction", log);
+        database.open();
+        Serializer<List<AionTxInfo>> serializer =
+                new Serializer<>() {
+                    @Override
+                    public byte[] serialize(List<AionTxInfo> infos) {
+                        if (failing) {
+                            throw new IllegalArgumentException("failing write");
+                        }
+                        return AionTransactionStoreSerializer.serializer.serialize(infos);
+                    }
+
+                    @Override
+                    public List<AionTxInfo> deserialize(byte[] stream) {
+                        return AionTransactionStoreSerializer.serializer.deserialize(stream);
+                    }
+                };
+        store = new TransactionStore(database, serializer);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+    }
+
+    private static AionTransaction tx(int nonce) {
+        return AionTransaction.create(
+                key,
+                BigInteger.valueOf(nonce).toByteArray(),
+                new AionAddress(new byte[32]),
+                BigInteger.ONE.toByteArray(),
+                new byte[0],
+                21_000L,
+                10_000_000_000L,
+                TransactionTypes.DEFAULT);
+    }
+
+    private static AionTxInfo info(AionTransaction tx, byte[] blockHash, int index) {
+        AionTxReceipt receipt = new AionTxReceipt();
+        receipt.setTransaction(tx);
+        return AionTxInfo.newInstance(receipt, blockHash, index);
+    }
+
+    private static byte[] hash(int value) {
+        byte[] hash = new byte[32];
+        hash[0] = (byte) value;
+        return hash;
+    }
+
+    @Test
+    public void testStoredInfosVisibleToReads() {
+        List<AionTxInfo> infos = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            infos.add(info(tx(i), hash(1), i));
+        }
+        store.storeAsync(infos);
+
+        for (AionTxInfo info : infos) {
+            byte[] txHash = info.getReceipt().getTransaction().getTransactionHash();
+            AionTxInfo stored = store.get(txHash, hash(1));
+            assertThat(stored).isNotNull();
+            assertThat(stored.getIndex()).isEqualTo(info.getIndex());
+        }
+    }
+
+    @Test
+    public void testInfosOfForkedBlocks() {
+        // the same transaction included in two blocks on different forks
+        AionTransaction tx = tx(0);
+        AionTxInfo first = info(tx, hash(1), 0);
+        AionTxInfo second = info(tx, hash(2), 3);
+        store.storeAsync(Collections.singletonList(first));
+        store.storeAsync(Collections.singletonList(second));
+
+        byte[] txHash = tx.getTransactionHash();
+        assertThat(store.get(txHash)).hasSize(2);
+        assertThat(store.get(txHash, hash(2)).getIndex()).isEqualTo(3);
+
+        // the same block is not stored twice
+        assertThat(store.putToBatch(info(tx, hash(2), 3))).isFalse();
+    }
+
+    @Test
+    public void testFailedWriteKeptUntilWritten() {
+        AionTxInfo stored = info(tx(0), hash(1), 0);
+        store.storeAsync(Collections.singletonList(stored));
+        store.checkWrites();
+
+        failing = true;
+        AionTxInfo lost = info(tx(1), hash(2), 0);
+        store.storeAsync(Collections.singletonList(lost));
+
+        // the reads are not affected
+        byte[] txHash = stored.getReceipt().getTransaction().getTransactionHash();
+        assertThat(store.get(txHash, hash(1))).isNotNull();
+
+        // the failure is reported until the infos are written
+        for (int i = 0; i < 2; i++) {
+            try {
+                store.checkWrites();
+                fail("the write failure was not reported");
+            } catch (IllegalStateException e) {
+                assertThat(e).hasCauseThat().isInstanceOf(IllegalArgumentException.class);
+            }
+        }
+
+        // the infos of the failed write are written by the next check
+        failing = false;
+        store.checkWrites();
+        store.commit();
+        byte[] lostHash = lost.getReceipt().getTransaction().getTransactionHash();
+        assertThat(store.get(lostHash, hash(2))).isNotNull();
+
+        AionTxInfo next = info(tx(2), hash(3), 0);
+        store.storeAsync(Collections.singletonList(next));
+        store.commit();
+        assertThat(store.get(next.getReceipt().getTransaction().getTransactionHash(), hash(3)))
+                .isNotNull();
+    }
+}
@@ -6,6 +6,7 @@ import static org.junit.Assert.assertNotEquals;
 
 import java.lang.reflect.Field;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import org.aion.avm.core.dappreading.JarBuilder;
@@ -709,6 +710,107 @@ public class PendingStateTest {
         assertEquals(1, pendingState.getPendingTxSize());
     }
 
+    private static AionTransaction transfer(ECKey key, long nonce, AionAddress to, long value, long energyPrice) {
+        return AionTransaction.create(
+                key,
+                BigInteger.valueOf(nonce).toByteArray(),
+                to,
+                BigInteger.valueOf(value).toByteArray(),
+                new byte[0],
+                21000,
+                energyPrice,
+                TransactionTypes.DEFAULT);
+    }
+
+    private static AionAddress address(int fill) {
+        byte[] bytes = new byte[32];
+        Arrays.fill(bytes, (byte) fill);
+        return new AionAddress(bytes);
+    }
+
+    private AionBlockSummary connectBlock(List<AionTransaction> txs) {
+        AionBlock block = blockchain.createNewBlock(blockchain.getBestBlock(), txs, false);
+        Pair<ImportResult, AionBlockSummary> connectResult = blockchain.tryToConnectAndFetchSummary(block);
+        assertEquals(connectResult.getLeft(), ImportResult.IMPORTED_BEST);
+
+        pendingState.processBest(block, connectResult.getRight().getReceipts(), connectResult.getRight());
+        return connectResult.getRight();
+    }
+
+    @Test
+    public void carryForwardTransactionsOfUnaffectedAccounts() {
+        ECKey otherKey = bundle.privateKeys.get(1);
+        AionAddress to = address(1);
+
+        AionTransaction pending = transfer(otherKey, 0, to, 1, 10_000_000_000L);
+        assertEquals(TxResponse.SUCCESS, pendingState.addPendingTransaction(pending));
+
+        // the block does not touch any account used by the pending transaction
+        connectBlock(Collections.singletonList(transfer(deployerKey, 0, address(2), 5, 10_000_000_000L)));
+
+        assertEquals(1, pendingState.getPendingTxSize());
+        assertEquals(pending, pendingState.getPendingTransactions().get(0));
+        assertEquals(BigInteger.ONE, pendingState.bestPendingStateNonce(new AionAddress(otherKey.getAddress())));
+        assertEquals(BigInteger.ONE, pendingState.bestPendingStateNonce(new AionAddress(deployerKey.getAddress())));
+        assertEquals(BigInteger.ONE, pendingState.getRepository().getBalance(to));
+        assertEquals(BigInteger.valueOf(5), pendingState.getRepository().getBalance(address(2)));
+    }
+
+    @Test
+    public void carryForwardTransactionFees() {
+        ECKey otherKey = bundle.privateKeys.get(1);
+
+        AionTransaction pending = transfer(otherKey, 0, address(1), 1, 10_000_000_000L);
+        assertEquals(TxResponse.SUCCESS, pendingState.addPendingTransaction(pending));
+
+        AionBlockSummary summary = connectBlock(Collections.emptyList());
+
+        // the fee of the carried transaction is paid to the miner of the new best block
+        AionAddress coinbase = summary.getBlock().getCoinbase();
+        BigInteger fee = BigInteger.valueOf(21000L * 10_000_000_000L);
+        assertEquals(1, pendingState.getPendingTxSize());
+        assertEquals(
+                blockchain.getRepository().getBalance(coinbase).add(fee),
+                pendingState.getRepository().getBalance(coinbase));
+    }
+
+    @Test
+    public void rerunTransactionsWithAffectedRecipient() {
+        ECKey otherKey = bundle.privateKeys.get(1);
+        AionAddress to = address(1);
+
+        AionTransaction pending = transfer(otherKey, 0, to, 1, 10_000_000_000L);
+        assertEquals(TxResponse.SUCCESS, pendingState.addPendingTransaction(pending));
+
+        // the block changes the balance of the pending transaction recipient
+        connectBlock(Collections.singletonList(transfer(deployerKey, 0, to, 5, 10_000_000_000L)));
+
+        assertEquals(1, pendingState.getPendingTxSize());
+        assertEquals(BigInteger.ONE, pendingState.bestPendingStateNonce(new AionAddress(otherKey.getAddress())));
+        assertEquals(BigInteger.valueOf(6), pendingState.getRepository().getBalance(to));
+    }
+
+    @Test
+    public void rerunTransactionsOfSenderWithReplacedTransaction() {
+        AionAddress to = address(1);
+
+        AionTransaction tx1 = transfer(deployerKey, 0, to, 1, 10_000_000_000L);
+        AionTransaction tx2 = transfer(deployerKey, 1, to, 2, 10_000_000_000L);
+        AionTransaction replacement = transfer(deployerKey, 0, to, 10, 20_000_000_000L);
+
+        assertEquals(TxResponse.SUCCESS, pendingState.addPendingTransaction(tx1));
+        assertEquals(TxResponse.SUCCESS, pendingState.addPendingTransaction(tx2));
+        assertEquals(TxResponse.REPAID, pendingState.addPendingTransaction(replacement));
+
+        connectBlock(Collections.emptyList());
+
+        assertEquals(2, pendingState.getPendingTxSize());
+        assertEquals(replacement, pendingState.getPendingTransactions().get(0));
+        assertEquals(BigInteger.TWO, pendingState.bestPendingStateNonce(new AionAddress(deployerKey.getAddress())));
+        // the changes made by the replaced transaction are reverted
+        assertEquals(BigInteger.valueOf(12), pendingState.getRepository().getBalance(to));
+    }
+
     @Test
     public void energyLimitMinimum() {
         AionTransaction tx =
@@ -0,0 +1,78 @@
+package org.aion.zero.impl.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.blockchain.Block;
+import org.aion.mcf.blockchain.BlockHeader;
+import org.aion.util.TestResources;
+import org.aion.zero.impl.blockchain.ChainConfiguration;
+import org.aion.zero.impl.valid.BlockHeaderValidator;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+/**
+ * Measures the throughput of the header validation stage of the sync as a function of the number
+ * of threads checking the header rules, using consecutive mainnet headers.
+ */
+@Ignore
+public class BatchHeaderBenchmark {
+
+    private static final Logger log = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
+
+    // the size of the largest header requests
+    private static final int BATCH_SIZE = 192;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void benchHeadersPerSecond() throws InterruptedException {
+        List<BlockHeader> headers = new ArrayList<>();
+        for (Block block : TestResources.consecutiveBlocks(BATCH_SIZE)) {
+            headers.add(block.getHeader());
+        }
+        assertThat(headers).isNotEmpty();
+
+        BlockHeaderValidator blockHeaderValidator =
+                new ChainConfiguration().createBlockHeaderValidator();
+
+        System.out.println("threads, headers/s");
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= processors; threads++) {
+            ExecutorService workers = Executors.newFixedThreadPool(threads);
+            TaskValidateHeaders task =
+                    new TaskValidateHeaders(
+                            new AtomicBoolean(true),
+                            new LinkedBlockingQueue<>(),
+                            new LinkedBlockingQueue<>(),
+                            Collections.emptyMap(),
+                            blockHeaderValidator,
+                            workers,
+                            log);
+            HeadersWrapper batch = new HeadersWrapper(0, "bench", headers);
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                assertThat(task.validate(batch)).isNotNull();
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                task.validate(batch);
+            }
+            long elapsed = System.nanoTime() - start;
+            workers.shutdown();
+
+            long headersPerSecond = (long) headers.size() * ITERATIONS * 1_000_000_000L / elapsed;
+            System.out.println(threads + ", " + headersPerSecond);
+        }
+    }
+}
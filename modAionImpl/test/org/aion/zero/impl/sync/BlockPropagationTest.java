@@ -13,6 +13,8 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.base.AionTransaction;
+import org.aion.base.TransactionTypes;
 import org.aion.crypto.ECKey;
 import org.aion.crypto.ECKeyFac;
 import org.aion.crypto.HashUtil;
@@ -24,11 +26,15 @@ import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.IPeerMetric;
 import org.aion.p2p.Msg;
+import org.aion.types.AionAddress;
+import org.aion.vm.avm.LongLivedAvm;
 import org.aion.zero.impl.blockchain.StandaloneBlockchain;
 import org.aion.zero.impl.pendingState.AionPendingStateImpl;
 import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.db.AionRepositoryImpl;
 import org.aion.zero.impl.sync.handler.BlockPropagationHandler;
+import org.aion.zero.impl.sync.msg.BroadcastCompactBlock;
+import org.aion.zero.impl.sync.msg.RequestBlockTxs;
 import org.aion.zero.impl.types.AionBlock;
 import org.junit.Test;
 
@@ -544,6 +550,283 @@ public class BlockPropagationTest {
         assertThat(sendCount.get()).isEqualTo(1);
     }
 
+    private static AionTransaction newTransaction(ECKey key) {
+        return AionTransaction.create(
+                key,
+                BigInteger.ZERO.toByteArray(),
+                new AionAddress(new byte[32]),
+                BigInteger.ONE.toByteArray(),
+                new byte[0],
+                1_000_000L,
+                10_000_000_000L,
+                TransactionTypes.DEFAULT);
+    }
+
+    /** Test that a compact block is rebuilt from the pool and relayed as a compact block */
+    @Test
+    public void testCompactBlockRebuiltFromPool() {
+        LongLivedAvm.createAndStartLongLivedAvm();
+        try {
+            List<ECKey> accounts = generateDefaultAccounts();
+
+            StandaloneBlockchain.Bundle bundle =
+                    new StandaloneBlockchain.Builder()
+                            .withValidatorConfiguration("simple")
+                            .withDefaultAccounts(accounts)
+                            .withAvmEnabled()
+                            .build();
+
+            AionTransaction tx = newTransaction(accounts.get(0));
+            AionBlock block =
+                    bundle.bc.createNewBlock(
+                            bundle.bc.getGenesis(), Collections.singletonList(tx), true);
+            assertThat(block.getTransactionsList()).hasSize(1);
+
+            byte[] sender = HashUtil.h256("node1".getBytes());
+            byte[] receiver = HashUtil.h256("receiver".getBytes());
+
+            NodeMock senderMock = new NodeMock(sender, 1);
+            NodeMock receiverMock = new NodeMock(receiver, 0);
+
+            Map<Integer, INode> node = new HashMap<>();
+            node.put(1, senderMock);
+            node.put(2, receiverMock);
+
+            List<Msg> sent = new ArrayList<>();
+            P2pMock p2pMock =
+                    new P2pMock(node) {
+                        @Override
+                        public void send(int _nodeId, String s, Msg _msg) {
+                            if (_nodeId != receiverMock.getIdHash()) {
+                                throw new RuntimeException("should only send to receiver");
+                            }
+                            sent.add(_msg);
+                        }
+                    };
+
+            StandaloneBlockchain.Bundle anotherBundle =
+                    new StandaloneBlockchain.Builder()
+                            .withValidatorConfiguration("simple")
+                            .withDefaultAccounts(accounts)
+                            .withAvmEnabled()
+                            .build();
+
+            IEventMgr evtMgr = this.loadEventMgr();
+            anotherBundle.bc.setEventManager(evtMgr);
+            AionPendingStateImpl pendingState =
+                    AionPendingStateImpl.createForTesting(
+                            CfgAion.inst(), anotherBundle.bc, anotherBundle.bc.getRepository());
+            pendingState.updateBest();
+            pendingState.addPendingTransaction(tx);
+            assertThat(pendingState.getPooledTransactions()).contains(tx);
+
+            SyncStats syncStats = new SyncStats(bundle.bc.getBestBlock().getNumber(), true);
+            BlockPropagationHandler handler =
+                    new BlockPropagationHandler(
+                            1024,
+                            anotherBundle.bc,
+                            syncStats,
+                            p2pMock,
+                            anotherBundle.bc.getBlockHeaderValidator(),
+                            false,
+                            (byte) 2,
+                            pendingState,
+                            true);
+
+            BroadcastCompactBlock compact =
+                    BroadcastCompactBlock.decode(new BroadcastCompactBlock(block).encode());
+            assertThat(handler.processIncomingCompactBlock(senderMock.getIdHash(), "test", compact))
+                    .isEqualTo(BlockPropagationHandler.PropStatus.PROP_CONNECTED);
+            assertThat(anotherBundle.bc.getBestBlock().getHash()).isEqualTo(block.getHash());
+
+            // relayed as a compact block, and kept to answer the transaction requests
+            assertThat(sent).hasSize(1);
+            assertThat(sent.get(0)).isInstanceOf(BroadcastCompactBlock.class);
+            assertThat(handler.getRelayedBlock(block.getHash()).getHash())
+                    .isEqualTo(block.getHash());
+
+            // the block is only processed once
+            assertThat(handler.processIncomingCompactBlock(senderMock.getIdHash(), "test", compact))
+                    .isEqualTo(BlockPropagationHandler.PropStatus.DROPPED);
+        } finally {
+            LongLivedAvm.destroy();
+        }
+    }
+
+    /** Test that the transactions missing from the pool are requested from the sender */
+    @Test
+    public void testCompactBlockRequestsMissingTransactions() {
+        LongLivedAvm.createAndStartLongLivedAvm();
+        try {
+            List<ECKey> accounts = generateDefaultAccounts();
+
+            StandaloneBlockchain.Bundle bundle =
+                    new StandaloneBlockchain.Builder()
+                            .withValidatorConfiguration("simple")
+                            .withDefaultAccounts(accounts)
+                            .withAvmEnabled()
+                            .build();
+
+            AionTransaction tx = newTransaction(accounts.get(1));
+            AionBlock block =
+                    bundle.bc.createNewBlock(
+                            bundle.bc.getGenesis(), Collections.singletonList(tx), true);
+
+            byte[] sender = HashUtil.h256("node1".getBytes());
+            NodeMock senderMock = new NodeMock(sender, 1);
+
+            Map<Integer, INode> node = new HashMap<>();
+            node.put(1, senderMock);
+
+            List<Msg> sent = new ArrayList<>();
+            P2pMock p2pMock =
+                    new P2pMock(node) {
+                        @Override
+                        public void send(int _nodeId, String s, Msg _msg) {
+                            sent.add(_msg);
+                        }
+                    };
+
+            StandaloneBlockchain.Bundle anotherBundle =
+                    new StandaloneBlockchain.Builder()
+                            .withValidatorConfiguration("simple")
+                            .withDefaultAccounts(accounts)
+                            .withAvmEnabled()
+                            .build();
+
+            IEventMgr evtMgr = this.loadEventMgr();
+            anotherBundle.bc.setEventManager(evtMgr);
+            SyncStats syncStats = new SyncStats(bundle.bc.getBestBlock().getNumber(), true);
+            BlockPropagationHandler handler =
+                    new BlockPropagationHandler(
+                            1024,
+                            anotherBundle.bc,
+                            syncStats,
+                            p2pMock,
+                            anotherBundle.bc.getBlockHeaderValidator(),
+                            false,
+                            (byte) 2,
+                            AionPendingStateImpl.createForTesting(
+                                    CfgAion.inst(), anotherBundle.bc, AionRepositoryImpl.inst()));
+
+            assertThat(
+                            handler.processIncomingCompactBlock(
+                                    senderMock.getIdHash(),
+                                    "test",
+                                    new BroadcastCompactBlock(block)))
+                    .isEqualTo(BlockPropagationHandler.PropStatus.REQUESTED);
+            assertThat(sent).hasSize(1);
+            RequestBlockTxs request = (RequestBlockTxs) sent.get(0);
+            assertThat(request.getBlockHash()).isEqualTo(block.getHash());
+            assertThat(request.getIndexes()).asList().containsExactly(0);
+
+            // only the peer which was asked can complete the block
+            List<byte[]> txs = Collections.singletonList(tx.getEncoded());
+            assertThat(handler.processIncomingBlockTxs(2, "other", block.getHash(), txs))
+                    .isEqualTo(BlockPropagationHandler.PropStatus.DROPPED);
+            assertThat(
+                            handler.processIncomingBlockTxs(
+                                    senderMock.getIdHash(), "test", block.getHash(), txs))
+                    .isEqualTo(BlockPropagationHandler.PropStatus.CONNECTED);
+            assertThat(anotherBundle.bc.getBestBlock().getHash()).isEqualTo(block.getHash());
+        } finally {
+            LongLivedAvm.destroy();
+        }
+    }
+
+    /** Test that a compact block is asked to another announcing peer when the first times out */
+    @Test
+    public void testCompactBlockTransactionsRetried() {
+        LongLivedAvm.createAndStartLongLivedAvm();
+        try {
+            List<ECKey> accounts = generateDefaultAccounts();
+
+            StandaloneBlockchain.Bundle bundle =
+                    new StandaloneBlockchain.Builder()
+                            .withValidatorConfiguration("simple")
+                            .withDefaultAccounts(accounts)
+                            .withAvmEnabled()
+                            .build();
+
+            AionTransaction tx = newTransaction(accounts.get(1));
+            AionBlock block =
+                    bundle.bc.createNewBlock(
+                            bundle.bc.getGenesis(), Collections.singletonList(tx), true);
+
+            List<Integer> sentTo = new ArrayList<>();
+            List<Msg> sent = new ArrayList<>();
+            P2pMock p2pMock =
+                    new P2pMock(new HashMap<>()) {
+                        @Override
+                        public void send(int _nodeId, String s, Msg _msg) {
+                            sentTo.add(_nodeId);
+                            sent.add(_msg);
+                        }
+                    };
+
+            StandaloneBlockchain.Bundle anotherBundle =
+                    new StandaloneBlockchain.Builder()
+                            .withValidatorConfiguration("simple")
+                            .withDefaultAccounts(accounts)
+                            .withAvmEnabled()
+                            .build();
+
+            IEventMgr evtMgr = this.loadEventMgr();
+            anotherBundle.bc.setEventManager(evtMgr);
+            SyncStats syncStats = new SyncStats(bundle.bc.getBestBlock().getNumber(), true);
+            BlockPropagationHandler handler =
+                    new BlockPropagationHandler(
+                            1024,
+                            anotherBundle.bc,
+                            syncStats,
+                            p2pMock,
+                            anotherBundle.bc.getBlockHeaderValidator(),
+                            false,
+                            (byte) 2,
+                            AionPendingStateImpl.createForTesting(
+                                    CfgAion.inst(), anotherBundle.bc, AionRepositoryImpl.inst()));
+
+            long start = System.currentTimeMillis();
+            assertThat(
+                            handler.processIncomingCompactBlock(
+                                    1, "first", new BroadcastCompactBlock(block)))
+                    .isEqualTo(BlockPropagationHandler.PropStatus.REQUESTED);
+            // the second announcement is only remembered
+            assertThat(
+                            handler.processIncomingCompactBlock(
+                                    2, "second", new BroadcastCompactBlock(block)))
+                    .isEqualTo(BlockPropagationHandler.PropStatus.DROPPED);
+            assertThat(sentTo).containsExactly(1);
+
+            // the second peer is asked once the first one timed out
+            long timedOut = start + BlockPropagationHandler.BLOCK_TXS_TIMEOUT_MS;
+            handler.retryIncompleteBlocks(timedOut);
+            assertThat(sentTo).containsExactly(1, 2).inOrder();
+            RequestBlockTxs request = (RequestBlockTxs) sent.get(1);
+            assertThat(request.getBlockHash()).isEqualTo(block.getHash());
+            assertThat(request.getIndexes()).asList().containsExactly(0);
+
+            // no peer is left to ask, the block is evicted
+            handler.retryIncompleteBlocks(timedOut + BlockPropagationHandler.BLOCK_TXS_TIMEOUT_MS);
+            assertThat(sent).hasSize(2);
+            List<byte[]> txs = Collections.singletonList(tx.getEncoded());
+            assertThat(handler.processIncomingBlockTxs(2, "second", block.getHash(), txs))
+                    .isEqualTo(BlockPropagationHandler.PropStatus.DROPPED);
+
+            // a new announcement requests the transactions again
+            assertThat(
+                            handler.processIncomingCompactBlock(
+                                    3, "third", new BroadcastCompactBlock(block)))
+                    .isEqualTo(BlockPropagationHandler.PropStatus.REQUESTED);
+            assertThat(sentTo).containsExactly(1, 2, 3).inOrder();
+            assertThat(handler.processIncomingBlockTxs(3, "third", block.getHash(), txs))
+                    .isEqualTo(BlockPropagationHandler.PropStatus.CONNECTED);
+            assertThat(anotherBundle.bc.getBestBlock().getHash()).isEqualTo(block.getHash());
+        } finally {
+            LongLivedAvm.destroy();
+        }
+    }
+
     private IEventMgr loadEventMgr() {
         ServiceLoader.load(EventMgrModule.class);
         IEventMgr eventMgr = null;
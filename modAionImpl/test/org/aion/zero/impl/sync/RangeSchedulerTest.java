@@ -0,0 +1,227 @@
+package org.aion.zero.impl.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.zero.impl.sync.RangeScheduler.RANGE_SIZE;
+import static org.aion.zero.impl.sync.RangeScheduler.RANGE_TIMEOUT;
+import static org.aion.zero.impl.sync.RangeScheduler.STALL_TIMEOUT;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.blockchain.Block;
+import org.aion.p2p.INode;
+import org.aion.zero.impl.sync.RangeScheduler.Assignment;
+import org.aion.zero.impl.sync.statistics.RequestType;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+/** Unit tests for {@link RangeScheduler}. */
+public class RangeSchedulerTest {
+
+    private static final Logger log = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
+
+    private final SyncStats stats = new SyncStats(0L, false);
+    private final BlockingQueue<BlocksWrapper> downloadedBlocks = new LinkedBlockingQueue<>();
+    private final RangeScheduler scheduler = new RangeScheduler(stats, downloadedBlocks, log);
+
+    private static INode node(int idHash, long best) {
+        INode node = mock(INode.class);
+        when(node.getIdHash()).thenReturn(idHash);
+        when(node.getIdShort()).thenReturn("node" + idHash);
+        when(node.getBestBlockNumber()).thenReturn(best);
+        return node;
+    }
+
+    private static List<Block> blocks(long from, int count) {
+        List<Block> blocks = new ArrayList<>();
+        for (long number = from; number < from + count; number++) {
+            Block block = mock(Block.class);
+            when(block.getNumber()).thenReturn(number);
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    private boolean deliver(INode node, Assignment assignment, long now) {
+        return deliver(node, assignment.from, assignment.size, now);
+    }
+
+    private boolean deliver(INode node, long from, int count, long now) {
+        return scheduler.deliver(node.getIdHash(), node.getIdShort(), blocks(from, count), now);
+    }
+
+    private void recordResponseTime(INode node, long millis) {
+        for (RequestType type : new RequestType[] {RequestType.HEADERS, RequestType.BODIES}) {
+            stats.updateRequestTime(node.getIdShort(), 0, type);
+            stats.updateResponseTime(node.getIdShort(), millis * 1_000_000, type);
+        }
+    }
+
+    @Test
+    public void testDisjointRangesForIdlePeers() {
+        INode first = node(1, 1000);
+        INode second = node(2, 1000);
+        INode third = node(3, 1000);
+
+        List<Assignment> assignments = scheduler.assign(100, List.of(first, second, third), 0);
+        assertThat(assignments).hasSize(3);
+        for (int i = 0; i < assignments.size(); i++) {
+            assertThat(assignments.get(i).from).isEqualTo(101 + i * RANGE_SIZE);
+            assertThat(assignments.get(i).size).isEqualTo(RANGE_SIZE);
+        }
+
+        // the peers are busy until they deliver
+        assertThat(scheduler.assign(100, List.of(first, second, third), 1)).isEmpty();
+        assertThat(scheduler.assignedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testRangeLimitedByPeerBest() {
+        List<Assignment> assignments =
+                scheduler.assign(100, List.of(node(1, 110), node(2, 110)), 0);
+
+        assertThat(assignments).hasSize(1);
+        assertThat(assignments.get(0).from).isEqualTo(101);
+        assertThat(assignments.get(0).size).isEqualTo(10);
+    }
+
+    @Test
+    public void testFastestPeerGetsLowestRange() {
+        INode unknown = node(1, 1000);
+        INode slow = node(2, 1000);
+        INode fast = node(3, 1000);
+        recordResponseTime(slow, 900);
+        recordResponseTime(fast, 50);
+
+        List<Assignment> assignments = scheduler.assign(100, List.of(unknown, slow, fast), 0);
+        assertThat(assignments).hasSize(3);
+        assertThat(assignments.get(0).node).isSameAs(fast);
+        assertThat(assignments.get(1).node).isSameAs(slow);
+        assertThat(assignments.get(2).node).isSameAs(unknown);
+        assertThat(assignments.get(0).from).isEqualTo(101);
+
+        // the measured deliveries take precedence over the response times
+        deliver(unknown, assignments.get(2), 10);
+        deliver(fast, assignments.get(0), 5_000);
+        deliver(slow, assignments.get(1), 5_000);
+
+        assignments = scheduler.assign(100, List.of(slow, fast, unknown), 5_000);
+        assertThat(assignments.get(0).node).isSameAs(unknown);
+    }
+
+    @Test
+    public void testDeliveredRangesQueuedInOrder() {
+        INode first = node(1, 1000);
+        INode second = node(2, 1000);
+        List<Assignment> assignments = scheduler.assign(100, List.of(first, second), 0);
+
+        assertThat(deliver(second, assignments.get(1), 10)).isTrue();
+        assertThat(downloadedBlocks).isEmpty();
+
+        assertThat(deliver(first, assignments.get(0), 20)).isTrue();
+        assertThat(downloadedBlocks).hasSize(2);
+
+        BlocksWrapper lower = downloadedBlocks.poll();
+        assertThat(lower.getNodeIdHash()).isEqualTo(1);
+        assertThat(lower.getBlocks().get(0).getNumber()).isEqualTo(101);
+        BlocksWrapper upper = downloadedBlocks.poll();
+        assertThat(upper.getNodeIdHash()).isEqualTo(2);
+        assertThat(upper.getBlocks().get(0).getNumber()).isEqualTo(101 + RANGE_SIZE);
+        assertThat(scheduler.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testPartialDeliveryAssignsRest() {
+        INode node = node(1, 1000);
+        Assignment assignment = scheduler.assign(100, List.of(node), 0).get(0);
+
+        deliver(node, assignment.from, 15, 10);
+        assertThat(downloadedBlocks).hasSize(1);
+        assertThat(downloadedBlocks.poll().getBlocks()).hasSize(15);
+
+        Assignment rest = scheduler.assign(100, List.of(node), 20).get(0);
+        assertThat(rest.from).isEqualTo(116);
+        assertThat(rest.size).isEqualTo(RANGE_SIZE - 15);
+    }
+
+    @Test
+    public void testTimedOutRangeReassigned() {
+        INode slow = node(1, 1000);
+        INode other = node(2, 1000);
+        scheduler.assign(100, List.of(slow), 0);
+
+        assertThat(scheduler.assign(100, List.of(slow), RANGE_TIMEOUT)).isEmpty();
+        List<Assignment> assignments =
+                scheduler.assign(100, List.of(slow, other), RANGE_TIMEOUT + 1);
+
+        // the range is given to the other peer, the slow peer gets the next one
+        assertThat(assignments).hasSize(2);
+        assertThat(assignments.get(0).node).isSameAs(other);
+        assertThat(assignments.get(0).from).isEqualTo(101);
+        assertThat(assignments.get(1).node).isSameAs(slow);
+        assertThat(assignments.get(1).from).isEqualTo(101 + RANGE_SIZE);
+
+        // the late delivery is accepted and the second one dropped
+        assertThat(deliver(slow, 101, RANGE_SIZE, RANGE_TIMEOUT + 2)).isTrue();
+        assertThat(deliver(other, 101, RANGE_SIZE, RANGE_TIMEOUT + 3)).isTrue();
+        assertThat(downloadedBlocks).hasSize(1);
+        assertThat(downloadedBlocks.poll().getNodeIdHash()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUnscheduledBlocksNotHandled() {
+        INode node = node(1, 1000);
+        scheduler.assign(100, List.of(node), 0);
+
+        assertThat(deliver(node, 50, 10, 1)).isFalse();
+        assertThat(deliver(node, 101 + RANGE_SIZE, 10, 1)).isFalse();
+        assertThat(downloadedBlocks).isEmpty();
+    }
+
+    @Test
+    public void testDeliveryFromOtherPeerNotHandled() {
+        INode node = node(1, 1000);
+        INode other = node(2, 1000);
+        scheduler.assign(100, List.of(node), 0);
+
+        // the blocks of a range are only taken from the peers it was assigned to
+        assertThat(deliver(other, 101, RANGE_SIZE, 1)).isFalse();
+        assertThat(downloadedBlocks).isEmpty();
+        assertThat(deliver(node, 101, RANGE_SIZE, 2)).isTrue();
+        assertThat(downloadedBlocks).hasSize(1);
+        assertThat(downloadedBlocks.poll().getNodeIdHash()).isEqualTo(1);
+    }
+
+    @Test
+    public void testImportedRangesDropped() {
+        INode first = node(1, 1000);
+        INode second = node(2, 1000);
+        scheduler.assign(100, List.of(first, second), 0);
+
+        // the blocks were imported from elsewhere in the meantime
+        List<Assignment> assignments = scheduler.assign(300, List.of(first, second), 1);
+        assertThat(assignments).hasSize(2);
+        assertThat(assignments.get(0).from).isEqualTo(301);
+        assertThat(assignments.get(1).from).isEqualTo(301 + RANGE_SIZE);
+        assertThat(scheduler.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRestartWhenImportStalls() {
+        INode node = node(1, 1000);
+        Assignment assignment = scheduler.assign(100, List.of(node), 0).get(0);
+        deliver(node, assignment, 10);
+        assertThat(scheduler.assign(100, List.of(node), 20).get(0).from)
+                .isEqualTo(101 + RANGE_SIZE);
+
+        // the released blocks were not imported
+        List<Assignment> assignments = scheduler.assign(100, List.of(node), STALL_TIMEOUT + 1);
+        assertThat(assignments).hasSize(1);
+        assertThat(assignments.get(0).from).isEqualTo(101);
+    }
+}
@@ -268,6 +268,16 @@ public class TaskImportBlocksTest {
                                             public int getArchiveRate() {
                                                 return 0;
                                             }
+
+                                            @Override
+                                            public boolean isJournalPersisted() {
+                                                return false;
+                                            }
+
+                                            @Override
+                                            public int getJournalWindow() {
+                                                return 0;
+                                            }
                                         };
                                     }
 
@@ -0,0 +1,159 @@
+package org.aion.zero.impl.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.blockchain.BlockHeader;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.exceptions.HeaderStructureException;
+import org.aion.zero.impl.types.A0BlockHeader;
+import org.aion.zero.impl.valid.BlockHeaderRule;
+import org.aion.zero.impl.valid.BlockHeaderValidator;
+import org.aion.zero.impl.valid.RuleError;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+/** Unit tests for {@link TaskValidateHeaders}. */
+public class TaskValidateHeadersTest {
+
+    private static final Logger log = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
+
+    // the numbers of the headers failing validation and of the ones whose validation throws
+    private final Set<Long> invalid = ConcurrentHashMap.newKeySet();
+    private final Set<Long> failing = ConcurrentHashMap.newKeySet();
+
+    private final Map<ByteArrayWrapper, Object> importedBlockHashes = new HashMap<>();
+    private final BlockingQueue<HeadersWrapper> receivedHeaders = new LinkedBlockingQueue<>();
+    private final BlockingQueue<HeadersWrapper> downloadedHeaders = new LinkedBlockingQueue<>();
+    private ExecutorService workers;
+    private TaskValidateHeaders task;
+
+    private class TestRule extends BlockHeaderRule {
+        @Override
+        public boolean validate(BlockHeader header, List<RuleError> errors) {
+            if (failing.contains(header.getNumber())) {
+                throw new IllegalStateException("unexpected header");
+            }
+            if (invalid.contains(header.getNumber())) {
+                addError("Invalid header", errors);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    @Before
+    public void setup() {
+        workers = Executors.newFixedThreadPool(4);
+        task =
+                new TaskValidateHeaders(
+                        new AtomicBoolean(true),
+                        receivedHeaders,
+                        downloadedHeaders,
+                        importedBlockHashes,
+                        new BlockHeaderValidator(Collections.singletonList(new TestRule())),
+                        workers,
+                        log);
+    }
+
+    @After
+    public void tearDown() {
+        workers.shutdownNow();
+    }
+
+    private static List<BlockHeader> chain(long first, int count)
+            throws HeaderStructureException {
+        List<BlockHeader> headers = new ArrayList<>();
+        byte[] parent = new byte[32];
+        for (long number = first; number < first + count; number++) {
+            A0BlockHeader header =
+                    new A0BlockHeader.Builder().withParentHash(parent).withNumber(number).build();
+            headers.add(header);
+            parent = header.getHash();
+        }
+        return headers;
+    }
+
+    @Test
+    public void testValidBatch() throws Exception {
+        List<BlockHeader> headers = chain(10, 64);
+        HeadersWrapper valid = task.validate(new HeadersWrapper(7, "node", headers));
+
+        assertThat(valid.getNodeIdHash()).isEqualTo(7);
+        assertThat(valid.getDisplayId()).isEqualTo("node");
+        assertThat(valid.getHeaders()).containsExactlyElementsIn(headers).inOrder();
+    }
+
+    @Test
+    public void testImportedHeadersDropped() throws Exception {
+        List<BlockHeader> headers = chain(10, 8);
+        for (BlockHeader header : headers.subList(0, 3)) {
+            importedBlockHashes.put(ByteArrayWrapper.wrap(header.getHash()), new Object());
+        }
+
+        HeadersWrapper valid = task.validate(new HeadersWrapper(7, "node", headers));
+        assertThat(valid.getHeaders()).containsExactlyElementsIn(headers.subList(3, 8)).inOrder();
+
+        for (BlockHeader header : headers) {
+            importedBlockHashes.put(ByteArrayWrapper.wrap(header.getHash()), new Object());
+        }
+        assertThat(task.validate(new HeadersWrapper(7, "node", headers))).isNull();
+    }
+
+    @Test
+    public void testInvalidHeaderRejectsBatch() throws Exception {
+        invalid.add(40L);
+        assertThat(task.validate(new HeadersWrapper(7, "node", chain(10, 64)))).isNull();
+    }
+
+    @Test
+    public void testFailingValidationRejectsBatch() throws Exception {
+        failing.add(12L);
+        assertThat(task.validate(new HeadersWrapper(7, "node", chain(10, 64)))).isNull();
+    }
+
+    @Test
+    public void testInconsistentHeadersRejectBatch() throws Exception {
+        List<BlockHeader> headers = chain(10, 8);
+        headers.remove(4);
+        assertThat(task.validate(new HeadersWrapper(7, "node", headers))).isNull();
+
+        // the parent hash does not match
+        headers = chain(10, 4);
+        headers.addAll(chain(14, 4));
+        assertThat(task.validate(new HeadersWrapper(7, "node", headers))).isNull();
+    }
+
+    @Test(timeout = 10_000)
+    public void testQueuesValidBatches() throws Exception {
+        Thread thread = new Thread(task, "sync-vh");
+        thread.setDaemon(true);
+        thread.start();
+
+        invalid.add(20L);
+        receivedHeaders.add(new HeadersWrapper(1, "invalid", chain(16, 8)));
+        List<BlockHeader> headers = chain(30, 8);
+        receivedHeaders.add(new HeadersWrapper(2, "valid", headers));
+
+        HeadersWrapper valid = downloadedHeaders.poll(5, TimeUnit.SECONDS);
+        assertThat(valid.getDisplayId()).isEqualTo("valid");
+        assertThat(valid.getHeaders()).containsExactlyElementsIn(headers).inOrder();
+        assertThat(downloadedHeaders).isEmpty();
+    }
+}
@@ -0,0 +1,93 @@
+package org.aion.zero.impl.sync.msg;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.List;
+import org.aion.base.AionTransaction;
+import org.aion.base.TransactionTypes;
+import org.aion.crypto.ECKeyFac;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.types.AionAddress;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.types.AionBlock;
+import org.junit.Test;
+
+/** Unit tests for {@link BroadcastCompactBlock} messages. */
+public class BroadcastCompactBlockTest {
+
+    private static AionTransaction newTransaction() {
+        return AionTransaction.create(
+                ECKeyFac.inst().create(),
+                BigInteger.ZERO.toByteArray(),
+                new AionAddress(new byte[32]),
+                BigInteger.ONE.toByteArray(),
+                new byte[0],
+                1_000_000L,
+                10_000_000_000L,
+                TransactionTypes.DEFAULT);
+    }
+
+    @Test
+    public void testHeader() {
+        BroadcastCompactBlock message = new BroadcastCompactBlock(AionBlock.newEmptyBlock());
+        assertThat(message.getHeader().getVer()).isEqualTo(Ver.V0);
+        assertThat(message.getHeader().getAction()).isEqualTo(Act.BROADCAST_COMPACT_BLOCK);
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        AionTransaction first = newTransaction();
+        AionTransaction second = newTransaction();
+        AionBlock block =
+                new AionBlock(AionBlock.newEmptyBlock().getHeader(), List.of(first, second));
+
+        BroadcastCompactBlock message = new BroadcastCompactBlock(block);
+        BroadcastCompactBlock decoded = BroadcastCompactBlock.decode(message.encode());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getBlockHeader().getHash()).isEqualTo(block.getHash());
+        assertThat(decoded.getShortIds())
+                .asList()
+                .containsExactly(
+                        BroadcastCompactBlock.shortId(first.getTransactionHash()),
+                        BroadcastCompactBlock.shortId(second.getTransactionHash()))
+                .inOrder();
+
+        // the short ids are much smaller than the transactions
+        assertThat(message.encode().length).isLessThan(block.getEncoded().length);
+    }
+
+    @Test
+    public void testEncodeDecode_withoutTransactions() {
+        AionBlock block = AionBlock.newEmptyBlock();
+        BroadcastCompactBlock decoded =
+                BroadcastCompactBlock.decode(new BroadcastCompactBlock(block).encode());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getBlockHeader().getHash()).isEqualTo(block.getHash());
+        assertThat(decoded.getShortIds()).isEmpty();
+    }
+
+    @Test
+    public void testDecode_invalid() {
+        byte[] header = AionBlock.newEmptyBlock().getHeader().getEncoded();
+
+        assertThat(BroadcastCompactBlock.decode(null)).isNull();
+        assertThat(BroadcastCompactBlock.decode(new byte[0])).isNull();
+        assertThat(BroadcastCompactBlock.decode(RLP.encodeList(header))).isNull();
+        // the short ids must be a multiple of their size
+        assertThat(
+                        BroadcastCompactBlock.decode(
+                                RLP.encodeList(header, RLP.encodeElement(new byte[7]))))
+                .isNull();
+        // the header must be a list
+        assertThat(
+                        BroadcastCompactBlock.decode(
+                                RLP.encodeList(
+                                        RLP.encodeElement(new byte[32]),
+                                        RLP.encodeElement(new byte[8]))))
+                .isNull();
+    }
+}
@@ -0,0 +1,61 @@
+package org.aion.zero.impl.sync.msg;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.p2p.V1Constants.HASH_SIZE;
+
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.zero.impl.sync.Act;
+import org.junit.Test;
+
+/** Unit tests for {@link RequestBlockTxs} messages. */
+public class RequestBlockTxsTest {
+
+    private static final byte[] hash = new byte[HASH_SIZE];
+
+    static {
+        hash[0] = 1;
+        hash[HASH_SIZE - 1] = 2;
+    }
+
+    @Test
+    public void testHeader() {
+        RequestBlockTxs message = new RequestBlockTxs(hash, new int[] {0});
+        assertThat(message.getHeader().getVer()).isEqualTo(Ver.V0);
+        assertThat(message.getHeader().getAction()).isEqualTo(Act.REQUEST_BLOCK_TXS);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_nullHash() {
+        new RequestBlockTxs(null, new int[] {0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_incorrectHash() {
+        new RequestBlockTxs(new byte[HASH_SIZE - 1], new int[] {0});
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        int[] indexes = new int[] {0, 3, 127, 128, 70_000};
+        RequestBlockTxs decoded =
+                RequestBlockTxs.decode(new RequestBlockTxs(hash, indexes).encode());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getBlockHash()).isEqualTo(hash);
+        assertThat(decoded.getIndexes()).isEqualTo(indexes);
+    }
+
+    @Test
+    public void testDecode_invalid() {
+        assertThat(RequestBlockTxs.decode(null)).isNull();
+        assertThat(RequestBlockTxs.decode(new byte[0])).isNull();
+        assertThat(RequestBlockTxs.decode(RLP.encodeList(RLP.encodeElement(hash)))).isNull();
+        assertThat(
+                        RequestBlockTxs.decode(
+                                RLP.encodeList(
+                                        RLP.encodeElement(new byte[HASH_SIZE + 1]),
+                                        RLP.encodeList(RLP.encodeInt(1)))))
+                .isNull();
+    }
+}
@@ -0,0 +1,75 @@
+package org.aion.zero.impl.sync.msg;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.p2p.V1Constants.HASH_SIZE;
+
+import java.math.BigInteger;
+import java.util.List;
+import org.aion.base.AionTransaction;
+import org.aion.base.TransactionTypes;
+import org.aion.base.TxUtil;
+import org.aion.crypto.ECKeyFac;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.types.AionAddress;
+import org.aion.zero.impl.sync.Act;
+import org.junit.Test;
+
+/** Unit tests for {@link ResponseBlockTxs} messages. */
+public class ResponseBlockTxsTest {
+
+    private static final byte[] hash = new byte[HASH_SIZE];
+
+    private static byte[] newEncodedTransaction() {
+        return AionTransaction.create(
+                        ECKeyFac.inst().create(),
+                        BigInteger.ZERO.toByteArray(),
+                        new AionAddress(new byte[32]),
+                        BigInteger.ONE.toByteArray(),
+                        new byte[0],
+                        1_000_000L,
+                        10_000_000_000L,
+                        TransactionTypes.DEFAULT)
+                .getEncoded();
+    }
+
+    @Test
+    public void testHeader() {
+        ResponseBlockTxs message = new ResponseBlockTxs(hash, List.of());
+        assertThat(message.getHeader().getVer()).isEqualTo(Ver.V0);
+        assertThat(message.getHeader().getAction()).isEqualTo(Act.RESPONSE_BLOCK_TXS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_incorrectHash() {
+        new ResponseBlockTxs(new byte[HASH_SIZE + 1], List.of());
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        List<byte[]> txs = List.of(newEncodedTransaction(), newEncodedTransaction());
+        ResponseBlockTxs decoded =
+                ResponseBlockTxs.decode(new ResponseBlockTxs(hash, txs).encode());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getBlockHash()).isEqualTo(hash);
+        assertThat(decoded.getTransactions()).hasSize(2);
+        for (int i = 0; i < txs.size(); i++) {
+            assertThat(decoded.getTransactions().get(i)).isEqualTo(txs.get(i));
+            assertThat(TxUtil.decode(decoded.getTransactions().get(i))).isNotNull();
+        }
+    }
+
+    @Test
+    public void testDecode_invalid() {
+        assertThat(ResponseBlockTxs.decode(null)).isNull();
+        assertThat(ResponseBlockTxs.decode(new byte[0])).isNull();
+        // the transactions must be lists
+        assertThat(
+                        ResponseBlockTxs.decode(
+                                RLP.encodeList(
+                                        RLP.encodeElement(hash),
+                                        RLP.encodeList(RLP.encodeElement(new byte[] {1})))))
+                .isNull();
+    }
+}
@@ -0,0 +1,88 @@
+package org.aion.zero.impl.trie;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.aion.db.impl.mockdb.MockDB;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the time spent updating and hashing the trie when each node is hashed on creation with
+ * the time spent when the pending nodes are hashed in parallel on request of the root.
+ */
+public class TrieHashingBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    private static final int INITIAL_ACCOUNTS = 200_000;
+    private static final int UPDATES_PER_BLOCK = 20_000;
+    private static final int BLOCKS = 10;
+
+    private static class Result {
+        long nanos;
+        List<byte[]> roots = new ArrayList<>();
+    }
+
+    private static Result run(boolean parallelHashing) {
+        MockDB db = new MockDB("benchmark", log);
+        db.open();
+        TrieImpl trie = new SecureTrie(db).withParallelHashingEnabled(parallelHashing);
+
+        // the same synthetic state for both runs
+        Random random = new Random(1);
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < INITIAL_ACCOUNTS; i++) {
+            byte[] key = new byte[32];
+            random.nextBytes(key);
+            byte[] value = new byte[80];
+            random.nextBytes(value);
+            keys.add(key);
+            trie.update(key, value);
+        }
+        trie.sync();
+
+        Result result = new Result();
+        for (int block = 0; block < BLOCKS; block++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < UPDATES_PER_BLOCK; i++) {
+                byte[] value = new byte[80];
+                random.nextBytes(value);
+                trie.update(keys.get(random.nextInt(keys.size())), value);
+            }
+            result.roots.add(trie.getRootHash());
+            trie.sync();
+            result.nanos += System.nanoTime() - start;
+        }
+        return result;
+    }
+
+    @Ignore
+    @Test
+    public void benchmarkSerialVsParallelHashing() {
+        // warm up
+        run(false);
+        run(true);
+
+        Result serial = run(false);
+        Result parallel = run(true);
+
+        System.out.println(
+                BLOCKS
+                        + " blocks with "
+                        + UPDATES_PER_BLOCK
+                        + " updates over "
+                        + INITIAL_ACCOUNTS
+                        + " accounts:");
+        System.out.println("  serial hashing:   " + serial.nanos / 1_000_000 + " ms");
+        System.out.println("  parallel hashing: " + parallel.nanos / 1_000_000 + " ms");
+
+        for (int i = 0; i < BLOCKS; i++) {
+            assertThat(parallel.roots.get(i)).isEqualTo(serial.roots.get(i));
+        }
+    }
+}
@@ -8,6 +8,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -1123,4 +1124,115 @@ public class TrieTest {
             }
         }
     }
+
+    @Test
+    @Parameters({"true", "false"})
+    public void testParallelHashing_wIdenticalRoots(boolean pruning) {
+        MockDB serialDB = new MockDB("serial", log);
+        serialDB.open();
+        MockDB parallelDB = new MockDB("parallel", log);
+        parallelDB.open();
+        TrieImpl serial = new TrieImpl(serialDB).withPruningEnabled(pruning);
+        TrieImpl parallel =
+                new TrieImpl(parallelDB)
+                        .withPruningEnabled(pruning)
+                        .withParallelHashingEnabled(true);
+
+        Random random = new Random(42);
+        List<byte[]> keys = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+            // enough updates to exceed the parallel hashing threshold
+            for (int i = 0; i < 2_000; i++) {
+                byte[] key = new byte[32];
+                random.nextBytes(key);
+                byte[] value = new byte[1 + random.nextInt(64)];
+                random.nextBytes(value);
+                keys.add(key);
+                serial.update(key, value);
+                parallel.update(key, value);
+            }
+            // overwrite and delete some of the existing keys
+            for (int i = 0; i < 500; i++) {
+                byte[] key = keys.get(random.nextInt(keys.size()));
+                if (random.nextBoolean()) {
+                    serial.delete(key);
+                    parallel.delete(key);
+                } else {
+                    byte[] value = intToBytes(random.nextInt());
+                    serial.update(key, value);
+                    parallel.update(key, value);
+                }
+            }
+
+            // the pending nodes are readable before hashing
+            byte[] key = keys.get(random.nextInt(keys.size()));
+            assertThat(parallel.get(key)).isEqualTo(serial.get(key));
+
+            assertThat(parallel.getRootHash()).isEqualTo(serial.getRootHash());
+
+            serial.sync();
+            parallel.sync();
+            Set<ByteArrayWrapper> serialKeys = new HashSet<>();
+            serialDB.keys().forEachRemaining(k -> serialKeys.add(ByteArrayWrapper.wrap(k)));
+            Set<ByteArrayWrapper> parallelKeys = new HashSet<>();
+            parallelDB.keys().forEachRemaining(k -> parallelKeys.add(ByteArrayWrapper.wrap(k)));
+            if (!pruning) {
+                // the intermediate nodes hashed on creation are not stored with parallel hashing
+                assertThat(serialKeys).containsAllIn(parallelKeys);
+            }
+            // pruning never removes nodes that are still referenced
+            assertThat(parallel.getMissingNodes(parallel.getRootHash())).isEmpty();
+        }
+    }
+
+    @Test
+    public void testSharedNodes() {
+        NodeCache sharedNodes = new NodeCache(1024 * 1024);
+        MockDB mockDB = new MockDB("temp", log);
+        mockDB.open();
+        TrieImpl trie = new TrieImpl(mockDB);
+        trie.getCache().setSharedNodes(sharedNodes);
+
+        Map<ByteArrayWrapper, byte[]> updates = getSampleTrieUpdates();
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : updates.entrySet()) {
+            trie.update(e.getKey().getData(), e.getValue());
+        }
+        trie.sync(true);
+        byte[] root = trie.getRootHash();
+        // the written nodes are shared
+        assertThat(sharedNodes.size()).isEqualTo(countKeys(mockDB));
+
+        // the stored nodes are read from the shared nodes without accessing the database
+        MockDB emptyDB = new MockDB("empty", log);
+        emptyDB.open();
+        TrieImpl other = new TrieImpl(emptyDB, root);
+        other.getCache().setSharedNodes(sharedNodes);
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : updates.entrySet()) {
+            assertThat(other.get(e.getKey().getData())).isEqualTo(e.getValue());
+        }
+        assertThat(other.copy().get(updates.keySet().iterator().next().getData())).isNotEmpty();
+
+        // the nodes read from the database are shared as well
+        NodeCache readNodes = new NodeCache(1024 * 1024);
+        TrieImpl reader = new TrieImpl(mockDB, root);
+        reader.getCache().setSharedNodes(readNodes);
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : updates.entrySet()) {
+            reader.get(e.getKey().getData());
+        }
+        other = new TrieImpl(emptyDB, root);
+        other.getCache().setSharedNodes(readNodes);
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : updates.entrySet()) {
+            assertThat(other.get(e.getKey().getData())).isEqualTo(e.getValue());
+        }
+    }
+
+    private static long countKeys(MockDB db) {
+        long count = 0;
+        Iterator<byte[]> keys = db.keys();
+        while (keys.hasNext()) {
+            keys.next();
+            count++;
+        }
+        return count;
+    }
 }
@@ -95,6 +95,8 @@ public abstract class ApiAion extends Api {
                 Collections.singletonList(new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0)));
         evtMgr.registerEvent(
                 Collections.singletonList(new EventBlock(EventBlock.CALLBACK.ONBLOCK0)));
+        evtMgr.registerEvent(
+                Collections.singletonList(new EventBlock(EventBlock.CALLBACK.ONBEST0)));
     }
 
     public final class EpApi implements Runnable {
@@ -108,6 +110,9 @@ public abstract class ApiAion extends Api {
                     if (e.getEventType() == IHandler.TYPE.BLOCK0.getValue()
                             && e.getCallbackType() == EventBlock.CALLBACK.ONBLOCK0.getValue()) {
                         onBlock((AionBlockSummary) e.getFuncArgs().get(0));
+                    } else if (e.getEventType() == IHandler.TYPE.BLOCK0.getValue()
+                            && e.getCallbackType() == EventBlock.CALLBACK.ONBEST0.getValue()) {
+                        onBestBlock((AionBlockSummary) e.getFuncArgs().get(2));
                     } else if (e.getEventType() == IHandler.TYPE.TX0.getValue()) {
                         if (e.getCallbackType() == EventTx.CALLBACK.PENDINGTXUPDATE0.getValue()) {
                             pendingTxUpdate(
@@ -132,6 +137,9 @@ public abstract class ApiAion extends Api {
 
     protected abstract void onBlock(AionBlockSummary cbs);
 
+    /** Called after {@link #onBlock(AionBlockSummary)} when the block is the new best block. */
+    protected void onBestBlock(AionBlockSummary cbs) {}
+
     protected abstract void pendingTxReceived(AionTransaction _tx);
 
     protected abstract void pendingTxUpdate(AionTxReceipt _txRcpt, EventTx.STATE _state);
@@ -420,9 +428,9 @@ public abstract class ApiAion extends Api {
         }
 
         // need to return txes only from main chain
-        Block mainBlock =
-                this.ac.getAionHub().getBlockchain().getBlockByNumber(block.getNumber());
-        if (!Arrays.equals(block.getHash(), mainBlock.getHash())) {
+        byte[] mainHash =
+                this.ac.getAionHub().getBlockchain().getBlockStore().getBlockHashByNumber(block.getNumber());
+        if (!Arrays.equals(block.getHash(), mainHash)) {
             LOG.debug("<get-transaction-receipt msg=hash-not-match>");
             return null;
         }
@@ -802,6 +810,7 @@ public abstract class ApiAion extends Api {
 
         sn = IHandler.TYPE.BLOCK0.getValue() << 8;
         eventSN.add(sn + EventBlock.CALLBACK.ONBLOCK0.getValue());
+        eventSN.add(sn + EventBlock.CALLBACK.ONBEST0.getValue());
 
         return eventSN;
     }
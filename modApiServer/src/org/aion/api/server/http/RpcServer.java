@@ -23,6 +23,7 @@ public abstract class RpcServer {
     protected char[] sslCertPass;
 
     protected boolean stuckThreadDetectorEnabled;
+    protected boolean webSocketsEnabled;
 
     /**
      * to explicitly force any subclasses to check for null values, access to the following
@@ -73,6 +74,7 @@ public abstract class RpcServer {
         ioPoolSize = builder.ioPoolSize;
         requestQueueSize = builder.requestQueueSize;
         stuckThreadDetectorEnabled = builder.stuckThreadDetectorEnabled;
+        webSocketsEnabled = builder.webSocketsEnabled;
     }
 
     // want to explicitly force user of this class to check for null values here.
@@ -32,6 +32,7 @@ public abstract class RpcServerBuilder<T extends RpcServerBuilder<T>> {
     Integer ioPoolSize = null;
     Integer requestQueueSize = null;
     boolean stuckThreadDetectorEnabled = false;
+    boolean webSocketsEnabled = false;
 
     public T setUrl(String hostName, int port) {
         this.hostName = Objects.requireNonNull(hostName);
@@ -101,6 +102,12 @@ public abstract class RpcServerBuilder<T extends RpcServerBuilder<T>> {
         return self();
     }
 
+    /** Accepts websocket connections, which carry the eth_subscribe notifications. */
+    public T setWebSocketsEnabled(boolean x) {
+        this.webSocketsEnabled = x;
+        return self();
+    }
+
     protected abstract RpcServer build();
 
     // Subclasses must override this method to return "this"
@@ -0,0 +1,317 @@
+package org.aion.api.server.http.undertow;
+
+import io.undertow.Handlers;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
+import io.undertow.websockets.WebSocketConnectionCallback;
+import io.undertow.websockets.core.AbstractReceiveListener;
+import io.undertow.websockets.core.BufferedTextMessage;
+import io.undertow.websockets.core.WebSocketCallback;
+import io.undertow.websockets.core.WebSocketChannel;
+import io.undertow.websockets.core.WebSockets;
+import io.undertow.websockets.spi.WebSocketHttpExchange;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.api.server.rpc.RpcError;
+import org.aion.api.server.rpc.RpcMsg;
+import org.aion.api.server.rpc.RpcProcessor;
+import org.aion.api.server.rpc.RpcSubscriptions;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+import org.xnio.XnioExecutor;
+
+/**
+ * Serves the rpc requests received through websocket connections, which may also subscribe to
+ * notifications with {@code eth_subscribe}.
+ *
+ * <p>The websocket requests bypass the http handler chain, so the limits of {@link
+ * AionUndertowRootHandler} are applied here instead: the requests of a connection are processed
+ * one at a time on the worker threads, the requests queued by all the connections are bounded like
+ * the http ones, a request running past the stuck thread timeout is reported, and the handshake is
+ * refused to the origins not allowed by the cors configuration.
+ *
+ * <p>The notifications of a connection are buffered up to a fixed count; a client not reading them
+ * fast enough misses the newer ones instead of holding memory in the kernel.
+ */
+class AionUndertowWebSocketHandler implements WebSocketConnectionCallback {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
+    static final int NOTIFICATION_BUFFER_SIZE = 1024;
+    static final int MAX_CONNECTIONS = 1024;
+    static final int MAX_PENDING_REQUESTS = 64;
+
+    private final RpcProcessor rpcProcessor;
+    private final boolean corsEnabled;
+    private final String corsOrigin;
+    private final RequestLimitingConfiguration requestLimiting;
+    private final StuckThreadDetectorConfiguration stuckThreadDetector;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    // the requests queued or running over all the connections, only counted with request limiting
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+
+    AionUndertowWebSocketHandler(
+            RpcProcessor rpcProcessor,
+            boolean corsEnabled,
+            String corsOrigin,
+            RequestLimitingConfiguration requestLimiting,
+            StuckThreadDetectorConfiguration stuckThreadDetector) {
+        this.rpcProcessor = rpcProcessor;
+        this.corsEnabled = corsEnabled;
+        this.corsOrigin = corsOrigin;
+        this.requestLimiting = requestLimiting;
+        this.stuckThreadDetector = stuckThreadDetector;
+    }
+
+    /**
+     * Answers the websocket handshakes allowed by the connection count and the cors configuration,
+     * and passes the other requests through.
+     *
+     * @param next the handler of the plain http requests
+     */
+    HttpHandler handshake(HttpHandler next) {
+        HttpHandler websocket = Handlers.websocket(this, next);
+        return exchange -> {
+            if (!isUpgrade(exchange)) {
+                next.handleRequest(exchange);
+            } else if (!allowsOrigin(exchange.getRequestHeaders().getFirst(Headers.ORIGIN))) {
+                reject(exchange, StatusCodes.FORBIDDEN);
+            } else if (connections.get() >= MAX_CONNECTIONS) {
+                reject(exchange, StatusCodes.SERVICE_UNAVAILABLE);
+            } else {
+                websocket.handleRequest(exchange);
+            }
+        };
+    }
+
+    private static boolean isUpgrade(HttpServerExchange exchange) {
+        return Methods.GET.equals(exchange.getRequestMethod())
+                && "websocket"
+                        .equalsIgnoreCase(exchange.getRequestHeaders().getFirst(Headers.UPGRADE));
+    }
+
+    /**
+     * Browsers always send the origin of the page opening a websocket and, unlike http responses,
+     * do not enforce cors on them; the origins are checked against the cors configuration here.
+     */
+    private boolean allowsOrigin(String origin) {
+        if (origin == null) {
+            // not opened by a browser
+            return true;
+        }
+        return corsEnabled && ("*".equals(corsOrigin) || corsOrigin.equals(origin));
+    }
+
+    private static void reject(HttpServerExchange exchange, int statusCode) {
+        exchange.setStatusCode(statusCode);
+        exchange.setPersistent(false);
+        exchange.endExchange();
+    }
+
+    @Override
+    public void onConnect(WebSocketHttpExchange exchange, WebSocketChannel channel) {
+        connections.incrementAndGet();
+        Connection connection = new Connection(channel);
+
+        channel.getReceiveSetter()
+                .set(
+                        new AbstractReceiveListener() {
+                            @Override
+                            protected void onFullTextMessage(
+                                    WebSocketChannel channel, BufferedTextMessage message) {
+                                connection.request(message.getData());
+                            }
+                        });
+        channel.addCloseTask(
+                ch -> {
+                    connections.decrementAndGet();
+                    rpcProcessor.unsubscribeAll(connection);
+                });
+        channel.resumeReceives();
+    }
+
+    private boolean acquireRequest() {
+        if (!requestLimiting.isEnabled()) {
+            return true;
+        }
+        int limit = requestLimiting.getMaxConcurrentConnections() + requestLimiting.getQueueSize();
+        int pending;
+        do {
+            pending = pendingRequests.get();
+            if (pending >= limit) {
+                return false;
+            }
+        } while (!pendingRequests.compareAndSet(pending, pending + 1));
+        return true;
+    }
+
+    private void releaseRequest() {
+        if (requestLimiting.isEnabled()) {
+            pendingRequests.decrementAndGet();
+        }
+    }
+
+    /**
+     * Processes the requests of one connection in order, and sends its responses and notifications
+     * one frame at a time.
+     */
+    private final class Connection implements RpcSubscriptions.Sink, WebSocketCallback<Void> {
+        private final WebSocketChannel channel;
+        private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queuedRequests = new AtomicInteger();
+        private final AtomicBoolean processing = new AtomicBoolean(false);
+        private final Queue<String> responses = new ConcurrentLinkedQueue<>();
+        private final Queue<String> notifications =
+                new ArrayBlockingQueue<>(NOTIFICATION_BUFFER_SIZE);
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+
+        private Connection(WebSocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void request(String body) {
+            if (queuedRequests.get() >= MAX_PENDING_REQUESTS || !acquireRequest()) {
+                if (responses.size() >= MAX_PENDING_REQUESTS) {
+                    // the client floods requests without reading the answers
+                    close();
+                } else {
+                    respond(new RpcMsg(null, RpcError.SERVER_OVERLOAD).toString());
+                }
+                return;
+            }
+            queuedRequests.incrementAndGet();
+            requests.add(body);
+            processNext();
+        }
+
+        private void processNext() {
+            // the requests may block, they are processed off the io thread
+            if (processing.compareAndSet(false, true)) {
+                try {
+                    channel.getWorker().execute(this::processAll);
+                } catch (RejectedExecutionException e) {
+                    // the server is stopping
+                    processing.set(false);
+                }
+            }
+        }
+
+        private void processAll() {
+            String body;
+            while ((body = requests.poll()) != null) {
+                try {
+                    // the requests left by a closed connection are only released
+                    if (channel.isOpen()) {
+                        respond(process(body));
+                    }
+                } finally {
+                    queuedRequests.decrementAndGet();
+                    releaseRequest();
+                }
+            }
+            processing.set(false);
+            // a request may have been queued before the flag was cleared
+            if (!requests.isEmpty()) {
+                processNext();
+            }
+        }
+
+        private String process(String body) {
+            XnioExecutor.Key stuck = null;
+            if (stuckThreadDetector.isEnabled()) {
+                Thread thread = Thread.currentThread();
+                stuck =
+                        channel.getIoThread()
+                                .executeAfter(
+                                        () -> reportStuck(thread),
+                                        stuckThreadDetector.getTimeoutSeconds(),
+                                        TimeUnit.SECONDS);
+            }
+            try {
+                return rpcProcessor.process(body, this);
+            } finally {
+                if (stuck != null) {
+                    stuck.remove();
+                }
+            }
+        }
+
+        private void reportStuck(Thread thread) {
+            Throwable trace = new Throwable();
+            trace.setStackTrace(thread.getStackTrace());
+            LOG.warn(
+                    "<rpc-server - websocket request processed by {} for more than {} seconds>",
+                    thread.getName(),
+                    stuckThreadDetector.getTimeoutSeconds(),
+                    trace);
+        }
+
+        private void respond(String response) {
+            if (response == null) {
+                return;
+            }
+            // the responses are never dropped, they are bounded by the pending requests limit
+            responses.add(response);
+            sendNext();
+        }
+
+        @Override
+        public boolean offer(String notification) {
+            if (!channel.isOpen() || !notifications.offer(notification)) {
+                return false;
+            }
+            sendNext();
+            return true;
+        }
+
+        private void sendNext() {
+            while (sending.compareAndSet(false, true)) {
+                String message = responses.poll();
+                if (message == null) {
+                    message = notifications.poll();
+                }
+                if (message != null) {
+                    WebSockets.sendText(message, channel, this);
+                    return;
+                }
+                sending.set(false);
+                // a message may have been queued before the flag was cleared
+                if (responses.isEmpty() && notifications.isEmpty()) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void complete(WebSocketChannel channel, Void context) {
+            sending.set(false);
+            sendNext();
+        }
+
+        @Override
+        public void onError(WebSocketChannel channel, Void context, Throwable throwable) {
+            LOG.debug("<rpc-server - websocket send failed: {}>", throwable.getMessage());
+            responses.clear();
+            notifications.clear();
+            close();
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.debug("<rpc-server - websocket close failed: {}>", e.getMessage());
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.aion.api.server.http.undertow;
 
 import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
 import io.undertow.util.HttpString;
 import java.io.FileInputStream;
 import java.security.KeyStore;
@@ -143,8 +144,21 @@ public class UndertowRpcServer extends RpcServer {
             AionUndertowRpcHandler rpcHandler =
                     new AionUndertowRpcHandler(corsEnabled, CORS_HEADERS, rpcProcessor);
 
-            undertowBuilder.setHandler(
-                    new AionUndertowRootHandler(rpcHandler, requestLimiting, stuckThreadDetector));
+            HttpHandler rootHandler =
+                    new AionUndertowRootHandler(rpcHandler, requestLimiting, stuckThreadDetector);
+            if (webSocketsEnabled) {
+                // websocket upgrade requests are answered before the http handlers, the others are
+                // passed through
+                rootHandler =
+                        new AionUndertowWebSocketHandler(
+                                        rpcProcessor,
+                                        corsEnabled,
+                                        corsOrigin,
+                                        requestLimiting,
+                                        stuckThreadDetector)
+                                .handshake(rootHandler);
+            }
+            undertowBuilder.setHandler(rootHandler);
 
             server = undertowBuilder.build();
             server.start();
@@ -166,6 +180,7 @@ public class UndertowRpcServer extends RpcServer {
                     corsEnabled
                             ? "Enabled; Allowed Origins = \"" + corsOrigin + "\""
                             : "Not Enabled");
+            LOG.debug("WebSockets: {}", webSocketsEnabled ? "Enabled" : "Not Enabled");
             LOG.debug("Worker Thread Count: {}", effectiveWorkerThreadCount);
             LOG.debug("I/O Thread Count: {}", effectiveIoThreadCount);
             LOG.debug(
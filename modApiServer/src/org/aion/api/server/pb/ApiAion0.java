@@ -2209,7 +2209,10 @@ public class ApiAion0 extends ApiAion implements IApiAion {
                             long blocktime = 0;
                             if (b.getNumber() > 0 && lastBlockTimestamp == null) {
                                 lastBlockTimestamp =
-                                        getBlockByHash(b.getParentHash()).getTimestamp();
+                                        ac.getBlockchain()
+                                                .getBlockStore()
+                                                .getHeaderByHash(b.getParentHash())
+                                                .getTimestamp();
                             }
 
                             if (lastBlockTimestamp != null) {
@@ -83,6 +83,7 @@ import org.aion.zero.impl.config.CfgConsensusPow;
 import org.aion.zero.impl.config.CfgEnergyStrategy;
 import org.aion.zero.impl.db.AionBlockStore;
 import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.db.BloomBitsIndex;
 import org.aion.zero.impl.sync.NodeWrapper;
 import org.aion.zero.impl.sync.PeerState;
 import org.aion.zero.impl.types.AionBlock;
@@ -119,6 +120,9 @@ public class ApiWeb3Aion extends ApiAion {
 
     private final long BEST_PENDING_BLOCK = -1L;
 
+    // the eth_subscribe subscriptions, only available with the filters enabled
+    private final RpcSubscriptions subscriptions = new RpcSubscriptions();
+
     private final LoadingCache<Integer, ChainHeadView> CachedRecentEntities;
     private final LoadingCache<String, MinerStatsView> MinerStats;
 
@@ -142,8 +146,28 @@ public class ApiWeb3Aion extends ApiAion {
         }
     }
 
+    @Override
+    protected void onBestBlock(AionBlockSummary cbs) {
+        if (isFilterEnabled) {
+            Block block = cbs.getBlock();
+            subscriptions.onBestBlock(
+                    block,
+                    cbs.getReceipts(),
+                    () ->
+                            Blk.AionBlockOnlyToJson(
+                                    block,
+                                    cbs.getTotalDifficulty() != null
+                                            ? cbs.getTotalDifficulty()
+                                            : ac.getAionHub()
+                                                    .getBlockStore()
+                                                    .getTotalDifficultyForHash(block.getHash())));
+        }
+    }
+
     protected void pendingTxReceived(AionTransaction _tx) {
         if (isFilterEnabled) {
+            subscriptions.onPendingTransaction(_tx);
+
             // not absolutely neccessary to do eviction on installedFilters here, since we're doing
             // it already
             // in the onBlock event. eviction done here "just in case ..."
@@ -442,7 +466,7 @@ public class ApiWeb3Aion extends ApiAion {
             bnOrId = _bnOrId + "";
         }
 
-        Repository repo = getRepoByJsonBlockId(bnOrId);
+        Repository<?, ?> repo = getRepoByJsonBlockId(bnOrId);
         if (repo == null) // invalid bnOrId
         {
             return new RpcMsg(
@@ -492,7 +516,7 @@ public class ApiWeb3Aion extends ApiAion {
                     null, RpcError.INVALID_PARAMS, "Invalid storageIndex. Must be <= 16 bytes.");
         }
 
-        Repository repo = getRepoByJsonBlockId(bnOrId);
+        Repository<?, ?> repo = getRepoByJsonBlockId(bnOrId);
         if (repo == null) // invalid bnOrId
         {
             return new RpcMsg(
@@ -532,7 +556,7 @@ public class ApiWeb3Aion extends ApiAion {
             bnOrId = _bnOrId + "";
         }
 
-        Repository repo = getRepoByJsonBlockId(bnOrId);
+        Repository<?, ?> repo = getRepoByJsonBlockId(bnOrId);
         if (repo == null) // invalid bnOrId
         {
             return new RpcMsg(
@@ -619,7 +643,7 @@ public class ApiWeb3Aion extends ApiAion {
             bnOrId = _bnOrId + "";
         }
 
-        Repository repo = getRepoByJsonBlockId(bnOrId);
+        Repository<?, ?> repo = getRepoByJsonBlockId(bnOrId);
         if (repo == null) // invalid bnOrId
         {
             return new RpcMsg(
@@ -1203,7 +1227,7 @@ public class ApiWeb3Aion extends ApiAion {
             // installation.
 
             toBlock = toBlock == null ? getBestBlock() : toBlock;
-            for (long i = fromBlock.getNumber(); i <= toBlock.getNumber(); i++) {
+            for (long i : findLogBlocks(filter, fromBlock.getNumber(), toBlock.getNumber())) {
                 if (filter.isFull()) {
                     break;
                 }
@@ -1216,6 +1240,28 @@ public class ApiWeb3Aion extends ApiAion {
         return filter;
     }
 
+    /**
+     * Uses the bloom bits index to select the blocks that may contain logs matching the filter.
+     * Falls back to all the blocks in the range if the index is not available.
+     */
+    private List<Long> findLogBlocks(FltrLg filter, long from, long to) {
+        Repository repo = this.ac.getRepository();
+        BloomBitsIndex index =
+                repo instanceof AionRepositoryImpl
+                        ? ((AionRepositoryImpl) repo).getBloomBitsIndex()
+                        : null;
+
+        if (index != null) {
+            return index.findMatchingBlocks(from, to, filter.getFilterBlooms());
+        } else {
+            List<Long> blocks = new ArrayList<>();
+            for (long i = from; i <= to; i++) {
+                blocks.add(i);
+            }
+            return blocks;
+        }
+    }
+
     public RpcMsg eth_newFilter(Object _params) {
         if (!isFilterEnabled) {
             return new RpcMsg(null, RpcError.NOT_ALLOWED, "Filters over rpc disabled.");
@@ -1300,6 +1346,81 @@ public class ApiWeb3Aion extends ApiAion {
         return response;
     }
 
+    /**
+     * Subscribes the connection to new heads, logs or pending transactions.
+     *
+     * @param sink the connection receiving the notifications, or null when not connected through a
+     *     websocket
+     */
+    public RpcMsg eth_subscribe(Object _params, RpcSubscriptions.Sink sink) {
+        if (!isFilterEnabled) {
+            return new RpcMsg(null, RpcError.NOT_ALLOWED, "Filters over rpc disabled.");
+        }
+
+        if (sink == null) {
+            return new RpcMsg(
+                    null, RpcError.NOT_ALLOWED, "Subscriptions are only supported over websocket.");
+        }
+
+        if (!(_params instanceof JSONArray) || ((JSONArray) _params).length() < 1) {
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid parameters");
+        }
+
+        JSONArray params = (JSONArray) _params;
+        RpcSubscriptions.Type type = RpcSubscriptions.Type.fromName(params.optString(0));
+        if (type == null) {
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Unknown subscription type.");
+        }
+
+        FltrLg filter = null;
+        if (type == RpcSubscriptions.Type.LOGS) {
+            JSONObject _filterObj = params.optJSONObject(1);
+            ArgFltr rf = ArgFltr.fromJSON(_filterObj == null ? new JSONObject() : _filterObj);
+            if (rf == null) {
+                return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid filter object provided.");
+            }
+
+            // the logs are only pushed as new blocks are imported
+            filter = new FltrLg();
+            filter.setTopics(rf.topics);
+            filter.setContractAddress(rf.address);
+        }
+
+        String id = subscriptions.subscribe(type, filter, sink);
+        if (id == null) {
+            return new RpcMsg(
+                    null,
+                    RpcError.NOT_ALLOWED,
+                    "Too many subscriptions, at most "
+                            + RpcSubscriptions.MAX_SUBSCRIPTIONS_PER_SINK
+                            + " per connection.");
+        }
+        return new RpcMsg(id);
+    }
+
+    public RpcMsg eth_unsubscribe(Object _params, RpcSubscriptions.Sink sink) {
+        if (sink == null) {
+            return new RpcMsg(
+                    null, RpcError.NOT_ALLOWED, "Subscriptions are only supported over websocket.");
+        }
+
+        String _id;
+        if (_params instanceof JSONArray) {
+            _id = ((JSONArray) _params).get(0) + "";
+        } else if (_params instanceof JSONObject) {
+            _id = ((JSONObject) _params).get("id") + "";
+        } else {
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid parameters");
+        }
+
+        return new RpcMsg(subscriptions.unsubscribe(_id, sink));
+    }
+
+    /** Removes the subscriptions of a closed connection. */
+    public void unsubscribeAll(RpcSubscriptions.Sink sink) {
+        subscriptions.unsubscribeAll(sink);
+    }
+
     public RpcMsg eth_getFilterChanges(Object _params) {
         if (!isFilterEnabled) {
             return new RpcMsg(null, RpcError.NOT_ALLOWED, "Filters over rpc disabled.");
@@ -2310,9 +2431,9 @@ public class ApiWeb3Aion extends ApiAion {
                 return new RpcMsg(JSONObject.NULL);
         }
 
-        Block mainBlock = this.ac.getBlockchain().getBlockByNumber(block.getNumber());
+        byte[] mainHash = this.ac.getBlockchain().getBlockStore().getBlockHashByNumber(block.getNumber());
 
-        if (mainBlock == null || !Arrays.equals(block.getHash(), mainBlock.getHash())) {
+        if (mainHash == null || !Arrays.equals(block.getHash(), mainHash)) {
             return new RpcMsg(JSONObject.NULL);
         }
 
@@ -2356,12 +2477,12 @@ public class ApiWeb3Aion extends ApiAion {
             }
         }
 
-        Block mainBlock = this.ac.getBlockchain().getBlockByNumber(block.getNumber());
-        if (mainBlock == null) {
+        byte[] mainHash = this.ac.getBlockchain().getBlockStore().getBlockHashByNumber(block.getNumber());
+        if (mainHash == null) {
             return new RpcMsg(JSONObject.NULL);
         }
 
-        if (!Arrays.equals(block.getHash(), mainBlock.getHash())) {
+        if (!Arrays.equals(block.getHash(), mainHash)) {
             return new RpcMsg(JSONObject.NULL);
         }
 
@@ -2975,7 +3096,7 @@ public class ApiWeb3Aion extends ApiAion {
 
     // potential bug introduced by .getSnapshotTo()
     // comment out until resolved
-    private Repository getRepoByJsonBlockId(String _bnOrId) {
+    private Repository<?, ?> getRepoByJsonBlockId(String _bnOrId) {
         Long bn = parseBnOrId(_bnOrId);
 
         if (bn == null) {
@@ -2989,7 +3110,7 @@ public class ApiWeb3Aion extends ApiAion {
             return null;
         }
 
-        return ac.getRepository().getSnapshotTo(b.getStateRoot());
+        return ac.getSnapshotTo(b.getStateRoot());
     }
 
     private Block getBlockByBN(long bn) {
@@ -3054,16 +3175,16 @@ public class ApiWeb3Aion extends ApiAion {
                 .getTransactionInfo(transaction.getTransactionHash());
             txInfoList.add(txInfo);
         }
-        Block previousBlock = this.ac.getBlockchain().getBlockByHash(block.getParentHash());
-        // get the parent block
+        BlockHeader previousHeader = this.ac.getBlockchain().getBlockStore().getHeaderByHash(block.getParentHash());
+        // get the parent block header
 
         Long previousTimestamp;
 
-        if (previousBlock == null){
+        if (previousHeader == null){
             previousTimestamp = null;
         }
         else {
-            previousTimestamp = previousBlock.getTimestamp();
+            previousTimestamp = previousHeader.getTimestamp();
         }
 
         return new RpcMsg(
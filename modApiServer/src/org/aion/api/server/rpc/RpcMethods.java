@@ -55,6 +55,27 @@ public class RpcMethods {
         return enabledEndpoints.get(name);
     }
 
+    /**
+     * Calls a subscription method on behalf of a websocket connection.
+     *
+     * @return null if the method is not a subscription method
+     */
+    public RpcMsg callSubscription(String name, Object params, RpcSubscriptions.Sink sink) {
+        switch (name) {
+            case "eth_subscribe":
+                return api.eth_subscribe(params, sink);
+            case "eth_unsubscribe":
+                return api.eth_unsubscribe(params, sink);
+            default:
+                return null;
+        }
+    }
+
+    /** Removes the subscriptions of a closed websocket connection. */
+    public void unsubscribeAll(RpcSubscriptions.Sink sink) {
+        api.unsubscribeAll(sink);
+    }
+
     public void shutdown() {
         api.shutdown();
     }
@@ -246,7 +267,9 @@ public class RpcMethods {
                     Map.entry("eth_uninstallFilter", (params) -> api.eth_uninstallFilter(params)),
                     Map.entry("eth_getFilterChanges", (params) -> api.eth_getFilterChanges(params)),
                     Map.entry("eth_getFilterLogs", (params) -> api.eth_getFilterChanges(params)),
-                    Map.entry("eth_getLogs", (params) -> api.eth_getLogs(params)));
+                    Map.entry("eth_getLogs", (params) -> api.eth_getLogs(params)),
+                    Map.entry("eth_subscribe", (params) -> api.eth_subscribe(params, null)),
+                    Map.entry("eth_unsubscribe", (params) -> api.eth_unsubscribe(params, null)));
 
     /** stratum */
     private final Map<String, RpcMethod> stratum =
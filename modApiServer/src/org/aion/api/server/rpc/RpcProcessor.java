@@ -42,14 +42,24 @@ public class RpcProcessor {
     }
 
     public String process(String _requestBody) {
+        return process(_requestBody, null);
+    }
+
+    /**
+     * Processes a request received through a websocket connection, which can also subscribe to
+     * notifications.
+     *
+     * @param sink the connection receiving the notifications, or null for a plain http request
+     */
+    public String process(String _requestBody, RpcSubscriptions.Sink sink) {
         String response = composeRpcResponse(new RpcMsg(null, RpcError.INVALID_REQUEST).toString());
 
         try {
             String requestBody = _requestBody.trim();
             if (!StringUtils.isEmpty(requestBody)) {
                 char firstChar = requestBody.charAt(0);
-                if (firstChar == '{') response = handleSingle(requestBody);
-                else if (firstChar == '[') response = handleBatch(requestBody);
+                if (firstChar == '{') response = handleSingle(requestBody, sink);
+                else if (firstChar == '[') response = handleBatch(requestBody, sink);
             }
         } catch (Exception e) {
             LOG.debug("<rpc-server - failed to process rpc request body>", e);
@@ -69,7 +79,7 @@ public class RpcProcessor {
         return respBody;
     }
 
-    private JSONObject processObject(JSONObject body) {
+    private JSONObject processObject(JSONObject body, RpcSubscriptions.Sink sink) {
         try {
             String method;
             Object params;
@@ -102,7 +112,13 @@ public class RpcProcessor {
                 boolean shouldTime = LOG.isDebugEnabled();
                 Stopwatch timer = null;
                 if (shouldTime) timer = Stopwatch.createStarted();
-                RpcMsg response = rpc.call(params);
+                RpcMsg response = null;
+                if (sink != null) {
+                    response = apiHolder.callSubscription(method, params, sink);
+                }
+                if (response == null) {
+                    response = rpc.call(params);
+                }
                 if (shouldTime) {
                     timer.stop();
                     LOG.debug(
@@ -123,7 +139,7 @@ public class RpcProcessor {
     }
 
     // implementing http://www.jsonrpc.org/specification#batch
-    private String handleBatch(String _reqBody) {
+    private String handleBatch(String _reqBody, RpcSubscriptions.Sink sink) {
         try {
             JSONArray reqBodies;
 
@@ -143,7 +159,8 @@ public class RpcProcessor {
             if (shouldTime) timer = Stopwatch.createStarted();
 
             for (int i = 0; i < reqBodies.length(); i++) {
-                batchCallCompletionService.submit(new BatchCallTask(reqBodies.getJSONObject(i)));
+                batchCallCompletionService.submit(
+                        new BatchCallTask(reqBodies.getJSONObject(i), sink));
             }
 
             JSONArray respBodies = new JSONArray();
@@ -172,7 +189,7 @@ public class RpcProcessor {
         return composeRpcResponse(new RpcMsg(null, RpcError.INTERNAL_ERROR).toString());
     }
 
-    private String handleSingle(String _reqBody) {
+    private String handleSingle(String _reqBody, RpcSubscriptions.Sink sink) {
         try {
             JSONObject obj = new JSONObject(_reqBody);
 
@@ -183,7 +200,7 @@ public class RpcProcessor {
                 return rpc2Shim.process(_reqBody);
             }
 
-            return composeRpcResponse(processObject(obj).toString());
+            return composeRpcResponse(processObject(obj, sink).toString());
         } catch (Exception e) {
             // rpc call with invalid JSON
             LOG.debug("<rpc-server - rpc call parse error [7]>", e);
@@ -194,15 +211,17 @@ public class RpcProcessor {
 
     private class BatchCallTask implements Callable<JSONObject> {
         private JSONObject task;
+        private RpcSubscriptions.Sink sink;
 
-        public BatchCallTask(JSONObject task) {
+        public BatchCallTask(JSONObject task, RpcSubscriptions.Sink sink) {
             this.task = task;
+            this.sink = sink;
         }
 
         @Override
         public JSONObject call() {
             try {
-                return processObject(task);
+                return processObject(task, sink);
             } catch (Exception e) {
                 LOG.debug("<rpc-server - processObject failed in batch request>", e);
                 return new RpcMsg(null, RpcError.INVALID_REQUEST, "INVALID_REQUEST").toJson();
@@ -210,6 +229,11 @@ public class RpcProcessor {
         }
     }
 
+    /** Removes the subscriptions of a closed websocket connection. */
+    public void unsubscribeAll(RpcSubscriptions.Sink sink) {
+        apiHolder.unsubscribeAll(sink);
+    }
+
     public void shutdown() {
         apiHolder.shutdown();
 
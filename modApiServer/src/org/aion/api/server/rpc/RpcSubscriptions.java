@@ -0,0 +1,244 @@
+package org.aion.api.server.rpc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.aion.api.server.types.EvtLg;
+import org.aion.api.server.types.FltrLg;
+import org.aion.api.server.types.TxRecptLg;
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxReceipt;
+import org.aion.base.Bloom;
+import org.aion.mcf.blockchain.Block;
+import org.aion.types.Log;
+import org.aion.util.string.StringUtils;
+import org.json.JSONObject;
+
+/**
+ * The {@code eth_subscribe} subscriptions of the connected clients.
+ *
+ * <p>The notifications are pushed to the connections as the kernel imports new best blocks and
+ * receives pending transactions. The result of an event is serialized once and shared by all the
+ * matching subscriptions, which only wrap it with their id.
+ *
+ * <p>A connection holds at most {@link #MAX_SUBSCRIPTIONS_PER_SINK} subscriptions, since each one
+ * is checked against every event.
+ */
+public final class RpcSubscriptions {
+
+    /** A client connection receiving the notifications of its subscriptions. */
+    public interface Sink {
+        /**
+         * Queues a notification for the client, without waiting.
+         *
+         * @return {@code false} if the notification was dropped since the client is too slow
+         */
+        boolean offer(String notification);
+    }
+
+    public enum Type {
+        NEW_HEADS("newHeads"),
+        LOGS("logs"),
+        NEW_PENDING_TRANSACTIONS("newPendingTransactions");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        /** @return the type with the given {@code eth_subscribe} name, or null if unknown */
+        public static Type fromName(String name) {
+            for (Type type : values()) {
+                if (type.name.equals(name)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Subscription {
+        private final String id;
+        private final Type type;
+        private final FltrLg filter;
+        private final Sink sink;
+
+        private Subscription(String id, Type type, FltrLg filter, Sink sink) {
+            this.id = id;
+            this.type = type;
+            this.filter = filter;
+            this.sink = sink;
+        }
+    }
+
+    /** A log of the imported block, serialized on the first match. */
+    private static final class LogEntry {
+        private final Log log;
+        private final Block block;
+        private final AionTransaction tx;
+        private final int txIndex;
+        private final int logIndex;
+        private String json;
+
+        private LogEntry(Log log, Block block, AionTransaction tx, int txIndex, int logIndex) {
+            this.log = log;
+            this.block = block;
+            this.tx = tx;
+            this.txIndex = txIndex;
+            this.logIndex = logIndex;
+        }
+
+        private String toJson() {
+            if (json == null) {
+                json =
+                        new EvtLg(new TxRecptLg(log, block, txIndex, tx, logIndex, true))
+                                .toJSON()
+                                .toString();
+            }
+            return json;
+        }
+    }
+
+    private static final String PREFIX =
+            "{\"jsonrpc\":\"2.0\",\"method\":\"eth_subscription\",\"params\":{\"subscription\":\"";
+    private static final String MIDDLE = "\",\"result\":";
+    private static final String SUFFIX = "}}";
+
+    public static final int MAX_SUBSCRIPTIONS_PER_SINK = 32;
+
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    // the subscription count of each connection, updated under the lock of this object
+    private final Map<Sink, Integer> counts = new HashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param filter the log filter of a {@link Type#LOGS} subscription, ignored otherwise
+     * @return the subscription id, or null if the connection holds the maximum number of
+     *     subscriptions
+     */
+    public synchronized String subscribe(Type type, FltrLg filter, Sink sink) {
+        if (type == null || sink == null || (type == Type.LOGS && filter == null)) {
+            throw new NullPointerException();
+        }
+
+        int count = counts.getOrDefault(sink, 0);
+        if (count >= MAX_SUBSCRIPTIONS_PER_SINK) {
+            return null;
+        }
+        counts.put(sink, count + 1);
+
+        String id = StringUtils.toJsonHex(nextId.getAndIncrement());
+        subscriptions.put(id, new Subscription(id, type, filter, sink));
+        return id;
+    }
+
+    /** @return {@code true} if the subscription existed and belonged to the given connection */
+    public synchronized boolean unsubscribe(String id, Sink sink) {
+        Subscription subscription = subscriptions.get(id);
+        if (subscription == null || subscription.sink != sink) {
+            return false;
+        }
+        subscriptions.remove(id);
+        counts.computeIfPresent(sink, (s, count) -> count > 1 ? count - 1 : null);
+        return true;
+    }
+
+    /** Removes the subscriptions of a closed connection. */
+    public synchronized void unsubscribeAll(Sink sink) {
+        if (counts.remove(sink) != null) {
+            subscriptions.values().removeIf(s -> s.sink == sink);
+        }
+    }
+
+    public int size() {
+        return subscriptions.size();
+    }
+
+    /** @return the number of notifications dropped because the clients were too slow */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Notifies the subscribers of the new best block and of its logs.
+     *
+     * @param head creates the json header of the block, only called if needed
+     */
+    public void onBestBlock(Block block, List<AionTxReceipt> receipts, Supplier<JSONObject> head) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        String headJson = null;
+        List<LogEntry> logs = null;
+        Bloom blockBloom = null;
+
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.type == Type.NEW_HEADS) {
+                if (headJson == null) {
+                    headJson = head.get().toString();
+                }
+                notify(subscription, headJson);
+            } else if (subscription.type == Type.LOGS) {
+                if (blockBloom == null) {
+                    blockBloom = new Bloom(block.getLogBloom());
+                }
+                if (!subscription.filter.matchBloom(blockBloom)) {
+                    continue;
+                }
+
+                if (logs == null) {
+                    logs = collectLogs(block, receipts);
+                }
+                for (LogEntry entry : logs) {
+                    if (subscription.filter.matchesExactly(entry.log)) {
+                        notify(subscription, entry.toJson());
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<LogEntry> collectLogs(Block block, List<AionTxReceipt> receipts) {
+        List<LogEntry> logs = new ArrayList<>();
+        int txIndex = 0;
+        for (AionTxReceipt receipt : receipts) {
+            int logIndex = 0;
+            for (Log log : receipt.getLogInfoList()) {
+                logs.add(new LogEntry(log, block, receipt.getTransaction(), txIndex, logIndex));
+                logIndex++;
+            }
+            txIndex++;
+        }
+        return logs;
+    }
+
+    /** Notifies the subscribers of a new pending transaction. */
+    public void onPendingTransaction(AionTransaction tx) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        String hashJson = null;
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.type == Type.NEW_PENDING_TRANSACTIONS) {
+                if (hashJson == null) {
+                    hashJson = JSONObject.quote(StringUtils.toJsonHex(tx.getTransactionHash()));
+                }
+                notify(subscription, hashJson);
+            }
+        }
+    }
+
+    private void notify(Subscription subscription, String result) {
+        if (!subscription.sink.offer(PREFIX + subscription.id + MIDDLE + result + SUFFIX)) {
+            dropped.incrementAndGet();
+        }
+    }
+}
@@ -136,6 +136,15 @@ public final class FltrLg extends Fltr {
         }
     }
 
+    /**
+     * @return the blooms of the filter: a matching block bloom contains at least one bloom from
+     *     each group
+     */
+    public Bloom[][] getFilterBlooms() {
+        initBlooms();
+        return filterBlooms;
+    }
+
     public boolean matchBloom(Bloom blockBloom) {
         initBlooms();
         for (Bloom[] andBloom : filterBlooms) {
@@ -41,6 +41,15 @@ public class HdlrZmq implements IHdlr {
         }
     }
 
+    /** @return the response to a request rejected because the server is overloaded */
+    byte[] toRspOverloaded(byte[] request) {
+        return ApiUtil.toReturnHeader(
+                this.api.getApiVersion(),
+                Message.Retcode.r_fail_service_call_VALUE,
+                ApiUtil.getApiMsgHash(request),
+                "server overloaded".getBytes());
+    }
+
     void getTxWait() {
         TxWaitingMappingUpdate txWait = null;
         try {
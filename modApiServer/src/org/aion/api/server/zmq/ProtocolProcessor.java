@@ -15,7 +15,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.aion.api.server.ApiUtil;
 import org.aion.api.server.pb.IHdlr;
 import org.aion.api.server.pb.Message;
@@ -39,16 +42,21 @@ public class ProtocolProcessor implements Runnable {
     private static final String AION_ZMQ_CB_TH = "inproc://aionZmqCbTh";
     private static final String AION_ZMQ_EV_TH = "inproc://aionZmqEvTh";
     private static final String AION_ZMQ_HB_TH = "inproc://aionZmqHbTh";
+    private static final String AION_ZMQ_RSP_TH = "inproc://aionZmqRspTh";
     private final Path PATH;
     private static final long zmqHWM = 100_000;
     private static final int SOCKETID_LEN = 5;
     private static final int SOCKET_RECV_TIMEOUT = 3000;
+    private static final long STATS_LOG_INTERVAL = TimeUnit.MINUTES.toNanos(1);
 
     private final IHdlr handler;
     private CfgApiZmq cfgApi;
     private AtomicBoolean shutDown = new AtomicBoolean();
     private byte[] curvePubKey;
     private byte[] curveSecKey;
+    private volatile RequestScheduler scheduler;
+    // the socket of each request worker thread
+    private final ThreadLocal<Socket> responseSocket = new ThreadLocal<>();
 
     public ProtocolProcessor(IHdlr _handler, final CfgApiZmq cfg) {
         this.handler = _handler;
@@ -115,6 +123,25 @@ public class ProtocolProcessor implements Runnable {
             Socket hbSock = ctx.socket(DEALER);
             hbSock.bind(AION_ZMQ_HB_TH);
 
+            Socket rspSock = ctx.socket(DEALER);
+            rspSock.bind(AION_ZMQ_RSP_TH);
+
+            int workerThreads =
+                    cfgApi.getWorkerThreads() == null
+                            ? RequestScheduler.defaultWorkerThreads()
+                            : cfgApi.getWorkerThreads();
+            int heavyRequestLimit =
+                    cfgApi.getHeavyRequestLimit() == null
+                            ? RequestScheduler.defaultHeavyRequestLimit(workerThreads)
+                            : cfgApi.getHeavyRequestLimit();
+            scheduler =
+                    new RequestScheduler(
+                            workerThreads, heavyRequestLimit, workerThreadFactory(ctx));
+            LOG.info(
+                    "Api Server workers <threads={} heavy-request-limit={}>",
+                    workerThreads,
+                    heavyRequestLimit);
+
             ExecutorService es = Executors.newFixedThreadPool(msgTh);
             es.execute(() -> callbackRun(ctx));
             es.execute(this::txWaitRun);
@@ -122,7 +149,7 @@ public class ProtocolProcessor implements Runnable {
             es.execute(() -> workerRun(ctx));
             es.execute(() -> hbRun(ctx));
 
-            Proxy.proxy(feSock, wkSocks, cbSock, evSock, hbSock);
+            Proxy.proxy(feSock, wkSocks, rspSock, cbSock, evSock, hbSock);
 
             if (LOG.isInfoEnabled()) {
                 LOG.info("ProtocolProcessor.run thread finish.");
@@ -136,11 +163,16 @@ public class ProtocolProcessor implements Runnable {
             // Shutdown ZmqSocket
             feSock.close();
             wkSocks.close();
+            rspSock.close();
             cbSock.close();
             evSock.close();
             hbSock.close();
             // Shutdown ExecutorService
             es.shutdown();
+            scheduler.shutdown();
+            if (!scheduler.awaitTermination(SOCKET_RECV_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                LOG.warn("Api Server workers did not finish the pending requests.");
+            }
 
             ctx.close();
             if (LOG.isInfoEnabled()) {
@@ -304,10 +336,36 @@ public class ProtocolProcessor implements Runnable {
         }
     }
 
+    /**
+     * Creates the request worker threads, each sending its responses through its own socket since
+     * the sockets can't be shared between threads.
+     */
+    private ThreadFactory workerThreadFactory(Context ctx) {
+        AtomicInteger count = new AtomicInteger();
+        return r ->
+                new Thread(
+                        () -> {
+                            Socket sock = ctx.socket(ZMQ.DEALER);
+                            sock.connect(AION_ZMQ_RSP_TH);
+                            responseSocket.set(sock);
+                            try {
+                                r.run();
+                            } finally {
+                                sock.close();
+                                if (LOG.isDebugEnabled()) {
+                                    LOG.debug("close worker sockets...");
+                                }
+                            }
+                        },
+                        "zmq-worker-" + count.incrementAndGet());
+    }
+
+    /** Receives the requests and hands them over to the workers. */
     private void workerRun(ZMQ.Context ctx) {
         Socket sock = ctx.socket(ZMQ.DEALER);
         sock.connect(AION_ZMQ_WK_TH);
         sock.setReceiveTimeOut(SOCKET_RECV_TIMEOUT);
+        long statsLoggedAt = System.nanoTime();
 
         while (!shutDown.get()) {
             try {
@@ -325,22 +383,10 @@ public class ProtocolProcessor implements Runnable {
                                     "ProtocolProcessor.workerRun reqMsg: [{}]",
                                     Hex.toHexString(req));
                         }
-                        byte[] rsp = ((HdlrZmq) this.handler).process(req, socketId);
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace(
-                                    "ProtocolProcessor.workerRun rspMsg: [{}]",
-                                    Hex.toHexString(rsp));
-                        }
-
-                        try {
-                            sock.send(socketId, ZMQ.SNDMORE);
-                            sock.send(rsp, ZMQ.DONTWAIT);
-                        } catch (Exception e) {
-                            if (LOG.isErrorEnabled()) {
-                                LOG.error(
-                                        "ProtocolProcessor.workerRun sock.send exception: "
-                                                + e.getMessage());
-                            }
+                        // the function of the request is the third byte of the header
+                        int type = req.length > 2 ? req[2] : -1;
+                        if (!scheduler.submit(type, () -> processRequest(socketId, req))) {
+                            rejectRequest(sock, socketId, req);
                         }
                     }
                 }
@@ -349,6 +395,11 @@ public class ProtocolProcessor implements Runnable {
                     LOG.error("ProtocolProcessor workerRun exception!! " + e.getMessage());
                 }
             }
+
+            if (LOG.isDebugEnabled() && System.nanoTime() - statsLoggedAt > STATS_LOG_INTERVAL) {
+                statsLoggedAt = System.nanoTime();
+                LOG.debug("ProtocolProcessor request stats: {}", scheduler.getStats().values());
+            }
         }
         sock.close();
         if (LOG.isDebugEnabled()) {
@@ -356,6 +407,43 @@ public class ProtocolProcessor implements Runnable {
         }
     }
 
+    /** Answers a request rejected by the scheduler through the socket it was received from. */
+    private void rejectRequest(Socket sock, byte[] socketId, byte[] req) {
+        byte[] rsp = ((HdlrZmq) this.handler).toRspOverloaded(req);
+        if (rsp == null) {
+            return;
+        }
+
+        sock.send(socketId, ZMQ.SNDMORE);
+        sock.send(rsp, ZMQ.DONTWAIT);
+    }
+
+    private void processRequest(byte[] socketId, byte[] req) {
+        byte[] rsp = ((HdlrZmq) this.handler).process(req, socketId);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("ProtocolProcessor.workerRun rspMsg: [{}]", Hex.toHexString(rsp));
+        }
+
+        Socket sock = responseSocket.get();
+        try {
+            sock.send(socketId, ZMQ.SNDMORE);
+            sock.send(rsp, ZMQ.DONTWAIT);
+        } catch (Exception e) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error("ProtocolProcessor.workerRun sock.send exception: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the queue depth and latency of the request types received so far, empty until the
+     *     server is started
+     */
+    public Map<Integer, RequestScheduler.RequestStats> getRequestStats() {
+        RequestScheduler current = scheduler;
+        return current == null ? Map.of() : current.getStats();
+    }
+
     private void hbRun(ZMQ.Context ctx) {
         Socket sock = ctx.socket(ZMQ.DEALER);
         sock.connect(AION_ZMQ_HB_TH);
@@ -15,13 +15,20 @@ public class Proxy {
     protected static final Logger LOG = LoggerFactory.getLogger(LogEnum.API.toString());
     private static AtomicBoolean shutDown = new AtomicBoolean(false);
 
-    static void proxy(Socket frontend, Socket backend, Socket callback, Socket event, Socket hb) {
-        PollItem[] items = new PollItem[5];
+    static void proxy(
+            Socket frontend,
+            Socket backend,
+            Socket response,
+            Socket callback,
+            Socket event,
+            Socket hb) {
+        PollItem[] items = new PollItem[6];
         items[0] = new PollItem(frontend, Poller.POLLIN);
         items[1] = new PollItem(backend, Poller.POLLIN);
         items[2] = new PollItem(callback, Poller.POLLIN);
         items[3] = new PollItem(event, Poller.POLLIN);
         items[4] = new PollItem(hb, Poller.POLLIN);
+        items[5] = new PollItem(response, Poller.POLLIN);
 
         try {
             while (!shutDown.get()) {
@@ -78,6 +85,16 @@ public class Proxy {
                         break;
                     }
                 }
+
+                // Process a reply of the request workers.
+                if (items[5].isReadable()) {
+                    while (true) {
+                        if (msgProcessSend(response, frontend)) {
+                            return;
+                        }
+                        break;
+                    }
+                }
             }
 
             LOG.debug("zmq-proxy thread was interrupted.");
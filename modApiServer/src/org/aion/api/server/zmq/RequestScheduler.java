@@ -0,0 +1,322 @@
+package org.aion.api.server.zmq;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.api.server.pb.Message.Funcs;
+
+/**
+ * Runs the requests of the java api on a pool of worker threads.
+ *
+ * <p>The requests are grouped into lanes, each lane running at most a fixed number of requests at
+ * the same time and queueing the others in arrival order:
+ *
+ * <ul>
+ *   <li>each expensive request type, like the block range and receipt queries, has a lane limited
+ *       to the heavy request limit, so a burst of them cannot take all the workers;
+ *   <li>the requests changing the kernel state, like the transaction submissions, share a single
+ *       lane running one request at a time, which keeps e.g. the transactions of a client in nonce
+ *       order;
+ *   <li>the other requests run as soon as a worker is free.
+ * </ul>
+ *
+ * <p>The number of requests waiting for a worker is bounded: once the limit is reached, new requests
+ * are rejected so that the caller can answer them with an error instead of queueing them.
+ *
+ * <p>The queue depth and latency of the requests are tracked per request type.
+ */
+public final class RequestScheduler {
+
+    private static final Set<Integer> HEAVY =
+            Set.of(
+                    Funcs.f_call_VALUE,
+                    Funcs.f_estimateNrg_VALUE,
+                    Funcs.f_compile_VALUE,
+                    Funcs.f_compileSolidityZip_VALUE,
+                    Funcs.f_getTransactionReceipt_VALUE,
+                    Funcs.f_eventQuery_VALUE,
+                    Funcs.f_getBlockDetailsByNumber_VALUE,
+                    Funcs.f_getBlockDetailsByHash_VALUE,
+                    Funcs.f_getBlockDetailsByLatest_VALUE,
+                    Funcs.f_getBlockDetailsByRange_VALUE,
+                    Funcs.f_getBlocksByLatest_VALUE,
+                    Funcs.f_getBlockSqlByRange_VALUE,
+                    Funcs.f_getAccountDetailsByAddressList_VALUE);
+
+    private static final Set<Integer> ORDERED =
+            Set.of(
+                    Funcs.f_sendTransaction_VALUE,
+                    Funcs.f_contractDeploy_VALUE,
+                    Funcs.f_signedTransaction_VALUE,
+                    Funcs.f_rawTransaction_VALUE,
+                    Funcs.f_unlockAccount_VALUE,
+                    Funcs.f_accountCreate_VALUE,
+                    Funcs.f_accountLock_VALUE,
+                    Funcs.f_importAccounts_VALUE,
+                    Funcs.f_eventRegister_VALUE,
+                    Funcs.f_eventDeregister_VALUE);
+
+    // the lane shared by the ordered requests, distinct from the request types
+    private static final int ORDERED_LANE = -1;
+
+    /** The number of requests waiting for a worker used when not configured. */
+    public static final int DEFAULT_MAX_QUEUED_REQUESTS = 10_000;
+
+    private final ExecutorService workers;
+    private final int heavyRequestLimit;
+    private final int maxQueuedRequests;
+    // the requests accepted but not started yet, over the worker queue and all the lanes
+    private final AtomicInteger queuedRequests = new AtomicInteger();
+    private final Map<Integer, Lane> lanes = new ConcurrentHashMap<>();
+    private final Map<Integer, RequestStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * @param workerThreads the number of requests processed at the same time
+     * @param heavyRequestLimit the number of requests of each expensive type processed at the same
+     *     time
+     * @param threadFactory creates the worker threads
+     */
+    public RequestScheduler(
+            int workerThreads, int heavyRequestLimit, ThreadFactory threadFactory) {
+        this(workerThreads, heavyRequestLimit, DEFAULT_MAX_QUEUED_REQUESTS, threadFactory);
+    }
+
+    /**
+     * @param workerThreads the number of requests processed at the same time
+     * @param heavyRequestLimit the number of requests of each expensive type processed at the same
+     *     time
+     * @param maxQueuedRequests the number of requests waiting for a worker above which new
+     *     requests are rejected
+     * @param threadFactory creates the worker threads
+     */
+    public RequestScheduler(
+            int workerThreads,
+            int heavyRequestLimit,
+            int maxQueuedRequests,
+            ThreadFactory threadFactory) {
+        if (workerThreads < 1 || heavyRequestLimit < 1 || maxQueuedRequests < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.heavyRequestLimit = heavyRequestLimit;
+        this.maxQueuedRequests = maxQueuedRequests;
+        this.workers =
+                new ThreadPoolExecutor(
+                        workerThreads,
+                        workerThreads,
+                        0L,
+                        TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>(),
+                        threadFactory);
+    }
+
+    /** @return the worker count used when not configured */
+    public static int defaultWorkerThreads() {
+        return Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /** @return the heavy request limit used when not configured */
+    public static int defaultHeavyRequestLimit(int workerThreads) {
+        return Math.max(1, workerThreads / 2);
+    }
+
+    /**
+     * Queues a request for processing, unless too many requests are already waiting for a worker.
+     *
+     * @param type the request type, i.e. the {@link Funcs} value of the request header
+     * @param request processes the request and sends the response
+     * @return {@code false} if the request was rejected, in which case it is not run
+     */
+    public boolean submit(int type, Runnable request) {
+        RequestStats stat = stats.computeIfAbsent(type, RequestStats::new);
+        if (queuedRequests.incrementAndGet() > maxQueuedRequests) {
+            queuedRequests.decrementAndGet();
+            stat.rejected.incrementAndGet();
+            return false;
+        }
+        Task task = new Task(stat, request);
+
+        int lane = ORDERED.contains(type) ? ORDERED_LANE : type;
+        if (lane == ORDERED_LANE || HEAVY.contains(type)) {
+            lanes.computeIfAbsent(lane, l -> new Lane(l == ORDERED_LANE ? 1 : heavyRequestLimit))
+                    .submit(task);
+        } else {
+            execute(task);
+        }
+        return true;
+    }
+
+    private void execute(Runnable task) {
+        workers.execute(task);
+    }
+
+    /**
+     * @return the statistics of the request types received so far, sorted by the request type
+     *     value
+     */
+    public Map<Integer, RequestStats> getStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(stats));
+    }
+
+    /** Stops the workers once the queued requests are processed. */
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    /** Runs a limited number of tasks at the same time, queueing the others in order. */
+    private final class Lane {
+        private final int limit;
+        private final Queue<Task> pending = new ArrayDeque<>();
+        private int running = 0;
+
+        private Lane(int limit) {
+            this.limit = limit;
+        }
+
+        private void submit(Task task) {
+            synchronized (this) {
+                if (running >= limit) {
+                    pending.add(task);
+                    return;
+                }
+                running++;
+            }
+            execute(() -> runAndNext(task));
+        }
+
+        private void runAndNext(Task task) {
+            Task next = task;
+            while (next != null) {
+                next.run();
+                synchronized (this) {
+                    next = pending.poll();
+                    if (next == null) {
+                        running--;
+                    }
+                }
+            }
+        }
+    }
+
+    /** A request with its timing. */
+    private final class Task implements Runnable {
+        private final RequestStats stats;
+        private final Runnable request;
+        private final long queuedAt;
+
+        private Task(RequestStats stats, Runnable request) {
+            this.stats = stats;
+            this.request = request;
+            this.queuedAt = System.nanoTime();
+            stats.queued.incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            queuedRequests.decrementAndGet();
+            stats.queued.decrementAndGet();
+            stats.active.incrementAndGet();
+            try {
+                request.run();
+            } finally {
+                long finishedAt = System.nanoTime();
+                stats.active.decrementAndGet();
+                stats.record(startedAt - queuedAt, finishedAt - queuedAt);
+            }
+        }
+    }
+
+    /** The queue depth and latency of one request type. */
+    public static final class RequestStats {
+        private final int type;
+        private final AtomicLong queued = new AtomicLong();
+        private final AtomicLong active = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong totalLatencyNanos = new AtomicLong();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        private RequestStats(int type) {
+            this.type = type;
+        }
+
+        private void record(long waitNanos, long latencyNanos) {
+            totalWaitNanos.addAndGet(waitNanos);
+            totalLatencyNanos.addAndGet(latencyNanos);
+            maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+            completed.incrementAndGet();
+        }
+
+        /** @return the request type name, or its value if unknown */
+        public String getName() {
+            Funcs func = Funcs.forNumber(type);
+            return func == null ? String.valueOf(type) : func.name();
+        }
+
+        /** @return the number of requests waiting for a worker */
+        public long getQueued() {
+            return queued.get();
+        }
+
+        /** @return the number of requests being processed */
+        public long getActive() {
+            return active.get();
+        }
+
+        public long getCompleted() {
+            return completed.get();
+        }
+
+        /** @return the number of requests rejected because too many were waiting */
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        /** @return the average time from reception to the start of the processing */
+        public double getAverageWaitMillis() {
+            long count = completed.get();
+            return count == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / count;
+        }
+
+        /** @return the average time from reception to the response */
+        public double getAverageLatencyMillis() {
+            long count = completed.get();
+            return count == 0 ? 0 : totalLatencyNanos.get() / 1_000_000.0 / count;
+        }
+
+        public double getMaxLatencyMillis() {
+            return maxLatencyNanos.get() / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s[queued=%d, active=%d, completed=%d, rejected=%d, avgWait=%.2fms, avgLatency=%.2fms, maxLatency=%.2fms]",
+                    getName(),
+                    getQueued(),
+                    getActive(),
+                    getCompleted(),
+                    getRejected(),
+                    getAverageWaitMillis(),
+                    getAverageLatencyMillis(),
+                    getMaxLatencyMillis());
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.aion.api.server.rpc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.api.server.types.FltrLg;
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxReceipt;
+import org.aion.base.Bloom;
+import org.aion.base.LogUtility;
+import org.aion.base.TransactionTypes;
+import org.aion.crypto.ECKeyFac;
+import org.aion.mcf.blockchain.Block;
+import org.aion.types.AionAddress;
+import org.aion.types.Log;
+import org.aion.util.string.StringUtils;
+import org.aion.util.types.AddressUtils;
+import org.aion.zero.impl.types.AionBlock;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class RpcSubscriptionsTest {
+
+    private static final byte[] CONTRACT = new byte[32];
+    private static final byte[] TOPIC = new byte[32];
+
+    static {
+        CONTRACT[0] = (byte) 0xa0;
+        CONTRACT[31] = 1;
+        TOPIC[31] = 7;
+    }
+
+    private final RpcSubscriptions subscriptions = new RpcSubscriptions();
+
+    /** Records the notifications, accepting up to a fixed count. */
+    private static final class TestSink implements RpcSubscriptions.Sink {
+        private final List<String> received = new ArrayList<>();
+        private final int capacity;
+
+        private TestSink(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(String notification) {
+            if (received.size() >= capacity) {
+                return false;
+            }
+            received.add(notification);
+            return true;
+        }
+    }
+
+    private static AionTransaction newTransaction() {
+        return AionTransaction.create(
+                ECKeyFac.inst().create(),
+                BigInteger.ZERO.toByteArray(),
+                new AionAddress(CONTRACT),
+                BigInteger.ONE.toByteArray(),
+                new byte[0],
+                100000,
+                10000000000L,
+                TransactionTypes.DEFAULT);
+    }
+
+    private static AionTxReceipt newReceipt(Log... logs) {
+        Bloom bloom = new Bloom();
+        for (Log log : logs) {
+            bloom.or(LogUtility.createBloomFilterForLog(log));
+        }
+        AionTxReceipt receipt = new AionTxReceipt(new byte[32], bloom, List.of(logs));
+        receipt.setTransaction(newTransaction());
+        return receipt;
+    }
+
+    private static Block newBlock(List<AionTxReceipt> receipts) {
+        Bloom bloom = new Bloom();
+        for (AionTxReceipt receipt : receipts) {
+            bloom.or(receipt.getBloomFilter());
+        }
+        AionBlock empty = AionBlock.newEmptyBlock();
+        return new AionBlock(
+                empty.getParentHash(),
+                empty.getCoinbase(),
+                bloom.getBloomFilterBytes(),
+                empty.getDifficulty(),
+                1,
+                empty.getTimestamp(),
+                empty.getExtraData(),
+                empty.getNonce(),
+                empty.getReceiptsRoot(),
+                empty.getTxTrieRoot(),
+                empty.getStateRoot(),
+                Collections.emptyList(),
+                empty.getHeader().getSolution(),
+                empty.getNrgConsumed(),
+                empty.getNrgLimit());
+    }
+
+    private static FltrLg contractFilter() {
+        FltrLg filter = new FltrLg();
+        filter.setContractAddress(List.of(CONTRACT));
+        return filter;
+    }
+
+    private static JSONObject params(String notification) {
+        JSONObject json = new JSONObject(notification);
+        assertThat(json.getString("method")).isEqualTo("eth_subscription");
+        return json.getJSONObject("params");
+    }
+
+    @Test
+    public void testNewHeadsSerializedOnce() {
+        TestSink first = new TestSink(10);
+        TestSink second = new TestSink(10);
+        String firstId = subscriptions.subscribe(RpcSubscriptions.Type.NEW_HEADS, null, first);
+        String secondId = subscriptions.subscribe(RpcSubscriptions.Type.NEW_HEADS, null, second);
+        assertThat(firstId).isNotEqualTo(secondId);
+
+        AtomicInteger serialized = new AtomicInteger();
+        subscriptions.onBestBlock(
+                newBlock(Collections.emptyList()),
+                Collections.emptyList(),
+                () -> {
+                    serialized.incrementAndGet();
+                    return new JSONObject().put("number", "0x1");
+                });
+
+        assertThat(serialized.get()).isEqualTo(1);
+        assertThat(first.received).hasSize(1);
+        assertThat(second.received).hasSize(1);
+        assertThat(params(first.received.get(0)).getString("subscription")).isEqualTo(firstId);
+        assertThat(params(second.received.get(0)).getString("subscription"))
+                .isEqualTo(secondId);
+        assertThat(params(first.received.get(0)).getJSONObject("result").getString("number"))
+                .isEqualTo("0x1");
+    }
+
+    @Test
+    public void testHeadNotSerializedWithoutSubscribers() {
+        subscriptions.subscribe(
+                RpcSubscriptions.Type.NEW_PENDING_TRANSACTIONS, null, new TestSink(10));
+
+        subscriptions.onBestBlock(
+                newBlock(Collections.emptyList()),
+                Collections.emptyList(),
+                () -> {
+                    throw new AssertionError("no newHeads subscription");
+                });
+    }
+
+    @Test
+    public void testLogsMatchingFilter() {
+        Log matching = Log.topicsAndData(CONTRACT, List.of(TOPIC), new byte[] {1});
+        Log other = Log.dataOnly(AddressUtils.ZERO_ADDRESS.toByteArray(), new byte[] {2});
+        List<AionTxReceipt> receipts = List.of(newReceipt(other), newReceipt(other, matching));
+
+        TestSink sink = new TestSink(10);
+        String id = subscriptions.subscribe(RpcSubscriptions.Type.LOGS, contractFilter(), sink);
+        subscriptions.onBestBlock(newBlock(receipts), receipts, JSONObject::new);
+
+        assertThat(sink.received).hasSize(1);
+        JSONObject params = params(sink.received.get(0));
+        assertThat(params.getString("subscription")).isEqualTo(id);
+        JSONObject log = params.getJSONObject("result");
+        assertThat(log.getString("transactionIndex")).isEqualTo("0x1");
+        assertThat(log.getString("logIndex")).isEqualTo("0x1");
+        assertThat(log.getString("data")).isEqualTo("0x01");
+    }
+
+    @Test
+    public void testLogsSkippedByBlockBloom() {
+        List<AionTxReceipt> receipts =
+                List.of(
+                        newReceipt(
+                                Log.dataOnly(
+                                        AddressUtils.ZERO_ADDRESS.toByteArray(), new byte[0])));
+
+        TestSink sink = new TestSink(10);
+        subscriptions.subscribe(RpcSubscriptions.Type.LOGS, contractFilter(), sink);
+        subscriptions.onBestBlock(newBlock(receipts), receipts, JSONObject::new);
+
+        assertThat(sink.received).isEmpty();
+    }
+
+    @Test
+    public void testPendingTransactions() {
+        TestSink sink = new TestSink(1);
+        String id =
+                subscriptions.subscribe(
+                        RpcSubscriptions.Type.NEW_PENDING_TRANSACTIONS, null, sink);
+
+        AionTransaction tx = newTransaction();
+        subscriptions.onPendingTransaction(tx);
+        subscriptions.onPendingTransaction(newTransaction());
+
+        assertThat(sink.received).hasSize(1);
+        JSONObject params = params(sink.received.get(0));
+        assertThat(params.getString("subscription")).isEqualTo(id);
+        assertThat(params.getString("result"))
+                .isEqualTo(StringUtils.toJsonHex(tx.getTransactionHash()));
+        // the second notification did not fit the buffer of the sink
+        assertThat(subscriptions.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUnsubscribe() {
+        TestSink owner = new TestSink(10);
+        TestSink other = new TestSink(10);
+        String id =
+                subscriptions.subscribe(
+                        RpcSubscriptions.Type.NEW_PENDING_TRANSACTIONS, null, owner);
+        subscriptions.subscribe(RpcSubscriptions.Type.NEW_HEADS, null, owner);
+        subscriptions.subscribe(RpcSubscriptions.Type.NEW_HEADS, null, other);
+
+        // only the connection which subscribed can cancel the subscription
+        assertThat(subscriptions.unsubscribe(id, other)).isFalse();
+        assertThat(subscriptions.unsubscribe(id, owner)).isTrue();
+        assertThat(subscriptions.unsubscribe(id, owner)).isFalse();
+        assertThat(subscriptions.size()).isEqualTo(2);
+
+        subscriptions.unsubscribeAll(owner);
+        assertThat(subscriptions.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSubscriptionsPerSinkLimited() {
+        TestSink sink = new TestSink(10);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < RpcSubscriptions.MAX_SUBSCRIPTIONS_PER_SINK; i++) {
+            ids.add(subscriptions.subscribe(RpcSubscriptions.Type.NEW_HEADS, null, sink));
+        }
+        assertThat(ids).doesNotContain(null);
+        assertThat(subscriptions.subscribe(RpcSubscriptions.Type.NEW_HEADS, null, sink)).isNull();
+
+        // the limit applies to each connection
+        assertThat(
+                        subscriptions.subscribe(
+                                RpcSubscriptions.Type.NEW_HEADS, null, new TestSink(10)))
+                .isNotNull();
+
+        // an unsubscription frees a slot
+        assertThat(subscriptions.unsubscribe(ids.get(0), sink)).isTrue();
+        assertThat(subscriptions.subscribe(RpcSubscriptions.Type.NEW_HEADS, null, sink))
+                .isNotNull();
+
+        subscriptions.unsubscribeAll(sink);
+        assertThat(subscriptions.subscribe(RpcSubscriptions.Type.NEW_HEADS, null, sink))
+                .isNotNull();
+    }
+
+    @Test
+    public void testTypeFromName() {
+        assertThat(RpcSubscriptions.Type.fromName("newHeads"))
+                .isEqualTo(RpcSubscriptions.Type.NEW_HEADS);
+        assertThat(RpcSubscriptions.Type.fromName("logs")).isEqualTo(RpcSubscriptions.Type.LOGS);
+        assertThat(RpcSubscriptions.Type.fromName("newPendingTransactions"))
+                .isEqualTo(RpcSubscriptions.Type.NEW_PENDING_TRANSACTIONS);
+        assertThat(RpcSubscriptions.Type.fromName("syncing")).isNull();
+    }
+}
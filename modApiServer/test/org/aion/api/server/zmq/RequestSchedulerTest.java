@@ -0,0 +1,148 @@
+package org.aion.api.server.zmq;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.api.server.pb.Message.Funcs;
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestSchedulerTest {
+
+    private final RequestScheduler scheduler =
+            new RequestScheduler(4, 1, Executors.defaultThreadFactory());
+
+    @After
+    public void tearDown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testLightRequestsNotBlockedByHeavyOnes() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch heavyStarted = new CountDownLatch(1);
+        AtomicInteger heavyRunning = new AtomicInteger();
+        AtomicInteger maxHeavyRunning = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            scheduler.submit(
+                    Funcs.f_getBlockDetailsByRange_VALUE,
+                    () -> {
+                        maxHeavyRunning.accumulateAndGet(
+                                heavyRunning.incrementAndGet(), Math::max);
+                        heavyStarted.countDown();
+                        await(release);
+                        heavyRunning.decrementAndGet();
+                    });
+        }
+        assertThat(heavyStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // the heavy requests are limited to one worker, the others serve the light requests
+        CountDownLatch light = new CountDownLatch(2);
+        scheduler.submit(Funcs.f_blockNumber_VALUE, light::countDown);
+        scheduler.submit(Funcs.f_getBalance_VALUE, light::countDown);
+        assertThat(light.await(5, TimeUnit.SECONDS)).isTrue();
+
+        RequestScheduler.RequestStats stats =
+                scheduler.getStats().get(Funcs.f_getBlockDetailsByRange_VALUE);
+        assertThat(stats.getName()).isEqualTo(Funcs.f_getBlockDetailsByRange.name());
+        assertThat(stats.getActive()).isEqualTo(1);
+        assertThat(stats.getQueued()).isEqualTo(2);
+
+        release.countDown();
+        scheduler.shutdown();
+        assertThat(scheduler.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxHeavyRunning.get()).isEqualTo(1);
+        assertThat(stats.getCompleted()).isEqualTo(3);
+        assertThat(stats.getQueued()).isEqualTo(0);
+        assertThat(scheduler.getStats().get(Funcs.f_blockNumber_VALUE).getCompleted())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testOrderedRequestsKeepArrivalOrder() throws InterruptedException {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        int[] types = {
+            Funcs.f_sendTransaction_VALUE,
+            Funcs.f_rawTransaction_VALUE,
+            Funcs.f_contractDeploy_VALUE,
+            Funcs.f_signedTransaction_VALUE
+        };
+
+        for (int i = 0; i < 40; i++) {
+            int index = i;
+            scheduler.submit(
+                    types[i % types.length],
+                    () -> {
+                        order.add(index);
+                        Thread.yield();
+                    });
+        }
+
+        scheduler.shutdown();
+        assertThat(scheduler.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).hasSize(40);
+        for (int i = 0; i < 40; i++) {
+            assertThat(order.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void testUnknownRequestType() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.submit(-1, done::countDown);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(scheduler.getStats().get(-1).getName()).isEqualTo("-1");
+    }
+
+    @Test
+    public void testRejectsWhenTooManyQueued() throws InterruptedException {
+        RequestScheduler bounded = new RequestScheduler(1, 1, 2, Executors.defaultThreadFactory());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        assertThat(
+                        bounded.submit(
+                                Funcs.f_getBalance_VALUE,
+                                () -> {
+                                    started.countDown();
+                                    await(release);
+                                }))
+                .isTrue();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // the running request does not count, the waiting ones do
+        AtomicInteger ran = new AtomicInteger();
+        assertThat(bounded.submit(Funcs.f_getBalance_VALUE, ran::incrementAndGet)).isTrue();
+        assertThat(bounded.submit(Funcs.f_sendTransaction_VALUE, ran::incrementAndGet)).isTrue();
+        assertThat(bounded.submit(Funcs.f_getBalance_VALUE, ran::incrementAndGet)).isFalse();
+
+        release.countDown();
+        bounded.shutdown();
+        assertThat(bounded.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran.get()).isEqualTo(2);
+
+        RequestScheduler.RequestStats stats = bounded.getStats().get(Funcs.f_getBalance_VALUE);
+        assertThat(stats.getCompleted()).isEqualTo(2);
+        assertThat(stats.getRejected()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWorkerCount() {
+        new RequestScheduler(0, 1, Executors.defaultThreadFactory());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.aion.base;
 
-import java.math.BigInteger;
 import org.aion.crypto.HashUtil;
 import org.aion.crypto.ISignature;
 import org.aion.crypto.SignatureFac;
@@ -8,7 +7,7 @@ import org.aion.fastvm.FvmConstants;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 import org.aion.types.AionAddress;
 import org.aion.types.InternalTransaction;
 import org.slf4j.Logger;
@@ -69,33 +68,35 @@ public final class TxUtil {
 
     public static AionTransaction decode(byte[] rlpEncoding) {
 
-        RLPList decodedTxList;
+        byte[] nonce, value, data, timeStamp, sigs;
+        AionAddress destination;
+        long energyLimit, energyPrice;
+        byte type;
         try {
-            decodedTxList = RLP.decode2(rlpEncoding);
+            RLPView tx = RLPView.decode(rlpEncoding);
+
+            nonce = tx.get(RLP_TX_NONCE).getRLPData();
+            value = tx.get(RLP_TX_VALUE).getRLPData();
+            data = tx.get(RLP_TX_DATA).getRLPData();
+
+            RLPView rlpTo = tx.get(RLP_TX_TO);
+            if (rlpTo.isEmpty()) {
+                destination = null;
+            } else {
+                destination = new AionAddress(rlpTo.getRLPData());
+            }
+
+            timeStamp = tx.get(RLP_TX_TIMESTAMP).getRLPData();
+            energyLimit = tx.get(RLP_TX_NRG).asLong();
+            energyPrice = tx.get(RLP_TX_NRGPRICE).asLong();
+            type = (byte) tx.get(RLP_TX_TYPE).asLong();
+
+            sigs = tx.get(RLP_TX_SIG).getRLPData();
         } catch (Exception e) {
             LOG.error("tx -> unable to decode rlpEncoding");
             return null;
         }
-        RLPList tx = (RLPList) decodedTxList.get(0);
-
-        byte[] nonce = tx.get(RLP_TX_NONCE).getRLPData();
-        byte[] value = tx.get(RLP_TX_VALUE).getRLPData();
-        byte[] data = tx.get(RLP_TX_DATA).getRLPData();
-
-        byte[] rlpTo = tx.get(RLP_TX_TO).getRLPData();
-        AionAddress destination;
-        if (rlpTo == null || rlpTo.length == 0) {
-            destination = null;
-        } else {
-            destination = new AionAddress(tx.get(RLP_TX_TO).getRLPData());
-        }
-
-        byte[] timeStamp = tx.get(RLP_TX_TIMESTAMP).getRLPData();
-        long energyLimit = new BigInteger(1, tx.get(RLP_TX_NRG).getRLPData()).longValue();
-        long energyPrice = new BigInteger(1, tx.get(RLP_TX_NRGPRICE).getRLPData()).longValue();
-        byte type = new BigInteger(1, tx.get(RLP_TX_TYPE).getRLPData()).byteValue();
 
-        byte[] sigs = tx.get(RLP_TX_SIG).getRLPData();
         ISignature signature;
         AionAddress sender;
         if (sigs != null) {
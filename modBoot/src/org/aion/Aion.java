@@ -201,7 +201,7 @@ public class Aion {
         genLog.info(path);
         genLog.info(logo);
 
-        LongLivedAvm.createAndStartLongLivedAvm();
+        LongLivedAvm.createAndStartLongLivedAvm(cfg.getTx().getExecutionThreads());
         IAionChain ac = AionFactory.create();
 
         EquihashMiner nm = null;
@@ -263,6 +263,8 @@ public class Aion {
                         rpcBuilder.setRequestQueueSize(rpcCfg.getRequestQueueSize());
                         rpcBuilder.setStuckThreadDetectorEnabled(
                                 rpcCfg.isStuckThreadDetectorEnabled());
+                        // websockets are opened for the subscriptions, which require the filters
+                        rpcBuilder.setWebSocketsEnabled(rpcCfg.isFiltersEnabled());
 
                         if (rpcCfg.isCorsEnabled()) {
                             rpcBuilder.enableCorsWithOrigin(rpcCfg.getCorsOrigin());
@@ -214,12 +214,24 @@ public class DatabaseWithCache implements ByteArrayKeyValueDatabase {
 
                 // the dirty entries now match the storage
                 dirtyEntries.clear();
+
+                // data sources that only stage the cache need their own commit
+                if (success && !database.isAutoCommitEnabled()) {
+                    success = database.commit();
+                }
             }
         }
 
         return success;
     }
 
+    @Override
+    public boolean commitShared() {
+        check();
+
+        return database.commitShared();
+    }
+
     @Override
     public void compact() {
         database.compact();
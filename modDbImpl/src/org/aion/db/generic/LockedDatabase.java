@@ -82,6 +82,21 @@ public class LockedDatabase implements ByteArrayKeyValueDatabase {
         }
     }
 
+    @Override
+    public boolean commitShared() {
+        // acquire write lock
+        lock.writeLock().lock();
+
+        try {
+            return database.commitShared();
+        } catch (Exception e) {
+            throw e;
+        } finally {
+            // releasing write lock
+            lock.writeLock().unlock();
+        }
+    }
+
     @Override
     public void compact() {
         // acquire write lock
@@ -62,6 +62,16 @@ public class TimedDatabase implements ByteArrayKeyValueDatabase {
         return cmt;
     }
 
+    @Override
+    public boolean commitShared() {
+        long t1 = System.nanoTime();
+        boolean cmt = database.commitShared();
+        long t2 = System.nanoTime();
+
+        LOG.debug(database.toString() + " commitShared() in " + (t2 - t1) + " ns.");
+        return cmt;
+    }
+
     @Override
     public void compact() {
         long t1 = System.nanoTime();
@@ -56,6 +56,20 @@ public interface Database {
      */
     boolean commit();
 
+    /**
+     * Persists the changes staged by {@link #commit()} in data stores that share their storage with
+     * other databases and write the changes of all of them together.
+     *
+     * @return {@code true} if the changes were successfully written to storage, {@code false}
+     *     otherwise
+     * @throws RuntimeException if the data store is closed
+     * @implNote Returns {@code true} with no other effect for data stores that do not share their
+     *     storage, since their commits are already permanent.
+     */
+    default boolean commitShared() {
+        return true;
+    }
+
     /** Reduce the size of the database when possible. */
     void compact();
 
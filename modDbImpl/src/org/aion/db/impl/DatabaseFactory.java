@@ -11,6 +11,7 @@ import org.aion.db.impl.leveldb.LevelDBConstants;
 import org.aion.db.impl.mockdb.MockDB;
 import org.aion.db.impl.mockdb.PersistentMockDB;
 import org.aion.db.impl.mongodb.MongoDB;
+import org.aion.db.impl.rocksdb.RocksDBColumnFamily;
 import org.aion.db.impl.rocksdb.RocksDBConstants;
 import org.aion.db.impl.rocksdb.RocksDBWrapper;
 import org.slf4j.Logger;
@@ -99,7 +100,9 @@ public abstract class DatabaseFactory {
             return new LockedDatabase(connectWithCache(info, log), log);
         } else {
             DBVendor vendor = DBVendor.fromString(info.getProperty(Props.DB_TYPE));
-            if (vendor == DBVendor.LEVELDB || vendor == DBVendor.ROCKSDB) {
+            if (vendor == DBVendor.LEVELDB
+                    || vendor == DBVendor.ROCKSDB
+                    || vendor == DBVendor.ROCKSDBCF) {
                 return new SpecialLockedDatabase(connectBasic(info, log), log);
             } else {
                 return new LockedDatabase(connectBasic(info, log), log);
@@ -188,6 +191,22 @@ public abstract class DatabaseFactory {
                             getInt(info, Props.READ_BUFFER_SIZE, RocksDBConstants.READ_BUFFER_SIZE),
                             getInt(info, Props.DB_CACHE_SIZE, RocksDBConstants.CACHE_SIZE));
                 }
+            case ROCKSDBCF:
+                {
+                    return new RocksDBColumnFamily(
+                            dbName,
+                            dbPath,
+                            log,
+                            enableDbCache,
+                            enableDbCompression,
+                            getInt(info, Props.MAX_FD_ALLOC, RocksDBConstants.MAX_OPEN_FILES),
+                            getInt(info, Props.BLOCK_SIZE, RocksDBConstants.BLOCK_SIZE),
+                            getInt(
+                                    info,
+                                    Props.WRITE_BUFFER_SIZE,
+                                    RocksDBConstants.WRITE_BUFFER_SIZE),
+                            getInt(info, Props.DB_CACHE_SIZE, RocksDBConstants.CACHE_SIZE));
+                }
             case H2:
                 {
                     return new H2MVMap(dbName, dbPath, log, enableDbCache, enableDbCompression);
@@ -0,0 +1,465 @@
+package org.aion.db.impl.rocksdb;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.aion.db.impl.AbstractDB;
+import org.aion.util.types.ByteArrayWrapper;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.Snapshot;
+import org.rocksdb.WriteBatch;
+import org.slf4j.Logger;
+
+/**
+ * A database stored as a column family inside a RocksDB instance shared with the other databases
+ * created for the same path. The databases share the block cache and write buffer budget, and
+ * their changes are persisted together in one atomic write on {@link #commitShared()}.
+ *
+ * @implNote Writes are kept in memory until {@link #commitShared()} is called on any of the
+ *     databases sharing the instance, which is done once the whole repository is flushed. The
+ *     regular, batch and cache commits only stage their changes so that they cannot persist the
+ *     partial changes of the other databases. The pending writes are visible to reads before being
+ *     committed. Writers from threads other than the committing one are slowed down when the
+ *     pending writes grow past {@link RocksDBConstants#MAX_PENDING_BATCH_SIZE}.
+ */
+public class RocksDBColumnFamily extends AbstractDB {
+
+    // marks pending deletions; compared by identity
+    private static final byte[] DELETED = new byte[0];
+
+    private final String sharedPath;
+    private final int maxOpenFiles;
+    private final int blockSize;
+    private final int writeBufferSize;
+    private final int cacheSize;
+
+    private RocksDBSharedInstance shared;
+    private ColumnFamilyHandle handle;
+    private final Map<ByteArrayWrapper, byte[]> pending = new ConcurrentHashMap<>();
+
+    public RocksDBColumnFamily(
+            String name,
+            String path,
+            Logger log,
+            boolean enableDbCache,
+            boolean enableDbCompression,
+            int maxOpenFiles,
+            int blockSize,
+            int writeBufferSize,
+            int cacheSize) {
+        super(name, path, log, enableDbCache, enableDbCompression);
+
+        this.sharedPath =
+                new File(path, RocksDBConstants.SHARED_DB_NAME).getAbsolutePath();
+        this.maxOpenFiles = maxOpenFiles;
+        this.blockSize = blockSize;
+        this.writeBufferSize = writeBufferSize;
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName()
+                + ":<name="
+                + name
+                + ",autocommit=OFF,shared="
+                + sharedPath
+                + ",compression="
+                + (enableDbCompression ? "ON" : "OFF")
+                + ">";
+    }
+
+    // IDatabase Functionality
+
+    @Override
+    public boolean open() {
+        if (isOpen()) {
+            return true;
+        }
+
+        LOG.debug("Initialising RocksDB column family {}", this.toString());
+
+        RocksDBSharedInstance instance =
+                RocksDBSharedInstance.acquire(
+                        this,
+                        sharedPath,
+                        LOG,
+                        enableDbCompression,
+                        maxOpenFiles,
+                        blockSize,
+                        writeBufferSize,
+                        cacheSize);
+        if (instance == null) {
+            return false;
+        }
+
+        try {
+            handle = instance.getOrCreateHandle(name, writeBufferSize);
+            shared = instance;
+        } catch (RocksDBException e) {
+            LOG.error("Failed to open the column family for " + this.toString() + " due to: ", e);
+            RocksDBSharedInstance.release(instance, this);
+        }
+
+        return isOpen();
+    }
+
+    @Override
+    public void close() {
+        // do nothing if already closed
+        if (shared == null) {
+            return;
+        }
+
+        LOG.info("Closing database " + this.toString());
+
+        // the pending changes are committed before the instance is released
+        RocksDBSharedInstance.release(shared, this);
+        pending.clear();
+        shared = null;
+        handle = null;
+    }
+
+    @Override
+    public void drop() {
+        boolean wasOpen = isOpen();
+        if (!wasOpen && !open()) {
+            return;
+        }
+
+        shared.lockPending();
+        try {
+            pending.clear();
+            handle = shared.recreate(name, writeBufferSize);
+        } catch (RocksDBException e) {
+            LOG.error("Unable to drop " + this.toString() + " due to: ", e);
+        } finally {
+            shared.unlockPending();
+        }
+
+        if (!wasOpen) {
+            close();
+        }
+    }
+
+    @Override
+    public void compact() {
+        LOG.info("Compacting " + this.toString() + ".");
+        try {
+            shared.getDatabase().compactRange(handle);
+        } catch (RocksDBException e) {
+            LOG.error("Cannot compact data.", e);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return shared != null && handle != null && shared.isOpen();
+    }
+
+    @Override
+    public boolean isCreatedOnDisk() {
+        if (isOpen()) {
+            return new File(sharedPath, "CURRENT").exists();
+        }
+
+        byte[] cf = name.getBytes(StandardCharsets.UTF_8);
+        for (byte[] existing : RocksDBSharedInstance.listColumnFamilies(sharedPath)) {
+            if (Arrays.equals(cf, existing)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long approximateSize() {
+        check();
+
+        try {
+            return shared.getDatabase().getLongProperty(handle, "rocksdb.total-sst-files-size");
+        } catch (RocksDBException e) {
+            LOG.error("Unable to compute the size of " + this.toString() + ".", e);
+            return -1L;
+        }
+    }
+
+    @Override
+    public boolean isAutoCommitEnabled() {
+        return false;
+    }
+
+    /**
+     * Only stages the changes. They are persisted by the next {@link #commitShared()} together with
+     * the changes of the other databases sharing the instance.
+     */
+    @Override
+    public boolean commit() {
+        check();
+
+        return true;
+    }
+
+    /** Writes the pending changes of all the databases sharing the instance in one atomic batch. */
+    @Override
+    public boolean commitShared() {
+        check();
+
+        return shared.commit();
+    }
+
+    // IKeyValueStore functionality
+
+    @Override
+    public boolean isEmpty() {
+        check();
+
+        for (byte[] value : pending.values()) {
+            if (value != DELETED) {
+                return false;
+            }
+        }
+
+        try (RocksIterator itr = shared.getDatabase().newIterator(handle)) {
+            for (itr.seekToFirst(); itr.isValid(); itr.next()) {
+                byte[] value = pending.get(ByteArrayWrapper.wrap(itr.key()));
+                // the stored value is valid unless deleted by a pending operation
+                if (value != DELETED) {
+                    return false;
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Unable to extract information from database " + this.toString() + ".", e);
+        }
+
+        return true;
+    }
+
+    @Override
+    public Iterator<byte[]> keys() {
+        check();
+
+        // the pending changes cannot be committed while taking the snapshots
+        shared.lockPending();
+        try {
+            Map<ByteArrayWrapper, byte[]> overlay = new HashMap<>(pending);
+            Snapshot snapshot = shared.getDatabase().getSnapshot();
+            ReadOptions readOptions = new ReadOptions();
+            readOptions.setSnapshot(snapshot);
+            return new ColumnFamilyIterator(
+                    overlay, readOptions, shared.getDatabase().newIterator(handle, readOptions));
+        } finally {
+            shared.unlockPending();
+        }
+    }
+
+    /**
+     * Iterates over the stored keys as seen at creation, followed by the pending keys that are not
+     * yet stored on disk.
+     */
+    private final class ColumnFamilyIterator implements Iterator<byte[]> {
+        private final Map<ByteArrayWrapper, byte[]> overlay;
+        private final ReadOptions readOptions;
+        private final RocksIterator iterator;
+        private Iterator<Map.Entry<ByteArrayWrapper, byte[]>> pendingKeys = null;
+        private byte[] nextKey = null;
+        private boolean closed = false;
+
+        ColumnFamilyIterator(
+                Map<ByteArrayWrapper, byte[]> overlay,
+                ReadOptions readOptions,
+                RocksIterator iterator) {
+            this.overlay = overlay;
+            this.readOptions = readOptions;
+            this.iterator = iterator;
+            iterator.seekToFirst();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextKey == null) {
+                nextKey = advance();
+            }
+            return nextKey != null;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte[] key = nextKey;
+            nextKey = null;
+            return key;
+        }
+
+        private byte[] advance() {
+            // stored keys, skipping the ones overwritten or deleted by pending changes
+            while (!closed && iterator.isValid()) {
+                byte[] key = iterator.key();
+                iterator.next();
+                if (overlay.remove(ByteArrayWrapper.wrap(key)) != DELETED) {
+                    return key;
+                }
+            }
+            release();
+
+            // pending keys not seen on disk
+            if (pendingKeys == null) {
+                pendingKeys = overlay.entrySet().iterator();
+            }
+            while (pendingKeys.hasNext()) {
+                Map.Entry<ByteArrayWrapper, byte[]> entry = pendingKeys.next();
+                if (entry.getValue() != DELETED) {
+                    return entry.getKey().getData();
+                }
+            }
+            return null;
+        }
+
+        private void release() {
+            if (!closed) {
+                iterator.close();
+                if (shared != null && shared.isOpen()) {
+                    shared.getDatabase().releaseSnapshot(readOptions.snapshot());
+                }
+                readOptions.close();
+                closed = true;
+            }
+        }
+    }
+
+    @Override
+    protected byte[] getInternal(byte[] key) {
+        byte[] value = pending.get(ByteArrayWrapper.wrap(key));
+        if (value != null) {
+            return value == DELETED ? null : value;
+        }
+
+        try {
+            return shared.getDatabase().get(handle, key);
+        } catch (RocksDBException e) {
+            LOG.error("Unable to get key " + Arrays.toString(key) + ". " + e);
+        }
+
+        return null;
+    }
+
+    /** Adds the operation to the pending changes. Must not be called while holding the lock. */
+    private void addPending(byte[] key, byte[] value) {
+        shared.lockPending();
+        try {
+            pending.put(ByteArrayWrapper.wrap(key), value);
+        } finally {
+            shared.unlockPending();
+        }
+        shared.addPendingBytes(key.length + value.length);
+    }
+
+    @Override
+    public void putInternal(byte[] key, byte[] value) {
+        addPending(key, value);
+    }
+
+    @Override
+    public void deleteInternal(byte[] key) {
+        addPending(key, DELETED);
+    }
+
+    @Override
+    public void putToBatchInternal(byte[] key, byte[] value) {
+        addPending(key, value);
+    }
+
+    @Override
+    public void deleteInBatchInternal(byte[] key) {
+        addPending(key, DELETED);
+    }
+
+    @Override
+    public void commitBatch() {
+        check();
+
+        // the batched changes are already pending and are persisted by the next shared commit
+        // together with the other column families
+    }
+
+    @Override
+    public void putBatchInternal(Map<byte[], byte[]> input) {
+        long size = 0;
+        shared.lockPending();
+        try {
+            for (Map.Entry<byte[], byte[]> e : input.entrySet()) {
+                pending.put(ByteArrayWrapper.wrap(e.getKey()), e.getValue());
+                size += e.getKey().length + e.getValue().length;
+            }
+        } finally {
+            shared.unlockPending();
+        }
+        shared.addPendingBytes(size);
+    }
+
+    @Override
+    public void deleteBatchInternal(Collection<byte[]> keys) {
+        long size = 0;
+        shared.lockPending();
+        try {
+            for (byte[] key : keys) {
+                pending.put(ByteArrayWrapper.wrap(key), DELETED);
+                size += key.length;
+            }
+        } finally {
+            shared.unlockPending();
+        }
+        shared.addPendingBytes(size);
+    }
+
+    /** Stages the given changes. They are persisted by the next {@link #commitShared()}. */
+    @Override
+    public boolean commitCache(Map<ByteArrayWrapper, byte[]> cache) {
+        check();
+
+        long size = 0;
+        shared.lockPending();
+        try {
+            for (Map.Entry<ByteArrayWrapper, byte[]> e : cache.entrySet()) {
+                byte[] value = e.getValue() == null ? DELETED : e.getValue();
+                pending.put(e.getKey(), value);
+                size += e.getKey().getData().length + value.length;
+            }
+        } finally {
+            shared.unlockPending();
+        }
+        shared.addPendingBytes(size);
+
+        return true;
+    }
+
+    /** Adds the pending changes to the given batch. Called under the shared commit lock. */
+    void addPendingTo(WriteBatch batch) throws RocksDBException {
+        if (handle == null) {
+            return;
+        }
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : pending.entrySet()) {
+            if (e.getValue() == DELETED) {
+                batch.delete(handle, e.getKey().getData());
+            } else {
+                batch.put(handle, e.getKey().getData(), e.getValue());
+            }
+        }
+    }
+
+    /** Clears the pending changes after a successful commit. Called under the shared commit lock. */
+    void clearPending() {
+        pending.clear();
+    }
+}
@@ -7,5 +7,12 @@ public class RocksDBConstants {
     public static int READ_BUFFER_SIZE = 64 * 1024 * 1024;
     public static int CACHE_SIZE = 128 * 1024 * 1024;
 
+    // used by the column family vendor where all the databases share one instance
+    public static final String SHARED_DB_NAME = "shared";
+    // writers wait for the next commit when the pending writes exceed this size
+    public static final long MAX_PENDING_BATCH_SIZE = 64 * 1024 * 1024;
+    // the longest time a writer waits for the next commit
+    public static final long MAX_PENDING_WAIT_MS = 1000;
+
     private RocksDBConstants() {}
 }
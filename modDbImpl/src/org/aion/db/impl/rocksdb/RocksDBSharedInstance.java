@@ -0,0 +1,421 @@
+package org.aion.db.impl.rocksdb;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DBOptions;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteBufferManager;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+
+/**
+ * A single RocksDB instance shared by several logical databases, each stored in its own column
+ * family. All the column families use the same LRU block cache and the same write buffer manager.
+ * The pending writes of all the column families are committed together in one atomic {@link
+ * WriteBatch}.
+ *
+ * @implNote Instances are reference counted and shared between all the {@link
+ *     RocksDBColumnFamily} objects created for the same path. The RocksDB instance is closed when
+ *     the last column family is closed.
+ */
+final class RocksDBSharedInstance {
+
+    // path => shared instance
+    private static final Map<String, RocksDBSharedInstance> instances = new HashMap<>();
+
+    private final String path;
+    private final Logger LOG;
+
+    private final int maxOpenFiles;
+    private final int blockSize;
+    private final int writeBufferSize;
+    private final int cacheSize;
+    private final boolean enableDbCompression;
+
+    private RocksDB db;
+    private DBOptions dbOptions;
+    private LRUCache cache;
+    private WriteBufferManager writeBufferManager;
+    private final Map<String, ColumnFamilyHandle> handles = new HashMap<>();
+    private final List<ColumnFamilyOptions> familyOptions = new ArrayList<>();
+
+    private final Set<RocksDBColumnFamily> families = new CopyOnWriteArraySet<>();
+    private int references = 0;
+
+    // writes to the pending batches hold the read lock, while commits hold the write lock
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private final AtomicLong pendingBytes = new AtomicLong(0);
+
+    // writers wait on the condition for the next commit when the pending writes are too large
+    private final Lock commitsLock = new ReentrantLock();
+    private final Condition committed = commitsLock.newCondition();
+    private long commits = 0;
+    private volatile Thread committer = null;
+    // the last commit count for which the current thread gave up waiting
+    private final ThreadLocal<Long> waitedFor = ThreadLocal.withInitial(() -> -1L);
+
+    private RocksDBSharedInstance(
+            String path,
+            Logger log,
+            boolean enableDbCompression,
+            int maxOpenFiles,
+            int blockSize,
+            int writeBufferSize,
+            int cacheSize) {
+        this.path = path;
+        this.LOG = log;
+        this.enableDbCompression = enableDbCompression;
+        this.maxOpenFiles = maxOpenFiles;
+        this.blockSize = blockSize;
+        this.writeBufferSize = writeBufferSize;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Returns the shared instance for the given path, opening the RocksDB instance if needed. The
+     * shared settings (cache and write buffer budget) are defined by the first column family that
+     * opens the instance.
+     *
+     * @return the open shared instance or {@code null} if the database could not be opened
+     */
+    static synchronized RocksDBSharedInstance acquire(
+            RocksDBColumnFamily family,
+            String path,
+            Logger log,
+            boolean enableDbCompression,
+            int maxOpenFiles,
+            int blockSize,
+            int writeBufferSize,
+            int cacheSize) {
+        RocksDBSharedInstance instance = instances.get(path);
+        if (instance != null && !new File(path, "CURRENT").exists()) {
+            // the files were removed from disk while open; the column families still referencing
+            // the old instance will report being closed and new ones get a fresh instance
+            log.warn("The shared RocksDB instance at {} was removed from disk.", path);
+            instance.close();
+            instances.remove(path);
+            instance = null;
+        }
+        if (instance == null) {
+            instance =
+                    new RocksDBSharedInstance(
+                            path,
+                            log,
+                            enableDbCompression,
+                            maxOpenFiles,
+                            blockSize,
+                            writeBufferSize,
+                            cacheSize);
+            if (!instance.open()) {
+                return null;
+            }
+            instances.put(path, instance);
+        }
+        instance.references++;
+        instance.families.add(family);
+        return instance;
+    }
+
+    /** Releases the given column family, closing the RocksDB instance if no longer used. */
+    static synchronized void release(RocksDBSharedInstance instance, RocksDBColumnFamily family) {
+        // persist any pending changes before the column family becomes unavailable
+        instance.commit();
+        if (instance.families.remove(family)) {
+            instance.references--;
+        }
+        if (instance.references <= 0) {
+            instance.close();
+            instances.remove(instance.path, instance);
+        }
+    }
+
+    private boolean open() {
+        File f = new File(path);
+        File dbRoot = f.getParentFile();
+
+        // make the parent directory if not exists
+        if (!dbRoot.exists()) {
+            if (!dbRoot.mkdirs()) {
+                LOG.error("Failed to initialize the database storage for " + path + ".");
+                return false;
+            }
+        }
+
+        RocksDB.loadLibrary();
+
+        cache = new LRUCache(cacheSize);
+        // the memtables of all column families are charged against the shared cache
+        writeBufferManager = new WriteBufferManager(2L * writeBufferSize, cache);
+
+        dbOptions = new DBOptions();
+        dbOptions.setCreateIfMissing(true);
+        dbOptions.setCreateMissingColumnFamilies(true);
+        dbOptions.setParanoidChecks(true);
+        dbOptions.setMaxOpenFiles(maxOpenFiles);
+        dbOptions.setWriteBufferManager(writeBufferManager);
+
+        // the existing column families must all be opened
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        for (byte[] name : listColumnFamilies(path)) {
+            descriptors.add(new ColumnFamilyDescriptor(name, newFamilyOptions(writeBufferSize)));
+        }
+        if (descriptors.isEmpty()) {
+            descriptors.add(
+                    new ColumnFamilyDescriptor(
+                            RocksDB.DEFAULT_COLUMN_FAMILY, newFamilyOptions(writeBufferSize)));
+        }
+
+        List<ColumnFamilyHandle> openHandles = new ArrayList<>();
+        try {
+            db = RocksDB.open(dbOptions, f.getAbsolutePath(), descriptors, openHandles);
+            for (int i = 0; i < descriptors.size(); i++) {
+                handles.put(
+                        new String(descriptors.get(i).columnFamilyName(), StandardCharsets.UTF_8),
+                        openHandles.get(i));
+            }
+            LOG.info(
+                    "Opened shared RocksDB instance at {} with column families {}.",
+                    path,
+                    handles.keySet());
+        } catch (RocksDBException e) {
+            if (e.getMessage() != null && e.getMessage().contains("lock")) {
+                LOG.error(
+                        "Failed to open the database "
+                                + path
+                                + "\nCheck if you have two instances running on the same database."
+                                + "\nFailure due to: ",
+                        e);
+            } else {
+                LOG.error("Failed to open the database " + path + " due to: ", e);
+            }
+            close();
+        }
+
+        return db != null;
+    }
+
+    /** @return the names of the column families stored at the given path, if any */
+    static List<byte[]> listColumnFamilies(String path) {
+        if (!new File(path, "CURRENT").exists()) {
+            return new ArrayList<>();
+        }
+        try (Options options = new Options()) {
+            return RocksDB.listColumnFamilies(options, path);
+        } catch (RocksDBException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    private ColumnFamilyOptions newFamilyOptions(int familyWriteBufferSize) {
+        ColumnFamilyOptions options = new ColumnFamilyOptions();
+        options.setCompressionType(
+                enableDbCompression
+                        ? CompressionType.SNAPPY_COMPRESSION
+                        : CompressionType.NO_COMPRESSION);
+        options.setWriteBufferSize(familyWriteBufferSize);
+
+        BlockBasedTableConfig bbtc = new BlockBasedTableConfig();
+        bbtc.setBlockSize(blockSize);
+        bbtc.setBlockCache(cache);
+        options.setTableFormatConfig(bbtc);
+
+        familyOptions.add(options);
+        return options;
+    }
+
+    /** Returns the handle for the given column family, creating the column family if missing. */
+    synchronized ColumnFamilyHandle getOrCreateHandle(String name, int familyWriteBufferSize)
+            throws RocksDBException {
+        ColumnFamilyHandle handle = handles.get(name);
+        if (handle == null) {
+            handle =
+                    db.createColumnFamily(
+                            new ColumnFamilyDescriptor(
+                                    name.getBytes(StandardCharsets.UTF_8),
+                                    newFamilyOptions(familyWriteBufferSize)));
+            handles.put(name, handle);
+        }
+        return handle;
+    }
+
+    /** Drops all the data in the given column family and recreates it empty. */
+    synchronized ColumnFamilyHandle recreate(String name, int familyWriteBufferSize)
+            throws RocksDBException {
+        ColumnFamilyHandle handle = handles.remove(name);
+        if (handle != null) {
+            db.dropColumnFamily(handle);
+            handle.close();
+        }
+        return getOrCreateHandle(name, familyWriteBufferSize);
+    }
+
+    RocksDB getDatabase() {
+        return db;
+    }
+
+    boolean isOpen() {
+        return db != null;
+    }
+
+    /** Must be held while adding writes to the pending batch of a column family. */
+    void lockPending() {
+        commitLock.readLock().lock();
+    }
+
+    void unlockPending() {
+        commitLock.readLock().unlock();
+    }
+
+    /**
+     * Records the size of newly added pending writes. The writes are not committed here since that
+     * would persist the partial changes of the other column families. Instead, when they exceed
+     * {@link RocksDBConstants#MAX_PENDING_BATCH_SIZE}, writers other than the thread that commits
+     * wait for the next commit.
+     *
+     * @implNote The wait is limited to {@link RocksDBConstants#MAX_PENDING_WAIT_MS} and done at
+     *     most once per commit by each thread, because the committing thread may itself be waiting
+     *     for the blocked writer to finish before it commits.
+     */
+    void addPendingBytes(long bytes) {
+        long total = pendingBytes.addAndGet(bytes);
+        if (total > RocksDBConstants.MAX_PENDING_BATCH_SIZE
+                && Thread.currentThread() != committer) {
+            awaitCommit();
+        }
+    }
+
+    private void awaitCommit() {
+        commitsLock.lock();
+        try {
+            long current = commits;
+            if (waitedFor.get() == current) {
+                return;
+            }
+
+            long nanos = TimeUnit.MILLISECONDS.toNanos(RocksDBConstants.MAX_PENDING_WAIT_MS);
+            while (commits == current
+                    && pendingBytes.get() > RocksDBConstants.MAX_PENDING_BATCH_SIZE
+                    && nanos > 0) {
+                nanos = committed.awaitNanos(nanos);
+            }
+
+            if (commits == current && nanos <= 0) {
+                waitedFor.set(current);
+                LOG.warn(
+                        "The pending writes to {} exceed {} bytes and were not committed in {} ms.",
+                        path,
+                        RocksDBConstants.MAX_PENDING_BATCH_SIZE,
+                        RocksDBConstants.MAX_PENDING_WAIT_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            commitsLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending changes of all the column families to disk in one atomic batch.
+     *
+     * @return {@code true} if the write succeeded, {@code false} otherwise
+     */
+    boolean commit() {
+        commitLock.writeLock().lock();
+
+        try (WriteBatch batch = new WriteBatch();
+                WriteOptions writeOptions = new WriteOptions()) {
+            if (db == null) {
+                return false;
+            }
+
+            for (RocksDBColumnFamily family : families) {
+                family.addPendingTo(batch);
+            }
+
+            if (batch.count() > 0) {
+                db.write(writeOptions, batch);
+            }
+
+            for (RocksDBColumnFamily family : families) {
+                family.clearPending();
+            }
+            pendingBytes.set(0);
+            signalCommit();
+
+            return true;
+        } catch (RocksDBException e) {
+            LOG.error("Unable to commit the pending writes to " + path + ".", e);
+            return false;
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    /** Releases the writers waiting for the pending writes to be committed. */
+    private void signalCommit() {
+        commitsLock.lock();
+        try {
+            commits++;
+            committer = Thread.currentThread();
+            committed.signalAll();
+        } finally {
+            commitsLock.unlock();
+        }
+    }
+
+        private void close() {
+        LOG.info("Closing shared RocksDB instance at " + path);
+
+        for (ColumnFamilyHandle handle : handles.values()) {
+            handle.close();
+        }
+        handles.clear();
+
+        if (db != null) {
+            db.close();
+            db = null;
+        }
+
+        if (dbOptions != null) {
+            dbOptions.close();
+            dbOptions = null;
+        }
+
+        for (ColumnFamilyOptions options : familyOptions) {
+            options.close();
+        }
+        familyOptions.clear();
+
+        if (writeBufferManager != null) {
+            writeBufferManager.close();
+            writeBufferManager = null;
+        }
+
+        if (cache != null) {
+            cache.close();
+            cache = null;
+        }
+    }
+}
@@ -17,7 +17,8 @@ class DataSourceArray<V> implements ArrayStore<V> {
     private final ByteArrayKeyValueDatabase db;
     @VisibleForTesting
     static final byte[] sizeKey = Hex.decode("FFFFFFFFFFFFFFFF");
-    private long size = -1L;
+    // read without synchronization by the lock-free block store queries
+    private volatile long size = -1L;
 
     DataSourceArray(ByteArrayKeyValueDatabase database, Serializer<V> serializer) {
         this.db = database;
@@ -1,7 +1,6 @@
 package org.aion.db.store;
 
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
-import org.aion.util.types.ByteArrayWrapper;
 import org.slf4j.Logger;
 
 /**
@@ -31,26 +30,18 @@ final class DebugLruDataSource<V> extends LruDataSource<V> {
         this.log = log;
     }
 
-    public V get(byte[] key) {
-        ByteArrayWrapper wrappedKey = ByteArrayWrapper.wrap(key);
-        if (cache.containsKey(wrappedKey)) {
-            // gather usage data
+    @Override
+    protected void recordAccess(boolean hit) {
+        // gather usage data
+        if (hit) {
             hits++;
-
-            return cache.get(wrappedKey);
         } else {
-            // gather usage data
             missed++;
 
-            V val = super.get(key);
-            cache.put(wrappedKey, val);
-
             // logging information on missed caching opportunities
             if (log.isTraceEnabled()) {
                 log.trace("[Database:" + getName() + "] Stack trace for missed cache retrieval: ", new Exception());
             }
-
-            return val;
         }
     }
 
@@ -1,5 +1,7 @@
 package org.aion.db.store;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -10,9 +12,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.impl.ByteArrayKeyValueStore;
 import org.aion.util.types.ByteArrayWrapper;
@@ -24,13 +28,24 @@ import org.slf4j.Logger;
  * [storeBlockChanges] call). When the [prune] is called for a block the deletes for this block are
  * submitted to the underlying DataSource with respect to following inserts. E.g. if the key was
  * deleted at block N and then inserted at block N + 10 this delete is not passed.
+ *
+ * <p>When constructed with a journal database, the per-block updates and the reference counts are
+ * also persisted (using a compact encoding) so that the journal survives restarts. In this mode
+ * only the updates for the most recent blocks (up to the given heap window) are kept in memory,
+ * while reference counts are held in memory only until the next call to [storeBlockChanges] or
+ * [prune] after which they are written to the journal in a single batch. Each journaled block also
+ * has an index entry keyed by its number, so storing or pruning a block writes only its own entry.
+ *
+ * <p>The deletes are submitted to the underlying DataSource in bounded batches and the journal is
+ * committed before each batch, so a crash in between can leave unreferenced keys in the DataSource
+ * but never removes keys that are still referenced.
  */
 public class JournalPruneDataSource implements ByteArrayKeyValueStore {
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final Logger LOG;
 
-    private class Updates {
+    private static class Updates {
         ByteArrayWrapper blockHeader;
         long blockNumber;
         Set<ByteArrayWrapper> insertedKeys = new HashSet<>();
@@ -56,19 +71,79 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         }
     }
 
+    /** The maximum number of keys submitted for deletion to the source in a single batch. */
+    private static final int PRUNE_BATCH_SIZE = 10_000;
+
+    // key prefixes used by the persisted journal
+    private static final byte INDEX_PREFIX = 0;
+    private static final byte BLOCK_PREFIX = 1;
+    private static final byte REF_PREFIX = 2;
+
+    // the value of the index entries, which carry all their information in the key
+    private static final byte[] INDEX_VALUE = new byte[] {1};
+
     Map<ByteArrayWrapper, Ref> refCount = new HashMap<>();
 
     private ByteArrayKeyValueStore src;
     // block hash => updates
-    private LinkedHashMap<ByteArrayWrapper, Updates> blockUpdates = new LinkedHashMap<>();
+    private LinkedHashMap<ByteArrayWrapper, Updates> blockUpdates;
     private Updates currentUpdates = new Updates();
     private AtomicBoolean enabled = new AtomicBoolean(false);
     private final boolean hasArchive;
 
+    // persisted journal; null when the journal is kept only in memory
+    private final ByteArrayKeyValueDatabase journal;
+    // block number => block hashes for all the blocks stored in the persisted journal
+    private final TreeMap<Long, Set<ByteArrayWrapper>> journalIndex = new TreeMap<>();
+
+    // notified of the keys deleted by pruning; null when not set
+    private volatile Consumer<List<byte[]>> pruneListener = null;
+
     public JournalPruneDataSource(ByteArrayKeyValueStore src, Logger log) {
         this.src = src;
         this.hasArchive = src instanceof ArchivedDataSource;
         this.LOG = log;
+        this.journal = null;
+        this.blockUpdates = new LinkedHashMap<>();
+    }
+
+    /**
+     * Creates a data source that persists its journal to the given database.
+     *
+     * @param src the data source where the inserts are forwarded and the deletes are applied
+     * @param journal the database used to persist the block updates and reference counts, which
+     *     is not closed together with this data source
+     * @param heapWindow the maximum number of block updates that are also cached in memory
+     * @param log the logger used by this data source
+     */
+    public JournalPruneDataSource(
+            ByteArrayKeyValueStore src,
+            ByteArrayKeyValueDatabase journal,
+            int heapWindow,
+            Logger log) {
+        this.src = src;
+        this.hasArchive = src instanceof ArchivedDataSource;
+        this.LOG = log;
+        this.journal = journal;
+        this.blockUpdates =
+                new LinkedHashMap<>() {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<ByteArrayWrapper, Updates> eldest) {
+                        // the evicted updates are still available from the journal
+                        return size() > heapWindow;
+                    }
+                };
+        loadJournalIndex();
+    }
+
+    /**
+     * Sets the listener notified of the keys deleted from the underlying data source by {@link
+     * #prune(ByteArrayWrapper, long)}, for example to evict them from the caches built over this
+     * data source. The listener is called after each batch of deletes, while holding the write
+     * lock.
+     */
+    public void setPruneListener(Consumer<List<byte[]>> listener) {
+        this.pruneListener = listener;
     }
 
     public void setPruneEnabled(boolean _enabled) {
@@ -189,8 +264,8 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
     }
 
     private void incRef(ByteArrayWrapper keyW) {
-        Ref cnt = refCount.get(keyW);
-        if (cnt == null) {
+        Ref cnt = getRef(keyW);
+        if (cnt == null || cnt.journalRefs == 0) {
             cnt = new Ref(src.get(keyW.getData()).isPresent());
             refCount.put(keyW, cnt);
         }
@@ -198,14 +273,36 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
     }
 
     private Ref decRef(ByteArrayWrapper keyW) {
-        Ref cnt = refCount.get(keyW);
+        Ref cnt = getRef(keyW);
+        if (cnt == null) {
+            // can only happen if the journal was tampered with; keep the key in the database
+            LOG.warn("Missing journal reference count for key {}.", keyW);
+            return new Ref(true);
+        }
         cnt.journalRefs -= 1;
-        if (cnt.journalRefs == 0) {
+        if (cnt.journalRefs == 0 && journal == null) {
+            // the persisted references are removed when flushing the journal
             refCount.remove(keyW);
         }
         return cnt;
     }
 
+    /**
+     * Retrieves the reference count for the given key, loading it from the persisted journal when
+     * it is not already in memory.
+     */
+    private Ref getRef(ByteArrayWrapper keyW) {
+        Ref cnt = refCount.get(keyW);
+        if (cnt == null && journal != null) {
+            Optional<byte[]> encoded = journal.get(refKey(keyW));
+            if (encoded.isPresent()) {
+                cnt = decodeRef(encoded.get());
+                refCount.put(keyW, cnt);
+            }
+        }
+        return cnt;
+    }
+
     public void storeBlockChanges(ByteArrayWrapper blockHash, long blockNumber) {
         if (!enabled.get()) {
             return;
@@ -217,6 +314,14 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
             currentUpdates.blockHeader = blockHash;
             currentUpdates.blockNumber = blockNumber;
             blockUpdates.put(blockHash, currentUpdates);
+
+            if (journal != null) {
+                journal.putToBatch(blockKey(blockHash), encodeUpdates(currentUpdates));
+                journal.putToBatch(indexKey(blockNumber, blockHash), INDEX_VALUE);
+                journalIndex.computeIfAbsent(blockNumber, k -> new HashSet<>()).add(blockHash);
+                flushJournal();
+            }
+
             currentUpdates = new Updates();
         } finally {
             lock.writeLock().unlock();
@@ -231,48 +336,189 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         lock.writeLock().lock();
 
         try {
-            Updates updates = blockUpdates.remove(blockHash);
+            Updates updates = removeUpdates(blockHash);
             if (updates != null) {
                 for (ByteArrayWrapper insertedKey : updates.insertedKeys) {
                     decRef(insertedKey).dbRef = true;
                 }
 
-                List<byte[]> batchRemove = new ArrayList<>();
+                List<byte[]> removed = new ArrayList<>();
                 for (ByteArrayWrapper key : updates.deletedKeys) {
-                    Ref ref = refCount.get(key);
+                    Ref ref = getRef(key);
                     if (ref == null || ref.journalRefs == 0) {
-                        batchRemove.add(key.getData());
+                        removed = addRemoved(removed, key.getData());
                     } else if (ref != null) {
                         ref.dbRef = false;
                     }
                 }
-                src.deleteBatch(batchRemove);
 
-                rollbackForkBlocks(blockNumber);
+                removed = rollbackForkBlocks(blockNumber, removed);
+
+                submitRemoved(removed);
             }
         } finally {
             lock.writeLock().unlock();
         }
     }
 
-    private void rollbackForkBlocks(long blockNum) {
-        for (Updates updates : new ArrayList<>(blockUpdates.values())) {
-            if (updates.blockNumber == blockNum) {
-                rollback(updates.blockHeader);
+    /**
+     * Adds the key to the given batch of deletes, which is submitted once full.
+     *
+     * @return the batch to which the following deletes must be added
+     */
+    private List<byte[]> addRemoved(List<byte[]> removed, byte[] key) {
+        removed.add(key);
+        if (removed.size() >= PRUNE_BATCH_SIZE) {
+            submitRemoved(removed);
+            return new ArrayList<>();
+        }
+        return removed;
+    }
+
+    /** Commits the journal and then submits the given deletes to the underlying data source. */
+    private void submitRemoved(List<byte[]> removed) {
+        if (journal != null) {
+            flushJournal();
+        }
+
+        if (!removed.isEmpty()) {
+            src.deleteBatch(removed);
+
+            Consumer<List<byte[]>> listener = pruneListener;
+            if (listener != null) {
+                listener.accept(removed);
             }
         }
     }
 
-    private void rollback(ByteArrayWrapper blockHashW) {
-        Updates updates = blockUpdates.remove(blockHashW);
-        List<byte[]> batchRemove = new ArrayList<>();
+    private List<byte[]> rollbackForkBlocks(long blockNum, List<byte[]> removed) {
+        if (journal != null) {
+            Set<ByteArrayWrapper> forks = journalIndex.get(blockNum);
+            if (forks != null) {
+                for (ByteArrayWrapper hash : new ArrayList<>(forks)) {
+                    removed = rollback(hash, removed);
+                }
+            }
+        } else {
+            for (Updates updates : new ArrayList<>(blockUpdates.values())) {
+                if (updates.blockNumber == blockNum) {
+                    removed = rollback(updates.blockHeader, removed);
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Adds the keys inserted only by the given fork block to the removed keys.
+     *
+     * @return the batch to which the following deletes must be added
+     */
+    private List<byte[]> rollback(ByteArrayWrapper blockHashW, List<byte[]> removed) {
+        Updates updates = removeUpdates(blockHashW);
+        if (updates == null) {
+            return removed;
+        }
         for (ByteArrayWrapper insertedKey : updates.insertedKeys) {
             Ref ref = decRef(insertedKey);
             if (ref.getTotRefs() == 0) {
-                batchRemove.add(insertedKey.getData());
+                removed = addRemoved(removed, insertedKey.getData());
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the updates for the given block from memory and, when the journal is persisted,
+     * marks them for removal from the journal database.
+     *
+     * @return the updates for the given block or {@code null} if the block is not journaled
+     */
+    private Updates removeUpdates(ByteArrayWrapper blockHash) {
+        Updates updates = blockUpdates.remove(blockHash);
+        if (journal != null) {
+            byte[] key = blockKey(blockHash);
+            if (updates == null) {
+                Optional<byte[]> encoded = journal.get(key);
+                if (encoded.isPresent()) {
+                    updates = decodeUpdates(blockHash, encoded.get());
+                }
+            }
+            if (updates != null) {
+                journal.deleteInBatch(key);
+                journal.deleteInBatch(indexKey(updates.blockNumber, blockHash));
+                Set<ByteArrayWrapper> hashes = journalIndex.get(updates.blockNumber);
+                if (hashes != null) {
+                    hashes.remove(blockHash);
+                    if (hashes.isEmpty()) {
+                        journalIndex.remove(updates.blockNumber);
+                    }
+                }
             }
         }
-        src.deleteBatch(batchRemove);
+        return updates;
+    }
+
+    /**
+     * Writes the in-memory reference counts to the journal and commits all the pending journal
+     * changes in a single batch.
+     */
+    private void flushJournal() {
+        for (Map.Entry<ByteArrayWrapper, Ref> entry : refCount.entrySet()) {
+            if (entry.getValue().journalRefs > 0) {
+                journal.putToBatch(refKey(entry.getKey()), encodeRef(entry.getValue()));
+            } else {
+                journal.deleteInBatch(refKey(entry.getKey()));
+            }
+        }
+        refCount.clear();
+
+        journal.commitBatch();
+    }
+
+    /** Rebuilds the block index from the index entries of the journal, read once at startup. */
+    private void loadJournalIndex() {
+        Iterator<byte[]> keys = journal.keys();
+        while (keys.hasNext()) {
+            byte[] key = keys.next();
+            if (key.length > Long.BYTES + 1 && key[0] == INDEX_PREFIX) {
+                ByteBuffer in = ByteBuffer.wrap(key, 1, key.length - 1);
+                long number = in.getLong();
+                byte[] hash = new byte[in.remaining()];
+                in.get(hash);
+                journalIndex
+                        .computeIfAbsent(number, k -> new HashSet<>())
+                        .add(ByteArrayWrapper.wrap(hash));
+            }
+        }
+        if (!journalIndex.isEmpty()) {
+            LOG.info(
+                    "Loaded prune journal for {} block levels from {} to {}.",
+                    journalIndex.size(),
+                    journalIndex.firstKey(),
+                    journalIndex.lastKey());
+        }
+    }
+
+    /** @return the number of blocks with updates stored in the persisted journal */
+    public int getJournalSize() {
+        lock.readLock().lock();
+        try {
+            if (journal == null) {
+                return blockUpdates.size();
+            }
+            int size = 0;
+            for (Set<ByteArrayWrapper> hashes : journalIndex.values()) {
+                size += hashes.size();
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public ByteArrayKeyValueDatabase getJournal() {
+        return journal;
     }
 
     public Map<ByteArrayWrapper, Ref> getRefCount() {
@@ -330,6 +576,7 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         lock.writeLock().lock();
 
         try {
+            // the journal database is closed by its owner, like the other databases
             src.close();
         } catch (Exception e) {
             LOG.error("Could not close source due to ", e);
@@ -435,4 +682,105 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
             throw new NullPointerException("The data store does not accept null keys.");
         }
     }
+
+    // Journal encoding ------------------------------------------------------------------------
+
+    private static byte[] blockKey(ByteArrayWrapper blockHash) {
+        return prefixed(BLOCK_PREFIX, blockHash.getData());
+    }
+
+    /** Encodes the index entry key as: prefix | block number | block hash. */
+    private static byte[] indexKey(long blockNumber, ByteArrayWrapper blockHash) {
+        byte[] hash = blockHash.getData();
+        return ByteBuffer.allocate(1 + Long.BYTES + hash.length)
+                .put(INDEX_PREFIX)
+                .putLong(blockNumber)
+                .put(hash)
+                .array();
+    }
+
+    private static byte[] refKey(ByteArrayWrapper key) {
+        return prefixed(REF_PREFIX, key.getData());
+    }
+
+    private static byte[] prefixed(byte prefix, byte[] data) {
+        byte[] key = new byte[data.length + 1];
+        key[0] = prefix;
+        System.arraycopy(data, 0, key, 1, data.length);
+        return key;
+    }
+
+    /** Encodes the updates as: number | inserted count | inserted keys | deleted count | deleted keys. */
+    private static byte[] encodeUpdates(Updates updates) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarLong(out, updates.blockNumber);
+        writeKeys(out, updates.insertedKeys);
+        writeKeys(out, updates.deletedKeys);
+        return out.toByteArray();
+    }
+
+    private static Updates decodeUpdates(ByteArrayWrapper blockHash, byte[] encoded) {
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        Updates updates = new Updates();
+        updates.blockHeader = blockHash;
+        updates.blockNumber = readVarLong(in);
+        readKeys(in, updates.insertedKeys);
+        readKeys(in, updates.deletedKeys);
+        return updates;
+    }
+
+    /** Encodes the reference as: journal references | database reference flag. */
+    private static byte[] encodeRef(Ref ref) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(6);
+        writeVarLong(out, ref.journalRefs);
+        out.write(ref.dbRef ? 1 : 0);
+        return out.toByteArray();
+    }
+
+    private static Ref decodeRef(byte[] encoded) {
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        int journalRefs = (int) readVarLong(in);
+        Ref ref = new Ref(in.get() == 1);
+        ref.journalRefs = journalRefs;
+        return ref;
+    }
+
+    private static void writeKeys(ByteArrayOutputStream out, Set<ByteArrayWrapper> keys) {
+        writeVarLong(out, keys.size());
+        for (ByteArrayWrapper key : keys) {
+            byte[] data = key.getData();
+            writeVarLong(out, data.length);
+            out.write(data, 0, data.length);
+        }
+    }
+
+    private static void readKeys(ByteBuffer in, Set<ByteArrayWrapper> keys) {
+        long count = readVarLong(in);
+        for (long i = 0; i < count; i++) {
+            byte[] data = new byte[(int) readVarLong(in)];
+            in.get(data);
+            keys.add(ByteArrayWrapper.wrap(data));
+        }
+    }
+
+    /** Writes the given non-negative value using 7 bits per byte. */
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
 }
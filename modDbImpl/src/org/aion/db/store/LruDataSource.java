@@ -5,7 +5,9 @@ import org.aion.util.types.ByteArrayWrapper;
 import org.apache.commons.collections4.map.LRUMap;
 
 /**
- * Adds an LRU cache of predefined size to the {@link ObjectDataSource}.
+ * Adds an LRU cache of predefined size to the {@link ObjectDataSource}. The cache is accessed
+ * under the lock of this object since the LRU ordering is updated on reads, while the database
+ * reads and deserialization on cache misses happen outside the lock.
  *
  * @author Alexandra Roatis
  */
@@ -13,40 +15,61 @@ class LruDataSource<V> extends ObjectDataSource<V> {
 
     protected final LRUMap<ByteArrayWrapper, V> cache;
 
+    // incremented on every write, so that a miss racing with a write does not cache a stale value
+    private long writes;
+
     // only DataSource should know about this implementation
     LruDataSource(ByteArrayKeyValueDatabase src, Serializer<V> serializer, int cacheSize) {
         super(src, serializer);
         this.cache = new LRUMap<>(cacheSize);
     }
 
-    public void put(byte[] key, V value) {
+    public synchronized void put(byte[] key, V value) {
         super.put(key, value);
         cache.put(ByteArrayWrapper.wrap(key), value);
+        writes++;
     }
 
-    public void putToBatch(byte[] key, V value) {
+    public synchronized void putToBatch(byte[] key, V value) {
         super.putToBatch(key, value);
         cache.put(ByteArrayWrapper.wrap(key), value);
+        writes++;
     }
 
-    public void deleteInBatch(byte[] key) {
+    public synchronized void deleteInBatch(byte[] key) {
         super.deleteInBatch(key);
         cache.remove(ByteArrayWrapper.wrap(key));
+        writes++;
     }
 
-    public void delete(byte[] key) {
+    public synchronized void delete(byte[] key) {
         super.delete(key);
         cache.remove(ByteArrayWrapper.wrap(key));
+        writes++;
     }
 
     public V get(byte[] key) {
         ByteArrayWrapper wrappedKey = ByteArrayWrapper.wrap(key);
-        if (cache.containsKey(wrappedKey)) {
-            return cache.get(wrappedKey);
-        } else {
-            V val = super.get(key);
-            cache.put(wrappedKey, val);
-            return val;
+        long version;
+        synchronized (this) {
+            boolean hit = cache.containsKey(wrappedKey);
+            recordAccess(hit);
+            if (hit) {
+                return cache.get(wrappedKey);
+            }
+            version = writes;
         }
+
+        V val = super.get(key);
+
+        synchronized (this) {
+            if (version == writes) {
+                cache.put(wrappedKey, val);
+            }
+        }
+        return val;
     }
+
+    /** Called under the lock for every read with the outcome of the cache lookup. */
+    protected void recordAccess(boolean hit) {}
 }
@@ -27,7 +27,12 @@ public class DatabaseTestUtils {
     private static final Set<String> sizeHeapCache = Set.of("0", "256");
     // TODO: [Task AJK-169] re-enable MongoDB tests by adding DBVendor.MONGODB
     private static final Set<DBVendor> vendors =
-            Set.of(DBVendor.MOCKDB, DBVendor.H2, DBVendor.LEVELDB, DBVendor.ROCKSDB);
+            Set.of(
+                    DBVendor.MOCKDB,
+                    DBVendor.H2,
+                    DBVendor.LEVELDB,
+                    DBVendor.ROCKSDB,
+                    DBVendor.ROCKSDBCF);
     private static final String enabled = String.valueOf(Boolean.TRUE);
     private static final String disabled = String.valueOf(Boolean.FALSE);
     private static final Set<String> options = Set.of(enabled, disabled);
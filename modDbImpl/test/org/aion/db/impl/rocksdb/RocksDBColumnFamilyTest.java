@@ -0,0 +1,230 @@
+package org.aion.db.impl.rocksdb;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.db.utils.FileUtils;
+import org.aion.util.types.ByteArrayWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.DBOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RocksDBColumnFamilyTest {
+
+    private static final File testDir = new File(System.getProperty("user.dir"), "tmp-cf");
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    private static final byte[] k1 = "key1".getBytes();
+    private static final byte[] k2 = "key2".getBytes();
+    private static final byte[] v1 = "value1".getBytes();
+    private static final byte[] v2 = "value2".getBytes();
+
+    private RocksDBColumnFamily state, details, blocks;
+
+    /** Reads the given key as persisted on disk, ignoring the pending writes. */
+    private static byte[] readFromDisk(String family, byte[] key) throws RocksDBException {
+        String path = new File(testDir, RocksDBConstants.SHARED_DB_NAME).getAbsolutePath();
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        for (byte[] name : RocksDBSharedInstance.listColumnFamilies(path)) {
+            descriptors.add(new ColumnFamilyDescriptor(name));
+        }
+
+        List<ColumnFamilyHandle> handles = new ArrayList<>();
+        try (DBOptions options = new DBOptions();
+                RocksDB db = RocksDB.openReadOnly(options, path, descriptors, handles)) {
+            try {
+                for (int i = 0; i < descriptors.size(); i++) {
+                    String name =
+                            new String(
+                                    descriptors.get(i).columnFamilyName(), StandardCharsets.UTF_8);
+                    if (name.equals(family)) {
+                        return db.get(handles.get(i), key);
+                    }
+                }
+                return null;
+            } finally {
+                for (ColumnFamilyHandle handle : handles) {
+                    handle.close();
+                }
+            }
+        }
+    }
+
+    private static RocksDBColumnFamily newFamily(String name) {
+        return new RocksDBColumnFamily(
+                name,
+                testDir.getAbsolutePath(),
+                log,
+                false,
+                false,
+                RocksDBConstants.MAX_OPEN_FILES,
+                RocksDBConstants.BLOCK_SIZE,
+                RocksDBConstants.WRITE_BUFFER_SIZE,
+                RocksDBConstants.CACHE_SIZE);
+    }
+
+    @Before
+    public void setup() {
+        FileUtils.deleteRecursively(testDir);
+        state = newFamily("state");
+        details = newFamily("details");
+        blocks = newFamily("block");
+        assertThat(state.open()).isTrue();
+        assertThat(details.open()).isTrue();
+        assertThat(blocks.open()).isTrue();
+    }
+
+    @After
+    public void teardown() {
+        state.close();
+        details.close();
+        blocks.close();
+        FileUtils.deleteRecursively(testDir);
+    }
+
+    @Test
+    public void testPendingWritesVisible() {
+        assertThat(state.isAutoCommitEnabled()).isFalse();
+        assertThat(state.isEmpty()).isTrue();
+
+        state.put(k1, v1);
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        assertThat(state.isEmpty()).isFalse();
+        // not visible in a different column family
+        assertThat(blocks.get(k1).isPresent()).isFalse();
+
+        state.delete(k1);
+        assertThat(state.get(k1).isPresent()).isFalse();
+        assertThat(state.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testCommitPersistsAllColumnFamilies() {
+        state.put(k1, v1);
+        blocks.putToBatch(k2, v2);
+        blocks.commitBatch();
+
+        // a single commit persists the pending writes of both column families
+        assertThat(state.commitShared()).isTrue();
+        state.close();
+        blocks.close();
+
+        assertThat(state.isCreatedOnDisk()).isTrue();
+        assertThat(blocks.isCreatedOnDisk()).isTrue();
+        assertThat(newFamily("other").isCreatedOnDisk()).isFalse();
+
+        assertThat(state.open()).isTrue();
+        assertThat(blocks.open()).isTrue();
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        assertThat(state.get(k2).isPresent()).isFalse();
+        assertThat(blocks.get(k2).get()).isEqualTo(v2);
+        assertThat(blocks.get(k1).isPresent()).isFalse();
+    }
+
+    @Test
+    public void testBatchAndCacheCommitsOnlyStage() throws RocksDBException {
+        state.put(k1, v1);
+
+        Map<ByteArrayWrapper, byte[]> cache = new HashMap<>();
+        cache.put(ByteArrayWrapper.wrap(k1), v2);
+        assertThat(details.commitCache(cache)).isTrue();
+
+        blocks.putToBatch(k2, v2);
+        blocks.commitBatch();
+
+        // the staged writes are readable but nothing is persisted before the flush commit
+        assertThat(details.get(k1).get()).isEqualTo(v2);
+        assertThat(blocks.get(k2).get()).isEqualTo(v2);
+        assertThat(readFromDisk("state", k1)).isNull();
+        assertThat(readFromDisk("details", k1)).isNull();
+        assertThat(readFromDisk("block", k2)).isNull();
+
+        // the regular commit of a single database only stages its changes as well
+        assertThat(blocks.commit()).isTrue();
+        assertThat(readFromDisk("block", k2)).isNull();
+
+        assertThat(blocks.commitShared()).isTrue();
+        assertThat(readFromDisk("state", k1)).isEqualTo(v1);
+        assertThat(readFromDisk("details", k1)).isEqualTo(v2);
+        assertThat(readFromDisk("block", k2)).isEqualTo(v2);
+    }
+
+    @Test
+    public void testKeysOverlayPendingChanges() {
+        state.put(k1, v1);
+        state.put(k2, v2);
+        state.commitShared();
+
+        byte[] k3 = "key3".getBytes();
+        state.delete(k1);
+        state.put(k3, v1);
+
+        Set<ByteArrayWrapper> keys = new HashSet<>();
+        Iterator<byte[]> it = state.keys();
+        while (it.hasNext()) {
+            keys.add(ByteArrayWrapper.wrap(it.next()));
+        }
+
+        assertThat(keys).containsExactly(ByteArrayWrapper.wrap(k2), ByteArrayWrapper.wrap(k3));
+    }
+
+    @Test
+    public void testDrop() {
+        state.put(k1, v1);
+        blocks.put(k2, v2);
+        state.commitShared();
+
+        state.drop();
+
+        assertThat(state.isOpen()).isTrue();
+        assertThat(state.isEmpty()).isTrue();
+        assertThat(blocks.get(k2).get()).isEqualTo(v2);
+    }
+
+    @Test
+    public void testWritersWaitForCommitWhenPendingWritesTooLarge() throws InterruptedException {
+        // makes the current thread the committing one
+        assertThat(state.commitShared()).isTrue();
+
+        byte[] large = new byte[(int) RocksDBConstants.MAX_PENDING_BATCH_SIZE];
+        AtomicBoolean written = new AtomicBoolean(false);
+        Thread writer =
+                new Thread(
+                        () -> {
+                            blocks.put(k2, large);
+                            written.set(true);
+                        });
+        writer.start();
+
+        // the writer is blocked until the pending writes are committed
+        Thread.sleep(RocksDBConstants.MAX_PENDING_WAIT_MS / 5);
+        assertThat(written.get()).isFalse();
+
+        assertThat(state.commitShared()).isTrue();
+        writer.join();
+        assertThat(written.get()).isTrue();
+
+        // the committing thread itself is never blocked
+        long start = System.currentTimeMillis();
+        details.put(k1, large);
+        assertThat(System.currentTimeMillis() - start)
+                .isLessThan(RocksDBConstants.MAX_PENDING_WAIT_MS);
+        assertThat(details.commitShared()).isTrue();
+    }
+}
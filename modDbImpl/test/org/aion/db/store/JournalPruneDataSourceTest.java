@@ -1587,4 +1587,165 @@ public class JournalPruneDataSourceTest {
         assertThat(source_db.get(k5).get()).isEqualTo(v5);
         assertThat(source_db.get(k6).get()).isEqualTo(v6);
     }
+
+    // Persisted journal tests ----------------------------------------------------
+
+    @Test
+    public void pruningTest_wPersistedJournal_afterRestart() {
+        ByteArrayKeyValueDatabase journal_db = DatabaseFactory.connect("TestJournalDB", log);
+        assertThat(journal_db.open()).isTrue();
+
+        JournalPruneDataSource persisted = new JournalPruneDataSource(source_db, journal_db, 1, log);
+        persisted.setPruneEnabled(true);
+
+        // block 0
+        persisted.put(k1, v1);
+        persisted.put(k2, v2);
+        persisted.put(k3, v3);
+        persisted.storeBlockChanges(b0, 0);
+
+        // block 1
+        persisted.put(k4, v4);
+        persisted.delete(k2);
+        persisted.storeBlockChanges(b1, 1);
+
+        // block 2
+        persisted.put(k2, v3);
+        persisted.delete(k3);
+        persisted.storeBlockChanges(b2, 2);
+
+        // only the most recent block is kept in memory
+        assertThat(persisted.getBlockUpdates().size()).isEqualTo(1);
+        assertThat(persisted.getJournalSize()).isEqualTo(3);
+
+        // simulate a restart
+        persisted = new JournalPruneDataSource(source_db, journal_db, 1, log);
+        persisted.setPruneEnabled(true);
+        assertThat(persisted.getBlockUpdates().size()).isEqualTo(0);
+        assertThat(persisted.getJournalSize()).isEqualTo(3);
+
+        // prune block 0
+        persisted.prune(b0, 0);
+        assertThat(persisted.getJournalSize()).isEqualTo(2);
+        assertThat(source_db.get(k1).get()).isEqualTo(v1);
+        assertThat(source_db.get(k2).get()).isEqualTo(v3);
+        assertThat(source_db.get(k3).get()).isEqualTo(v3);
+
+        // the index entry of the pruned block is removed from the journal
+        persisted = new JournalPruneDataSource(source_db, journal_db, 1, log);
+        persisted.setPruneEnabled(true);
+        assertThat(persisted.getJournalSize()).isEqualTo(2);
+
+        // prune block 1
+        persisted.prune(b1, 1);
+        assertThat(persisted.getJournalSize()).isEqualTo(1);
+        assertThat(source_db.get(k4).get()).isEqualTo(v4);
+        // not deleted due to block 2 insert
+        assertThat(source_db.get(k2).get()).isEqualTo(v3);
+
+        // prune block 2
+        persisted.prune(b2, 2);
+        assertThat(persisted.getJournalSize()).isEqualTo(0);
+        assertThat(source_db.get(k2).get()).isEqualTo(v3);
+        assertThat(source_db.get(k3).isPresent()).isFalse();
+
+        // nothing remains in the journal
+        assertThat(count(journal_db.keys())).isEqualTo(0);
+
+        journal_db.close();
+    }
+
+    @Test
+    public void pruningTest_wPersistedJournal_wFork() {
+        ByteArrayKeyValueDatabase journal_db = DatabaseFactory.connect("TestJournalDB", log);
+        assertThat(journal_db.open()).isTrue();
+
+        JournalPruneDataSource persisted = new JournalPruneDataSource(source_db, journal_db, 2, log);
+        persisted.setPruneEnabled(true);
+
+        // block b0
+        persisted.put(k1, v1);
+        persisted.storeBlockChanges(b0, 0);
+
+        // block b1 (main chain)
+        persisted.put(k2, v2);
+        persisted.storeBlockChanges(b1, 1);
+
+        // block b2 (fork at the same level)
+        persisted.put(k3, v3);
+        persisted.put(k2, v2);
+        persisted.storeBlockChanges(b2, 1);
+
+        // simulate a restart
+        persisted = new JournalPruneDataSource(source_db, journal_db, 2, log);
+        persisted.setPruneEnabled(true);
+        assertThat(persisted.getJournalSize()).isEqualTo(3);
+
+        // pruning b1 also rolls back the fork b2
+        persisted.prune(b1, 1);
+        assertThat(persisted.getJournalSize()).isEqualTo(1);
+        assertThat(source_db.get(k1).get()).isEqualTo(v1);
+        assertThat(source_db.get(k2).get()).isEqualTo(v2);
+        assertThat(source_db.get(k3).isPresent()).isFalse();
+
+        journal_db.close();
+    }
+
+    @Test
+    public void pruningTest_wPruneListener() {
+        db.setPruneEnabled(true);
+        List<ByteArrayWrapper> pruned = new ArrayList<>();
+        db.setPruneListener(keys -> keys.forEach(key -> pruned.add(ByteArrayWrapper.wrap(key))));
+
+        // block b0
+        db.put(k1, v1);
+        db.put(k2, v2);
+        db.storeBlockChanges(b0, 0);
+
+        // block b1 deletes k1
+        db.delete(k1);
+        db.storeBlockChanges(b1, 1);
+
+        // block b2 at the same level inserts k3
+        db.put(k3, v3);
+        db.storeBlockChanges(b2, 1);
+
+        db.prune(b0, 0);
+        assertThat(pruned).isEmpty();
+
+        // the delete of b1 and the insert of the fork b2 are removed
+        db.prune(b1, 1);
+        assertThat(pruned).containsExactly(ByteArrayWrapper.wrap(k1), ByteArrayWrapper.wrap(k3));
+        assertThat(source_db.get(k1).isPresent()).isFalse();
+        assertThat(source_db.get(k3).isPresent()).isFalse();
+    }
+
+    @Test
+    public void pruningTest_wDeletesSubmittedInBatches() {
+        db.setPruneEnabled(true);
+        List<Integer> batches = new ArrayList<>();
+        db.setPruneListener(keys -> batches.add(keys.size()));
+
+        int count = 25_000;
+
+        // block b0 inserts the keys
+        for (int i = 0; i < count; i++) {
+            db.put(("key" + i).getBytes(), v1);
+        }
+        db.storeBlockChanges(b0, 0);
+
+        // block b1 deletes them
+        for (int i = 0; i < count; i++) {
+            db.delete(("key" + i).getBytes());
+        }
+        db.storeBlockChanges(b1, 1);
+
+        db.prune(b0, 0);
+        db.prune(b1, 1);
+
+        // the deletes are submitted and reported as each batch fills
+        assertThat(batches).containsExactly(10_000, 10_000, 5_000).inOrder();
+        assertThat(source_db.get("key0".getBytes()).isPresent()).isFalse();
+        assertThat(source_db.get(("key" + (count - 1)).getBytes()).isPresent()).isFalse();
+    }
 }
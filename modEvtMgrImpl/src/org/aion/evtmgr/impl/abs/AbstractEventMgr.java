@@ -1,11 +1,16 @@
 package org.aion.evtmgr.impl.abs;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.evtmgr.IHandler;
+import org.aion.evtmgr.impl.es.EventRingBuffer;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.slf4j.Logger;
@@ -14,11 +19,70 @@ import org.slf4j.Logger;
 public abstract class AbstractEventMgr {
 
     protected static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.EVTMGR.toString());
+    protected static final int DEFAULT_BUS_SIZE = 4096;
+    // the interval between the reports of the lag of the subscribers
+    private static final long REPORT_INTERVAL_SECONDS = 60;
+
     protected Map<IHandler, IHandler> handlers;
+    // the size of the bus of each handler
+    private final int busSize;
+    // the policies overriding the ones of the subscribers with the given thread name, on all buses
+    protected final Map<String, EventRingBuffer.Policy> policies = new ConcurrentHashMap<>();
     private AtomicBoolean run = new AtomicBoolean(false);
+    private ScheduledExecutorService reporter;
+    // the dropped events already reported, by bus and consumer name
+    private final Map<String, Long> reportedDrops = new HashMap<>();
 
     protected AbstractEventMgr() {
+        this(DEFAULT_BUS_SIZE);
+    }
+
+    /** @param busSize the number of events of each handler kept for the subscribers that are behind */
+    protected AbstractEventMgr(int busSize) {
+        if (busSize < 1) {
+            throw new IllegalArgumentException("The bus size must be positive.");
+        }
         handlers = new ConcurrentHashMap<>();
+        this.busSize = busSize;
+    }
+
+    /** Registers the handler and makes it publish its events to a bus of its own. */
+    protected void addHandler(AbstractHandler handler) {
+        EventRingBuffer bus = new EventRingBuffer("Hdr" + handler.getType(), busSize);
+        policies.forEach(bus::setPolicy);
+        handler.setBus(bus);
+        IHandler hdr = (IHandler) handler;
+        this.handlers.put(hdr, hdr);
+    }
+
+    /** @return the buses of the handlers, e.g. to monitor the lag of the subscribers */
+    public List<EventRingBuffer> getBuses() {
+        List<EventRingBuffer> buses = new ArrayList<>();
+        for (IHandler hdr : handlers.keySet()) {
+            if (hdr instanceof AbstractHandler) {
+                buses.add(((AbstractHandler) hdr).getBus());
+            }
+        }
+        return buses;
+    }
+
+    /**
+     * Logs the lag and the dropped events of the subscribers of all the buses, as a warning for the
+     * subscribers that dropped events since the last report.
+     */
+    void reportConsumers() {
+        for (EventRingBuffer bus : getBuses()) {
+            for (EventRingBuffer.Consumer consumer : bus.getConsumers()) {
+                String key = bus.getName() + "/" + consumer.getName();
+                long dropped = consumer.getDropped();
+                Long reported = reportedDrops.put(key, dropped);
+                if (dropped > (reported == null ? 0 : reported)) {
+                    LOG.warn("EVTMGR bus {} consumer {} is falling behind", bus.getName(), consumer);
+                } else if (LOG.isDebugEnabled()) {
+                    LOG.debug("EVTMGR bus {} consumer {}", bus.getName(), consumer);
+                }
+            }
+        }
     }
 
     public void start() {
@@ -31,6 +95,18 @@ public abstract class AbstractEventMgr {
                     m.getKey().start();
                 }
             }
+            reporter =
+                    Executors.newSingleThreadScheduledExecutor(
+                            r -> {
+                                Thread t = new Thread(r, "EvtMgrReport");
+                                t.setDaemon(true);
+                                return t;
+                            });
+            reporter.scheduleWithFixedDelay(
+                    this::reportConsumers,
+                    REPORT_INTERVAL_SECONDS,
+                    REPORT_INTERVAL_SECONDS,
+                    TimeUnit.SECONDS);
             run.set(true);
         }
     }
@@ -40,6 +116,7 @@ public abstract class AbstractEventMgr {
         if (!run.getAndSet(false)) {
             return;
         }
+        reporter.shutdownNow();
 
         for (Map.Entry<IHandler, IHandler> m : this.handlers.entrySet()) {
             if (m.getKey() != null) {
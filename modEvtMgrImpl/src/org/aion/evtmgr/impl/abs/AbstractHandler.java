@@ -1,61 +1,66 @@
 package org.aion.evtmgr.impl.abs;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.evtmgr.IEvent;
 import org.aion.evtmgr.IEventCallback;
+import org.aion.evtmgr.impl.callback.EventCallback;
+import org.aion.evtmgr.impl.es.EventRingBuffer;
 import org.aion.evtmgr.impl.evt.EventDummy;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.slf4j.Logger;
 
-/** @author jay */
+/**
+ * Publishes the events of one type to its own {@link EventRingBuffer}, so that the events of a busy
+ * handler do not push the events of the other handlers out of the rings of their subscribers.
+ *
+ * <p>The {@link EventCallback}s read the events registered with the handler directly from the bus
+ * on their own thread. The other callbacks are invoked by the dispatcher thread of the handler.
+ *
+ * @author jay
+ */
 public abstract class AbstractHandler {
 
     protected static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.EVTMGR.toString());
 
-    private Set<IEvent> events = new HashSet<>();
-    private BlockingQueue<IEvent> queue = new LinkedBlockingQueue<>();
+    // the bus of a handler used without an event manager
+    private static final int DEFAULT_BUS_SIZE = 1024;
+
+    private Set<IEvent> events = Collections.synchronizedSet(new HashSet<>());
+    private volatile EventRingBuffer bus;
+    private volatile EventRingBuffer.Consumer queue;
     private List<IEventCallback> eventCallback = new CopyOnWriteArrayList<>();
-    private AtomicBoolean interrupt = new AtomicBoolean(false);
-    private boolean interrupted = false;
+    private volatile boolean interrupt = false;
     private int handlerType;
 
     protected Thread dispatcher =
             new Thread(
                     () -> {
                         try {
-                            while (!interrupt.get()) {
-                                IEvent e = queue.take();
-                                if (e.getEventType() != EventDummy.getTypeStatic()
-                                        && events.contains(e)) {
-                                    if (LOG.isTraceEnabled()) {
-                                        LOG.trace("dispatcher e[{}]", e.getEventType());
-                                    }
-
-                                    try {
-                                        dispatch(e);
-                                    } catch (Exception ex) {
-                                        LOG.error(
-                                                "Failed to dispatch event: eventType = {}, callbackType = {}, {}",
-                                                e.getEventType(),
-                                                e.getCallbackType(),
-                                                ex.toString());
-                                    }
+                            IEvent e;
+                            while ((e = queue.take()) != null) {
+                                if (LOG.isTraceEnabled()) {
+                                    LOG.trace("dispatcher e[{}]", e.getEventType());
+                                }
+
+                                try {
+                                    dispatch(e);
+                                } catch (Exception ex) {
+                                    LOG.error(
+                                            "Failed to dispatch event: eventType = {}, callbackType = {}, {}",
+                                            e.getEventType(),
+                                            e.getCallbackType(),
+                                            ex.toString());
                                 }
                             }
 
                             if (LOG.isInfoEnabled()) {
                                 LOG.info("dispatcher interrupted!");
                             }
-
-                            queue.clear();
-                            interrupted = true;
                         } catch (InterruptedException e) {
                             LOG.error("Handler interrupt exception ", e);
                         } catch (Error e) {
@@ -65,6 +70,35 @@ public abstract class AbstractHandler {
 
     public AbstractHandler(int value) {
         handlerType = value;
+        setBus(new EventRingBuffer(DEFAULT_BUS_SIZE));
+    }
+
+    /** @return the bus this handler publishes its events to */
+    public EventRingBuffer getBus() {
+        return bus;
+    }
+
+    /**
+     * Publishes the events of this handler to the given bus. Must be called before the handler is
+     * started and the callbacks are registered.
+     */
+    void setBus(EventRingBuffer bus) {
+        if (this.queue != null) {
+            this.queue.close();
+        }
+        this.bus = bus;
+        // never blocks the publishers, which include the block import thread
+        this.queue =
+                bus.newConsumer(
+                        "Hdr" + handlerType, EventRingBuffer.Policy.DROP_OLDEST, this::accepts);
+    }
+
+    /** @return {@code true} for the registered events of this handler until it is stopped */
+    private boolean accepts(IEvent e) {
+        return !interrupt
+                && typeEqual(e.getEventType())
+                && e.getEventType() != EventDummy.getTypeStatic()
+                && events.contains(e);
     }
 
     public synchronized boolean addEvent(IEvent _evt) {
@@ -87,26 +121,20 @@ public abstract class AbstractHandler {
 
     public void stop() throws InterruptedException {
 
-        interrupt.set(true);
-        try {
-            this.queue.add(new EventDummy());
-        } catch (Exception e) {
-            LOG.error("stop exception ", e);
-        }
+        interrupt = true;
+        queue.close();
 
         if (LOG.isInfoEnabled()) {
             LOG.info("Handler {} dispatcher interrupting..", this.getType());
         }
 
-        int cnt = 0;
-        while (!interrupted && (cnt++ < 10)) {
-            System.out.print(".");
-            Thread.sleep(1000);
-        }
+        if (this.dispatcher.isAlive()) {
+            this.dispatcher.join(10_000L);
 
-        if (cnt > 9) {
-            if (LOG.isErrorEnabled()) {
-                LOG.error("Handler {} dispatcher can't be closed!", this.getType());
+            if (this.dispatcher.isAlive()) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Handler {} dispatcher can't be closed!", this.getType());
+                }
             }
         }
 
@@ -132,7 +160,11 @@ public abstract class AbstractHandler {
     }
 
     public synchronized void eventCallback(IEventCallback _evtCallback) {
-        this.eventCallback.add(_evtCallback);
+        if (_evtCallback instanceof EventCallback) {
+            ((EventCallback) _evtCallback).subscribe(this.bus, this::accepts);
+        } else {
+            this.eventCallback.add(_evtCallback);
+        }
     }
 
     private boolean typeEqual(int _type) {
@@ -148,7 +180,7 @@ public abstract class AbstractHandler {
 
     public void onEvent(IEvent _evt) {
         try {
-            this.queue.add(_evt);
+            this.bus.publish(_evt);
         } catch (Exception e) {
             LOG.error("onEvent exception! ", e);
         }
@@ -157,4 +189,9 @@ public abstract class AbstractHandler {
     public int getType() {
         return handlerType;
     }
+
+    /** @return the number of published events not dispatched yet to the plain callbacks */
+    public long getLag() {
+        return queue.getLag();
+    }
 }
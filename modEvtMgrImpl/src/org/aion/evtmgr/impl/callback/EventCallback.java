@@ -1,8 +1,10 @@
 package org.aion.evtmgr.impl.callback;
 
 import org.aion.evtmgr.IEvent;
+import java.util.function.Predicate;
 import org.aion.evtmgr.IEventCallback;
 import org.aion.evtmgr.impl.es.EventExecuteService;
+import org.aion.evtmgr.impl.es.EventRingBuffer;
 import org.slf4j.Logger;
 
 /** @author jay */
@@ -10,14 +12,25 @@ import org.slf4j.Logger;
 public class EventCallback implements IEventCallback {
     EventExecuteService ees;
     static Logger LOG;
+    // null when the service reads the bus with its own policy
+    private final EventRingBuffer.Policy policy;
 
     public EventCallback(EventExecuteService _ees, Logger log) {
+        this(_ees, log, null);
+    }
+
+    /**
+     * @param policy the policy of the service when reading the bus of the handler, e.g. {@link
+     *     EventRingBuffer.Policy#BLOCK} for events that must never be missed
+     */
+    public EventCallback(EventExecuteService _ees, Logger log, EventRingBuffer.Policy policy) {
         if (_ees == null || log == null) {
             throw new NullPointerException();
         }
 
         ees = _ees;
         LOG = log;
+        this.policy = policy;
     }
 
     public void onEvent(IEvent evt) {
@@ -31,4 +44,16 @@ public class EventCallback implements IEventCallback {
             LOG.error("{}", e.toString());
         }
     }
+
+    /**
+     * Lets the event execute service read the events selected by the handler directly from its bus
+     * instead of having them copied by {@link #onEvent(IEvent)}.
+     */
+    public void subscribe(EventRingBuffer bus, Predicate<IEvent> source) {
+        if (policy == null) {
+            ees.subscribe(bus, source);
+        } else {
+            ees.subscribe(bus, source, policy);
+        }
+    }
 }
@@ -1,25 +1,66 @@
 package org.aion.evtmgr.impl.es;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Predicate;
 import org.aion.evtmgr.IEvent;
 import org.aion.evtmgr.impl.evt.EventDummy;
 import org.slf4j.Logger;
 
+/**
+ * Runs the event loop of a subscriber, such as the API server, the pending state or the miner, on
+ * its own thread.
+ *
+ * <p>The service is a consumer of one or more {@link EventRingBuffer}s: a private bus of the given
+ * size, which is filled by {@link #add(IEvent)}, and the buses of the handlers of the event manager
+ * it is subscribed to with {@link #subscribe(EventRingBuffer, Predicate)}. The buses are read in
+ * turns, so the events of different handlers are not ordered. The {@link EventRingBuffer.Policy}
+ * decides what happens when the subscriber falls a full ring behind the publishers of a bus.
+ */
 public class EventExecuteService {
 
-    private LinkedBlockingQueue<IEvent> callbackEvt;
+    // returned by take once the service is shut down
+    private static final IEvent POISON_PILL = new EventDummy();
+
+    private final EventRingBuffer.Policy policy;
+    private final EventRingBuffer bus;
+    // the consumers of the private bus and of the subscribed buses
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // notified when an event is published to any of the buses
+    private final Object signal = new Object();
+    private volatile boolean shutdown = false;
+    private int next = 0;
+    private long reportedDrops = 0;
+
     private ExecutorService es;
     private static Logger LOG;
     private String thName;
-    private Set<Integer> filter;
+    private volatile Set<Integer> filter;
+    // null when all the events may be coalesced
+    private volatile Set<Integer> coalescible;
 
     public EventExecuteService(
             final int qSize, final String threadName, final int threadPriority, final Logger log) {
-        if (threadName == null || log == null) {
+        this(qSize, threadName, threadPriority, log, EventRingBuffer.Policy.DROP_OLDEST);
+    }
+
+    /**
+     * @param qSize the size of the private bus filled by {@link #add(IEvent)}
+     * @param threadName the name of the event loop thread, also naming the bus consumers
+     * @param policy the behaviour when the subscriber falls a full ring behind the publishers
+     */
+    public EventExecuteService(
+            final int qSize,
+            final String threadName,
+            final int threadPriority,
+            final Logger log,
+            final EventRingBuffer.Policy policy) {
+        if (threadName == null || log == null || policy == null) {
             throw new NullPointerException();
         }
 
@@ -29,11 +70,13 @@ public class EventExecuteService {
 
         LOG = log;
         thName = threadName;
+        this.policy = policy;
 
         filter = new HashSet<>();
         filter.add(0);
 
-        callbackEvt = new LinkedBlockingQueue(qSize);
+        bus = new EventRingBuffer(threadName, qSize);
+        subscriptions.add(new Subscription(bus, policy, null));
 
         es =
                 Executors.newFixedThreadPool(
@@ -45,6 +88,81 @@ public class EventExecuteService {
                         });
     }
 
+    /** The consumer of one bus and the sources selecting its events. */
+    private final class Subscription {
+        private final EventRingBuffer bus;
+        private final EventRingBuffer.Consumer consumer;
+        private final List<Predicate<IEvent>> sources = new CopyOnWriteArrayList<>();
+
+        /** @param source the first source selecting the events, {@code null} for the private bus */
+        private Subscription(
+                EventRingBuffer bus, EventRingBuffer.Policy policy, Predicate<IEvent> source) {
+            this.bus = bus;
+            if (source != null) {
+                sources.add(source);
+            }
+            this.consumer =
+                    bus.newConsumer(
+                            thName,
+                            policy,
+                            source == null
+                                    ? EventExecuteService.this::accepts
+                                    : this::acceptsFromSources,
+                            EventExecuteService.this::isCoalescible);
+            this.consumer.setSignal(EventExecuteService.this::wakeUp);
+        }
+
+        private boolean acceptsFromSources(IEvent event) {
+            if (!accepts(event)) {
+                return false;
+            }
+            for (Predicate<IEvent> source : sources) {
+                if (source.test(event)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Reads the events selected by the given source from the given bus, in addition to the events
+     * selected by the sources already subscribed to the same bus, with the policy of this service.
+     *
+     * @param bus the bus to read
+     * @param source selects the events of the bus published by the handler subscribed to
+     */
+    public void subscribe(EventRingBuffer bus, Predicate<IEvent> source) {
+        subscribe(bus, source, policy);
+    }
+
+    /**
+     * Reads the events selected by the given source from the given bus, in addition to the events
+     * selected by the sources already subscribed to the same bus.
+     *
+     * @param bus the bus to read
+     * @param source selects the events of the bus published by the handler subscribed to
+     * @param policy the policy of the consumer of the bus, used by the first subscription to it
+     */
+    public synchronized void subscribe(
+            EventRingBuffer bus, Predicate<IEvent> source, EventRingBuffer.Policy policy) {
+        if (bus == null || source == null || policy == null) {
+            throw new NullPointerException();
+        }
+
+        if (shutdown) {
+            return;
+        }
+
+        for (Subscription subscription : subscriptions) {
+            if (subscription.bus == bus) {
+                subscription.sources.add(source);
+                return;
+            }
+        }
+        subscriptions.add(new Subscription(bus, policy, source));
+    }
+
     public void start(Runnable r) {
         if (r == null) {
             throw new NullPointerException();
@@ -53,54 +171,172 @@ public class EventExecuteService {
         es.execute(r);
     }
 
+    /**
+     * Returns the next event for the subscriber, waiting for it to be published.
+     *
+     * @return the next event, or an event of type {@link IEvent.TYPE#DUMMY} once the service is
+     *     shut down or the thread is interrupted
+     */
     public IEvent take() {
+        while (!shutdown) {
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("EventExecuteService {} lag#[{}]", thName, getLag());
+            }
 
-        if (LOG.isTraceEnabled()) {
-            LOG.trace("EventExecuteService {} q#[{}]", thName, callbackEvt.size());
-        }
+            IEvent event = poll();
+            if (event != null) {
+                reportDrops();
+                return event;
+            }
 
-        try {
-            return callbackEvt.take();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            synchronized (signal) {
+                // the publishers signal after updating the buses
+                while (!shutdown && !hasPending()) {
+                    try {
+                        signal.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return POISON_PILL;
+                    }
+                }
+            }
         }
+        return POISON_PILL;
+    }
 
+    /** Polls the buses in turns, starting after the one that returned the last event. */
+    private IEvent poll() {
+        int size = subscriptions.size();
+        for (int i = 0; i < size; i++) {
+            int index = (next + i) % size;
+            IEvent event = subscriptions.get(index).consumer.poll();
+            if (event != null) {
+                next = index + 1;
+                return event;
+            }
+        }
         return null;
     }
 
-    /** Clear all events from queue */
+    private boolean hasPending() {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.consumer.hasPending()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void reportDrops() {
+        long dropped = getDropped();
+        if (dropped != reportedDrops) {
+            if (dropped > reportedDrops) {
+                LOG.warn(
+                        "EventExecuteService {} fell behind and dropped {} events.",
+                        thName,
+                        dropped - reportedDrops);
+            }
+            reportedDrops = dropped;
+        }
+    }
+
+    /** Skips all the events not read yet. */
     public void clear() {
-        callbackEvt.clear();
+        for (Subscription subscription : subscriptions) {
+            subscription.consumer.skipAll();
+        }
     }
 
+    /**
+     * Publishes the event to the private bus of this service if accepted by its filter.
+     *
+     * @return {@code true} if the event was published
+     */
     public boolean add(IEvent event) {
         if (event == null) {
             throw new NullPointerException();
         }
 
-        int sn = (event.getEventType() << 8) + event.getCallbackType();
+        return accepts(event) && bus.publish(event);
+    }
 
-        if (filter.contains(sn)) {
+    private boolean accepts(IEvent event) {
+        int sn = (event.getEventType() << 8) + event.getCallbackType();
+        return filter.contains(sn);
+    }
 
-            try {
-                return callbackEvt.add(event);
-            } catch (IllegalStateException e) {
-                LOG.warn("ExecutorService Q is full!");
-                return false;
-            }
-        } else {
-            return false;
-        }
+    private boolean isCoalescible(IEvent event) {
+        Set<Integer> sns = coalescible;
+        return sns == null || sns.contains((event.getEventType() << 8) + event.getCallbackType());
     }
 
     public void shutdown() {
-        callbackEvt.clear();
-        callbackEvt.add(new EventDummy());
+        shutdown = true;
+        for (Subscription subscription : subscriptions) {
+            subscription.consumer.close();
+        }
+        wakeUp();
         es.shutdown();
     }
 
     public void setFilter(Set<Integer> filter) {
+        filter.add(0); // Poison Pill
         this.filter = filter;
-        this.filter.add(0); // Poison Pill
+    }
+
+    /**
+     * Restricts the events that may be skipped by the {@link EventRingBuffer.Policy#COALESCE}
+     * policy when a newer one of the same kind is published, using the same encoding as {@link
+     * #setFilter(Set)}. All the events may be coalesced by default.
+     */
+    public void setCoalescible(Set<Integer> coalescible) {
+        this.coalescible = coalescible;
+    }
+
+    /** @return the number of published events this service has not read yet, over all its buses */
+    public long getLag() {
+        long lag = 0;
+        for (Subscription subscription : subscriptions) {
+            lag += subscription.consumer.getLag();
+        }
+        return lag;
+    }
+
+    /** @return the number of events this service missed for being a full ring behind */
+    public long getDropped() {
+        long dropped = 0;
+        for (Subscription subscription : subscriptions) {
+            dropped += subscription.consumer.getDropped();
+        }
+        return dropped;
+    }
+
+    /** @return the number of events skipped because a newer one of the same kind followed */
+    public long getCoalesced() {
+        long coalesced = 0;
+        for (Subscription subscription : subscriptions) {
+            coalesced += subscription.consumer.getCoalesced();
+        }
+        return coalesced;
+    }
+
+    /** @return the default policy of the consumers of this service */
+    public EventRingBuffer.Policy getPolicy() {
+        return policy;
+    }
+
+    /** @return the consumers of the buses read by this service, e.g. to report their lag */
+    public List<EventRingBuffer.Consumer> getConsumers() {
+        List<EventRingBuffer.Consumer> consumers = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            consumers.add(subscription.consumer);
+        }
+        return consumers;
     }
 }
@@ -0,0 +1,391 @@
+package org.aion.evtmgr.impl.es;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import org.aion.evtmgr.IEvent;
+
+/**
+ * A bounded event bus backed by a preallocated ring of event references.
+ *
+ * <p>Each published event is written once to the next slot of the ring and read by every consumer
+ * from the same slot, so publishing does not allocate regardless of the number of consumers. The
+ * consumers are independent: each one tracks its own sequence in the ring, filters the events it
+ * is interested in and reports how far it is behind the publishers.
+ *
+ * <p>What happens when a consumer falls a full ring behind is decided by its {@link Policy}.
+ *
+ * @implNote The publishers are serialized on the buffer monitor, which is also used to wake up the
+ *     consumers waiting for new events and the publishers waiting for blocking consumers. A
+ *     publisher marks a slot as claimed before overwriting it, so a consumer which is lapped while
+ *     reading a slot notices it and skips ahead instead of returning a newer event out of order.
+ */
+public final class EventRingBuffer {
+
+    /** The behaviour of the bus when a consumer is a full ring behind the publishers. */
+    public enum Policy {
+        /**
+         * The publishers wait for the consumer, so it never misses an event published by another
+         * thread. The thread reading the consumer is never blocked by it when publishing, since it
+         * would wait for itself, so the consumer may miss its own events when a full ring behind.
+         */
+        BLOCK,
+        /** The consumer skips the events that were overwritten by the publishers. */
+        DROP_OLDEST,
+        /**
+         * Like {@link #DROP_OLDEST}, and in addition the consumer skips the coalescible events for
+         * which a newer event of the same type and callback type is already published, e.g. it
+         * only sees the latest of several best block updates it was too slow to process.
+         */
+        COALESCE
+    }
+
+    private final String name;
+    private final AtomicReferenceArray<IEvent> slots;
+    private final int capacity;
+
+    // the sequence of the last published event
+    private volatile long cursor = -1;
+    // the sequence of the event being published, whose slot may be overwritten
+    private volatile long claimed = -1;
+    private volatile int waitingPublishers = 0;
+
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+
+    /** @param capacity the number of events kept in the ring */
+    public EventRingBuffer(int capacity) {
+        this("bus", capacity);
+    }
+
+    /**
+     * @param name the bus name used for reporting
+     * @param capacity the number of events kept in the ring
+     */
+    public EventRingBuffer(String name, int capacity) {
+        if (name == null) {
+            throw new NullPointerException();
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Overrides the policy requested by the consumers with the given name.
+     *
+     * @param name the name of the consumers, e.g. the thread name of an {@link
+     *     EventExecuteService}
+     * @param policy the policy used instead of the one requested by the consumer
+     */
+    public void setPolicy(String name, Policy policy) {
+        policies.put(name, policy);
+    }
+
+    /**
+     * Creates a consumer that reads the events published from now on.
+     *
+     * @param name the consumer name used for reporting and for the policy overrides
+     * @param policy the policy used unless overridden by {@link #setPolicy(String, Policy)}
+     * @param filter selects the events returned by the consumer
+     */
+    public Consumer newConsumer(String name, Policy policy, Predicate<IEvent> filter) {
+        return newConsumer(name, policy, filter, e -> true);
+    }
+
+    /**
+     * Creates a consumer that reads the events published from now on.
+     *
+     * @param name the consumer name used for reporting and for the policy overrides
+     * @param policy the policy used unless overridden by {@link #setPolicy(String, Policy)}
+     * @param filter selects the events returned by the consumer
+     * @param coalescible selects the events that may be skipped by a {@link Policy#COALESCE}
+     *     consumer when superseded
+     */
+    public Consumer newConsumer(
+            String name, Policy policy, Predicate<IEvent> filter, Predicate<IEvent> coalescible) {
+        if (name == null || policy == null || filter == null || coalescible == null) {
+            throw new NullPointerException();
+        }
+
+        synchronized (this) {
+            Consumer consumer =
+                    new Consumer(name, policies.getOrDefault(name, policy), filter, coalescible);
+            consumers.add(consumer);
+            return consumer;
+        }
+    }
+
+    /**
+     * Publishes an event to all the consumers, waiting for the blocking consumers which are a full
+     * ring behind and read by other threads.
+     *
+     * @return {@code false} if interrupted while waiting, in which case the event is not published
+     */
+    public synchronized boolean publish(IEvent event) {
+        if (event == null) {
+            throw new NullPointerException();
+        }
+
+        long next = cursor + 1;
+        for (Consumer consumer : consumers) {
+            if (consumer.policy == Policy.BLOCK && consumer.reader != Thread.currentThread()) {
+                while (!consumer.closed && next - consumer.sequence >= capacity) {
+                    waitingPublishers++;
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    } finally {
+                        waitingPublishers--;
+                    }
+                }
+            }
+        }
+
+        claimed = next;
+        slots.set(index(next), event);
+        cursor = next;
+        notifyAll();
+        for (Consumer consumer : consumers) {
+            consumer.signal();
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** @return the sequence of the last published event, or -1 if none was published */
+    public long getCursor() {
+        return cursor;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** @return the consumers of this bus that were not closed */
+    public List<Consumer> getConsumers() {
+        return Collections.unmodifiableList(consumers);
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    /**
+     * Reads the events published to the bus in order. A consumer must be read by a single thread at
+     * a time.
+     */
+    public final class Consumer {
+        private final String name;
+        private final Policy policy;
+        private final Predicate<IEvent> filter;
+        private final Predicate<IEvent> coalescible;
+
+        // the sequence of the next event to read, only written by the consumer thread
+        private volatile long sequence;
+        private volatile boolean closed = false;
+        // run when an event is published or the consumer is closed, null when not set
+        private volatile Runnable signal = null;
+        // the last thread that read the consumer, never blocked by it when publishing
+        private volatile Thread reader = null;
+
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+
+        private Consumer(
+                String name,
+                Policy policy,
+                Predicate<IEvent> filter,
+                Predicate<IEvent> coalescible) {
+            this.name = name;
+            this.policy = policy;
+            this.filter = filter;
+            this.coalescible = coalescible;
+            this.sequence = cursor + 1;
+        }
+
+        /**
+         * Returns the next event accepted by this consumer, waiting for it to be published.
+         *
+         * @return the next event, or {@code null} if the consumer was closed
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public IEvent take() throws InterruptedException {
+            while (true) {
+                IEvent event = poll();
+                if (event != null || closed) {
+                    return event;
+                }
+                synchronized (EventRingBuffer.this) {
+                    while (!closed && sequence > cursor) {
+                        EventRingBuffer.this.wait();
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the next event accepted by this consumer, or {@code null} if none is published or
+         *     the consumer was closed
+         */
+        public IEvent poll() {
+            if (reader != Thread.currentThread()) {
+                reader = Thread.currentThread();
+            }
+
+            while (!closed) {
+                long seq = sequence;
+                if (seq > cursor) {
+                    return null;
+                }
+
+                IEvent event = slots.get(index(seq));
+                if (claimed - seq >= capacity) {
+                    // the slot was overwritten, only possible when not blocking the publishers or
+                    // when published by the reading thread itself
+                    long next = cursor - capacity + 1;
+                    dropped.addAndGet(next - seq);
+                    sequence = next;
+                    continue;
+                }
+                advance(seq + 1);
+
+                if (!filter.test(event)) {
+                    continue;
+                }
+                if (policy == Policy.COALESCE
+                        && coalescible.test(event)
+                        && isSuperseded(event, seq)) {
+                    coalesced.incrementAndGet();
+                    continue;
+                }
+                delivered.incrementAndGet();
+                return event;
+            }
+            return null;
+        }
+
+        private void advance(long next) {
+            sequence = next;
+            if (policy == Policy.BLOCK && waitingPublishers > 0) {
+                synchronized (EventRingBuffer.this) {
+                    EventRingBuffer.this.notifyAll();
+                }
+            }
+        }
+
+        private boolean isSuperseded(IEvent event, long seq) {
+            long last = cursor;
+            // the slots overwritten meanwhile also hold newer events
+            for (long s = seq + 1; s <= last; s++) {
+                IEvent newer = slots.get(index(s));
+                if (newer.getEventType() == event.getEventType()
+                        && newer.getCallbackType() == event.getCallbackType()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Skips all the events published so far. */
+        public void skipAll() {
+            advance(cursor + 1);
+        }
+
+        /** Stops reading the bus, releasing the publishers and the threads waiting to read. */
+        public void close() {
+            synchronized (EventRingBuffer.this) {
+                closed = true;
+                consumers.remove(this);
+                EventRingBuffer.this.notifyAll();
+                signal();
+            }
+        }
+
+        /**
+         * Sets the action run after each publication and when the consumer is closed, while
+         * holding the bus monitor, e.g. to wake up a thread reading several buses with {@link
+         * #poll()}. The action must not publish to the bus.
+         */
+        public void setSignal(Runnable signal) {
+            this.signal = signal;
+        }
+
+        private void signal() {
+            Runnable action = signal;
+            if (action != null) {
+                action.run();
+            }
+        }
+
+        /** @return {@code true} if an event not read yet was published */
+        public boolean hasPending() {
+            return !closed && sequence <= cursor;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Policy getPolicy() {
+            return policy;
+        }
+
+        /**
+         * @return the number of published events this consumer has not read yet, at most the
+         *     capacity since the older ones are overwritten
+         */
+        public long getLag() {
+            return Math.max(0, Math.min(capacity, cursor + 1 - sequence));
+        }
+
+        /** @return the number of events returned by this consumer */
+        public long getDelivered() {
+            return delivered.get();
+        }
+
+        /** @return the number of events overwritten before this consumer could read them */
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        /** @return the number of events skipped because a newer one of the same kind followed */
+        public long getCoalesced() {
+            return coalesced.get();
+        }
+
+        @Override
+        public String toString() {
+            return name
+                    + "[policy="
+                    + policy
+                    + ", lag="
+                    + getLag()
+                    + ", delivered="
+                    + getDelivered()
+                    + ", dropped="
+                    + getDropped()
+                    + ", coalesced="
+                    + getCoalesced()
+                    + "]";
+        }
+    }
+}
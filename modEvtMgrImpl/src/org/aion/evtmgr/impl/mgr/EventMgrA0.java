@@ -6,6 +6,7 @@ import org.aion.evtmgr.IEvent;
 import org.aion.evtmgr.IEventMgr;
 import org.aion.evtmgr.IHandler;
 import org.aion.evtmgr.impl.abs.AbstractEventMgr;
+import org.aion.evtmgr.impl.es.EventRingBuffer;
 import org.aion.evtmgr.impl.handler.BlockHandler;
 import org.aion.evtmgr.impl.handler.ConsensusHandler;
 import org.aion.evtmgr.impl.handler.MinerHandler;
@@ -14,25 +15,44 @@ import org.aion.evtmgr.impl.handler.TxHandler;
 /** @author jay */
 public class EventMgrA0 extends AbstractEventMgr implements IEventMgr {
 
+    /** The number of events kept by the bus of each handler. */
+    public static final String BUS_SIZE = "bus_size";
+
+    /**
+     * The prefix of the properties overriding the policy of a subscriber, followed by the thread
+     * name of the subscriber, e.g. {@code policy.EpPS=BLOCK}.
+     */
+    public static final String POLICY_PREFIX = "policy.";
+
     public EventMgrA0(Properties config) {
-        super();
+        super(getBusSize(config));
+
+        for (String name : config.stringPropertyNames()) {
+            if (name.startsWith(POLICY_PREFIX)) {
+                String value = config.getProperty(name).trim().toUpperCase();
+                try {
+                    policies.put(
+                            name.substring(POLICY_PREFIX.length()),
+                            EventRingBuffer.Policy.valueOf(value));
+                } catch (IllegalArgumentException e) {
+                    LOG.error("EVTMGR ignored unknown policy [{}] for [{}]", value, name);
+                }
+            }
+        }
 
+        addHandler(new TxHandler());
+        addHandler(new ConsensusHandler());
+        addHandler(new BlockHandler());
+        addHandler(new MinerHandler());
+    }
+
+    private static int getBusSize(Properties config) {
         if (config == null) {
             throw new NullPointerException();
         }
 
-        IHandler txHdr = new TxHandler();
-        this.handlers.put(txHdr, txHdr);
-
-        IHandler consHdr = new ConsensusHandler();
-        this.handlers.put(consHdr, consHdr);
-
-        IHandler blkHdr = new BlockHandler();
-        this.handlers.put(blkHdr, blkHdr);
-
-        IHandler minerHdr = new MinerHandler();
-        this.handlers.put(minerHdr, minerHdr);
-        // setPoolArgs(config);
+        String size = config.getProperty(BUS_SIZE);
+        return size == null ? DEFAULT_BUS_SIZE : Integer.parseInt(size.trim());
     }
 
     /*
@@ -2,9 +2,11 @@ package org.aion.evtmgr.impl.abs;
 
 import static junit.framework.TestCase.assertEquals;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import org.aion.evtmgr.IHandler;
+import org.aion.evtmgr.impl.es.EventRingBuffer;
 import org.aion.evtmgr.impl.handler.TxHandler;
 import org.aion.evtmgr.impl.mgr.EventMgrA0;
 import org.junit.Test;
@@ -44,4 +46,13 @@ public class AbstractEventMgrTest {
         List<IHandler> res = evtManager.getHandlerList();
         assertEquals(4, res.size());
     }
+
+    @Test
+    public void testHandlersHaveOwnBus() {
+        List<EventRingBuffer> buses = evtManager.getBuses();
+        assertEquals(evtManager.getHandlerList().size(), buses.size());
+        assertEquals(buses.size(), new HashSet<>(buses).size());
+        // reports are a no-op on an idle manager
+        ((AbstractEventMgr) evtManager).reportConsumers();
+    }
 }
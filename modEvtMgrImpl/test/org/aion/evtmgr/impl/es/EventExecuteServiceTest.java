@@ -6,6 +6,7 @@ import static junit.framework.TestCase.assertTrue;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import org.aion.evtmgr.IEvent;
 import org.aion.evtmgr.impl.evt.EventBlock;
 import org.aion.evtmgr.impl.evt.EventConsensus;
@@ -52,9 +53,81 @@ public class EventExecuteServiceTest {
     public void testQueueFull() {
         EventExecuteService ees =
                 new EventExecuteService(100, "test", Thread.NORM_PRIORITY, LOGGER_EVENT);
-        for (int i = 0; i < 101; i++) ees.add(new EventDummy());
-        // queue full
-        assertFalse(ees.add(new EventDummy()));
+        for (int i = 0; i < 101; i++) assertTrue(ees.add(new EventDummy()));
+        // queue full, the oldest event is dropped
+        assertEquals(100, ees.getLag());
+        ees.take();
+        assertEquals(1, ees.getDropped());
+        assertEquals(99, ees.getLag());
+    }
+
+    @Test
+    public void testSubscribe() {
+        EventExecuteService ees =
+                new EventExecuteService(100, "test", Thread.NORM_PRIORITY, LOGGER_EVENT);
+        ees.setFilter(getFilter());
+        EventRingBuffer bus = new EventRingBuffer(100);
+        ees.subscribe(bus, e -> e.getEventType() == IEvent.TYPE.BLOCK0.getValue());
+        ees.subscribe(bus, e -> e.getEventType() == IEvent.TYPE.TX0.getValue());
+
+        bus.publish(new EventMiner(EventMiner.CALLBACK.MININGSTARTED));
+        bus.publish(new EventBlock(EventBlock.CALLBACK.ONBLOCK0));
+        bus.publish(new EventTx(EventTx.CALLBACK.PENDINGTXSTATECHANGE0));
+
+        assertEquals(IEvent.TYPE.BLOCK0.getValue(), ees.take().getEventType());
+        assertEquals(IEvent.TYPE.TX0.getValue(), ees.take().getEventType());
+        assertEquals(0, ees.getLag());
+    }
+
+    @Test
+    public void testSubscribeMultipleBuses() throws InterruptedException {
+        EventExecuteService ees =
+                new EventExecuteService(100, "test", Thread.NORM_PRIORITY, LOGGER_EVENT);
+        ees.setFilter(getFilter());
+        EventRingBuffer blocks = new EventRingBuffer("blocks", 100);
+        EventRingBuffer txs = new EventRingBuffer("txs", 100);
+        ees.subscribe(blocks, e -> e.getEventType() == IEvent.TYPE.BLOCK0.getValue());
+        ees.subscribe(txs, e -> e.getEventType() == IEvent.TYPE.TX0.getValue());
+        // two buses plus the private one
+        assertEquals(3, ees.getConsumers().size());
+
+        blocks.publish(new EventBlock(EventBlock.CALLBACK.ONBLOCK0));
+        assertEquals(IEvent.TYPE.BLOCK0.getValue(), ees.take().getEventType());
+
+        // a take blocked on an empty service is woken by a publication on either bus
+        AtomicReference<IEvent> taken = new AtomicReference<>();
+        Thread t = new Thread(() -> taken.set(ees.take()));
+        t.start();
+        Thread.sleep(100);
+        txs.publish(new EventTx(EventTx.CALLBACK.PENDINGTXSTATECHANGE0));
+        t.join(5000);
+        assertFalse(t.isAlive());
+        assertEquals(IEvent.TYPE.TX0.getValue(), taken.get().getEventType());
+        assertEquals(0, ees.getLag());
+    }
+
+    @Test
+    public void testSubscribeWithPolicy() {
+        EventExecuteService ees =
+                new EventExecuteService(100, "test", Thread.NORM_PRIORITY, LOGGER_EVENT);
+        EventRingBuffer bus = new EventRingBuffer("consensus", 100);
+        ees.subscribe(
+                bus,
+                e -> e.getEventType() == IEvent.TYPE.CONSENSUS0.getValue(),
+                EventRingBuffer.Policy.BLOCK);
+
+        EventRingBuffer.Consumer consumer = bus.getConsumers().get(0);
+        assertEquals(EventRingBuffer.Policy.BLOCK, consumer.getPolicy());
+        assertTrue(ees.getConsumers().contains(consumer));
+    }
+
+    @Test
+    public void testTakeAfterShutdown() {
+        EventExecuteService ees =
+                new EventExecuteService(100, "test", Thread.NORM_PRIORITY, LOGGER_EVENT);
+        ees.add(new EventDummy());
+        ees.shutdown();
+        assertEquals(IEvent.TYPE.DUMMY.getValue(), ees.take().getEventType());
     }
 
     @Test
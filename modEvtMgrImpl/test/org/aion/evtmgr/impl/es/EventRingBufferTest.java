@@ -0,0 +1,205 @@
+package org.aion.evtmgr.impl.es;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.evtmgr.IEvent;
+import org.aion.evtmgr.impl.evt.EventBlock;
+import org.aion.evtmgr.impl.evt.EventTx;
+import org.junit.Test;
+
+public class EventRingBufferTest {
+
+    private static final int CAPACITY = 4;
+
+    private final EventRingBuffer bus = new EventRingBuffer(CAPACITY);
+
+    private static IEvent block() {
+        return new EventBlock(EventBlock.CALLBACK.ONBEST0);
+    }
+
+    private static IEvent tx() {
+        return new EventTx(EventTx.CALLBACK.PENDINGTXRECEIVED0);
+    }
+
+    @Test
+    public void testIndependentConsumers() {
+        EventRingBuffer.Consumer all =
+                bus.newConsumer("all", EventRingBuffer.Policy.DROP_OLDEST, e -> true);
+        EventRingBuffer.Consumer blocks =
+                bus.newConsumer(
+                        "blocks",
+                        EventRingBuffer.Policy.DROP_OLDEST,
+                        e -> e.getEventType() == IEvent.TYPE.BLOCK0.getValue());
+
+        IEvent first = block();
+        IEvent second = tx();
+        bus.publish(first);
+        bus.publish(second);
+        assertEquals(2, all.getLag());
+        assertEquals(2, blocks.getLag());
+
+        // the same event instance is read by every consumer
+        assertSame(first, all.poll());
+        assertSame(first, blocks.poll());
+        assertNull(blocks.poll());
+        assertEquals(0, blocks.getLag());
+        assertEquals(1, all.getLag());
+
+        assertSame(second, all.poll());
+        assertEquals(2, all.getDelivered());
+        assertEquals(1, blocks.getDelivered());
+    }
+
+    @Test
+    public void testConsumerStartsAtCursor() {
+        bus.publish(block());
+        EventRingBuffer.Consumer late =
+                bus.newConsumer("late", EventRingBuffer.Policy.DROP_OLDEST, e -> true);
+        assertNull(late.poll());
+
+        IEvent event = tx();
+        bus.publish(event);
+        assertSame(event, late.poll());
+    }
+
+    @Test
+    public void testDropOldest() {
+        EventRingBuffer.Consumer slow =
+                bus.newConsumer("slow", EventRingBuffer.Policy.DROP_OLDEST, e -> true);
+
+        IEvent[] events = new IEvent[CAPACITY + 2];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = tx();
+            assertTrue(bus.publish(events[i]));
+        }
+
+        // the two oldest events were overwritten
+        for (int i = 2; i < events.length; i++) {
+            assertSame(events[i], slow.poll());
+        }
+        assertNull(slow.poll());
+        assertEquals(2, slow.getDropped());
+    }
+
+    @Test
+    public void testCoalesce() {
+        EventRingBuffer.Consumer coalescing =
+                bus.newConsumer("coalescing", EventRingBuffer.Policy.COALESCE, e -> true);
+
+        IEvent firstBlock = block();
+        IEvent firstTx = tx();
+        IEvent lastBlock = block();
+        bus.publish(firstBlock);
+        bus.publish(firstTx);
+        bus.publish(lastBlock);
+
+        // the first block is superseded by the last one
+        assertSame(firstTx, coalescing.poll());
+        assertSame(lastBlock, coalescing.poll());
+        assertNull(coalescing.poll());
+        assertEquals(1, coalescing.getCoalesced());
+    }
+
+    @Test
+    public void testCoalescibleEvents() {
+        EventRingBuffer.Consumer coalescing =
+                bus.newConsumer(
+                        "coalescing",
+                        EventRingBuffer.Policy.COALESCE,
+                        e -> true,
+                        e -> e.getEventType() == IEvent.TYPE.BLOCK0.getValue());
+
+        bus.publish(tx());
+        bus.publish(tx());
+        bus.publish(block());
+        bus.publish(block());
+
+        assertEquals(IEvent.TYPE.TX0.getValue(), coalescing.poll().getEventType());
+        assertEquals(IEvent.TYPE.TX0.getValue(), coalescing.poll().getEventType());
+        assertEquals(IEvent.TYPE.BLOCK0.getValue(), coalescing.poll().getEventType());
+        assertNull(coalescing.poll());
+        assertEquals(1, coalescing.getCoalesced());
+    }
+
+    @Test
+    public void testPolicyOverride() {
+        bus.setPolicy("EpPS", EventRingBuffer.Policy.BLOCK);
+        EventRingBuffer.Consumer consumer =
+                bus.newConsumer("EpPS", EventRingBuffer.Policy.DROP_OLDEST, e -> true);
+        assertEquals(EventRingBuffer.Policy.BLOCK, consumer.getPolicy());
+    }
+
+    @Test
+    public void testBlockWaitsForConsumer() throws InterruptedException {
+        EventRingBuffer.Consumer blocking =
+                bus.newConsumer("blocking", EventRingBuffer.Policy.BLOCK, e -> true);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(bus.publish(tx()));
+        }
+
+        CountDownLatch published = new CountDownLatch(1);
+        Thread publisher =
+                new Thread(
+                        () -> {
+                            bus.publish(block());
+                            published.countDown();
+                        });
+        publisher.start();
+        assertFalse(published.await(200, TimeUnit.MILLISECONDS));
+
+        // reading one event frees a slot for the publisher
+        assertEquals(IEvent.TYPE.TX0.getValue(), blocking.poll().getEventType());
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        publisher.join();
+        assertEquals(CAPACITY, blocking.getLag());
+        assertEquals(0, blocking.getDropped());
+    }
+
+    @Test(timeout = 10_000)
+    public void testBlockDoesNotWaitForReadingThread() {
+        EventRingBuffer.Consumer blocking =
+                bus.newConsumer("blocking", EventRingBuffer.Policy.BLOCK, e -> true);
+        assertNull(blocking.poll());
+
+        // the thread reading the consumer would wait for itself
+        for (int i = 0; i <= CAPACITY; i++) {
+            assertTrue(bus.publish(tx()));
+        }
+        assertEquals(CAPACITY, blocking.getLag());
+        assertEquals(IEvent.TYPE.TX0.getValue(), blocking.poll().getEventType());
+        assertEquals(1, blocking.getDropped());
+    }
+
+    @Test
+    public void testCloseReleasesReader() throws InterruptedException {
+        EventRingBuffer.Consumer other =
+                bus.newConsumer("other", EventRingBuffer.Policy.BLOCK, e -> true);
+        EventRingBuffer.Consumer reader =
+                bus.newConsumer("reader", EventRingBuffer.Policy.BLOCK, e -> true);
+        AtomicBoolean returned = new AtomicBoolean();
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try {
+                                returned.set(reader.take() == null);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+        thread.start();
+
+        reader.close();
+        thread.join(5_000L);
+        assertTrue(returned.get());
+        assertTrue(reader.isClosed());
+        assertEquals(1, bus.getConsumers().size());
+        assertSame(other, bus.getConsumers().get(0));
+    }
+}
@@ -22,6 +22,8 @@ public class CfgApiZmq {
         this.filtersEnabled = true;
         this.blockSummaryCacheEnabled = false;
         this.secureConnectEnabled = false;
+        this.workerThreads = null;
+        this.heavyRequestLimit = null;
     }
 
     protected boolean active;
@@ -30,6 +32,9 @@ public class CfgApiZmq {
     private boolean filtersEnabled;
     private boolean blockSummaryCacheEnabled;
     private boolean secureConnectEnabled;
+    // null selects the defaults of the api server
+    private Integer workerThreads;
+    private Integer heavyRequestLimit;
 
     private static Logger LOG_GEN = AionLoggerFactory.getLogger("GEN");
 
@@ -77,6 +82,28 @@ public class CfgApiZmq {
                                         e);
                             }
                             break;
+                        case "worker-threads":
+                            try {
+                                int t = Integer.parseInt(Cfg.readValue(sr));
+                                // filter out negative counts
+                                if (t > 0) this.workerThreads = t;
+                            } catch (Exception e) {
+                                LOG_GEN.warn(
+                                        "failed to read config node: aion.api.zmq.worker-threads; using defaults\n {}",
+                                        e);
+                            }
+                            break;
+                        case "heavy-request-limit":
+                            try {
+                                int t = Integer.parseInt(Cfg.readValue(sr));
+                                // filter out negative counts
+                                if (t > 0) this.heavyRequestLimit = t;
+                            } catch (Exception e) {
+                                LOG_GEN.warn(
+                                        "failed to read config node: aion.api.zmq.heavy-request-limit; using defaults\n {}",
+                                        e);
+                            }
+                            break;
                         default:
                             Cfg.skipElement(sr);
                             break;
@@ -154,6 +181,19 @@ public class CfgApiZmq {
         return this.secureConnectEnabled;
     }
 
+    /** @return the number of threads processing the requests, or null to use the default */
+    public Integer getWorkerThreads() {
+        return this.workerThreads;
+    }
+
+    /**
+     * @return the number of requests of each expensive type, like block range queries, processed
+     *     concurrently, or null to use the default
+     */
+    public Integer getHeavyRequestLimit() {
+        return this.heavyRequestLimit;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -164,12 +204,21 @@ public class CfgApiZmq {
                 && filtersEnabled == cfgApiZmq.filtersEnabled
                 && blockSummaryCacheEnabled == cfgApiZmq.blockSummaryCacheEnabled
                 && secureConnectEnabled == cfgApiZmq.secureConnectEnabled
+                && Objects.equal(workerThreads, cfgApiZmq.workerThreads)
+                && Objects.equal(heavyRequestLimit, cfgApiZmq.heavyRequestLimit)
                 && Objects.equal(ip, cfgApiZmq.ip);
     }
 
     @Override
     public int hashCode() {
         return Objects.hashCode(
-                active, ip, port, filtersEnabled, blockSummaryCacheEnabled, secureConnectEnabled);
+                active,
+                ip,
+                port,
+                filtersEnabled,
+                blockSummaryCacheEnabled,
+                secureConnectEnabled,
+                workerThreads,
+                heavyRequestLimit);
     }
 }
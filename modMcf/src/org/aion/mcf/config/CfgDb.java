@@ -20,6 +20,8 @@ public class CfgDb {
         public static final String DEFAULT = "default";
 
         public static final String BLOCK = "block";
+        public static final String HEADER = "header";
+        public static final String BLOOM_BITS = "bloomBits";
         public static final String INDEX = "index";
         public static final String PENDING_BLOCK = "pendingBlock";
 
@@ -31,7 +33,10 @@ public class CfgDb {
         public static final String GRAPH = "graph";
 
         public static final String STATE = "state";
+        public static final String FLAT_STATE = "flatState";
         public static final String STATE_ARCHIVE = "stateArchive";
+        public static final String STATE_JOURNAL = "stateJournal";
+        public static final String STORAGE_JOURNAL = "storageJournal";
         public static final String TRANSACTION = "transaction";
 
         public static final String TX_CACHE = "pendingtxCache";
@@ -71,6 +76,8 @@ public class CfgDb {
     private boolean check_integrity;
     private CfgPrune prune;
     private PruneOption prune_option;
+    private boolean prune_journal_persisted;
+    private int prune_journal_window;
     private boolean internalTxStorage;
 
     /**
@@ -90,6 +97,8 @@ public class CfgDb {
         this.check_integrity = true;
         this.prune = new CfgPrune(false);
         this.prune_option = PruneOption.FULL;
+        this.prune_journal_persisted = false;
+        this.prune_journal_window = DEFAULT_PRUNE_JOURNAL_WINDOW;
 
         if (expert) {
             this.specificConfig = new HashMap<>();
@@ -114,6 +123,12 @@ public class CfgDb {
                         case "state-storage":
                             setPrune(Cfg.readValue(sr));
                             break;
+                        case "state-storage-journal":
+                            setPruneJournalPersisted(Boolean.parseBoolean(Cfg.readValue(sr)));
+                            break;
+                        case "state-storage-journal-window":
+                            setPruneJournalWindow(Integer.parseInt(Cfg.readValue(sr)));
+                            break;
                         case "internal-tx-storage":
                             this.internalTxStorage = Boolean.parseBoolean(Cfg.readValue(sr));
                             break;
@@ -249,6 +264,22 @@ public class CfgDb {
             xmlWriter.writeCharacters(this.prune_option.toString());
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment(
+                    "Boolean value. Enable/disable persisting the journal used by the TOP and SPREAD options so that pruning resumes correctly after a restart.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("state-storage-journal");
+            xmlWriter.writeCharacters(String.valueOf(this.prune_journal_persisted));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment(
+                    "Integer value. Number of recent blocks for which the persisted journal is also kept in memory.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("state-storage-journal-window");
+            xmlWriter.writeCharacters(String.valueOf(this.prune_journal_window));
+            xmlWriter.writeEndElement();
+
             xmlWriter.writeCharacters("\r\n\t\t");
             xmlWriter.writeComment("Data storage behavior for the transaction database. Boolean value used to enable/disable internal transaction storage.");
             xmlWriter.writeCharacters("\r\n\t\t");
@@ -259,7 +290,7 @@ public class CfgDb {
             if (!expert) {
                 xmlWriter.writeCharacters("\r\n\t\t");
                 xmlWriter.writeComment(
-                        "Database implementation used to store data; supported options: leveldb, h2, rocksdb.");
+                        "Database implementation used to store data; supported options: leveldb, h2, rocksdb, rocksdbcf.");
                 xmlWriter.writeCharacters("\r\n\t\t");
                 xmlWriter.writeComment(
                         "Caution: changing implementation requires re-syncing from genesis!");
@@ -347,6 +378,8 @@ public class CfgDb {
     public static final int SPREAD_PRUNE_BLOCK_COUNT = 128;
     /** At what frequency block states are being archived. */
     public static final int SPREAD_PRUNE_ARCHIVE_RATE = 10000;
+    /** Number of topmost blocks for which the persisted pruning journal is also kept in memory. */
+    public static final int DEFAULT_PRUNE_JOURNAL_WINDOW = 32;
 
     public enum PruneOption {
         FULL,
@@ -396,6 +429,20 @@ public class CfgDb {
                 this.prune = new CfgPrune(false);
                 break;
         }
+
+        // the journal settings are independent of the pruning option
+        this.prune.setJournalPersisted(prune_journal_persisted);
+        this.prune.setJournalWindow(prune_journal_window);
+    }
+
+    public void setPruneJournalPersisted(boolean _persisted) {
+        this.prune_journal_persisted = _persisted;
+        this.prune.setJournalPersisted(_persisted);
+    }
+
+    public void setPruneJournalWindow(int _window) {
+        this.prune_journal_window = _window;
+        this.prune.setJournalWindow(_window);
     }
 
     public Map<String, Properties> asProperties() {
@@ -462,6 +509,8 @@ public class CfgDb {
                 && Objects.equal(vendor, cfgDb.vendor)
                 && Objects.equal(prune, cfgDb.prune)
                 && prune_option == cfgDb.prune_option
+                && prune_journal_persisted == cfgDb.prune_journal_persisted
+                && prune_journal_window == cfgDb.prune_journal_window
                 && Objects.equal(specificConfig, cfgDb.specificConfig);
     }
 
@@ -474,6 +523,8 @@ public class CfgDb {
                 check_integrity,
                 prune,
                 prune_option,
+                prune_journal_persisted,
+                prune_journal_window,
                 expert,
                 specificConfig);
     }
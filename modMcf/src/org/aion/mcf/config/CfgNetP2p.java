@@ -21,8 +21,32 @@ public final class CfgNetP2p {
         this.errorTolerance = 50;
         this.clusterNodeMode = false;
         this.syncOnlyMode = false;
+        this.inboundThreads =
+                Math.min(DEFAULT_INBOUND_THREADS, Runtime.getRuntime().availableProcessors());
+        this.inboundRouteCapacity = DEFAULT_INBOUND_ROUTE_CAPACITY;
+        this.inboundOverloadLimit = DEFAULT_INBOUND_OVERLOAD_LIMIT;
+        this.routeWeightHigh = DEFAULT_ROUTE_WEIGHT_HIGH;
+        this.routeWeightNormal = DEFAULT_ROUTE_WEIGHT_NORMAL;
+        this.routeWeightLow = DEFAULT_ROUTE_WEIGHT_LOW;
     }
 
+    /**
+     * The number of threads reading the peer connections, each one waiting on its own selector.
+     * Zero selects the single polling thread used before.
+     */
+    public static final int DEFAULT_INBOUND_THREADS = 2;
+
+    /** The maximum number of received messages queued for each route. */
+    public static final int DEFAULT_INBOUND_ROUTE_CAPACITY = 1024;
+
+    /** The total number of queued received messages from which low priority messages are dropped. */
+    public static final int DEFAULT_INBOUND_OVERLOAD_LIMIT = 4096;
+
+    /** The share of the workers handling received messages given to each route priority. */
+    public static final int DEFAULT_ROUTE_WEIGHT_HIGH = 8,
+            DEFAULT_ROUTE_WEIGHT_NORMAL = 4,
+            DEFAULT_ROUTE_WEIGHT_LOW = 1;
+
     private String ip;
 
     private int port;
@@ -41,6 +65,18 @@ public final class CfgNetP2p {
 
     private int errorTolerance;
 
+    private int inboundThreads;
+
+    private int inboundRouteCapacity;
+
+    private int inboundOverloadLimit;
+
+    private int routeWeightHigh;
+
+    private int routeWeightNormal;
+
+    private int routeWeightLow;
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -76,6 +112,32 @@ public final class CfgNetP2p {
                         case "err-tolerance":
                             this.errorTolerance = Integer.parseInt(Cfg.readValue(sr));
                             break;
+                        case "inbound-threads":
+                            // more threads than processors do not read any faster
+                            int threads = Integer.parseInt(Cfg.readValue(sr));
+                            this.inboundThreads =
+                                    Math.min(
+                                            Math.max(threads, 0),
+                                            Runtime.getRuntime().availableProcessors());
+                            break;
+                        case "inbound-route-capacity":
+                            this.inboundRouteCapacity =
+                                    Math.max(1, Integer.parseInt(Cfg.readValue(sr)));
+                            break;
+                        case "inbound-overload-limit":
+                            this.inboundOverloadLimit =
+                                    Math.max(1, Integer.parseInt(Cfg.readValue(sr)));
+                            break;
+                        case "route-weight-high":
+                            this.routeWeightHigh = Math.max(1, Integer.parseInt(Cfg.readValue(sr)));
+                            break;
+                        case "route-weight-normal":
+                            this.routeWeightNormal =
+                                    Math.max(1, Integer.parseInt(Cfg.readValue(sr)));
+                            break;
+                        case "route-weight-low":
+                            this.routeWeightLow = Math.max(1, Integer.parseInt(Cfg.readValue(sr)));
+                            break;
                         default:
                             // Cfg.skipElement(sr);
                             break;
@@ -171,6 +233,30 @@ public final class CfgNetP2p {
         return errorTolerance;
     }
 
+    public int getInboundThreads() {
+        return inboundThreads;
+    }
+
+    public int getInboundRouteCapacity() {
+        return inboundRouteCapacity;
+    }
+
+    public int getInboundOverloadLimit() {
+        return inboundOverloadLimit;
+    }
+
+    public int getRouteWeightHigh() {
+        return routeWeightHigh;
+    }
+
+    public int getRouteWeightNormal() {
+        return routeWeightNormal;
+    }
+
+    public int getRouteWeightLow() {
+        return routeWeightLow;
+    }
+
     public boolean inClusterNodeMode() {
         return clusterNodeMode;
     }
@@ -192,6 +278,12 @@ public final class CfgNetP2p {
                 && maxTempNodes == cfgNetP2p.maxTempNodes
                 && maxActiveNodes == cfgNetP2p.maxActiveNodes
                 && errorTolerance == cfgNetP2p.errorTolerance
+                && inboundThreads == cfgNetP2p.inboundThreads
+                && inboundRouteCapacity == cfgNetP2p.inboundRouteCapacity
+                && inboundOverloadLimit == cfgNetP2p.inboundOverloadLimit
+                && routeWeightHigh == cfgNetP2p.routeWeightHigh
+                && routeWeightNormal == cfgNetP2p.routeWeightNormal
+                && routeWeightLow == cfgNetP2p.routeWeightLow
                 && Objects.equal(ip, cfgNetP2p.ip);
     }
 
@@ -206,6 +298,12 @@ public final class CfgNetP2p {
                 syncOnlyMode,
                 maxTempNodes,
                 maxActiveNodes,
-                errorTolerance);
+                errorTolerance,
+                inboundThreads,
+                inboundRouteCapacity,
+                inboundOverloadLimit,
+                routeWeightHigh,
+                routeWeightNormal,
+                routeWeightLow);
     }
 }
@@ -16,6 +16,8 @@ public class CfgPrune implements PruneConfig {
     private boolean archived;
     private int current_count = MINIMUM_CURRENT_COUNT;
     private int archive_rate = MINIMUM_ARCHIVE_RATE;
+    private boolean persisted_journal = false;
+    private int journal_window = CfgDb.DEFAULT_PRUNE_JOURNAL_WINDOW;
 
     private static final int MINIMUM_CURRENT_COUNT = 128;
     private static final int MINIMUM_ARCHIVE_RATE = 1000;
@@ -122,6 +124,15 @@ public class CfgPrune implements PruneConfig {
         xmlWriter.writeEndElement();
     }
 
+    public void setJournalPersisted(boolean _persisted) {
+        this.persisted_journal = _persisted;
+    }
+
+    public void setJournalWindow(int _window) {
+        // the window must contain at least the current block
+        this.journal_window = _window > 0 ? _window : 1;
+    }
+
     @Override
     public boolean isEnabled() {
         return enabled;
@@ -142,6 +153,16 @@ public class CfgPrune implements PruneConfig {
         return archive_rate;
     }
 
+    @Override
+    public boolean isJournalPersisted() {
+        return persisted_journal;
+    }
+
+    @Override
+    public int getJournalWindow() {
+        return journal_window;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -150,11 +171,14 @@ public class CfgPrune implements PruneConfig {
         return enabled == cfgPrune.enabled
                 && archived == cfgPrune.archived
                 && current_count == cfgPrune.current_count
-                && archive_rate == cfgPrune.archive_rate;
+                && archive_rate == cfgPrune.archive_rate
+                && persisted_journal == cfgPrune.persisted_journal
+                && journal_window == cfgPrune.journal_window;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(enabled, archived, current_count, archive_rate);
+        return Objects.hashCode(
+                enabled, archived, current_count, archive_rate, persisted_journal, journal_window);
     }
 }
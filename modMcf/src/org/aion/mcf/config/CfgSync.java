@@ -24,6 +24,8 @@ public final class CfgSync {
     private int slowImportTime;
     private int compactFrequency;
 
+    private boolean compactBlockRelay;
+
     private static final int BLOCKS_QUEUE_MAX = 32;
 
     private static final int SLOW_IMPORT_TIME = 1_000; // 1 sec
@@ -37,6 +39,7 @@ public final class CfgSync {
         this.compactEnabled = false;
         this.slowImportTime = SLOW_IMPORT_TIME;
         this.compactFrequency = COMPACT_FREQUENCY;
+        this.compactBlockRelay = false;
     }
 
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
@@ -59,6 +62,9 @@ public final class CfgSync {
                         case "compact":
                             parseCompact(sr);
                             break;
+                        case "compact-block-relay":
+                            this.compactBlockRelay = Boolean.parseBoolean(Cfg.readValue(sr));
+                            break;
                         default:
                             Cfg.skipElement(sr);
                             break;
@@ -176,6 +182,15 @@ public final class CfgSync {
             xmlWriter.writeAttribute("frequency", this.compactFrequency + "");
             xmlWriter.writeEndElement();
 
+            // sub-element compact-block-relay
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment(
+                    "broadcast new blocks as a header and short transaction ids; the peers must support it");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("compact-block-relay");
+            xmlWriter.writeCharacters(this.compactBlockRelay + "");
+            xmlWriter.writeEndElement();
+
             // close element sync
             xmlWriter.writeCharacters("\r\n\t");
             xmlWriter.writeEndElement();
@@ -249,6 +264,18 @@ public final class CfgSync {
         return this.compactFrequency;
     }
 
+    /**
+     * Returns {@code true} when new blocks are broadcast as compact blocks, which the receivers
+     * rebuild from their transaction pool.
+     */
+    public boolean getCompactBlockRelay() {
+        return this.compactBlockRelay;
+    }
+
+    public void setCompactBlockRelay(boolean compactBlockRelay) {
+        this.compactBlockRelay = compactBlockRelay;
+    }
+
     public void setCompactEnabled(boolean enabled) {
         this.compactEnabled = enabled;
     }
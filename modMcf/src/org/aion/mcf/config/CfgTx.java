@@ -17,8 +17,17 @@ public class CfgTx {
         this.buffer = true;
         this.poolDump = false;
         this.poolBackup = false;
+        this.configuredExecutionThreads = DEFAULT_EXECUTION_THREADS;
+        this.executionThreads = limitExecutionThreads(DEFAULT_EXECUTION_THREADS);
+        this.callCacheSize = DEFAULT_CALL_CACHE_SIZE;
     }
 
+    /** The number of threads used by the AVM to speculatively execute transactions in parallel. */
+    public static final int DEFAULT_EXECUTION_THREADS = 4;
+
+    /** The number of local call receipts kept for identical calls on the same block. */
+    public static final int DEFAULT_CALL_CACHE_SIZE = 1024;
+
     private int cacheMax;
 
     private boolean buffer;
@@ -27,6 +36,13 @@ public class CfgTx {
 
     private boolean poolBackup;
 
+    // the value from the config file, written back unchanged
+    private int configuredExecutionThreads;
+
+    private int executionThreads;
+
+    private int callCacheSize;
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -52,6 +68,21 @@ public class CfgTx {
                         case "poolbackup":
                             this.poolBackup = Boolean.parseBoolean(Cfg.readValue(sr));
                             break;
+                        case "executionthreads":
+                            // zero (or less) uses all the available processors
+                            int threads = Integer.parseInt(Cfg.readValue(sr));
+                            this.configuredExecutionThreads = threads;
+                            this.executionThreads = limitExecutionThreads(threads);
+                            if (threads > this.executionThreads) {
+                                System.out.println(
+                                        "config node aion.tx.executionThreads exceeds the available processors; using: "
+                                                + this.executionThreads);
+                            }
+                            break;
+                        case "callcachesize":
+                            // zero (or less) disables the cache
+                            this.callCacheSize = Math.max(0, Integer.parseInt(Cfg.readValue(sr)));
+                            break;
                         default:
                             Cfg.skipElement(sr);
                             break;
@@ -63,6 +94,12 @@ public class CfgTx {
         }
     }
 
+    /** Limits the execution threads to the available processors, using all of them for zero. */
+    private static int limitExecutionThreads(int threads) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return (threads <= 0 || threads > processors) ? processors : threads;
+    }
+
     public String toXML() {
         final XMLOutputFactory output = XMLOutputFactory.newInstance();
         XMLStreamWriter xmlWriter;
@@ -78,6 +115,16 @@ public class CfgTx {
             xmlWriter.writeCharacters(String.valueOf(this.getCacheMax()));
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("executionThreads");
+            xmlWriter.writeCharacters(String.valueOf(this.configuredExecutionThreads));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("callCacheSize");
+            xmlWriter.writeCharacters(String.valueOf(this.getCallCacheSize()));
+            xmlWriter.writeEndElement();
+
             xmlWriter.writeCharacters("\r\n\t");
             xmlWriter.writeEndElement();
             xml = strWriter.toString();
@@ -108,6 +155,28 @@ public class CfgTx {
         return poolBackup;
     }
 
+    /**
+     * Returns the number of threads used for executing the transactions in a block. With one
+     * thread the transactions are executed sequentially. With more threads the transactions are
+     * executed speculatively in parallel and the ones that conflict are re-executed in order,
+     * producing the same results as sequential execution.
+     *
+     * <p>The configured value, including the default, is limited to the number of available
+     * processors. Zero or less uses all the available processors.
+     */
+    public int getExecutionThreads() {
+        return executionThreads;
+    }
+
+    /**
+     * Returns the number of receipts of local calls, such as {@code eth_call} and energy
+     * estimates, that are reused when the same call is made again on the same block. With zero
+     * every call is executed.
+     */
+    public int getCallCacheSize() {
+        return callCacheSize;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -116,11 +185,14 @@ public class CfgTx {
         return cacheMax == cfgTx.cacheMax
                 && buffer == cfgTx.buffer
                 && poolDump == cfgTx.poolDump
-                && poolBackup == cfgTx.poolBackup;
+                && poolBackup == cfgTx.poolBackup
+                && configuredExecutionThreads == cfgTx.configuredExecutionThreads
+                && callCacheSize == cfgTx.callCacheSize;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(cacheMax, buffer, poolDump, poolBackup);
+        return Objects.hashCode(
+                cacheMax, buffer, poolDump, poolBackup, configuredExecutionThreads, callCacheSize);
     }
 }
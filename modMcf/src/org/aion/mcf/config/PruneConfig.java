@@ -34,4 +34,19 @@ public interface PruneConfig {
      * @return integer value representing the archive rate
      */
     int getArchiveRate();
+
+    /**
+     * Indicates if the pruning journal should be persisted to disk, allowing pruning to resume
+     * correctly after a restart.
+     *
+     * @return {@code true} when the journal is persisted, {@code false} when it is kept only in
+     *     memory
+     */
+    boolean isJournalPersisted();
+
+    /**
+     * @return the number of most recent blocks for which the journal updates are also kept in
+     *     memory when the journal is persisted
+     */
+    int getJournalWindow();
 }
@@ -18,6 +18,8 @@ public interface IBlockStoreBase {
 
     Block getBlockByHash(byte[] hash);
 
+    BlockHeader getHeaderByHash(byte[] hash);
+
     boolean isBlockStored(byte[] hash, long number);
 
     List<byte[]> getListHashesEndWith(byte[] hash, long qty);
@@ -1,6 +1,8 @@
 package org.aion.mcf.db;
 
 import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Set;
 import org.aion.types.AionAddress;
 import org.aion.util.types.ByteArrayWrapper;
 
@@ -98,4 +100,20 @@ public interface RepositoryCache<AS, BSB> extends Repository<AS, BSB> {
     void removeStorageRow(AionAddress address, ByteArrayWrapper key);
 
     void flushTo(Repository repo, boolean clearStateAfterFlush);
+
+    /**
+     * Retrieves the addresses of all the accounts held by this cache, whether they were only read
+     * or also modified.
+     *
+     * @return the set of addresses of the cached accounts
+     */
+    Set<AionAddress> getCachedAddresses();
+
+    /**
+     * Reverts the changes performed by this repository to the given accounts. Their state will be
+     * loaded again from the tracked repository on the next access.
+     *
+     * @param addresses the addresses of the accounts to be discarded from the cache
+     */
+    void rollback(Collection<AionAddress> addresses);
 }
@@ -0,0 +1,81 @@
+package org.aion.mcf.config;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.io.CharSource;
+import java.io.IOException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.junit.Test;
+
+/** Test {@link CfgNetP2p} */
+public class CfgNetP2pTest {
+
+    private static CfgNetP2p parse(String xml) throws IOException, XMLStreamException {
+        XMLStreamReader xmlStream =
+                XMLInputFactory.newInstance()
+                        .createXMLStreamReader(CharSource.wrap(xml).openStream());
+        // move to the p2p element
+        xmlStream.next();
+
+        CfgNetP2p unit = new CfgNetP2p();
+        unit.fromXML(xmlStream);
+        return unit;
+    }
+
+    @Test
+    public void testDefaultInboundThreads() throws IOException, XMLStreamException {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        CfgNetP2p unit = parse("<p2p><port>30303</port></p2p>");
+        assertThat(
+                unit.getInboundThreads(),
+                is(Math.min(CfgNetP2p.DEFAULT_INBOUND_THREADS, processors)));
+    }
+
+    @Test
+    public void testInboundThreads() throws IOException, XMLStreamException {
+        CfgNetP2p unit = parse("<p2p><inbound-threads>1</inbound-threads></p2p>");
+        assertThat(unit.getInboundThreads(), is(1));
+
+        // zero keeps the polling thread
+        unit = parse("<p2p><inbound-threads>0</inbound-threads></p2p>");
+        assertThat(unit.getInboundThreads(), is(0));
+    }
+
+    @Test
+    public void testInboundThreadsLimitedToAvailableProcessors()
+            throws IOException, XMLStreamException {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        CfgNetP2p unit =
+                parse("<p2p><inbound-threads>" + (processors + 1) + "</inbound-threads></p2p>");
+        assertThat(unit.getInboundThreads(), is(processors));
+    }
+
+    @Test
+    public void testInboundQueues() throws IOException, XMLStreamException {
+        CfgNetP2p unit = parse("<p2p><port>30303</port></p2p>");
+        assertThat(unit.getInboundRouteCapacity(), is(CfgNetP2p.DEFAULT_INBOUND_ROUTE_CAPACITY));
+        assertThat(unit.getInboundOverloadLimit(), is(CfgNetP2p.DEFAULT_INBOUND_OVERLOAD_LIMIT));
+        assertThat(unit.getRouteWeightHigh(), is(CfgNetP2p.DEFAULT_ROUTE_WEIGHT_HIGH));
+        assertThat(unit.getRouteWeightNormal(), is(CfgNetP2p.DEFAULT_ROUTE_WEIGHT_NORMAL));
+        assertThat(unit.getRouteWeightLow(), is(CfgNetP2p.DEFAULT_ROUTE_WEIGHT_LOW));
+
+        unit =
+                parse(
+                        "<p2p><inbound-route-capacity>64</inbound-route-capacity>"
+                                + "<inbound-overload-limit>256</inbound-overload-limit>"
+                                + "<route-weight-high>16</route-weight-high>"
+                                + "<route-weight-normal>2</route-weight-normal>"
+                                + "<route-weight-low>0</route-weight-low></p2p>");
+        assertThat(unit.getInboundRouteCapacity(), is(64));
+        assertThat(unit.getInboundOverloadLimit(), is(256));
+        assertThat(unit.getRouteWeightHigh(), is(16));
+        assertThat(unit.getRouteWeightNormal(), is(2));
+        // the weights are at least one
+        assertThat(unit.getRouteWeightLow(), is(1));
+    }
+}
@@ -0,0 +1,98 @@
+package org.aion.mcf.config;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.io.CharSource;
+import java.io.IOException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.junit.Test;
+
+/** Test {@link CfgTx} */
+public class CfgTxTest {
+
+    private static CfgTx parse(String xml) throws IOException, XMLStreamException {
+        XMLStreamReader xmlStream =
+                XMLInputFactory.newInstance()
+                        .createXMLStreamReader(CharSource.wrap(xml).openStream());
+        // move to the tx element
+        xmlStream.next();
+
+        CfgTx unit = new CfgTx();
+        unit.fromXML(xmlStream);
+        return unit;
+    }
+
+    @Test
+    public void testDefaultExecutionThreads() throws IOException, XMLStreamException {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        CfgTx unit = parse("<tx><cacheMax>256</cacheMax></tx>");
+        assertThat(
+                unit.getExecutionThreads(),
+                is(Math.min(CfgTx.DEFAULT_EXECUTION_THREADS, processors)));
+    }
+
+    @Test
+    public void testExecutionThreads() throws IOException, XMLStreamException {
+        CfgTx unit = parse("<tx><executionThreads>1</executionThreads></tx>");
+        assertThat(unit.getExecutionThreads(), is(1));
+    }
+
+    @Test
+    public void testExecutionThreadsUseAvailableProcessors()
+            throws IOException, XMLStreamException {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        CfgTx unit = parse("<tx><executionThreads>0</executionThreads></tx>");
+        assertThat(unit.getExecutionThreads(), is(processors));
+
+        unit = parse("<tx><executionThreads>" + (processors + 1) + "</executionThreads></tx>");
+        assertThat(unit.getExecutionThreads(), is(processors));
+    }
+
+    @Test
+    public void testCallCacheSize() throws IOException, XMLStreamException {
+        CfgTx unit = parse("<tx><cacheMax>256</cacheMax></tx>");
+        assertThat(unit.getCallCacheSize(), is(CfgTx.DEFAULT_CALL_CACHE_SIZE));
+
+        unit = parse("<tx><callCacheSize>16</callCacheSize></tx>");
+        assertThat(unit.getCallCacheSize(), is(16));
+
+        unit = parse("<tx><callCacheSize>-1</callCacheSize></tx>");
+        assertThat(unit.getCallCacheSize(), is(0));
+    }
+
+    @Test
+    public void testToXmlRoundTrip() throws IOException, XMLStreamException {
+        CfgTx unit =
+                parse(
+                        "<tx><cacheMax>512</cacheMax>"
+                                + "<executionThreads>1</executionThreads>"
+                                + "<callCacheSize>16</callCacheSize></tx>");
+
+        CfgTx parsed = parse(unit.toXML().trim());
+        assertThat(parsed.getCacheMax(), is(512));
+        assertThat(parsed.getExecutionThreads(), is(1));
+        assertThat(parsed.getCallCacheSize(), is(16));
+        assertThat(parsed, is(unit));
+    }
+
+    @Test
+    public void testToXmlKeepsConfiguredExecutionThreads() throws IOException, XMLStreamException {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        // zero keeps using all the processors when the config is moved to another machine
+        CfgTx unit = parse("<tx><executionThreads>0</executionThreads></tx>");
+        assertThat(unit.toXML(), containsString("<executionThreads>0</executionThreads>"));
+
+        unit = parse("<tx><executionThreads>" + (processors + 1) + "</executionThreads></tx>");
+        assertThat(
+                unit.toXML(),
+                containsString("<executionThreads>" + (processors + 1) + "</executionThreads>"));
+        assertThat(parse(unit.toXML().trim()).getExecutionThreads(), is(processors));
+    }
+}
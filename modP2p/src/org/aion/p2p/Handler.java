@@ -26,5 +26,13 @@ public abstract class Handler {
      */
     public abstract void receive(int _id, String _displayId, final byte[] _msg);
 
+    /**
+     * @return the priority of the messages received for this handler, {@link Priority#NORMAL}
+     *     unless overridden
+     */
+    public Priority getPriority() {
+        return Priority.NORMAL;
+    }
+
     public void shutDown() {}
 }
@@ -0,0 +1,27 @@
+package org.aion.p2p;
+
+/**
+ * The priority of the messages received on a route. Routes of higher priority are given a larger
+ * share of the workers handling the received messages and are not dropped when the node is
+ * overloaded.
+ */
+public enum Priority {
+    /** Messages the chain progress depends on, such as new blocks and sync responses. */
+    HIGH(8),
+
+    NORMAL(4),
+
+    /** Messages that can be dropped under load, such as transaction gossip. */
+    LOW(1);
+
+    private final int weight;
+
+    Priority(int weight) {
+        this.weight = weight;
+    }
+
+    /** @return the default share of the workers given to a route with this priority */
+    public int getWeight() {
+        return weight;
+    }
+}
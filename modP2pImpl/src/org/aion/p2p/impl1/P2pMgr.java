@@ -14,9 +14,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +27,7 @@ import org.aion.p2p.INodeMgr;
 import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.Msg;
 import org.aion.p2p.P2pConstant;
+import org.aion.p2p.Priority;
 import org.aion.p2p.Ver;
 import org.aion.p2p.impl.TaskRequestActiveNodes;
 import org.aion.p2p.impl.TaskUPnPManager;
@@ -36,8 +35,10 @@ import org.aion.p2p.impl.comm.Node;
 import org.aion.p2p.impl.comm.NodeMgr;
 import org.aion.p2p.impl.zero.msg.ReqHandshake1;
 import org.aion.p2p.impl.zero.msg.ResHandshake1;
-import org.aion.p2p.impl1.tasks.MsgIn;
+import org.aion.p2p.impl1.tasks.InboundDispatcher;
 import org.aion.p2p.impl1.tasks.MsgOut;
+import org.aion.p2p.impl1.tasks.OutboundLanes;
+import org.aion.p2p.impl1.tasks.SelectorGroup;
 import org.aion.p2p.impl1.tasks.TaskClear;
 import org.aion.p2p.impl1.tasks.TaskConnectPeers;
 import org.aion.p2p.impl1.tasks.TaskInbound;
@@ -64,7 +65,7 @@ public final class P2pMgr implements IP2pMgr {
     private final int SOCKET_RECV_BUFFER = 1024 * 128;
     private final int SOCKET_BACKLOG = 1024;
 
-    private final int maxTempNodes, maxActiveNodes, selfNodeIdHash, selfPort;
+    private final int maxTempNodes, maxActiveNodes, selfNodeIdHash, selfPort, inboundThreads;
     private final int selfChainId;
     private boolean syncSeedsOnly, upnpEnable;
     private String selfRevision, selfShortId;
@@ -76,11 +77,11 @@ public final class P2pMgr implements IP2pMgr {
     private final AtomicBoolean start = new AtomicBoolean(true);
 
     private ServerSocketChannel tcpServer;
-    private Selector selector;
+    private SelectorGroup selectors;
     private ScheduledExecutorService scheduledWorkers;
     private int errTolerance;
-    private BlockingQueue<MsgOut> sendMsgQue = new LinkedBlockingQueue<>();
-    private BlockingQueue<MsgIn> receiveMsgQue = new LinkedBlockingQueue<>();
+    private OutboundLanes sendMsgQue;
+    private InboundDispatcher receiveMsgQue;
 
     private static ReqHandshake1 cachedReqHandshake1;
     private static ResHandshake1 cachedResHandshake1;
@@ -115,6 +116,85 @@ public final class P2pMgr implements IP2pMgr {
             final int _maxActiveNodes,
             final boolean _bootlistSyncOnly,
             final int _errorTolerance) {
+        this(
+                _p2pLog,
+                chainId,
+                _revision,
+                _nodeId,
+                _ip,
+                _port,
+                _bootNodes,
+                _upnpEnable,
+                _maxTempNodes,
+                _maxActiveNodes,
+                _bootlistSyncOnly,
+                _errorTolerance,
+                0);
+    }
+
+    /**
+     * @param _inboundThreads the number of threads reading the connections, each one blocking on
+     *     its own selector; {@code 0} uses a single thread polling one selector
+     */
+    public P2pMgr(
+            final Logger _p2pLog,
+            final int chainId,
+            final String _revision,
+            final String _nodeId,
+            final String _ip,
+            final int _port,
+            final String[] _bootNodes,
+            final boolean _upnpEnable,
+            final int _maxTempNodes,
+            final int _maxActiveNodes,
+            final boolean _bootlistSyncOnly,
+            final int _errorTolerance,
+            final int _inboundThreads) {
+        this(
+                _p2pLog,
+                chainId,
+                _revision,
+                _nodeId,
+                _ip,
+                _port,
+                _bootNodes,
+                _upnpEnable,
+                _maxTempNodes,
+                _maxActiveNodes,
+                _bootlistSyncOnly,
+                _errorTolerance,
+                _inboundThreads,
+                InboundDispatcher.DEFAULT_ROUTE_CAPACITY,
+                InboundDispatcher.DEFAULT_OVERLOAD_LIMIT,
+                Collections.emptyMap());
+    }
+
+    /**
+     * @param _inboundThreads the number of threads reading the connections, each one blocking on
+     *     its own selector; {@code 0} uses a single thread polling one selector
+     * @param _inboundRouteCapacity the maximum number of received messages queued for each route
+     * @param _inboundOverloadLimit the total number of queued received messages from which low
+     *     priority messages are dropped
+     * @param _routeWeights the share of the workers given to the routes of each priority; the
+     *     default weight is used for the missing priorities
+     */
+    public P2pMgr(
+            final Logger _p2pLog,
+            final int chainId,
+            final String _revision,
+            final String _nodeId,
+            final String _ip,
+            final int _port,
+            final String[] _bootNodes,
+            final boolean _upnpEnable,
+            final int _maxTempNodes,
+            final int _maxActiveNodes,
+            final boolean _bootlistSyncOnly,
+            final int _errorTolerance,
+            final int _inboundThreads,
+            final int _inboundRouteCapacity,
+            final int _inboundOverloadLimit,
+            final Map<Priority, Integer> _routeWeights) {
 
         if (_p2pLog == null) {
             throw new NullPointerException("A non-null logger must be provided in the constructor.");
@@ -132,8 +212,13 @@ public final class P2pMgr implements IP2pMgr {
         this.maxActiveNodes = _maxActiveNodes;
         this.syncSeedsOnly = _bootlistSyncOnly;
         this.errTolerance = _errorTolerance;
+        this.inboundThreads = Math.max(0, _inboundThreads);
 
         nodeMgr = new NodeMgr(this, _maxActiveNodes, _maxTempNodes, p2pLOG);
+        sendMsgQue = new OutboundLanes(p2pLOG, WORKER);
+        receiveMsgQue =
+                new InboundDispatcher(
+                        p2pLOG, _inboundRouteCapacity, _inboundOverloadLimit, _routeWeights);
 
         for (String _bootNode : _bootNodes) {
             Node node = Node.parseP2p(_bootNode);
@@ -156,7 +241,10 @@ public final class P2pMgr implements IP2pMgr {
     @Override
     public void run() {
         try {
-            selector = Selector.open();
+            selectors =
+                    inboundThreads == 0
+                            ? new SelectorGroup(Selector.open())
+                            : SelectorGroup.open(inboundThreads);
 
             scheduledWorkers = new ScheduledThreadPoolExecutor(2);
 
@@ -184,11 +272,19 @@ public final class P2pMgr implements IP2pMgr {
                         e);
             }
 
-            tcpServer.register(selector, SelectionKey.OP_ACCEPT);
+            selectors.register(0, tcpServer, SelectionKey.OP_ACCEPT, null);
 
-            Thread thrdIn = new Thread(getInboundInstance(), "p2p-in");
-            thrdIn.setPriority(Thread.NORM_PRIORITY);
-            thrdIn.start();
+            if (inboundThreads == 0) {
+                Thread thrdIn = new Thread(getInboundInstance(0), "p2p-in");
+                thrdIn.setPriority(Thread.NORM_PRIORITY);
+                thrdIn.start();
+            } else {
+                for (int i = 0; i < inboundThreads; i++) {
+                    Thread thrdIn = new Thread(getInboundInstance(i), "p2p-in-" + i);
+                    thrdIn.setPriority(Thread.NORM_PRIORITY);
+                    thrdIn.start();
+                }
+            }
 
             if (p2pLOG.isDebugEnabled()) {
                 this.handlers.forEach(
@@ -271,6 +367,16 @@ public final class P2pMgr implements IP2pMgr {
                 } else {
                     routeHandlers.add(_cb);
                 }
+
+                // the route is handled with the highest priority of its handlers
+                Priority priority = Priority.LOW;
+                for (Handler handler : routeHandlers) {
+                    Priority p = handler.getPriority();
+                    if (p != null && p.compareTo(priority) < 0) {
+                        priority = p;
+                    }
+                }
+                receiveMsgQue.setPriority(route, priority);
             }
         }
 
@@ -280,13 +386,28 @@ public final class P2pMgr implements IP2pMgr {
 
     @Override
     public void send(int _nodeIdHash, String _nodeIdShort, final Msg _msg) {
-        sendMsgQue.add(new MsgOut(_nodeIdHash, _nodeIdShort, _msg, Dest.ACTIVE));
+        // the dropped messages are counted and reported by the queue
+        if (!sendMsgQue.offer(new MsgOut(_nodeIdHash, _nodeIdShort, _msg, Dest.ACTIVE))
+                && p2pLOG.isDebugEnabled()) {
+            Header h = _msg.getHeader();
+            p2pLOG.debug(
+                    "send-queue-full node={} route={}-{}-{}",
+                    _nodeIdShort,
+                    h.getVer(),
+                    h.getCtrl(),
+                    h.getAction());
+        }
     }
 
     @Override
     public void shutdown() {
         start.set(false);
 
+        if (selectors != null) {
+            // lets the blocked inbound threads notice the shutdown
+            selectors.wakeup();
+        }
+
         if (scheduledWorkers != null) {
             scheduledWorkers.shutdownNow();
         }
@@ -336,10 +457,8 @@ public final class P2pMgr implements IP2pMgr {
         }
 
         if (_sc != null) {
-            SelectionKey sk = _sc.keyFor(selector);
-            if (sk != null) {
-                sk.cancel();
-                sk.attach(null);
+            if (selectors != null) {
+                selectors.cancel(_sc);
             }
 
             try {
@@ -446,11 +565,12 @@ public final class P2pMgr implements IP2pMgr {
                 && Arrays.equals(selfNodeId, node.getId());
     }
 
-    private TaskInbound getInboundInstance() {
+    private TaskInbound getInboundInstance(int index) {
         return new TaskInbound(
                 p2pLOG,
                 this,
-                this.selector,
+                this.selectors,
+                index,
                 this.start,
                 this.nodeMgr,
                 this.handlers,
@@ -460,7 +580,7 @@ public final class P2pMgr implements IP2pMgr {
     }
 
     private TaskSend getSendInstance(int i) {
-        return new TaskSend(p2pLOG, this, i, sendMsgQue, start, nodeMgr, selector);
+        return new TaskSend(p2pLOG, this, i, sendMsgQue, start, nodeMgr, selectors);
     }
 
     private TaskReceive getReceiveInstance() {
@@ -482,7 +602,7 @@ public final class P2pMgr implements IP2pMgr {
                 this.start,
                 this.nodeMgr,
                 this.maxActiveNodes,
-                this.selector,
+                this.selectors,
                 this.sendMsgQue,
                 cachedReqHandshake1);
     }
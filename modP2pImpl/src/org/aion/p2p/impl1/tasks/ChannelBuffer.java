@@ -4,8 +4,6 @@ import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import org.aion.p2p.Header;
 import org.slf4j.Logger;
 
@@ -13,7 +11,6 @@ import org.slf4j.Logger;
 class ChannelBuffer {
 
     byte[] body = null;
-    Lock lock = new ReentrantLock();
     private Header header = null;
     // buffer for buffer remaining after NIO select read.
     private byte[] remainBuffer;
@@ -23,6 +20,9 @@ class ChannelBuffer {
     private byte[] bsHead = new byte[Header.LEN];
     private AtomicBoolean closed = new AtomicBoolean(false);
 
+    // the messages waiting to be written to the channel
+    final ChannelWriter writer = new ChannelWriter();
+
     private Map<Integer, RouteStatus> routes = new HashMap<>();
 
     private final Logger p2pLOG;
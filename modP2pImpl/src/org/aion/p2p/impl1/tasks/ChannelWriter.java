@@ -0,0 +1,193 @@
+package org.aion.p2p.impl1.tasks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The outbound queue of a connection.
+ *
+ * <p>Encoded messages are queued by the send threads and written by whichever thread finds the
+ * connection idle. The queued messages are copied back to back into pooled direct buffers and
+ * written together with a single gathering write. When the socket buffer is full the key is
+ * registered for {@link SelectionKey#OP_WRITE} and the inbound loop owning the key resumes the
+ * writing once the channel is writable, instead of a thread waiting for the socket.
+ *
+ * @implNote A single thread owns the writing at any time, including while waiting for the channel
+ *     to become writable, so the messages are never interleaved.
+ */
+final class ChannelWriter {
+
+    /** The maximum number of messages waiting for a connection before new ones are dropped. */
+    static final int MAX_PENDING = 4096;
+
+    // the buffers written by a single gathering write
+    private static final int MAX_GATHER = 16;
+
+    static final DirectBufferPool POOL = new DirectBufferPool(64 * 1024, 512);
+
+    // each message is queued as its encoded parts, usually the header and the body
+    private final ConcurrentLinkedQueue<byte[][]> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+
+    // only accessed by the thread owning the writing
+    private final ArrayDeque<ByteBuffer> filled = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private byte[][] parts;
+    private int part, partPos;
+
+    /**
+     * Queues an encoded message.
+     *
+     * @param message the non-null parts of the message, written one after the other
+     * @return {@code false} if the message was dropped because too many messages are waiting
+     */
+    boolean enqueue(byte[]... message) {
+        if (pendingCount.incrementAndGet() > MAX_PENDING) {
+            pendingCount.decrementAndGet();
+            return false;
+        }
+        pending.add(message);
+        return true;
+    }
+
+    /** @return the number of messages waiting to be written */
+    int getPending() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Writes the queued messages unless another thread is already writing for the connection or
+     * waiting for it to become writable.
+     *
+     * @throws IOException if the channel cannot be written, the queued messages are discarded
+     */
+    void flush(SelectionKey key) throws IOException {
+        while (writing.compareAndSet(false, true)) {
+            if (!write(key)) {
+                // the inbound loop takes over when the channel is writable
+                return;
+            }
+            writing.set(false);
+
+            // a message queued while releasing the writing would otherwise wait for the next one
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Resumes the writing when the channel is writable, called by the inbound loop owning the key.
+     *
+     * @throws IOException if the channel cannot be written, the queued messages are discarded
+     */
+    void onWritable(SelectionKey key) throws IOException {
+        // the dispatcher updates the interest in reading from other threads
+        synchronized (key) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+        if (write(key)) {
+            writing.set(false);
+            flush(key);
+        }
+    }
+
+    /**
+     * Writes until the queue is empty or the socket buffer is full.
+     *
+     * @return {@code true} if everything was written, {@code false} if the key was registered for
+     *     {@link SelectionKey#OP_WRITE}
+     */
+    private boolean write(SelectionKey key) throws IOException {
+        SocketChannel sc = (SocketChannel) key.channel();
+        try {
+            while (true) {
+                fill();
+                if (filled.isEmpty()) {
+                    return true;
+                }
+
+                int count = 0;
+                for (ByteBuffer buffer : filled) {
+                    gather[count++] = buffer;
+                }
+                sc.write(gather, 0, count);
+
+                while (!filled.isEmpty() && !filled.peekFirst().hasRemaining()) {
+                    POOL.release(filled.pollFirst());
+                }
+                if (!filled.isEmpty() && filled.size() == count) {
+                    // not even the first buffer could be written completely: the socket is full
+                    synchronized (key) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    }
+                    key.selector().wakeup();
+                    return false;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            discard();
+            throw e;
+        } finally {
+            Arrays.fill(gather, null);
+        }
+    }
+
+    /** Copies queued messages into pooled buffers until the gathering write is full. */
+    private void fill() {
+        while (filled.size() < MAX_GATHER) {
+            if (parts == null && !nextMessage()) {
+                return;
+            }
+
+            ByteBuffer buffer = POOL.acquire();
+            while (parts != null && buffer.hasRemaining()) {
+                byte[] bytes = parts[part];
+                int length = Math.min(buffer.remaining(), bytes.length - partPos);
+                buffer.put(bytes, partPos, length);
+                partPos += length;
+
+                if (partPos == bytes.length) {
+                    part++;
+                    partPos = 0;
+                    if (part == parts.length) {
+                        nextMessage();
+                    }
+                }
+            }
+            buffer.flip();
+            filled.addLast(buffer);
+        }
+    }
+
+    private boolean nextMessage() {
+        parts = pending.poll();
+        part = 0;
+        partPos = 0;
+        if (parts == null) {
+            return false;
+        }
+        pendingCount.decrementAndGet();
+        return true;
+    }
+
+    /** Drops the queued messages and returns the buffers to the pool. */
+    private void discard() {
+        for (ByteBuffer buffer : filled) {
+            POOL.release(buffer);
+        }
+        filled.clear();
+        parts = null;
+        while (pending.poll() != null) {
+            pendingCount.decrementAndGet();
+        }
+    }
+}
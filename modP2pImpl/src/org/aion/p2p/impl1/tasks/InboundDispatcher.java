@@ -0,0 +1,359 @@
+package org.aion.p2p.impl1.tasks;
+
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.aion.p2p.Priority;
+import org.slf4j.Logger;
+
+/**
+ * Holds the messages received from the peers until they are taken by the {@link TaskReceive}
+ * workers.
+ *
+ * <p>Each route has its own bounded queue. The workers take from the non-empty queues in a
+ * weighted round-robin following the configured weight of the {@link Priority} of the routes, so a
+ * flood of messages on one route delays the other routes only in proportion to its weight.
+ *
+ * <p>When the queue of a route is full, {@link Priority#LOW} messages are dropped. Other messages
+ * are queued without waiting, but the channel they were read from stops being read until the
+ * workers make space on the route, which pushes back on the peers without blocking the selector
+ * thread. A channel paused by several routes is read again only once all of them have space. The
+ * queue can exceed its capacity by the messages already read from the paused channels.
+ * Low priority messages are also dropped as soon as the total number of queued messages reaches
+ * the overload limit.
+ */
+public class InboundDispatcher {
+
+    public static final int DEFAULT_ROUTE_CAPACITY = 1024;
+    public static final int DEFAULT_OVERLOAD_LIMIT = 4096;
+
+    private final Logger p2pLOG;
+    private final int routeCapacity;
+    private final int overloadLimit;
+    private final Map<Priority, Integer> weights;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    // all guarded by the lock
+    private final Map<Integer, RouteQueue> routes = new HashMap<>();
+    private final List<RouteQueue> queues = new ArrayList<>();
+    // the routes each paused channel waits for
+    private final Map<SelectionKey, Set<Integer>> pausedRoutes = new HashMap<>();
+    private int size;
+
+    private static final class RouteQueue {
+        private final int route;
+        private final ArrayDeque<MsgIn> messages = new ArrayDeque<>();
+        private Priority priority = Priority.NORMAL;
+        // the channels not read until the queue has space again
+        private final List<SelectionKey> paused = new ArrayList<>();
+
+        // the credit of the queue in the smooth weighted round-robin
+        private int credit;
+
+        private long received, dropped, taken, totalWait, maxWait;
+
+        private RouteQueue(int route) {
+            this.route = route;
+        }
+    }
+
+    /**
+     * Creates a dispatcher using the default {@link Priority#getWeight()} of each priority.
+     *
+     * @param routeCapacity the maximum number of queued messages for each route
+     * @param overloadLimit the total number of queued messages from which low priority messages
+     *     are dropped
+     */
+    public InboundDispatcher(final Logger p2pLOG, int routeCapacity, int overloadLimit) {
+        this(p2pLOG, routeCapacity, overloadLimit, new EnumMap<>(Priority.class));
+    }
+
+    /**
+     * @param routeCapacity the maximum number of queued messages for each route
+     * @param overloadLimit the total number of queued messages from which low priority messages
+     *     are dropped
+     * @param weights the share of the workers given to the routes of each priority; the default
+     *     {@link Priority#getWeight()} is used for the missing priorities
+     */
+    public InboundDispatcher(
+            final Logger p2pLOG,
+            int routeCapacity,
+            int overloadLimit,
+            final Map<Priority, Integer> weights) {
+        if (routeCapacity < 1 || overloadLimit < 1) {
+            throw new IllegalArgumentException("The queue limits must be positive.");
+        }
+        this.p2pLOG = p2pLOG;
+        this.routeCapacity = routeCapacity;
+        this.overloadLimit = overloadLimit;
+        this.weights = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            int weight = weights.getOrDefault(priority, priority.getWeight());
+            if (weight < 1) {
+                throw new IllegalArgumentException("The route weights must be positive.");
+            }
+            this.weights.put(priority, weight);
+        }
+    }
+
+    private RouteQueue queueOf(int route) {
+        RouteQueue queue = routes.get(route);
+        if (queue == null) {
+            queue = new RouteQueue(route);
+            routes.put(route, queue);
+            queues.add(queue);
+        }
+        return queue;
+    }
+
+    /** Sets the priority of the messages received on the given route. */
+    public void setPriority(int route, Priority priority) {
+        lock.lock();
+        try {
+            queueOf(route).priority = priority;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues the message for the workers.
+     *
+     * @return {@code false} if the message was dropped
+     */
+    public boolean offer(final MsgIn msg) {
+        return offer(msg, null);
+    }
+
+    /**
+     * Queues the message for the workers. When the queue of the route is full, the given channel
+     * is not read until the workers make space on the route.
+     *
+     * @param key the key of the channel the message was read from, or {@code null}
+     * @return {@code false} if the message was dropped
+     */
+    public boolean offer(final MsgIn msg, final SelectionKey key) {
+        lock.lock();
+        try {
+            RouteQueue queue = queueOf(msg.getRoute());
+            queue.received++;
+
+            if (queue.priority == Priority.LOW
+                    && (queue.messages.size() >= routeCapacity || size >= overloadLimit)) {
+                return drop(queue, msg);
+            }
+
+            queue.messages.add(msg);
+            size++;
+            notEmpty.signal();
+
+            if (key != null
+                    && queue.priority != Priority.LOW
+                    && queue.messages.size() >= routeCapacity
+                    && !queue.paused.contains(key)) {
+                Set<Integer> waiting = pausedRoutes.computeIfAbsent(key, k -> new HashSet<>());
+                if (waiting.isEmpty()) {
+                    setReading(key, false);
+                }
+                waiting.add(queue.route);
+                queue.paused.add(key);
+                if (p2pLOG.isTraceEnabled()) {
+                    p2pLOG.trace(
+                            "inbound-pause route={} node={} depth={}",
+                            routeToString(queue.route),
+                            msg.getDisplayId(),
+                            queue.messages.size());
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Enables or disables the reading of the channel, ignoring the closed channels. */
+    private static void setReading(SelectionKey key, boolean reading) {
+        try {
+            // the writers update the interest in writing from other threads
+            synchronized (key) {
+                int ops = key.interestOps();
+                key.interestOps(
+                        reading ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ);
+            }
+            if (reading) {
+                key.selector().wakeup();
+            }
+        } catch (CancelledKeyException e) {
+            // the channel was closed
+        }
+    }
+
+    /** Reads the channel again once none of the routes it was paused by is full. */
+    private void resume(SelectionKey key, int route) {
+        Set<Integer> waiting = pausedRoutes.get(key);
+        if (waiting != null) {
+            waiting.remove(route);
+            if (waiting.isEmpty()) {
+                pausedRoutes.remove(key);
+                setReading(key, true);
+            }
+        }
+    }
+
+    private boolean drop(RouteQueue queue, MsgIn msg) {
+        queue.dropped++;
+        if (p2pLOG.isTraceEnabled()) {
+            p2pLOG.trace(
+                    "inbound-drop route={} node={} depth={} total={}",
+                    routeToString(queue.route),
+                    msg.getDisplayId(),
+                    queue.messages.size(),
+                    size);
+        }
+        return false;
+    }
+
+    /** Waits for a message and returns it from the route selected by the weighted round-robin. */
+    public MsgIn take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+
+            RouteQueue next = null;
+            int totalWeight = 0;
+            for (RouteQueue queue : queues) {
+                if (queue.messages.isEmpty()) {
+                    continue;
+                }
+                int weight = weights.get(queue.priority);
+                queue.credit += weight;
+                totalWeight += weight;
+                if (next == null || queue.credit > next.credit) {
+                    next = queue;
+                }
+            }
+            next.credit -= totalWeight;
+
+            MsgIn msg = next.messages.poll();
+            size--;
+            if (next.messages.isEmpty()) {
+                // an idle route does not keep credit for later
+                next.credit = 0;
+            }
+            if (next.messages.size() < routeCapacity && !next.paused.isEmpty()) {
+                for (SelectionKey key : next.paused) {
+                    resume(key, next.route);
+                }
+                next.paused.clear();
+            }
+
+            long wait = System.nanoTime() - msg.getReceivedAt();
+            next.taken++;
+            next.totalWait += wait;
+            next.maxWait = Math.max(next.maxWait, wait);
+            return msg;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return the total number of queued messages */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return the number of queued messages for the given route */
+    int size(int route) {
+        lock.lock();
+        try {
+            RouteQueue queue = routes.get(route);
+            return queue == null ? 0 : queue.messages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return the number of channels not read until the given route has space */
+    int getPaused(int route) {
+        lock.lock();
+        try {
+            RouteQueue queue = routes.get(route);
+            return queue == null ? 0 : queue.paused.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return the number of messages dropped for the given route */
+    long getDropped(int route) {
+        lock.lock();
+        try {
+            RouteQueue queue = routes.get(route);
+            return queue == null ? 0 : queue.dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lists the depth, counters and queueing latency of every route. The maximum latency is reset
+     * after each dump to show the worst case of the last period.
+     */
+    public String dumpRouteStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(
+                String.format(
+                        "%-9s %-6s %6s %10s %10s %10s %13s %13s\n",
+                        "route",
+                        "prio",
+                        "depth",
+                        "received",
+                        "dropped",
+                        "taken",
+                        "avg-wait(ms)",
+                        "max-wait(ms)"));
+
+        lock.lock();
+        try {
+            for (RouteQueue queue : queues) {
+                sb.append(
+                        String.format(
+                                "%-9s %-6s %6d %10d %10d %10d %13.3f %13.3f\n",
+                                routeToString(queue.route),
+                                queue.priority,
+                                queue.messages.size(),
+                                queue.received,
+                                queue.dropped,
+                                queue.taken,
+                                queue.taken == 0 ? 0d : queue.totalWait / 1e6 / queue.taken,
+                                queue.maxWait / 1e6));
+                queue.maxWait = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return sb.toString();
+    }
+
+    private static String routeToString(int route) {
+        return (route >>> 16) + "-" + ((route >>> 8) & 0xFF) + "-" + (route & 0xFF);
+    }
+}
@@ -6,6 +6,7 @@ public class MsgIn {
     private final String displayId;
     private final int route;
     private final byte[] msg;
+    private final long receivedAt;
 
     /**
      * Constructs an incoming message.
@@ -20,6 +21,7 @@ public class MsgIn {
         this.displayId = displayId;
         this.route = route;
         this.msg = msg;
+        this.receivedAt = System.nanoTime();
     }
 
     public int getNodeId() {
@@ -37,4 +39,9 @@ public class MsgIn {
     public byte[] getMsg() {
         return this.msg;
     }
+
+    /** @return the {@link System#nanoTime()} at which the message was received */
+    long getReceivedAt() {
+        return this.receivedAt;
+    }
 }
@@ -0,0 +1,97 @@
+package org.aion.p2p.impl1.tasks;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+
+/**
+ * The messages waiting to be sent, split by lane. The lane of a message is derived from the
+ * destination node, so the messages to a node are always handled in order by the same {@link
+ * TaskSend} thread, which only waits on its own queue.
+ *
+ * <p>The messages dropped because a lane or the write queue of a connection is full are counted
+ * and reported with a warning at most once every {@link #DROP_WARNING_INTERVAL_MS}.
+ */
+public class OutboundLanes {
+
+    /** The maximum number of messages waiting in a lane before new ones are rejected. */
+    static final int LANE_CAPACITY = 20_000;
+
+    /** The minimum time between two warnings about dropped messages. */
+    static final long DROP_WARNING_INTERVAL_MS = 10_000;
+
+    private final Logger p2pLOG;
+    private final BlockingQueue<MsgOut>[] lanes;
+
+    private final AtomicLong laneDrops = new AtomicLong();
+    private final AtomicLong writeQueueDrops = new AtomicLong();
+    // the time of the last warning, or zero before the first drop
+    private final AtomicLong lastWarning = new AtomicLong();
+
+    public OutboundLanes(final Logger p2pLOG, int count) {
+        this.p2pLOG = p2pLOG;
+        this.lanes = newLanes(count);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BlockingQueue<MsgOut>[] newLanes(int count) {
+        BlockingQueue<MsgOut>[] lanes = new BlockingQueue[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new LinkedBlockingQueue<>(LANE_CAPACITY);
+        }
+        return lanes;
+    }
+
+    /** @return {@code false} if the lane of the message is full and the message was dropped */
+    public boolean offer(MsgOut mo) {
+        if (lanes[mo.getLane() % lanes.length].offer(mo)) {
+            return true;
+        }
+        laneDrops.incrementAndGet();
+        warnDropped(mo.getDisplayId());
+        return false;
+    }
+
+    /** Waits for the next message of the given lane. */
+    MsgOut take(int lane) throws InterruptedException {
+        return lanes[lane].take();
+    }
+
+    /** Records a message dropped because the write queue of its connection was full. */
+    void recordWriteQueueFull(String displayId) {
+        writeQueueDrops.incrementAndGet();
+        warnDropped(displayId);
+    }
+
+    private void warnDropped(String displayId) {
+        long now = System.currentTimeMillis();
+        long last = lastWarning.get();
+        if (now - last >= DROP_WARNING_INTERVAL_MS && lastWarning.compareAndSet(last, now)) {
+            p2pLOG.warn(
+                    "outbound-drop lane-full={} write-queue-full={} last-node={}",
+                    laneDrops.get(),
+                    writeQueueDrops.get(),
+                    displayId);
+        }
+    }
+
+    /** @return the number of messages waiting in all the lanes */
+    public int size() {
+        int size = 0;
+        for (BlockingQueue<MsgOut> lane : lanes) {
+            size += lane.size();
+        }
+        return size;
+    }
+
+    /** @return the number of messages dropped because their lane was full */
+    public long getLaneDrops() {
+        return laneDrops.get();
+    }
+
+    /** @return the number of messages dropped because the write queue of a connection was full */
+    public long getWriteQueueDrops() {
+        return writeQueueDrops.get();
+    }
+}
@@ -0,0 +1,135 @@
+package org.aion.p2p.impl1.tasks;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The selectors used by the inbound loops. Each selector is owned by one {@link TaskInbound}
+ * thread which reads all the connections registered on it.
+ *
+ * <p>In the reactor mode the loops block in {@link Selector#select()} and the connections are
+ * spread over the selectors in turn. In the polling mode a single selector is polled with {@link
+ * Selector#selectNow()}.
+ *
+ * @implNote Registrations made by other threads wake up the owning loop and hold it out of the
+ *     select call until the channel is registered, so the returned key is usable immediately.
+ */
+public final class SelectorGroup {
+
+    private final Selector[] selectors;
+    private final Object[] guards;
+    private final boolean blocking;
+    private final AtomicInteger next = new AtomicInteger(0);
+
+    private SelectorGroup(Selector[] selectors, boolean blocking) {
+        this.selectors = selectors;
+        this.blocking = blocking;
+        this.guards = new Object[selectors.length];
+        for (int i = 0; i < guards.length; i++) {
+            guards[i] = new Object();
+        }
+    }
+
+    /** Creates a group for a single selector polled without blocking. */
+    public SelectorGroup(Selector selector) {
+        this(new Selector[] {selector}, false);
+    }
+
+    /**
+     * Opens the given number of selectors for loops that block while waiting for events.
+     *
+     * @throws IOException if a selector cannot be opened
+     */
+    public static SelectorGroup open(int count) throws IOException {
+        Selector[] selectors = new Selector[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                selectors[i] = Selector.open();
+            }
+        } catch (IOException e) {
+            for (Selector selector : selectors) {
+                if (selector != null) {
+                    selector.close();
+                }
+            }
+            throw e;
+        }
+        return new SelectorGroup(selectors, true);
+    }
+
+    public int size() {
+        return selectors.length;
+    }
+
+    Selector get(int index) {
+        return selectors[index];
+    }
+
+    boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * Registers the channel for reading on the next selector of the group.
+     *
+     * @param buffer the buffer of the connection, attached to the key
+     */
+    SelectionKey register(SelectableChannel channel, ChannelBuffer buffer)
+            throws ClosedChannelException {
+        int index = Math.floorMod(next.getAndIncrement(), selectors.length);
+        return register(index, channel, SelectionKey.OP_READ, buffer);
+    }
+
+    /** Registers the channel on the selector with the given index. */
+    public SelectionKey register(int index, SelectableChannel channel, int ops, Object attachment)
+            throws ClosedChannelException {
+        synchronized (guards[index]) {
+            selectors[index].wakeup();
+            return channel.register(selectors[index], ops, attachment);
+        }
+    }
+
+    /** Called by the loop owning the selector before selecting to let registrations complete. */
+    void awaitRegistrations(int index) {
+        synchronized (guards[index]) {
+            // nothing to do, only waits for a registration in progress
+        }
+    }
+
+    /** @return the key of the channel in the group or {@code null} if not registered */
+    public SelectionKey keyFor(SelectableChannel channel) {
+        for (Selector selector : selectors) {
+            SelectionKey key = channel.keyFor(selector);
+            if (key != null) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cancels the key of the channel, if any, and wakes up the owning loop so that the channel can
+     * be released by its selector.
+     */
+    public void cancel(SelectableChannel channel) {
+        SelectionKey key = keyFor(channel);
+        if (key != null) {
+            key.cancel();
+            key.attach(null);
+            if (blocking) {
+                key.selector().wakeup();
+            }
+        }
+    }
+
+    /** Wakes up all the loops, for example to let them notice a shutdown. */
+    public void wakeup() {
+        for (Selector selector : selectors) {
+            selector.wakeup();
+        }
+    }
+}
@@ -2,10 +2,7 @@ package org.aion.p2p.impl1.tasks;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.INode;
 import org.aion.p2p.INodeMgr;
@@ -24,8 +21,8 @@ public class TaskConnectPeers implements Runnable {
     private final int maxActiveNodes;
     private final IP2pMgr mgr;
     private final AtomicBoolean start;
-    private final BlockingQueue<MsgOut> sendMsgQue;
-    private final Selector selector;
+    private final OutboundLanes sendMsgQue;
+    private final SelectorGroup selectors;
     private final ReqHandshake1 cachedReqHS;
 
     public TaskConnectPeers(
@@ -34,8 +31,8 @@ public class TaskConnectPeers implements Runnable {
             final AtomicBoolean _start,
             final INodeMgr _nodeMgr,
             final int _maxActiveNodes,
-            final Selector _selector,
-            final BlockingQueue<MsgOut> _sendMsgQue,
+            final SelectorGroup _selectors,
+            final OutboundLanes _sendMsgQue,
             final ReqHandshake1 _cachedReqHS) {
 
         this.p2pLOG = p2pLOG;
@@ -43,7 +40,7 @@ public class TaskConnectPeers implements Runnable {
         this.nodeMgr = _nodeMgr;
         this.maxActiveNodes = _maxActiveNodes;
         this.mgr = _mgr;
-        this.selector = _selector;
+        this.selectors = _selectors;
         this.sendMsgQue = _sendMsgQue;
         this.cachedReqHS = _cachedReqHS;
     }
@@ -98,11 +95,10 @@ public class TaskConnectPeers implements Runnable {
                         }
 
                         channel.configureBlocking(false);
-                        SelectionKey sk = channel.register(this.selector, SelectionKey.OP_READ);
                         ChannelBuffer rb = new ChannelBuffer(p2pLOG);
                         rb.setDisplayId(node.getIdShort());
                         rb.setNodeIdHash(nodeIdHash);
-                        sk.attach(rb);
+                        this.selectors.register(channel, rb);
 
                         node.refreshTimestamp();
                         node.setChannel(channel);
@@ -14,7 +14,6 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
@@ -36,15 +35,20 @@ import org.slf4j.Logger;
 
 public class TaskInbound implements Runnable {
 
+    /** The size of the read buffer of each loop in the reactor mode. */
+    static final int REACTOR_READ_BUFFER_SIZE = P2pConstant.RECV_BUFFER_SIZE;
+
     private final Logger p2pLOG;
     private final IP2pMgr mgr;
+    private final SelectorGroup selectors;
+    private final int index;
     private final Selector selector;
     private final INodeMgr nodeMgr;
     private final Map<Integer, List<Handler>> handlers;
     private final AtomicBoolean start;
-    private final BlockingQueue<MsgOut> sendMsgQue;
+    private final OutboundLanes sendMsgQue;
     private final ResHandshake1 cachedResHandshake1;
-    private final BlockingQueue<MsgIn> receiveMsgQue;
+    private final InboundDispatcher receiveMsgQue;
 
     public TaskInbound(
             final Logger p2pLOG,
@@ -53,13 +57,43 @@ public class TaskInbound implements Runnable {
             final AtomicBoolean _start,
             final INodeMgr _nodeMgr,
             final Map<Integer, List<Handler>> _handlers,
-            final BlockingQueue<MsgOut> _sendMsgQue,
+            final OutboundLanes _sendMsgQue,
+            final ResHandshake1 _cachedResHandshake1,
+            final InboundDispatcher _receiveMsgQue) {
+        this(
+                p2pLOG,
+                _mgr,
+                new SelectorGroup(_selector),
+                0,
+                _start,
+                _nodeMgr,
+                _handlers,
+                _sendMsgQue,
+                _cachedResHandshake1,
+                _receiveMsgQue);
+    }
+
+    /**
+     * Creates the loop owning the selector with the given index in the group. Accepted connections
+     * are spread over all the selectors of the group.
+     */
+    public TaskInbound(
+            final Logger p2pLOG,
+            final IP2pMgr _mgr,
+            final SelectorGroup _selectors,
+            final int _index,
+            final AtomicBoolean _start,
+            final INodeMgr _nodeMgr,
+            final Map<Integer, List<Handler>> _handlers,
+            final OutboundLanes _sendMsgQue,
             final ResHandshake1 _cachedResHandshake1,
-            final BlockingQueue<MsgIn> _receiveMsgQue) {
+            final InboundDispatcher _receiveMsgQue) {
 
         this.p2pLOG = p2pLOG;
         this.mgr = _mgr;
-        this.selector = _selector;
+        this.selectors = _selectors;
+        this.index = _index;
+        this.selector = _selectors.get(_index);
         this.start = _start;
         this.nodeMgr = _nodeMgr;
         this.handlers = _handlers;
@@ -72,14 +106,28 @@ public class TaskInbound implements Runnable {
     public void run() {
 
         // readBuffer buffer pre-alloc. @ max_body_size
-        ByteBuffer readBuf = ByteBuffer.allocate(P2pConstant.MAX_BODY_SIZE);
+        // in the reactor mode each loop reuses a smaller buffer; larger messages are assembled
+        // over several reads
+        ByteBuffer readBuf =
+                ByteBuffer.allocate(
+                        selectors.isBlocking()
+                                ? REACTOR_READ_BUFFER_SIZE
+                                : P2pConstant.MAX_BODY_SIZE);
 
         while (start.get()) {
             try {
-                Thread.sleep(0, 1);
+                if (selectors.isBlocking()) {
+                    selectors.awaitRegistrations(index);
+
+                    if (this.selector.select() == 0) {
+                        continue;
+                    }
+                } else {
+                    Thread.sleep(0, 1);
 
-                if (this.selector.selectNow() == 0) {
-                    continue;
+                    if (this.selector.selectNow() == 0) {
+                        continue;
+                    }
                 }
             } catch (IOException | ClosedSelectorException e) {
                 p2pLOG.debug("inbound-select-exception.", e);
@@ -112,6 +160,14 @@ public class TaskInbound implements Runnable {
                             }
                             readBuffer(key, cb, readBuf);
                         }
+
+                        // resumes the writing of the messages queued while the socket was full
+                        if (key.isValid() && key.isWritable()) {
+                            cb = (ChannelBuffer) key.attachment();
+                            if (cb != null) {
+                                cb.writer.onWritable(key);
+                            }
+                        }
                     } catch (Exception e) {
                         this.mgr.closeSocket(
                                 key != null ? (SocketChannel) key.channel() : null,
@@ -133,11 +189,15 @@ public class TaskInbound implements Runnable {
     }
 
     private void accept(ServerSocketChannel _channel) throws Exception {
-        if (this.nodeMgr.activeNodesSize() >= this.mgr.getMaxActiveNodes()) {
-            return;
-        }
         SocketChannel channel = _channel.accept();
         if (channel != null) {
+            // the pending connection must be accepted even when full, otherwise the server socket
+            // stays ready and the selector keeps waking up for it
+            if (this.nodeMgr.activeNodesSize() >= this.mgr.getMaxActiveNodes()) {
+                channel.close();
+                return;
+            }
+
             this.mgr.configChannel(channel);
 
             String ip = channel.socket().getInetAddress().getHostAddress();
@@ -162,8 +222,7 @@ public class TaskInbound implements Runnable {
             }
 
             node.setChannel(channel);
-            SelectionKey sk = channel.register(this.selector, SelectionKey.OP_READ);
-            sk.attach(new ChannelBuffer(p2pLOG));
+            this.selectors.register(channel, new ChannelBuffer(p2pLOG));
             this.nodeMgr.addInboundNode(node);
 
             if (p2pLOG.isDebugEnabled()) {
@@ -223,12 +282,21 @@ public class TaskInbound implements Runnable {
 
         int r;
         int cnt = 0;
+        boolean endOfStream = false;
         do {
             r = sc.read(_readBuf);
-            cnt += r;
+            if (r < 0) {
+                endOfStream = true;
+            } else {
+                cnt += r;
+            }
         } while (r > 0);
 
         if (cnt < 1) {
+            if (endOfStream) {
+                // otherwise the channel stays readable and the loop keeps waking up for it
+                throw new P2pException("end-of-stream");
+            }
             return;
         }
 
@@ -340,7 +408,7 @@ public class TaskInbound implements Runnable {
                             return;
                         }
 
-                        handleKernelMsg(_cb.getNodeIdHash(), h.getRoute(), bodyBytes);
+                        handleKernelMsg(_sk, _cb.getNodeIdHash(), h.getRoute(), bodyBytes);
                         break;
                     default:
                         if (p2pLOG.isDebugEnabled()) {
@@ -530,17 +598,20 @@ public class TaskInbound implements Runnable {
     }
 
     /**
+     * @param _sk the key of the channel the message was read from
      * @param _nodeIdHash int
      * @param _route int
      * @param _msgBytes byte[]
      */
-    private void handleKernelMsg(int _nodeIdHash, int _route, final byte[] _msgBytes) {
+    private void handleKernelMsg(
+            final SelectionKey _sk, int _nodeIdHash, int _route, final byte[] _msgBytes) {
         INode node = nodeMgr.getActiveNode(_nodeIdHash);
         if (node != null) {
             int nodeIdHash = node.getIdHash();
             String nodeDisplayId = node.getIdShort();
             node.refreshTimestamp();
-            this.receiveMsgQue.offer(new MsgIn(nodeIdHash, nodeDisplayId, _route, _msgBytes));
+            this.receiveMsgQue.offer(
+                    new MsgIn(nodeIdHash, nodeDisplayId, _route, _msgBytes), _sk);
         } else {
             p2pLOG.debug("handleKernelMsg can't find hash{}", _nodeIdHash);
         }
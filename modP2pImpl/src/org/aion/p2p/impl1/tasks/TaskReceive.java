@@ -2,7 +2,6 @@ package org.aion.p2p.impl1.tasks;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.Handler;
 import org.slf4j.Logger;
@@ -11,13 +10,13 @@ public class TaskReceive implements Runnable {
 
     private final Logger p2pLOG;
     private final AtomicBoolean start;
-    private final BlockingQueue<MsgIn> receiveMsgQue;
+    private final InboundDispatcher receiveMsgQue;
     private final Map<Integer, List<Handler>> handlers;
 
     public TaskReceive(
             final Logger p2pLOG,
             final AtomicBoolean _start,
-            final BlockingQueue<MsgIn> _receiveMsgQue,
+            final InboundDispatcher _receiveMsgQue,
             final Map<Integer, List<Handler>> _handlers) {
         this.p2pLOG = p2pLOG;
         this.start = _start;
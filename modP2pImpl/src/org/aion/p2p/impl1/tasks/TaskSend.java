@@ -1,40 +1,36 @@
 package org.aion.p2p.impl1.tasks;
 
+import java.io.IOException;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.p2p.Header;
 import org.aion.p2p.INode;
 import org.aion.p2p.INodeMgr;
 import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
 import org.aion.p2p.P2pConstant;
 import org.slf4j.Logger;
 
 public class TaskSend implements Runnable {
 
+    private static final byte[] EMPTY_BODY = new byte[0];
+
     private final Logger p2pLOG;
     private final IP2pMgr mgr;
     private final AtomicBoolean start;
-    private final BlockingQueue<MsgOut> sendMsgQue;
+    private final OutboundLanes sendMsgQue;
     private final INodeMgr nodeMgr;
-    private final Selector selector;
+    private final SelectorGroup selectors;
     private final int lane;
-    private final ThreadPoolExecutor tpe;
-    private static final int THREAD_Q_LIMIT = 20000;
 
     public TaskSend(
             final Logger p2pLOG,
             final IP2pMgr _mgr,
             final int _lane,
-            final BlockingQueue<MsgOut> _sendMsgQue,
+            final OutboundLanes _sendMsgQue,
             final AtomicBoolean _start,
             final INodeMgr _nodeMgr,
-            final Selector _selector) {
+            final SelectorGroup _selectors) {
 
         this.p2pLOG = p2pLOG;
         this.mgr = _mgr;
@@ -42,22 +38,14 @@ public class TaskSend implements Runnable {
         this.sendMsgQue = _sendMsgQue;
         this.start = _start;
         this.nodeMgr = _nodeMgr;
-        this.selector = _selector;
-        this.tpe =
-                new ThreadPoolExecutor(
-                        1,
-                        1,
-                        0,
-                        TimeUnit.MILLISECONDS,
-                        new LinkedBlockingQueue<>(THREAD_Q_LIMIT),
-                        Executors.defaultThreadFactory());
+        this.selectors = _selectors;
     }
 
     @Override
     public void run() {
         while (start.get()) {
             try {
-                MsgOut mo = sendMsgQue.take();
+                MsgOut mo = sendMsgQue.take(lane);
 
                 // if timeout , throw away this msg.
                 long now = System.currentTimeMillis();
@@ -68,12 +56,6 @@ public class TaskSend implements Runnable {
                     continue;
                 }
 
-                // if not belong to current lane, put it back.
-                if (mo.getLane() != lane) {
-                    sendMsgQue.offer(mo);
-                    continue;
-                }
-
                 INode node = null;
                 switch (mo.getDest()) {
                     case ACTIVE:
@@ -88,18 +70,11 @@ public class TaskSend implements Runnable {
                 }
 
                 if (node != null) {
-                    SelectionKey sk = node.getChannel().keyFor(selector);
+                    SelectionKey sk = selectors.keyFor(node.getChannel());
                     if (sk != null) {
                         Object attachment = sk.attachment();
                         if (attachment != null) {
-                            tpe.execute(
-                                    new TaskWrite(
-                                            p2pLOG,
-                                            node.getIdShort(),
-                                            node.getChannel(),
-                                            mo.getMsg(),
-                                            (ChannelBuffer) attachment,
-                                            this.mgr));
+                            write(node.getIdShort(), sk, (ChannelBuffer) attachment, mo.getMsg());
                         }
                     }
                 } else {
@@ -113,8 +88,6 @@ public class TaskSend implements Runnable {
             } catch (InterruptedException e) {
                 p2pLOG.error("task-send-interrupted", e);
                 return;
-            } catch (RejectedExecutionException e) {
-                p2pLOG.warn("task-send-reached thread queue limit", e);
             } catch (Exception e) {
                 if (p2pLOG.isDebugEnabled()) {
                     p2pLOG.debug("TaskSend exception.", e);
@@ -123,6 +96,56 @@ public class TaskSend implements Runnable {
         }
     }
 
+    /**
+     * Queues the encoded message on the connection and writes the queued messages, unless the
+     * connection is already being written by another thread or waits for the socket to drain.
+     */
+    private void write(String nodeShortId, SelectionKey sk, ChannelBuffer cb, Msg msg) {
+        // reset allocated buffer and clear messages if the channel is closed
+        if (cb.isClosed()) {
+            cb.refreshHeader();
+            cb.refreshBody();
+            mgr.dropActive(cb.getNodeIdHash(), "close-already");
+            return;
+        }
+
+        /*
+         * @warning header set len (body len) before header encode
+         */
+        byte[] bodyBytes = msg.encode();
+        if (bodyBytes == null) {
+            bodyBytes = EMPTY_BODY;
+        }
+        Header h = msg.getHeader();
+        h.setLen(bodyBytes.length);
+        byte[] headerBytes = h.encode();
+
+        if (p2pLOG.isTraceEnabled()) {
+            p2pLOG.trace(
+                    "write id:{} {}-{}-{}", nodeShortId, h.getVer(), h.getCtrl(), h.getAction());
+        }
+
+        if (!cb.writer.enqueue(headerBytes, bodyBytes)) {
+            sendMsgQue.recordWriteQueueFull(nodeShortId);
+            if (p2pLOG.isDebugEnabled()) {
+                p2pLOG.debug(
+                        "write-queue-full node={} pending={}",
+                        nodeShortId,
+                        cb.writer.getPending());
+            }
+            return;
+        }
+
+        try {
+            cb.writer.flush(sk);
+        } catch (IOException e) {
+            if (p2pLOG.isDebugEnabled()) {
+                p2pLOG.debug("write-msg-io-exception node=" + nodeShortId, e);
+            }
+            cb.setClosed();
+        }
+    }
+
     // hash mapping channel id to write thread.
     static int hash2Lane(int in) {
         in ^= in >> (32 - 5);
@@ -1,6 +1,5 @@
 package org.aion.p2p.impl1.tasks;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.INodeMgr;
 import org.slf4j.Logger;
@@ -10,8 +9,8 @@ public class TaskStatus implements Runnable {
     private final Logger p2pLOG;
     private final INodeMgr nodeMgr;
     private final String selfShortId;
-    private final BlockingQueue<MsgOut> sendMsgQue;
-    private final BlockingQueue<MsgIn> receiveMsgQue;
+    private final OutboundLanes sendMsgQue;
+    private final InboundDispatcher receiveMsgQue;
 
     private static final int PERIOD_STATUS = 10000;
     private final AtomicBoolean start;
@@ -21,8 +20,8 @@ public class TaskStatus implements Runnable {
             final AtomicBoolean _start,
             final INodeMgr _nodeMgr,
             final String _selfShortId,
-            final BlockingQueue<MsgOut> _sendMsgQue,
-            final BlockingQueue<MsgIn> _receiveMsgQue) {
+            final OutboundLanes _sendMsgQue,
+            final InboundDispatcher _receiveMsgQue) {
         this.p2pLOG = p2pLOG;
         this.nodeMgr = _nodeMgr;
         this.selfShortId = _selfShortId;
@@ -42,9 +41,12 @@ public class TaskStatus implements Runnable {
                 if (p2pLOG.isDebugEnabled()) {
                     p2pLOG.debug(status);
                     p2pLOG.debug(
-                            "recv queue[{}] send queue[{}]",
+                            "recv queue[{}] send queue[{}] send drops lane-full[{}] write-queue-full[{}]",
                             receiveMsgQue.size(),
-                            sendMsgQue.size());
+                            sendMsgQue.size(),
+                            sendMsgQue.getLaneDrops(),
+                            sendMsgQue.getWriteQueueDrops());
+                    p2pLOG.debug("recv routes\n{}", receiveMsgQue.dumpRouteStats());
                 } else if (p2pLOG.isInfoEnabled()) {
                     p2pLOG.info(status);
                 }
@@ -2,6 +2,9 @@ package org.aion.p2p.impl;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.UUID;
 import org.aion.p2p.impl1.P2pMgr;
@@ -85,4 +88,43 @@ public class P2pMgrTest {
         P2pMgr p2p = new P2pMgr(p2pLOG, 0, "", nodeId1, ip1, port1, nodes, false, 128, 128, false, 50);
         assertEquals(p2p.getTempNodesCount(), 3);
     }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void testConnectWithInboundThreads() throws IOException, InterruptedException {
+        String ip = "127.0.0.1";
+        String id1 = UUID.randomUUID().toString();
+        String id2 = UUID.randomUUID().toString();
+        int port1 = freePort();
+        int port2 = freePort();
+
+        // the connections are read by threads blocking on two selectors
+        String[] nodes = new String[] {"p2p://" + id2 + "@" + ip + ":" + port2};
+        String[] none = new String[0];
+        P2pMgr connector =
+                new P2pMgr(p2pLOG, 0, "test", id1, ip, port1, nodes, false, 128, 128, false, 50, 2);
+        P2pMgr receiver =
+                new P2pMgr(p2pLOG, 0, "test", id2, ip, port2, none, false, 128, 128, false, 50, 2);
+
+        // the handshake request is cached statically, the connector must register last
+        receiver.register(new ArrayList<>());
+        receiver.run();
+        connector.register(new ArrayList<>());
+        connector.run();
+        try {
+            while (connector.getActiveNodes().isEmpty() || receiver.getActiveNodes().isEmpty()) {
+                Thread.sleep(100);
+            }
+            assertEquals(1, connector.getActiveNodes().size());
+            assertEquals(1, receiver.getActiveNodes().size());
+        } finally {
+            connector.shutdown();
+            receiver.shutdown();
+        }
+    }
 }
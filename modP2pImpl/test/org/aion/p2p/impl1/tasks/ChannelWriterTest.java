@@ -0,0 +1,182 @@
+package org.aion.p2p.impl1.tasks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChannelWriterTest {
+
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private SocketChannel peer;
+    private Selector selector;
+    private SelectionKey key;
+
+    @Before
+    public void setup() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        peer = server.accept();
+
+        client.configureBlocking(false);
+        selector = Selector.open();
+        key = client.register(selector, SelectionKey.OP_READ);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        selector.close();
+        client.close();
+        peer.close();
+        server.close();
+    }
+
+    private static byte[] random(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /** Reads from the peer until the given number of bytes was received. */
+    private byte[] receive(int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (peer.read(buffer) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+
+    @Test(timeout = 10_000)
+    public void testMessagesCoalescedInOrder() throws IOException {
+        Random random = new Random(3);
+        ChannelWriter writer = new ChannelWriter();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+        // small messages share buffers and a large one spans several buffers
+        for (int length : new int[] {8, 100, 0, 200_000, 8, 5}) {
+            byte[] header = random(random, 8);
+            byte[] body = random(random, length);
+            assertTrue(writer.enqueue(header, body));
+            expected.write(header);
+            expected.write(body);
+        }
+        assertEquals(6, writer.getPending());
+
+        writer.flush(key);
+        assertEquals(0, writer.getPending());
+        assertEquals(0, key.interestOps() & SelectionKey.OP_WRITE);
+        assertArrayEquals(expected.toByteArray(), receive(expected.size()));
+
+        // the buffers are returned to the pool
+        assertTrue(ChannelWriter.POOL.size() > 0);
+    }
+
+    @Test(timeout = 30_000)
+    public void testWritableResumesWhenSocketFull() throws Exception {
+        Random random = new Random(5);
+        ChannelWriter writer = new ChannelWriter();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+        // more than the socket buffers can hold while the peer does not read
+        for (int i = 0; i < 64; i++) {
+            byte[] body = random(random, 256 * 1024);
+            writer.enqueue(new byte[] {(byte) i}, body);
+            expected.write(i);
+            expected.write(body);
+        }
+        writer.flush(key);
+        assertTrue((key.interestOps() & SelectionKey.OP_WRITE) != 0);
+        assertTrue(writer.getPending() > 0);
+
+        // another send thread does not write while the writer waits for the socket
+        int pending = writer.getPending();
+        writer.flush(key);
+        assertEquals(pending, writer.getPending());
+
+        byte[][] received = new byte[1][];
+        Thread reader =
+                new Thread(
+                        () -> {
+                            try {
+                                received[0] = receive(expected.size());
+                            } catch (IOException e) {
+                                received[0] = new byte[0];
+                            }
+                        });
+        reader.start();
+
+        // the inbound loop resumes the writing whenever the channel is writable
+        while ((key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+            selector.select(100);
+            if (key.isWritable()) {
+                writer.onWritable(key);
+            }
+            selector.selectedKeys().clear();
+        }
+        reader.join();
+
+        assertEquals(0, writer.getPending());
+        assertArrayEquals(expected.toByteArray(), received[0]);
+    }
+
+    @Test
+    public void testPendingLimit() {
+        ChannelWriter writer = new ChannelWriter();
+        for (int i = 0; i < ChannelWriter.MAX_PENDING; i++) {
+            assertTrue(writer.enqueue(new byte[8]));
+        }
+        assertFalse(writer.enqueue(new byte[8]));
+        assertEquals(ChannelWriter.MAX_PENDING, writer.getPending());
+    }
+
+    @Test(timeout = 10_000)
+    public void testClosedChannelDiscardsMessages() throws IOException {
+        ChannelWriter writer = new ChannelWriter();
+        writer.enqueue(new byte[8], new byte[100]);
+        client.close();
+
+        try {
+            writer.flush(key);
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(0, writer.getPending());
+    }
+
+    @Test
+    public void testPoolReusesBuffers() {
+        DirectBufferPool pool = new DirectBufferPool(16, 1);
+        ByteBuffer first = pool.acquire();
+        ByteBuffer second = pool.acquire();
+        assertTrue(first.isDirect());
+        assertEquals(16, first.capacity());
+
+        first.put((byte) 1);
+        pool.release(first);
+        // only one buffer is kept
+        pool.release(second);
+        assertEquals(1, pool.size());
+
+        ByteBuffer reused = pool.acquire();
+        assertTrue(reused == first);
+        assertEquals(0, reused.position());
+        assertEquals(0, pool.size());
+    }
+}
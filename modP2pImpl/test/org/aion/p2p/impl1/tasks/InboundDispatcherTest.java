@@ -0,0 +1,249 @@
+package org.aion.p2p.impl1.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Map;
+import org.aion.p2p.Priority;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+
+public class InboundDispatcherTest {
+
+    @Mock private Logger p2pLOG;
+
+    private static final int BLOCK = (1 << 8) + 7;
+    private static final int TX = (1 << 8) + 6;
+    private static final int STATUS = (1 << 8) + 1;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    private static MsgIn msg(int route) {
+        return new MsgIn(1, "node", route, new byte[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new InboundDispatcher(p2pLOG, 0, 10);
+    }
+
+    @Test
+    public void testWeightedRoundRobin() throws InterruptedException {
+        InboundDispatcher dispatcher = new InboundDispatcher(p2pLOG, 100, 1000);
+        dispatcher.setPriority(BLOCK, Priority.HIGH);
+        dispatcher.setPriority(TX, Priority.LOW);
+        dispatcher.setPriority(STATUS, Priority.NORMAL);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(dispatcher.offer(msg(TX)));
+            assertTrue(dispatcher.offer(msg(BLOCK)));
+            assertTrue(dispatcher.offer(msg(STATUS)));
+        }
+        assertEquals(150, dispatcher.size());
+
+        // one round gives every route its weight
+        int rounds = 2;
+        int total = rounds * (8 + 4 + 1);
+        int blocks = 0, status = 0, txs = 0;
+        for (int i = 0; i < total; i++) {
+            int route = dispatcher.take().getRoute();
+            if (route == BLOCK) {
+                blocks++;
+            } else if (route == STATUS) {
+                status++;
+            } else {
+                txs++;
+            }
+        }
+        assertEquals(rounds * 8, blocks);
+        assertEquals(rounds * 4, status);
+        assertEquals(rounds, txs);
+        assertEquals(150 - total, dispatcher.size());
+    }
+
+    @Test
+    public void testFloodDoesNotDelayHighPriority() throws InterruptedException {
+        InboundDispatcher dispatcher = new InboundDispatcher(p2pLOG, 1000, 1000);
+        dispatcher.setPriority(BLOCK, Priority.HIGH);
+        dispatcher.setPriority(TX, Priority.LOW);
+
+        for (int i = 0; i < 500; i++) {
+            dispatcher.offer(msg(TX));
+        }
+        dispatcher.take();
+
+        MsgIn block = msg(BLOCK);
+        dispatcher.offer(block);
+        assertSame(block, dispatcher.take());
+    }
+
+    @Test
+    public void testLowPriorityDroppedWhenRouteFull() {
+        InboundDispatcher dispatcher = new InboundDispatcher(p2pLOG, 10, 1000);
+        dispatcher.setPriority(TX, Priority.LOW);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(dispatcher.offer(msg(TX)));
+        }
+        assertFalse(dispatcher.offer(msg(TX)));
+        assertEquals(10, dispatcher.size(TX));
+        assertEquals(1, dispatcher.getDropped(TX));
+    }
+
+    @Test
+    public void testLowPriorityDroppedWhenOverloaded() {
+        InboundDispatcher dispatcher = new InboundDispatcher(p2pLOG, 10, 15);
+        dispatcher.setPriority(BLOCK, Priority.HIGH);
+        dispatcher.setPriority(TX, Priority.LOW);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(dispatcher.offer(msg(BLOCK)));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(dispatcher.offer(msg(TX)));
+        }
+
+        // the transaction queue has space but the node is overloaded
+        assertFalse(dispatcher.offer(msg(TX)));
+        assertEquals(1, dispatcher.getDropped(TX));
+    }
+
+    @Test
+    public void testConfiguredWeights() throws InterruptedException {
+        InboundDispatcher dispatcher =
+                new InboundDispatcher(
+                        p2pLOG, 100, 1000, Map.of(Priority.HIGH, 2, Priority.LOW, 2));
+        dispatcher.setPriority(BLOCK, Priority.HIGH);
+        dispatcher.setPriority(TX, Priority.LOW);
+
+        for (int i = 0; i < 10; i++) {
+            dispatcher.offer(msg(TX));
+            dispatcher.offer(msg(BLOCK));
+        }
+
+        // equal weights alternate between the routes
+        int blocks = 0;
+        for (int i = 0; i < 10; i++) {
+            if (dispatcher.take().getRoute() == BLOCK) {
+                blocks++;
+            }
+        }
+        assertEquals(5, blocks);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWeight() {
+        new InboundDispatcher(p2pLOG, 10, 10, Map.of(Priority.NORMAL, 0));
+    }
+
+    @Test
+    public void testBackPressure() throws IOException, InterruptedException {
+        InboundDispatcher dispatcher = new InboundDispatcher(p2pLOG, 2, 2);
+        dispatcher.setPriority(BLOCK, Priority.HIGH);
+
+        try (Selector selector = Selector.open()) {
+            Pipe pipe = Pipe.open();
+            pipe.source().configureBlocking(false);
+            SelectionKey key = pipe.source().register(selector, SelectionKey.OP_READ);
+
+            assertTrue(dispatcher.offer(msg(BLOCK), key));
+            assertEquals(SelectionKey.OP_READ, key.interestOps());
+
+            // the route is full: the message is queued and the channel is no longer read
+            assertTrue(dispatcher.offer(msg(BLOCK), key));
+            assertTrue(dispatcher.offer(msg(BLOCK), key));
+            assertEquals(0, key.interestOps());
+            assertEquals(1, dispatcher.getPaused(BLOCK));
+            assertEquals(3, dispatcher.size(BLOCK));
+            assertEquals(0, dispatcher.getDropped(BLOCK));
+
+            // the channel is read again once the workers make space
+            dispatcher.take();
+            assertEquals(0, key.interestOps());
+            dispatcher.take();
+            assertEquals(SelectionKey.OP_READ, key.interestOps());
+            assertEquals(0, dispatcher.getPaused(BLOCK));
+
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Test
+    public void testBackPressureFromSeveralRoutes() throws IOException, InterruptedException {
+        InboundDispatcher dispatcher = new InboundDispatcher(p2pLOG, 1, 10);
+        dispatcher.setPriority(BLOCK, Priority.HIGH);
+        dispatcher.setPriority(STATUS, Priority.HIGH);
+
+        try (Selector selector = Selector.open()) {
+            Pipe pipe = Pipe.open();
+            pipe.source().configureBlocking(false);
+            SelectionKey key = pipe.source().register(selector, SelectionKey.OP_READ);
+
+            // both routes are full and pause the same channel
+            assertTrue(dispatcher.offer(msg(BLOCK), key));
+            assertTrue(dispatcher.offer(msg(STATUS), key));
+            assertEquals(0, key.interestOps());
+            assertEquals(1, dispatcher.getPaused(BLOCK));
+            assertEquals(1, dispatcher.getPaused(STATUS));
+
+            // the first route with space does not resume the channel
+            dispatcher.take();
+            assertEquals(0, key.interestOps());
+
+            // the channel is read again once both routes have space
+            dispatcher.take();
+            assertEquals(SelectionKey.OP_READ, key.interestOps());
+            assertEquals(0, dispatcher.getPaused(BLOCK));
+            assertEquals(0, dispatcher.getPaused(STATUS));
+
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Test
+    public void testLowPriorityDoesNotPauseReading() throws IOException {
+        InboundDispatcher dispatcher = new InboundDispatcher(p2pLOG, 1, 10);
+        dispatcher.setPriority(TX, Priority.LOW);
+
+        try (Selector selector = Selector.open()) {
+            Pipe pipe = Pipe.open();
+            pipe.source().configureBlocking(false);
+            SelectionKey key = pipe.source().register(selector, SelectionKey.OP_READ);
+
+            assertTrue(dispatcher.offer(msg(TX), key));
+            assertFalse(dispatcher.offer(msg(TX), key));
+            assertEquals(SelectionKey.OP_READ, key.interestOps());
+            assertEquals(0, dispatcher.getPaused(TX));
+
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Test
+    public void testDumpRouteStats() throws InterruptedException {
+        InboundDispatcher dispatcher = new InboundDispatcher(p2pLOG, 10, 10);
+        dispatcher.setPriority(TX, Priority.LOW);
+        dispatcher.offer(msg(TX));
+        dispatcher.offer(msg(TX));
+        dispatcher.take();
+
+        String stats = dispatcher.dumpRouteStats();
+        assertTrue(stats.contains("0-1-6"));
+        assertTrue(stats.contains("LOW"));
+    }
+}
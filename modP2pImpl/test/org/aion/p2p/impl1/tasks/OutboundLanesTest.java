@@ -0,0 +1,46 @@
+package org.aion.p2p.impl1.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.aion.p2p.Msg;
+import org.aion.p2p.impl1.P2pMgr.Dest;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+
+public class OutboundLanesTest {
+
+    @Mock private Logger p2pLOG;
+    @Mock private Msg msg;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testDropsCountedAndReported() {
+        OutboundLanes lanes = new OutboundLanes(p2pLOG, 1);
+        for (int i = 0; i < OutboundLanes.LANE_CAPACITY; i++) {
+            assertTrue(lanes.offer(new MsgOut(1, "node", msg, Dest.ACTIVE)));
+        }
+
+        assertFalse(lanes.offer(new MsgOut(1, "node", msg, Dest.ACTIVE)));
+        assertFalse(lanes.offer(new MsgOut(1, "node", msg, Dest.ACTIVE)));
+        lanes.recordWriteQueueFull("node");
+
+        assertEquals(OutboundLanes.LANE_CAPACITY, lanes.size());
+        assertEquals(2, lanes.getLaneDrops());
+        assertEquals(1, lanes.getWriteQueueDrops());
+        // the warnings are rate limited
+        verify(p2pLOG, times(1)).warn(anyString(), any(), any(), any());
+    }
+}
@@ -0,0 +1,133 @@
+package org.aion.p2p.impl1.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SelectorGroupTest {
+
+    private SelectorGroup group;
+    private Pipe pipe;
+
+    @Before
+    public void setup() throws IOException {
+        group = SelectorGroup.open(2);
+        pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        pipe.source().close();
+        pipe.sink().close();
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).close();
+        }
+    }
+
+    /** Selects like an inbound loop until the channel is readable or the flag is cleared. */
+    private Thread reactor(int index, AtomicBoolean running, CountDownLatch readable) {
+        Thread thread =
+                new Thread(
+                        () -> {
+                            Selector selector = group.get(index);
+                            try {
+                                while (running.get()) {
+                                    group.awaitRegistrations(index);
+                                    if (selector.select() > 0) {
+                                        for (SelectionKey key : selector.selectedKeys()) {
+                                            if (key.isValid() && key.isReadable()) {
+                                                readable.countDown();
+                                            }
+                                        }
+                                        selector.selectedKeys().clear();
+                                    }
+                                }
+                            } catch (IOException e) {
+                                // ends the loop
+                            }
+                        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void testOpen() {
+        assertEquals(2, group.size());
+        assertTrue(group.isBlocking());
+        assertFalse(new SelectorGroup(group.get(0)).isBlocking());
+    }
+
+    @Test(timeout = 10_000)
+    public void testRegisterWhileSelecting() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch readable = new CountDownLatch(1);
+        Thread thread = reactor(1, running, readable);
+
+        // the loop is blocked in select and must not hold back the registration
+        Thread.sleep(100);
+        SelectionKey key = group.register(1, pipe.source(), SelectionKey.OP_READ, null);
+        assertNotNull(key);
+        assertSame(key, group.keyFor(pipe.source()));
+        assertSame(group.get(1), key.selector());
+
+        pipe.sink().write(ByteBuffer.wrap(new byte[] {1}));
+        assertTrue(readable.await(5, TimeUnit.SECONDS));
+
+        running.set(false);
+        group.wakeup();
+        thread.join();
+    }
+
+    @Test
+    public void testRegisterInTurn() throws IOException {
+        Pipe other = Pipe.open();
+        other.source().configureBlocking(false);
+        try {
+            SelectionKey first = group.register(pipe.source(), mock(ChannelBuffer.class));
+            SelectionKey second = group.register(other.source(), mock(ChannelBuffer.class));
+            assertEquals(SelectionKey.OP_READ, first.interestOps());
+            assertTrue(first.selector() != second.selector());
+        } finally {
+            other.source().close();
+            other.sink().close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testCancel() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread thread = reactor(0, running, new CountDownLatch(1));
+
+        SelectionKey key = group.register(0, pipe.source(), SelectionKey.OP_READ, new Object());
+        group.cancel(pipe.source());
+        assertFalse(key.isValid());
+        assertNull(key.attachment());
+
+        // the woken up loop releases the key
+        for (int i = 0; i < 50 && group.keyFor(pipe.source()) != null; i++) {
+            Thread.sleep(100);
+        }
+        assertNull(group.keyFor(pipe.source()));
+
+        running.set(false);
+        group.wakeup();
+        thread.join();
+    }
+}
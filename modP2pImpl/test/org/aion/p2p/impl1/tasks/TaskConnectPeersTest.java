@@ -15,7 +15,6 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.Iterator;
 import java.util.Random;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.INode;
 import org.aion.p2p.INodeMgr;
@@ -37,7 +36,7 @@ public class TaskConnectPeersTest {
 
     @Mock private IP2pMgr p2pMgr;
 
-    @Mock private BlockingQueue<MsgOut> sendMsgQue;
+    @Mock private OutboundLanes sendMsgQue;
 
     @Mock private ReqHandshake1 rhs;
 
@@ -49,6 +48,8 @@ public class TaskConnectPeersTest {
 
     private Selector selector;
 
+    private SelectorGroup selectors;
+
     private final Random r = new Random();
 
     private int port;
@@ -121,6 +122,7 @@ public class TaskConnectPeersTest {
         // Create the selector
         selector = Selector.open();
         assertNotNull(selector);
+        selectors = new SelectorGroup(selector);
         ssc.register(selector, SelectionKey.OP_ACCEPT);
 
         listen = new ThreadTCPServer(selector);
@@ -139,7 +141,7 @@ public class TaskConnectPeersTest {
     public void testRun() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskConnectPeers tcp =
-                new TaskConnectPeers(p2pLOG, p2pMgr, atb, nodeMgr, 128, selector, sendMsgQue, rhs);
+                new TaskConnectPeers(p2pLOG, p2pMgr, atb, nodeMgr, 128, selectors, sendMsgQue, rhs);
         assertNotNull(tcp);
 
         Thread t = new Thread(tcp);
@@ -156,7 +158,7 @@ public class TaskConnectPeersTest {
     public void testRun1() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskConnectPeers tcp =
-                new TaskConnectPeers(p2pLOG, p2pMgr, atb, nodeMgr, 128, selector, sendMsgQue, rhs);
+                new TaskConnectPeers(p2pLOG, p2pMgr, atb, nodeMgr, 128, selectors, sendMsgQue, rhs);
         assertNotNull(tcp);
 
         when(nodeMgr.activeNodesSize()).thenReturn(128);
@@ -196,7 +198,7 @@ public class TaskConnectPeersTest {
     public void testRunException() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskConnectPeers tcp =
-                new TaskConnectPeers(p2pLOG, p2pMgr, atb, nodeMgr, 128, selector, sendMsgQue, rhs);
+                new TaskConnectPeers(p2pLOG, p2pMgr, atb, nodeMgr, 128, selectors, sendMsgQue, rhs);
         assertNotNull(tcp);
 
         when(node.getIdHash()).thenReturn(1);
@@ -234,7 +236,7 @@ public class TaskConnectPeersTest {
     public void testRunException2() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
         TaskConnectPeers tcp =
-                new TaskConnectPeers(p2pLOG, p2pMgr, atb, nodeMgr, 128, selector, sendMsgQue, rhs);
+                new TaskConnectPeers(p2pLOG, p2pMgr, atb, nodeMgr, 128, selectors, sendMsgQue, rhs);
         assertNotNull(tcp);
 
         when(node.getIdHash()).thenReturn(1);
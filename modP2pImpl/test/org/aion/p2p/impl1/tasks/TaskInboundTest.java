@@ -5,7 +5,10 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -23,7 +26,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.Handler;
 import org.aion.p2p.Header;
@@ -44,9 +46,9 @@ public class TaskInboundTest {
 
     @Mock private IP2pMgr p2pMgr;
 
-    @Mock private BlockingQueue<MsgOut> msgOutQue;
+    @Mock private OutboundLanes msgOutQue;
 
-    @Mock private BlockingQueue<MsgIn> msgInQue;
+    @Mock private InboundDispatcher msgInQue;
 
     @Mock private ResHandshake1 rhs1;
 
@@ -293,6 +295,41 @@ public class TaskInboundTest {
         }
     }
 
+    @Test(timeout = 10_000)
+    public void testAcceptWhenFull() throws InterruptedException, IOException {
+        AtomicBoolean atb = new AtomicBoolean(true);
+        TaskInbound ti =
+                new TaskInbound(p2pLOG, p2pMgr, selector, atb, nodeMgr, hldrMap, msgOutQue, rhs1, msgInQue);
+        assertNotNull(ti);
+
+        when(sk2.isValid()).thenReturn(true);
+        when(sk2.isAcceptable()).thenReturn(true);
+        when(sk2.channel()).thenReturn(ssc);
+        when(nodeMgr.activeNodesSize()).thenReturn(2);
+        when(p2pMgr.getMaxActiveNodes()).thenReturn(2);
+        when(ssc.accept()).thenReturn(sc);
+
+        when(selector.selectNow()).thenReturn(1);
+
+        Set<SelectionKey> ss = new LinkedHashSet<>();
+        ss.add(sk2);
+        when(selector.selectedKeys()).thenReturn(ss);
+
+        Thread t = new Thread(ti);
+        t.start();
+        assertTrue(t.isAlive());
+        Thread.sleep(100);
+        atb.set(false);
+        while (!t.getState().toString().contains("TERMINATED")) {
+            Thread.sleep(10);
+        }
+
+        // the extra connection is accepted and closed instead of left pending
+        verify(ssc, atLeastOnce()).accept();
+        verify(sc, atLeastOnce()).close();
+        verify(nodeMgr, never()).addInboundNode(any());
+    }
+
     @Test(timeout = 10_000)
     public void testAccept3() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
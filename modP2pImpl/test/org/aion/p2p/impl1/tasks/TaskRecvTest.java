@@ -11,7 +11,6 @@ import static org.mockito.Mockito.when;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.Handler;
 import org.junit.Before;
@@ -23,7 +22,7 @@ import org.slf4j.Logger;
 public class TaskRecvTest {
     @Mock private Logger p2pLOG;
 
-    @Mock private BlockingQueue<MsgIn> recvMsgQue;
+    @Mock private InboundDispatcher recvMsgQue;
 
     @Mock private Handler h;
 
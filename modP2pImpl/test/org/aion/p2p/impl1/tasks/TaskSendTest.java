@@ -2,6 +2,7 @@ package org.aion.p2p.impl1.tasks;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -9,7 +10,6 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.Random;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.INode;
 import org.aion.p2p.INodeMgr;
@@ -30,7 +30,7 @@ public class TaskSendTest {
 
     @Mock private IP2pMgr p2pMgr;
 
-    @Mock private BlockingQueue<MsgOut> sendMsgQue;
+    @Mock private OutboundLanes sendMsgQue;
 
     @Mock private INode node;
 
@@ -38,6 +38,8 @@ public class TaskSendTest {
 
     private Selector selector;
 
+    private SelectorGroup selectors;
+
     private int lane;
 
     private Random r = new Random();
@@ -49,12 +51,13 @@ public class TaskSendTest {
 
         selector = Selector.open();
         assertNotNull(selector);
+        selectors = new SelectorGroup(selector);
     }
 
     @Test(timeout = 10_000)
     public void testRun() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, r.nextInt(lane), sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, r.nextInt(lane), sendMsgQue, atb, nodeMgr, selectors);
         assertNotNull(ts);
 
         Thread t = new Thread(ts);
@@ -70,12 +73,12 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRunMsgOutTimeout() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, r.nextInt(lane), sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, r.nextInt(lane), sendMsgQue, atb, nodeMgr, selectors);
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(r.nextInt(), "1", msg, Dest.OUTBOUND);
         assertNotNull(mo);
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.take(anyInt())).thenReturn(mo);
         Thread.sleep(5000);
 
         Thread t = new Thread(ts);
@@ -91,13 +94,13 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRunLane() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, 0, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, 0, sendMsgQue, atb, nodeMgr, selectors);
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(1, "1", msg, Dest.OUTBOUND);
         assertNotNull(mo);
 
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.take(anyInt())).thenReturn(mo);
 
         Thread t = new Thread(ts);
         t.start();
@@ -112,13 +115,13 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRun2() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, 0, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, 0, sendMsgQue, atb, nodeMgr, selectors);
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.OUTBOUND);
         assertNotNull(mo);
 
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.take(anyInt())).thenReturn(mo);
         when(nodeMgr.getOutboundNode(0)).thenReturn(node);
 
         ChannelBuffer cb = new ChannelBuffer(p2pLOG);
@@ -144,13 +147,13 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRun3() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, 0, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, 0, sendMsgQue, atb, nodeMgr, selectors);
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.ACTIVE);
         assertNotNull(mo);
 
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.take(anyInt())).thenReturn(mo);
         when(nodeMgr.getActiveNode(0)).thenReturn(node);
 
         ChannelBuffer cb = new ChannelBuffer(p2pLOG);
@@ -176,13 +179,13 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRun4() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, 0, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, 0, sendMsgQue, atb, nodeMgr, selectors);
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.INBOUND);
         assertNotNull(mo);
 
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.take(anyInt())).thenReturn(mo);
         when(nodeMgr.getInboundNode(0)).thenReturn(node);
 
         ChannelBuffer cb = new ChannelBuffer(p2pLOG);
@@ -208,13 +211,13 @@ public class TaskSendTest {
     @Test(timeout = 10_000)
     public void testRunNullNode() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, 0, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pLOG, p2pMgr, 0, sendMsgQue, atb, nodeMgr, selectors);
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.INBOUND);
         assertNotNull(mo);
 
-        when(sendMsgQue.take()).thenReturn(mo);
+        when(sendMsgQue.take(anyInt())).thenReturn(mo);
         when(nodeMgr.getInboundNode(0)).thenReturn(null);
 
         Thread t = new Thread(ts);
@@ -6,7 +6,6 @@ import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.p2p.INodeMgr;
 import org.junit.Before;
@@ -18,9 +17,9 @@ import org.slf4j.Logger;
 public class TaskStatusTest {
     @Mock private Logger p2pLOG;
 
-    @Mock private BlockingQueue<MsgOut> msgOutQue;
+    @Mock private OutboundLanes msgOutQue;
 
-    @Mock private BlockingQueue<MsgIn> msgInQue;
+    @Mock private InboundDispatcher msgInQue;
 
     @Mock private INodeMgr nodeMgr;
 
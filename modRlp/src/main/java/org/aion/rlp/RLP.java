@@ -141,6 +141,48 @@ public class RLP {
         return length;
     }
 
+    /**
+     * Returns the size of the prefix encoding the type and length of the RLP element starting at
+     * the given position.
+     */
+    public static int getPrefixSize(byte[] msgData, int pos) {
+        int type = msgData[pos] & 0xFF;
+
+        if (type < OFFSET_SHORT_ITEM) {
+            return 0;
+        } else if (type <= OFFSET_LONG_ITEM) {
+            return 1;
+        } else if (type < OFFSET_SHORT_LIST) {
+            return 1 + type - OFFSET_LONG_ITEM;
+        } else if (type <= OFFSET_LONG_LIST) {
+            return 1;
+        } else {
+            return 1 + type - OFFSET_LONG_LIST;
+        }
+    }
+
+    /**
+     * Returns the total size, including the prefix, of the RLP element starting at the given
+     * position without decoding its content.
+     */
+    public static int getElementSize(byte[] msgData, int pos) {
+        int type = msgData[pos] & 0xFF;
+
+        if (type < OFFSET_SHORT_ITEM) {
+            return 1;
+        } else if (type <= OFFSET_LONG_ITEM) {
+            return 1 + type - OFFSET_SHORT_ITEM;
+        } else if (type < OFFSET_SHORT_LIST) {
+            int lengthOfLength = type - OFFSET_LONG_ITEM;
+            return 1 + lengthOfLength + calcLength(lengthOfLength, msgData, pos);
+        } else if (type <= OFFSET_LONG_LIST) {
+            return 1 + type - OFFSET_SHORT_LIST;
+        } else {
+            int lengthOfLength = type - OFFSET_LONG_LIST;
+            return 1 + lengthOfLength + calcLength(lengthOfLength, msgData, pos);
+        }
+    }
+
     /**
      * Parse wire byte[] message into RLP elements
      *
@@ -0,0 +1,298 @@
+package org.aion.rlp;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.aion.util.conversions.Hex;
+
+/**
+ * A read-only view over an RLP encoded element that does not copy the encoding.
+ *
+ * <p>Unlike {@link RLP#decode2(byte[])}, which builds the whole {@link RLPList} tree and copies
+ * every item and every nested list into new arrays, the view only records the position of the
+ * element inside the original buffer. The elements of a list are located on first access and the
+ * content is copied only when requested through {@link #asBytes()} or {@link #getEncoded()}.
+ *
+ * @implNote The view shares the given buffer, which must not be modified while the view is in use.
+ *     The bounds of every element are checked against the enclosing list when it is located.
+ */
+public final class RLPView implements RLPElement {
+
+    private static final long serialVersionUID = 6528384738293647107L;
+
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private static final int[] NO_ELEMENTS = new int[0];
+
+    private final byte[] data;
+    // the position of the prefix
+    private final int offset;
+    private final int contentOffset;
+    private final int contentLength;
+    private final boolean list;
+
+    // the positions of the list elements, located on first access
+    private transient int[] elements;
+
+    /**
+     * Creates a view of the element starting at the given position.
+     *
+     * @param end the position following the last byte the element may use
+     * @throws IllegalArgumentException when the element is not a valid encoding inside the bounds
+     */
+    private RLPView(byte[] data, int offset, int end) {
+        this.data = data;
+        this.offset = offset;
+
+        int type = data[offset] & 0xFF;
+
+        if (type < OFFSET_SHORT_ITEM) {
+            // single byte item
+            this.list = false;
+            this.contentOffset = offset;
+            this.contentLength = 1;
+        } else if (type <= OFFSET_LONG_ITEM) {
+            this.list = false;
+            this.contentOffset = offset + 1;
+            this.contentLength = type - OFFSET_SHORT_ITEM;
+        } else if (type < OFFSET_SHORT_LIST) {
+            int lengthOfLength = type - OFFSET_LONG_ITEM;
+            this.list = false;
+            this.contentOffset = offset + 1 + lengthOfLength;
+            this.contentLength = readLength(data, offset, lengthOfLength, end);
+        } else if (type <= OFFSET_LONG_LIST) {
+            this.list = true;
+            this.contentOffset = offset + 1;
+            this.contentLength = type - OFFSET_SHORT_LIST;
+        } else {
+            int lengthOfLength = type - OFFSET_LONG_LIST;
+            this.list = true;
+            this.contentOffset = offset + 1 + lengthOfLength;
+            this.contentLength = readLength(data, offset, lengthOfLength, end);
+        }
+
+        if ((long) contentOffset + contentLength > end) {
+            throw wrongEncoding(data, offset, end);
+        }
+    }
+
+    /**
+     * @return the position following the element starting at the given position
+     * @throws IllegalArgumentException when the element exceeds the given end
+     */
+    private static int elementEnd(byte[] data, int offset, int end) {
+        int type = data[offset] & 0xFF;
+
+        long elementEnd;
+        if (type < OFFSET_SHORT_ITEM) {
+            elementEnd = offset + 1;
+        } else if (type <= OFFSET_LONG_ITEM) {
+            elementEnd = offset + 1 + type - OFFSET_SHORT_ITEM;
+        } else if (type < OFFSET_SHORT_LIST) {
+            int lengthOfLength = type - OFFSET_LONG_ITEM;
+            elementEnd =
+                    (long) offset + 1 + lengthOfLength + readLength(data, offset, lengthOfLength, end);
+        } else if (type <= OFFSET_LONG_LIST) {
+            elementEnd = offset + 1 + type - OFFSET_SHORT_LIST;
+        } else {
+            int lengthOfLength = type - OFFSET_LONG_LIST;
+            elementEnd =
+                    (long) offset + 1 + lengthOfLength + readLength(data, offset, lengthOfLength, end);
+        }
+
+        if (elementEnd > end) {
+            throw wrongEncoding(data, offset, end);
+        }
+        return (int) elementEnd;
+    }
+
+    private static int readLength(byte[] data, int offset, int lengthOfLength, int end) {
+        if (lengthOfLength > Integer.BYTES || offset + lengthOfLength >= end) {
+            throw wrongEncoding(data, offset, end);
+        }
+
+        long length = 0;
+        for (int i = 1; i <= lengthOfLength; i++) {
+            length = (length << 8) | (data[offset + i] & 0xFF);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw wrongEncoding(data, offset, end);
+        }
+        return (int) length;
+    }
+
+    private static IllegalArgumentException wrongEncoding(byte[] data, int offset, int end) {
+        int length = Math.min(Math.min(end, data.length) - offset, 1024);
+        return new IllegalArgumentException(
+                "RLP wrong encoding (" + Hex.toHexString(data, offset, length) + ")");
+    }
+
+    /**
+     * Returns a view of the RLP element at the start of the given encoding.
+     *
+     * @param rlpEncoded the RLP encoded data
+     * @return a view over the first element of the data
+     * @throws IllegalArgumentException when the data does not start with a valid encoding
+     */
+    public static RLPView decode(byte[] rlpEncoded) {
+        if (rlpEncoded == null || rlpEncoded.length == 0) {
+            throw new IllegalArgumentException("RLP wrong encoding (empty data)");
+        }
+        return new RLPView(rlpEncoded, 0, rlpEncoded.length);
+    }
+
+    /** @return {@code true} if the element is a list, {@code false} if it is an item */
+    public boolean isList() {
+        return list;
+    }
+
+    /** @return {@code true} if the content of the element is empty */
+    public boolean isEmpty() {
+        return contentLength == 0;
+    }
+
+    /**
+     * @return the number of elements of the list
+     * @throws IllegalStateException if the element is not a list
+     */
+    public int size() {
+        return elements().length;
+    }
+
+    /**
+     * @return a view of the element at the given index of the list
+     * @throws IllegalStateException if the element is not a list
+     * @throws IndexOutOfBoundsException if the index is not valid for the list
+     */
+    public RLPView get(int index) {
+        int[] positions = elements();
+        if (index < 0 || index >= positions.length) {
+            throw new IndexOutOfBoundsException(
+                    "Index " + index + " out of bounds for RLP list of size " + positions.length);
+        }
+        return new RLPView(data, positions[index], contentOffset + contentLength);
+    }
+
+    private int[] elements() {
+        if (!list) {
+            throw new IllegalStateException("The RLP element is not a list.");
+        }
+
+        int[] positions = elements;
+        if (positions == null) {
+            if (contentLength == 0) {
+                positions = NO_ELEMENTS;
+            } else {
+                int end = contentOffset + contentLength;
+                int[] found = new int[8];
+                int count = 0;
+
+                int pos = contentOffset;
+                while (pos < end) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = pos;
+
+                    pos = elementEnd(data, pos, end);
+                }
+                positions = count == found.length ? found : Arrays.copyOf(found, count);
+            }
+            elements = positions;
+        }
+        return positions;
+    }
+
+    /**
+     * @return a copy of the content of the item
+     * @throws IllegalStateException if the element is a list
+     */
+    public byte[] asBytes() {
+        checkItem();
+        return Arrays.copyOfRange(data, contentOffset, contentOffset + contentLength);
+    }
+
+    /**
+     * @return a read-only buffer over the content of the item, without copying it
+     * @throws IllegalStateException if the element is a list
+     */
+    public ByteBuffer asByteBuffer() {
+        checkItem();
+        return ByteBuffer.wrap(data, contentOffset, contentLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Interprets the content of the item as an unsigned big-endian number. An empty item is zero.
+     *
+     * @return the lowest 64 bits of the number, same as {@link BigInteger#longValue()}
+     * @throws IllegalStateException if the element is a list
+     */
+    public long asLong() {
+        checkItem();
+        long value = 0;
+        for (int i = Math.max(0, contentLength - Long.BYTES); i < contentLength; i++) {
+            value = (value << 8) | (data[contentOffset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Interprets the content of the item as an unsigned big-endian number. An empty item is zero.
+     *
+     * @return the lowest 32 bits of the number, same as {@link BigInteger#intValue()}
+     * @throws IllegalStateException if the element is a list
+     */
+    public int asInt() {
+        return (int) asLong();
+    }
+
+    /**
+     * Interprets the content of the item as an unsigned big-endian number. An empty item is zero.
+     *
+     * @throws IllegalStateException if the element is a list
+     */
+    public BigInteger asBigInteger() {
+        checkItem();
+        return contentLength == 0
+                ? BigInteger.ZERO
+                : new BigInteger(1, data, contentOffset, contentLength);
+    }
+
+    private void checkItem() {
+        if (list) {
+            throw new IllegalStateException("The RLP element is a list.");
+        }
+    }
+
+    /** @return a copy of the complete encoding of the element, including the prefix */
+    public byte[] getEncoded() {
+        return Arrays.copyOfRange(data, offset, contentOffset + contentLength);
+    }
+
+    /**
+     * Matches the behaviour of the elements built by {@link RLP#decode2(byte[])}: the content for
+     * items and the complete encoding for lists.
+     */
+    @Override
+    public byte[] getRLPData() {
+        return list ? getEncoded() : asBytes();
+    }
+
+    /** @return the buffer shared by the view */
+    public byte[] getBuffer() {
+        return data;
+    }
+
+    /** @return the position of the content in the shared buffer */
+    public int getContentOffset() {
+        return contentOffset;
+    }
+
+    /** @return the length of the content in the shared buffer */
+    public int getContentLength() {
+        return contentLength;
+    }
+}
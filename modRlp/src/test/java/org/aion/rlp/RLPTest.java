@@ -1329,4 +1329,30 @@ public class RLPTest {
 
         System.out.println(out);
     }
+
+    @Test
+    public void testElementSizes() {
+        byte[] shortItem = encodeElement(Hex.decode("deadbeef"));
+        byte[] longItem = encodeElement(new byte[100]);
+        byte[] shortList = encodeList(shortItem, shortItem);
+        byte[] longList = encodeList(longItem, shortList);
+        byte[] singleByte = encodeByte((byte) 0x01);
+
+        assertEquals(0, RLP.getPrefixSize(singleByte, 0));
+        assertEquals(1, RLP.getElementSize(singleByte, 0));
+        assertEquals(1, RLP.getPrefixSize(shortItem, 0));
+        assertEquals(shortItem.length, RLP.getElementSize(shortItem, 0));
+        assertEquals(2, RLP.getPrefixSize(longItem, 0));
+        assertEquals(longItem.length, RLP.getElementSize(longItem, 0));
+        assertEquals(1, RLP.getPrefixSize(shortList, 0));
+        assertEquals(shortList.length, RLP.getElementSize(shortList, 0));
+        assertEquals(2, RLP.getPrefixSize(longList, 0));
+        assertEquals(longList.length, RLP.getElementSize(longList, 0));
+
+        // the elements inside a list
+        int pos = RLP.getPrefixSize(longList, 0);
+        assertEquals(longItem.length, RLP.getElementSize(longList, pos));
+        pos += longItem.length;
+        assertEquals(shortList.length, RLP.getElementSize(longList, pos));
+    }
 }
@@ -0,0 +1,147 @@
+package org.aion.rlp;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares the time spent reading all the fields of block-like encodings with {@link
+ * RLP#decode2(byte[])} against the time spent with {@link RLPView}.
+ */
+public class RLPViewBenchmark {
+
+    private static final int TRANSACTIONS = 200;
+    private static final int BLOCKS = 200;
+    private static final int ROUNDS = 20;
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /** Builds an encoding with the shape of a block: a header and a list of transactions. */
+    private static byte[] block(Random random) {
+        byte[] header =
+                RLP.encodeList(
+                        RLP.encodeByte((byte) 1),
+                        RLP.encodeLong(random.nextInt(1_000_000)),
+                        RLP.encodeElement(randomBytes(random, 32)),
+                        RLP.encodeElement(randomBytes(random, 32)),
+                        RLP.encodeElement(randomBytes(random, 32)),
+                        RLP.encodeElement(randomBytes(random, 32)),
+                        RLP.encodeElement(randomBytes(random, 32)),
+                        RLP.encodeElement(randomBytes(random, 256)),
+                        RLP.encodeElement(randomBytes(random, 16)),
+                        RLP.encodeElement(randomBytes(random, 32)),
+                        RLP.encodeLong(random.nextInt()),
+                        RLP.encodeLong(random.nextInt()),
+                        RLP.encodeLong(random.nextInt()),
+                        RLP.encodeElement(randomBytes(random, 32)),
+                        RLP.encodeElement(randomBytes(random, 1408)));
+
+        byte[][] txs = new byte[TRANSACTIONS][];
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            txs[i] =
+                    RLP.encodeList(
+                            RLP.encodeElement(randomBytes(random, 2)),
+                            RLP.encodeElement(randomBytes(random, 32)),
+                            RLP.encodeElement(randomBytes(random, 8)),
+                            RLP.encodeElement(randomBytes(random, random.nextInt(512))),
+                            RLP.encodeElement(randomBytes(random, 8)),
+                            RLP.encodeLong(random.nextInt()),
+                            RLP.encodeLong(random.nextInt()),
+                            RLP.encodeByte((byte) 1),
+                            RLP.encodeElement(randomBytes(random, 96)));
+        }
+        return RLP.encodeList(header, RLP.encodeList(txs));
+    }
+
+    // the positions of the numeric fields, read as numbers by the callers
+    private static final Set<Integer> HEADER_NUMBERS = Set.of(1, 10, 11, 12);
+    private static final Set<Integer> TX_NUMBERS = Set.of(5, 6, 7);
+
+    /** Reads the fields the way the block and transaction decoding did before. */
+    private static long readWithDecode2(byte[] encoded) {
+        long sum = 0;
+        RLPList block = (RLPList) RLP.decode2(encoded).get(0);
+        sum += readFields((RLPList) block.get(0), HEADER_NUMBERS);
+        for (RLPElement tx : (RLPList) block.get(1)) {
+            // the encoding of every transaction is kept
+            sum += tx.getRLPData().length;
+            sum += readFields((RLPList) tx, TX_NUMBERS);
+        }
+        return sum;
+    }
+
+    private static long readFields(RLPList list, Set<Integer> numbers) {
+        long sum = 0;
+        for (int i = 0; i < list.size(); i++) {
+            byte[] data = list.get(i).getRLPData();
+            sum += numbers.contains(i) ? new BigInteger(1, data).longValue() : data.length;
+        }
+        return sum;
+    }
+
+    private static long readWithView(byte[] encoded) {
+        long sum = 0;
+        RLPView block = RLPView.decode(encoded);
+        sum += readFields(block.get(0), HEADER_NUMBERS);
+        RLPView txs = block.get(1);
+        for (int i = 0; i < txs.size(); i++) {
+            RLPView tx = txs.get(i);
+            sum += tx.getEncoded().length;
+            sum += readFields(tx, TX_NUMBERS);
+        }
+        return sum;
+    }
+
+    private static long readFields(RLPView list, Set<Integer> numbers) {
+        long sum = 0;
+        for (int i = 0; i < list.size(); i++) {
+            RLPView field = list.get(i);
+            sum += numbers.contains(i) ? field.asLong() : field.asBytes().length;
+        }
+        return sum;
+    }
+
+    @Ignore
+    @Test
+    public void benchmarkDecode2VsView() {
+        Random random = new Random(1);
+        byte[][] blocks = new byte[BLOCKS][];
+        for (int i = 0; i < BLOCKS; i++) {
+            blocks[i] = block(random);
+        }
+
+        long checksum = 0;
+        long decode2Nanos = 0;
+        long viewNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (byte[] block : blocks) {
+                checksum += readWithDecode2(block);
+            }
+            long middle = System.nanoTime();
+            for (byte[] block : blocks) {
+                checksum -= readWithView(block);
+            }
+            long end = System.nanoTime();
+
+            // the first rounds warm up both decoders
+            if (round >= ROUNDS / 2) {
+                decode2Nanos += middle - start;
+                viewNanos += end - middle;
+            }
+        }
+
+        int measured = ROUNDS - ROUNDS / 2;
+        System.out.println(
+                BLOCKS + " blocks with " + TRANSACTIONS + " transactions each, per round:");
+        System.out.println("decode2: " + decode2Nanos / measured / 1_000_000 + " ms");
+        System.out.println("   view: " + viewNanos / measured / 1_000_000 + " ms");
+        System.out.println("(checksum " + checksum + ")");
+    }
+}
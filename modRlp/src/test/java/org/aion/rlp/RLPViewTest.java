@@ -0,0 +1,141 @@
+package org.aion.rlp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.aion.util.conversions.Hex;
+import org.junit.Test;
+
+public class RLPViewTest {
+
+    /** Checks that the view exposes the same elements as the tree built by decode2. */
+    private static void assertSameAsDecode2(RLPElement expected, RLPView actual) {
+        assertThat(actual.getRLPData()).isEqualTo(expected.getRLPData());
+        if (expected instanceof RLPList) {
+            RLPList list = (RLPList) expected;
+            assertThat(actual.isList()).isTrue();
+            assertThat(actual.size()).isEqualTo(list.size());
+            for (int i = 0; i < list.size(); i++) {
+                assertSameAsDecode2(list.get(i), actual.get(i));
+            }
+        } else {
+            assertThat(actual.isList()).isFalse();
+            assertThat(actual.asBytes()).isEqualTo(expected.getRLPData());
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testSameAsDecode2() {
+        Random random = new Random(7);
+
+        byte[] header =
+                RLP.encodeList(
+                        RLP.encodeByte((byte) 1),
+                        RLP.encodeLong(123456L),
+                        RLP.encodeElement(randomBytes(random, 32)),
+                        RLP.encodeElement(new byte[0]),
+                        RLP.encodeElement(randomBytes(random, 256)),
+                        RLP.encodeElement(randomBytes(random, 1408)));
+        byte[] tx =
+                RLP.encodeList(
+                        RLP.encodeElement(new byte[] {0x7f}),
+                        RLP.encodeElement(randomBytes(random, 54)),
+                        RLP.encodeElement(randomBytes(random, 55)),
+                        RLP.encodeElement(randomBytes(random, 56)),
+                        RLP.encodeList());
+        byte[] block = RLP.encodeList(header, RLP.encodeList(tx, tx, tx));
+
+        RLPView view = RLPView.decode(block);
+        assertSameAsDecode2(RLP.decode2(block).get(0), view);
+        assertThat(view.getEncoded()).isEqualTo(block);
+        assertThat(view.get(1).get(0).get(4).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSingleByteItems() {
+        RLPView view = RLPView.decode(Hex.decode("7f"));
+        assertThat(view.isList()).isFalse();
+        assertThat(view.asBytes()).isEqualTo(new byte[] {0x7f});
+        assertThat(view.asLong()).isEqualTo(0x7fL);
+
+        view = RLPView.decode(Hex.decode("80"));
+        assertThat(view.isEmpty()).isTrue();
+        assertThat(view.asBytes()).isEmpty();
+        assertThat(view.asLong()).isEqualTo(0L);
+        assertThat(view.asBigInteger()).isEqualTo(BigInteger.ZERO);
+    }
+
+    @Test
+    public void testNumbers() {
+        for (long value : new long[] {0, 1, 127, 128, 255, 256, 1L << 40, Long.MAX_VALUE}) {
+            RLPView view = RLPView.decode(RLP.encodeLong(value));
+            assertThat(view.asLong()).isEqualTo(value);
+            assertThat(view.asBigInteger()).isEqualTo(BigInteger.valueOf(value));
+            assertThat(view.asInt()).isEqualTo((int) value);
+        }
+
+        // more than 8 bytes keep the lowest bits like BigInteger#longValue
+        BigInteger large = BigInteger.ONE.shiftLeft(100).add(BigInteger.valueOf(42));
+        RLPView view = RLPView.decode(RLP.encodeBigInteger(large));
+        assertThat(view.asBigInteger()).isEqualTo(large);
+        assertThat(view.asLong()).isEqualTo(large.longValue());
+    }
+
+    @Test
+    public void testByteBufferSharesContent() {
+        byte[] content = new byte[] {1, 2, 3, 4, 5};
+        byte[] encoded = RLP.encodeList(RLP.encodeElement(content));
+
+        ByteBuffer buffer = RLPView.decode(encoded).get(0).asByteBuffer();
+        assertThat(buffer.isReadOnly()).isTrue();
+        assertThat(buffer.remaining()).isEqualTo(content.length);
+        byte[] read = new byte[buffer.remaining()];
+        buffer.get(read);
+        assertThat(read).isEqualTo(content);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyData() {
+        RLPView.decode(new byte[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testItemExceedingData() {
+        RLPView.decode(Hex.decode("83aabb"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testElementExceedingList() {
+        // the list declares 2 bytes but its item needs 3
+        RLPView view = RLPView.decode(Hex.decode("c282aabb"));
+        view.size();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLengthOfLengthExceedingData() {
+        RLPView.decode(Hex.decode("b9ff"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testItemIsNotList() {
+        RLPView.decode(Hex.decode("83aabbcc")).get(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testListIsNotItem() {
+        RLPView.decode(Hex.decode("c0")).asBytes();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        RLPView.decode(Hex.decode("c180")).get(1);
+    }
+}
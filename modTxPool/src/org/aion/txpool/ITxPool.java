@@ -15,10 +15,13 @@ public interface ITxPool {
     String PROP_BLOCK_NRG_LIMIT = "blk-nrg-limit";
     String PROP_TX_SEQ_MAX = "tx-seq-max";
 
+    // returns, at the position of each given TX, the TX if it was added, the old TX if it replaced
+    // a pooled tx with the same nonce, or null if it is not pooled because a newer tx with the same
+    // nonce is pooled or a later TX of the list replaced it.
     List<PooledTransaction> add(List<PooledTransaction> tx);
 
     // return TX if the TX add success, if the pool already has the same nonce tx. return the old
-    // tx.
+    // tx. return null if the pool keeps a newer tx with the same nonce.
     PooledTransaction add(PooledTransaction tx);
 
     List<PooledTransaction> remove(List<PooledTransaction> tx);
@@ -44,5 +47,11 @@ public interface ITxPool {
 
     List<AionTransaction> snapshotAll();
 
+    /**
+     * Returns the transactions of the pool in no particular order, without the sorting and timeout
+     * eviction done by the snapshots.
+     */
+    List<AionTransaction> getPooledTransactions();
+
     PooledTransaction getPoolTx(AionAddress from, BigInteger txNonce);
 }
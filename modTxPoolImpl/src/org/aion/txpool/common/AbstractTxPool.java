@@ -81,6 +81,12 @@ public abstract class AbstractTxPool {
 
     private final Map<AionAddress, BigInteger> bestNonce = new ConcurrentHashMap<>();
 
+    /**
+     * executableQueue : the transactions by sender and nonce, with the sender heads ordered by
+     * energy price, updated on every addition and removal for selecting block transactions
+     */
+    private final ExecutableTxQueue executableQueue = new ExecutableTxQueue();
+
     protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     public abstract List<PooledTransaction> add(List<PooledTransaction> txl);
@@ -97,6 +103,10 @@ public abstract class AbstractTxPool {
         return this.mainMap;
     }
 
+    protected ExecutableTxQueue getExecutableQueue() {
+        return this.executableQueue;
+    }
+
     protected SortedMap<BigInteger, Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>>
             getFeeView() {
         return this.feeView;
@@ -138,6 +148,7 @@ public abstract class AbstractTxPool {
         this.accountView.clear();
         this.poolStateView.clear();
         this.outDated.clear();
+        this.executableQueue.clear();
     }
 
     protected void sortTxn() {
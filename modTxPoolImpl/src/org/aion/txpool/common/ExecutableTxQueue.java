@@ -0,0 +1,235 @@
+package org.aion.txpool.common;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.aion.base.AionTransaction;
+import org.aion.base.PooledTransaction;
+import org.aion.types.AionAddress;
+
+/**
+ * Keeps the pooled transactions of each sender ordered by nonce together with the head (the
+ * lowest nonce transaction) of every sender ordered by energy price. The structures are updated as
+ * transactions are added and removed, so the best transactions for a block are selected by popping
+ * heads instead of sorting the whole pool.
+ *
+ * @implNote A sender's head is executable only when its nonce is the nonce expected by the
+ *     account state, as reported through {@link #updateExpectedNonces(Map)}. Senders without a
+ *     reported nonce start at their lowest pooled nonce. Only the transactions with consecutive
+ *     nonces following an executable head are considered for selection.
+ */
+public class ExecutableTxQueue {
+
+    /** Higher energy price first, then older transactions, then by sender for a total order. */
+    private static final Comparator<PooledTransaction> PRIORITY =
+            Comparator.<PooledTransaction>comparingLong(p -> p.tx.getEnergyPrice())
+                    .reversed()
+                    .thenComparing(p -> p.tx.getTimeStampBI())
+                    .thenComparing(
+                            (p1, p2) ->
+                                    Arrays.compare(
+                                            p1.tx.getSenderAddress().toByteArray(),
+                                            p2.tx.getSenderAddress().toByteArray()));
+
+    /** Oldest transactions first, with the hash breaking ties. */
+    private static final Comparator<PooledTransaction> AGE =
+            Comparator.<PooledTransaction, BigInteger>comparing(p -> p.tx.getTimeStampBI())
+                    .thenComparing(
+                            (p1, p2) ->
+                                    Arrays.compare(
+                                            p1.tx.getTransactionHash(),
+                                            p2.tx.getTransactionHash()));
+
+    private final Map<AionAddress, TreeMap<BigInteger, PooledTransaction>> senders =
+            new HashMap<>();
+    private final Map<AionAddress, BigInteger> expectedNonces = new HashMap<>();
+    /** The executable heads only. */
+    private final TreeSet<PooledTransaction> heads = new TreeSet<>(PRIORITY);
+    private final TreeSet<PooledTransaction> byAge = new TreeSet<>(AGE);
+
+    /**
+     * Adds the given transaction. A transaction with the same sender and nonce is replaced if it is
+     * not newer than the given one.
+     *
+     * @return the replaced transaction, the given transaction if it was not added, or {@code null}
+     */
+    public synchronized PooledTransaction add(PooledTransaction pooledTx) {
+        AionAddress sender = pooledTx.tx.getSenderAddress();
+        BigInteger nonce = pooledTx.tx.getNonceBI();
+
+        TreeMap<BigInteger, PooledTransaction> queue =
+                senders.computeIfAbsent(sender, k -> new TreeMap<>());
+        PooledTransaction head = queue.isEmpty() ? null : queue.firstEntry().getValue();
+
+        PooledTransaction existing = queue.get(nonce);
+        if (existing != null) {
+            // the same rule used when sorting the pool: keep the latest transaction
+            if (existing.tx.getTimeStampBI().compareTo(pooledTx.tx.getTimeStampBI()) > 0) {
+                return pooledTx;
+            }
+            byAge.remove(existing);
+        }
+
+        queue.put(nonce, pooledTx);
+        byAge.add(pooledTx);
+        updateHead(sender, head, queue);
+
+        return existing;
+    }
+
+    /**
+     * Removes the given transaction if present.
+     *
+     * @return {@code true} if the transaction was removed, {@code false} otherwise
+     */
+    public synchronized boolean remove(PooledTransaction pooledTx) {
+        AionAddress sender = pooledTx.tx.getSenderAddress();
+        TreeMap<BigInteger, PooledTransaction> queue = senders.get(sender);
+        if (queue == null) {
+            return false;
+        }
+
+        BigInteger nonce = pooledTx.tx.getNonceBI();
+        PooledTransaction existing = queue.get(nonce);
+        if (existing == null
+                || !Arrays.equals(
+                        existing.tx.getTransactionHash(), pooledTx.tx.getTransactionHash())) {
+            return false;
+        }
+
+        PooledTransaction head = queue.firstEntry().getValue();
+        queue.remove(nonce);
+        byAge.remove(existing);
+        updateHead(sender, head, queue);
+
+        if (queue.isEmpty()) {
+            senders.remove(sender);
+            expectedNonces.remove(sender);
+        }
+        return true;
+    }
+
+    /**
+     * Records the nonces expected by the account state for the given senders. Only the senders
+     * with pooled transactions are tracked, the others are ignored.
+     *
+     * @param accountNonces the next executable nonce of each account
+     */
+    public synchronized void updateExpectedNonces(Map<AionAddress, BigInteger> accountNonces) {
+        for (Map.Entry<AionAddress, BigInteger> e : accountNonces.entrySet()) {
+            TreeMap<BigInteger, PooledTransaction> queue = senders.get(e.getKey());
+            if (queue == null) {
+                continue;
+            }
+
+            PooledTransaction head = queue.firstEntry().getValue();
+            heads.remove(head);
+            expectedNonces.put(e.getKey(), e.getValue());
+            updateHead(e.getKey(), null, queue);
+        }
+    }
+
+    /**
+     * Replaces the previous head of the sender with its current head, if different. The current
+     * head is kept only if its nonce is the one expected for the sender.
+     */
+    private void updateHead(
+            AionAddress sender,
+            PooledTransaction previous,
+            TreeMap<BigInteger, PooledTransaction> queue) {
+        PooledTransaction current = queue.isEmpty() ? null : queue.firstEntry().getValue();
+        if (previous != current) {
+            if (previous != null) {
+                heads.remove(previous);
+            }
+            if (current != null && isExecutable(sender, current)) {
+                heads.add(current);
+            }
+        }
+    }
+
+    private boolean isExecutable(AionAddress sender, PooledTransaction head) {
+        BigInteger expected = expectedNonces.get(sender);
+        return expected == null || expected.equals(head.tx.getNonceBI());
+    }
+
+    /**
+     * Selects the best executable transactions by energy price, respecting the nonce order of each
+     * sender, until the next transaction would exceed the given limits.
+     *
+     * <p>The work done is proportional to the number of selected transactions and not to the size
+     * of the pool.
+     *
+     * @param nrgLimit the block energy limit
+     * @param sizeLimit the block size limit
+     * @return the selected transactions in execution order
+     */
+    public synchronized List<AionTransaction> select(long nrgLimit, int sizeLimit) {
+        List<AionTransaction> selected = new ArrayList<>();
+
+        // the heads are read in order while the successors of picked transactions become
+        // candidates in a small local heap
+        Iterator<PooledTransaction> nextHeads = heads.iterator();
+        PooledTransaction nextHead = nextHeads.hasNext() ? nextHeads.next() : null;
+        PriorityQueue<PooledTransaction> successors = new PriorityQueue<>(PRIORITY);
+
+        long totalNrg = 0;
+        int totalSize = 0;
+        while (nextHead != null || !successors.isEmpty()) {
+            PooledTransaction best;
+            if (nextHead != null
+                    && (successors.isEmpty() || PRIORITY.compare(nextHead, successors.peek()) < 0)) {
+                best = nextHead;
+                nextHead = nextHeads.hasNext() ? nextHeads.next() : null;
+            } else {
+                best = successors.poll();
+            }
+
+            totalSize += best.tx.getEncoded().length;
+            totalNrg += best.energyConsumed;
+            if (totalSize >= sizeLimit || totalNrg >= nrgLimit) {
+                break;
+            }
+            selected.add(best.tx);
+
+            BigInteger nextNonce = best.tx.getNonceBI().add(BigInteger.ONE);
+            PooledTransaction successor = senders.get(best.tx.getSenderAddress()).get(nextNonce);
+            if (successor != null) {
+                successors.add(successor);
+            }
+        }
+
+        return selected;
+    }
+
+    /** @return the transactions with a timestamp (in seconds) lower than the given value */
+    public synchronized List<PooledTransaction> getOlderThan(long timestamp, int multiplier) {
+        List<PooledTransaction> old = new ArrayList<>();
+        for (PooledTransaction pooledTx : byAge) {
+            if (pooledTx.tx.getTimeStampBI().longValue() / multiplier >= timestamp) {
+                break;
+            }
+            old.add(pooledTx);
+        }
+        return old;
+    }
+
+    public synchronized int size() {
+        return byAge.size();
+    }
+
+    public synchronized void clear() {
+        senders.clear();
+        expectedNonces.clear();
+        heads.clear();
+        byAge.clear();
+    }
+}
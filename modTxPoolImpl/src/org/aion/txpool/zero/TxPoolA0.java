@@ -7,21 +7,18 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
 import org.aion.base.AionTransaction;
 import org.aion.base.PooledTransaction;
 import org.aion.txpool.ITxPool;
 import org.aion.txpool.common.AbstractTxPool;
 import org.aion.txpool.common.AccountState;
-import org.aion.txpool.common.TxDependList;
 import org.aion.types.AionAddress;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.time.TimeInstant;
@@ -82,6 +79,8 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
      */
     public List<BigInteger> getNonceList(AionAddress acc) {
 
+        sortTxn();
+
         List<BigInteger> nl = Collections.synchronizedList(new ArrayList<>());
         lock.readLock().lock();
         this.getAccView(acc).getMap().entrySet().parallelStream().forEach(e -> nl.add(e.getKey()));
@@ -102,6 +101,8 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
      * @return
      */
     public List<BigInteger> getFeeList() {
+        sortTxn();
+
         List<BigInteger> nl = Collections.synchronizedList(new ArrayList<>());
 
         this.getFeeView().entrySet().parallelStream().forEach(e -> nl.add(e.getKey()));
@@ -114,7 +115,11 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
         if (txl == null || txl.isEmpty()) return new ArrayList<>();
 
         List<PooledTransaction> newPendingTx = new ArrayList<>();
-        Map<ByteArrayWrapper, TXState> mainMap = new HashMap<>();
+        // in the order of the given list, so that of the transactions with the same sender, nonce
+        // and timestamp the last one is kept, as when they are added one at a time
+        Map<ByteArrayWrapper, TXState> mainMap = new LinkedHashMap<>();
+        // the positions of the added transactions in the returned list
+        Map<ByteArrayWrapper, Integer> positions = new HashMap<>();
         for (PooledTransaction pendingTx : txl) {
 
             ByteArrayWrapper bw = ByteArrayWrapper.wrap(pendingTx.tx.getTransactionHash());
@@ -124,6 +129,8 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
                             "The tx hash existed in the pool! [{}]",
                             ByteUtil.toHexString(bw.getData()));
                 }
+                // already pooled
+                newPendingTx.add(pendingTx);
                 continue;
             }
 
@@ -141,9 +148,9 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
 
             if (bn != null && txNonce.compareTo(bn) < 1) {
                 if (LOG.isDebugEnabled()) {
-                    LOG.debug("repay tx, do snapshot!");
+                    LOG.debug("repay tx, sort the pool!");
                 }
-                snapshot();
+                sortTxn();
             }
 
             AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger> entry =
@@ -161,6 +168,7 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
                 if (LOG.isTraceEnabled()) {
                     LOG.trace("new tx! n[{}]", pendingTx.tx.getNonceBI().toString());
                 }
+                positions.put(bw, newPendingTx.size());
                 newPendingTx.add(pendingTx);
             }
 
@@ -168,6 +176,40 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
         }
 
         this.getMainMap().putAll(mainMap);
+        List<PooledTransaction> replacedTxl = new ArrayList<>();
+        for (Map.Entry<ByteArrayWrapper, TXState> e : mainMap.entrySet()) {
+            PooledTransaction pendingTx = e.getValue().getTx();
+            PooledTransaction replaced = this.getExecutableQueue().add(pendingTx);
+            if (replaced == pendingTx) {
+                // a newer transaction with the same nonce is already pooled
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("repay tx, keep the newer pooled tx!");
+                }
+                lock.writeLock().lock();
+                this.getMainMap().remove(e.getKey());
+                lock.writeLock().unlock();
+
+                // not returned as a new pending transaction
+                Integer position = positions.get(e.getKey());
+                if (position != null) {
+                    newPendingTx.set(position, null);
+                }
+            } else if (replaced != null) {
+                replacedTxl.add(replaced);
+
+                // replaced by a later transaction of the same list
+                Integer position =
+                        positions.get(ByteArrayWrapper.wrap(replaced.tx.getTransactionHash()));
+                if (position != null) {
+                    newPendingTx.set(position, null);
+                }
+            }
+        }
+
+        // the transactions replaced within the same batch are not in the account view yet
+        if (!replacedTxl.isEmpty()) {
+            remove(replacedTxl);
+        }
 
         if (LOG.isTraceEnabled()) {
             LOG.trace("new add tx! np[{}] tx[{}]", newPendingTx.size(), txl.size());
@@ -188,6 +230,9 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
     @Override
     public List<PooledTransaction> removeTxsWithNonceLessThan(Map<AionAddress, BigInteger> accNonce) {
 
+        // the account view must include all the transactions added since the last sorting
+        sortTxn();
+
         List<ByteArrayWrapper> bwList = new ArrayList<>();
         for (Map.Entry<AionAddress, BigInteger> en1 : accNonce.entrySet()) {
             AccountState as = this.getAccView(en1.getKey());
@@ -266,6 +311,11 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
                             }
                         });
 
+        for (PooledTransaction pooledTx : removedTxl) {
+            this.getExecutableQueue().remove(pooledTx);
+        }
+        this.getExecutableQueue().updateExpectedNonces(accNonce);
+
         this.updateAccPoolState();
         this.updateFeeMap();
 
@@ -301,6 +351,7 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
 
             //noinspection unchecked
             removedTxl.add(pooledTx);
+            this.getExecutableQueue().remove(pooledTx);
 
             if (LOG.isTraceEnabled()) {
                 LOG.trace(
@@ -446,144 +497,29 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
         return rtn;
     }
 
+    @Override
+    public List<AionTransaction> getPooledTransactions() {
+        List<AionTransaction> rtn = new ArrayList<>(getMainMap().size());
+        for (TXState state : getMainMap().values()) {
+            rtn.add(state.getTx().tx);
+        }
+        return rtn;
+    }
+
+    /**
+     * Returns the best executable transactions for a new block, picking the highest energy price
+     * sender heads first while respecting the nonce order of each sender, up to the block energy
+     * and size limits.
+     *
+     * @implNote The selection reads the priority structure maintained on every addition and
+     *     removal, so its latency does not depend on the size of the pool.
+     */
     public List<AionTransaction> snapshot() {
 
-        sortTxn();
         removeTimeoutTxn();
 
-        int cnt_txSz = 0;
-        long cnt_nrg = 0;
-        List<AionTransaction> rtn = new ArrayList<>();
-        Set<ByteArrayWrapper> snapshotSet = new HashSet<>();
-        Map<ByteArrayWrapper, Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> nonPickedTx =
-                new HashMap<>();
-        for (Entry<BigInteger, Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> e :
-                this.getFeeView().entrySet()) {
-
-            if (LOG.isTraceEnabled()) {
-                LOG.trace("snapshot  fee[{}]", e.getKey().toString());
-            }
-
-            SortedMap<BigInteger, Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>>
-                    timeTxDep = Collections.synchronizedSortedMap(new TreeMap<>());
-            for (Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> pair :
-                    e.getValue().entrySet()) {
-                BigInteger ts = pair.getValue().getTimeStamp();
-                // If timestamp has collision, increase 1 for getting a new slot to put the
-                // transaction pair.
-                while (timeTxDep.get(ts) != null) {
-                    ts = ts.add(BigInteger.ONE);
-                }
-                timeTxDep.put(ts, pair);
-            }
-
-            for (Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> pair :
-                    timeTxDep.values()) {
-                // Check the small nonce tx must been picked before put the high nonce tx
-                ByteArrayWrapper dependTx = pair.getValue().getDependTx();
-                if (dependTx == null || snapshotSet.contains(dependTx)) {
-                    boolean firstTx = true;
-                    for (ByteArrayWrapper bw : pair.getValue().getTxList()) {
-                        PooledTransaction pendingTx = this.getMainMap().get(bw).getTx();
-
-                        byte[] encodedItx = pendingTx.tx.getEncoded();
-                        cnt_txSz += encodedItx.length;
-                        cnt_nrg += pendingTx.energyConsumed;
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace(
-                                    "from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
-                                    pendingTx.tx.getSenderAddress().toString(),
-                                    pendingTx.tx.getNonceBI().toString(),
-                                    encodedItx.length,
-                                    pendingTx.energyConsumed);
-                        }
-
-                        if (cnt_txSz < blkSizeLimit && cnt_nrg < blkNrgLimit.get()) {
-                            try {
-                                rtn.add(pendingTx.tx);
-                                if (firstTx) {
-                                    snapshotSet.add(bw);
-                                    firstTx = false;
-                                }
-                            } catch (Exception ex) {
-                                if (LOG.isErrorEnabled()) {
-                                    LOG.error(
-                                            "TxPoolA0.snapshot  exception[{}], return [{}] TX",
-                                            ex.toString(),
-                                            rtn.size());
-                                }
-                                return rtn;
-                            }
-                        } else {
-                            if (LOG.isDebugEnabled()) {
-                                LOG.debug(
-                                        "Reach blockLimit: txSize[{}], nrgConsume[{}], tx#[{}]",
-                                        cnt_txSz,
-                                        cnt_nrg,
-                                        rtn.size());
-                            }
-
-                            return rtn;
-                        }
-                    }
-
-                    ByteArrayWrapper ancestor = pair.getKey();
-                    while (nonPickedTx.get(ancestor) != null) {
-                        firstTx = true;
-                        for (ByteArrayWrapper bw :
-                                nonPickedTx.get(ancestor).getValue().getTxList()) {
-                            PooledTransaction pendingTx = this.getMainMap().get(bw).getTx();
-
-                            byte[] encodedItx = pendingTx.tx.getEncoded();
-                            cnt_txSz += encodedItx.length;
-                            cnt_nrg += pendingTx.energyConsumed;
-                            if (LOG.isTraceEnabled()) {
-                                LOG.trace(
-                                        "from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
-                                        pendingTx.tx.getSenderAddress().toString(),
-                                        pendingTx.tx.getNonceBI().toString(),
-                                        encodedItx.length,
-                                        pendingTx.energyConsumed);
-                            }
-
-                            if (cnt_txSz < blkSizeLimit && cnt_nrg < blkNrgLimit.get()) {
-                                try {
-                                    rtn.add(pendingTx.tx);
-                                    if (firstTx) {
-                                        snapshotSet.add(bw);
-                                        firstTx = false;
-                                    }
-                                } catch (Exception ex) {
-                                    if (LOG.isErrorEnabled()) {
-                                        LOG.error(
-                                                "TxPoolA0.snapshot  exception[{}], return [{}] TX",
-                                                ex.toString(),
-                                                rtn.size());
-                                    }
-                                    return rtn;
-                                }
-                            } else {
-                                if (LOG.isInfoEnabled()) {
-                                    LOG.info(
-                                            "TxPoolA0.snapshot return Tx[{}] TxSize[{}] Nrg[{}] Pool[{}]",
-                                            rtn.size(),
-                                            cnt_txSz,
-                                            cnt_nrg,
-                                            getMainMap().size());
-                                }
-
-                                return rtn;
-                            }
-                        }
-
-                        ancestor = nonPickedTx.get(ancestor).getKey();
-                    }
-                } else {
-                    // one low fee small nonce tx has been picked,and then search from this map.
-                    nonPickedTx.put(pair.getValue().getDependTx(), pair);
-                }
-            }
-        }
+        List<AionTransaction> rtn =
+                this.getExecutableQueue().select(blkNrgLimit.get(), blkSizeLimit);
 
         if (LOG.isInfoEnabled()) {
             LOG.info(
@@ -607,19 +543,7 @@ public class TxPoolA0 extends AbstractTxPool implements ITxPool {
     private void removeTimeoutTxn() {
 
         long ts = TimeInstant.now().toEpochSec() - txn_timeout;
-        List<PooledTransaction> txl = Collections.synchronizedList(new ArrayList<>());
-
-        this.getTimeView()
-                .entrySet()
-                .parallelStream()
-                .forEach(
-                        e -> {
-                            if (e.getKey() < ts) {
-                                for (ByteArrayWrapper bw : e.getValue()) {
-                                    txl.add(this.getMainMap().get(bw).getTx());
-                                }
-                            }
-                        });
+        List<PooledTransaction> txl = this.getExecutableQueue().getOlderThan(ts, multiplyM);
 
         if (txl.isEmpty()) {
             return;
@@ -263,6 +263,39 @@ public class TxnPoolTest {
         return new PooledTransaction(tx, energyConsumed);
     }
 
+    private PooledTransaction genTransactionWithPriceAndTimestamp(
+            long nonce, ECKey key, long energyPrice, long timestamp) {
+        AionTransaction tx =
+                AionTransaction.createGivenTimestamp(
+                        key,
+                        BigInteger.valueOf(nonce).toByteArray(),
+                        AddressUtils.wrapAddress(
+                                "0000000000000000000000000000000000000000000000000000000000000001"),
+                        ByteUtils.fromHexString("1"),
+                        ByteUtils.fromHexString("1"),
+                        10000L,
+                        energyPrice,
+                        TransactionTypes.DEFAULT,
+                        ByteUtil.longToBytes(timestamp));
+        return new PooledTransaction(tx, 1);
+    }
+
+    private PooledTransaction genTransactionWithPrice(
+            long nonce, ECKey key, long energyPrice, long energyConsumed) {
+        AionTransaction tx =
+                AionTransaction.create(
+                        key,
+                        BigInteger.valueOf(nonce).toByteArray(),
+                        AddressUtils.wrapAddress(
+                                "0000000000000000000000000000000000000000000000000000000000000001"),
+                        ByteUtils.fromHexString("1"),
+                        ByteUtils.fromHexString("1"),
+                        10000L,
+                        energyPrice,
+                        TransactionTypes.DEFAULT);
+        return new PooledTransaction(tx, energyConsumed);
+    }
+
     private PooledTransaction genTransactionRandomPrice(byte[] nonce, ECKey key, long energyConsumed) {
         AionTransaction tx =
                 AionTransaction.create(
@@ -689,6 +722,131 @@ public class TxnPoolTest {
         }
     }
 
+    @Test
+    public void snapshotByEnergyPriceAndNonce() {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+
+        TxPoolA0 tp = new TxPoolA0(config);
+
+        // the high price transaction of the first sender must wait for its low price predecessor
+        PooledTransaction a0 = genTransactionWithPrice(0, key.get(0), 1L, 1);
+        PooledTransaction a1 = genTransactionWithPrice(1, key.get(0), 5L, 1);
+        PooledTransaction b0 = genTransactionWithPrice(0, key.get(1), 3L, 1);
+        PooledTransaction c0 = genTransactionWithPrice(0, key.get(2), 2L, 1);
+        tp.add(List.of(a1, a0, c0, b0));
+        Assert.assertEquals(4, tp.size());
+
+        List<AionTransaction> snapshot = tp.snapshot();
+        Assert.assertEquals(List.of(b0.tx, c0.tx, a0.tx, a1.tx), snapshot);
+
+        // removing a sender head promotes its next transaction
+        tp.remove(a0);
+        Assert.assertEquals(List.of(a1.tx, b0.tx, c0.tx), tp.snapshot());
+    }
+
+    @Test
+    public void snapshotWithinBlockEnergyLimit() {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+        config.put("blk-nrg-limit", "1000000");
+
+        TxPoolA0 tp = new TxPoolA0(config);
+
+        PooledTransaction a0 = genTransactionWithPrice(0, key.get(0), 2L, 400_000);
+        PooledTransaction a1 = genTransactionWithPrice(1, key.get(0), 2L, 400_000);
+        PooledTransaction b0 = genTransactionWithPrice(0, key.get(1), 1L, 400_000);
+        tp.add(List.of(a0, a1, b0));
+
+        Assert.assertEquals(List.of(a0.tx, a1.tx), tp.snapshot());
+        Assert.assertEquals(3, tp.size());
+    }
+
+    @Test
+    public void snapshotSkipsNonceGaps() {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+
+        TxPoolA0 tp = new TxPoolA0(config);
+
+        // the transaction after the gap of the first sender is not executable
+        PooledTransaction a0 = genTransactionWithPrice(0, key.get(0), 3L, 1);
+        PooledTransaction a1 = genTransactionWithPrice(1, key.get(0), 3L, 1);
+        PooledTransaction a3 = genTransactionWithPrice(3, key.get(0), 3L, 1);
+        PooledTransaction b0 = genTransactionWithPrice(0, key.get(1), 1L, 1);
+        tp.add(List.of(a0, a1, a3, b0));
+        Assert.assertEquals(List.of(a0.tx, a1.tx, b0.tx), tp.snapshot());
+
+        // once the state expects nonce 2 the remaining head of the first sender is not executable
+        Map<AionAddress, BigInteger> accountNonces = new HashMap<>();
+        accountNonces.put(a0.tx.getSenderAddress(), BigInteger.TWO);
+        accountNonces.put(b0.tx.getSenderAddress(), BigInteger.ZERO);
+        tp.removeTxsWithNonceLessThan(accountNonces);
+        Assert.assertEquals(2, tp.size());
+        Assert.assertEquals(List.of(b0.tx), tp.snapshot());
+
+        // filling the gap makes the following nonces executable again
+        PooledTransaction a2 = genTransactionWithPrice(2, key.get(0), 3L, 1);
+        tp.add(a2);
+        Assert.assertEquals(List.of(a2.tx, a3.tx, b0.tx), tp.snapshot());
+    }
+
+    @Test
+    public void snapshotAfterSameNonceReplacement() {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+
+        TxPoolA0 tp = new TxPoolA0(config);
+
+        PooledTransaction a0 = genTransactionWithPrice(0, key.get(0), 1L, 1);
+        PooledTransaction a0Replacement = genTransactionWithPrice(0, key.get(0), 2L, 1);
+        tp.add(List.of(a0, a0Replacement));
+
+        Assert.assertEquals(1, tp.size());
+        Assert.assertEquals(List.of(a0Replacement.tx), tp.snapshot());
+        Assert.assertEquals(List.of(a0Replacement.tx), tp.getPooledTransactions());
+    }
+
+    @Test
+    public void addSameNonceInBatchReturnsOnlyAddedTx() {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+
+        TxPoolA0 tp = new TxPoolA0(config);
+
+        long now = TimeInstant.now().toEpochMicro();
+        PooledTransaction newer = genTransactionWithPriceAndTimestamp(0, key.get(0), 1L, now);
+        PooledTransaction older = genTransactionWithPriceAndTimestamp(0, key.get(0), 2L, now - 1);
+
+        // the older transaction is not added, so it is not returned as a new pending one
+        List<PooledTransaction> added = tp.add(List.of(newer, older));
+        Assert.assertEquals(2, added.size());
+        Assert.assertEquals(newer, added.get(0));
+        Assert.assertNull(added.get(1));
+        Assert.assertEquals(List.of(newer.tx), tp.getPooledTransactions());
+    }
+
+    @Test
+    public void addSameNonceAndTimestampInBatchKeepsLastTx() {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+
+        long now = TimeInstant.now().toEpochMicro();
+        PooledTransaction first = genTransactionWithPriceAndTimestamp(0, key.get(0), 1L, now);
+        PooledTransaction second = genTransactionWithPriceAndTimestamp(0, key.get(0), 2L, now);
+
+        // the outcome depends on the order of the batch only, as when added one at a time
+        TxPoolA0 tp = new TxPoolA0(config);
+        List<PooledTransaction> added = tp.add(List.of(first, second));
+        Assert.assertNull(added.get(0));
+        Assert.assertEquals(second, added.get(1));
+        Assert.assertEquals(List.of(second.tx), tp.getPooledTransactions());
+
+        tp = new TxPoolA0(config);
+        tp.add(List.of(second, first));
+        Assert.assertEquals(List.of(first.tx), tp.getPooledTransactions());
+    }
+
     @Test
     public void addRepeatedTxn() {
         Properties config = new Properties();
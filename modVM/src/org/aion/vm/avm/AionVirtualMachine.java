@@ -29,9 +29,32 @@ public final class AionVirtualMachine {
      * @return A new AVM.
      */
     public static AionVirtualMachine createAndInitializeNewAvm() {
+        return createAndInitializeNewAvm(new AvmConfiguration().threadCount);
+    }
+
+    /**
+     * Constructs a new Avm instance using the given number of execution threads and starts it up.
+     *
+     * <p>The Avm executes the transactions of a batch speculatively in parallel, each against its
+     * own snapshot of the external state, tracking the accounts each transaction touches. The
+     * results are committed in the order of the transactions and any transaction that conflicts
+     * with an earlier one is aborted and re-executed, so the outcome is identical to executing the
+     * batch sequentially. A single thread disables the speculative execution.
+     *
+     * @param threadCount The number of threads executing transactions concurrently.
+     * @return A new AVM.
+     */
+    public static AionVirtualMachine createAndInitializeNewAvm(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException(
+                    "Cannot initialize the avm with " + threadCount + " threads!");
+        }
+
+        AvmConfiguration configuration = new AvmConfiguration();
+        configuration.threadCount = threadCount;
         return new AionVirtualMachine(
                 CommonAvmFactory.buildAvmInstanceForConfiguration(
-                        new AionCapabilities(), new AvmConfiguration()));
+                        new AionCapabilities(), configuration));
     }
 
     /**
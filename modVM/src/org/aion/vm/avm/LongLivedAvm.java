@@ -28,6 +28,22 @@ public final class LongLivedAvm {
         aionVirtualMachine = AionVirtualMachine.createAndInitializeNewAvm();
     }
 
+    /**
+     * This method should be called once, when the kernel starts up.
+     *
+     * <p>This method is not thread-safe. Only a single thread should ever call this method, and it
+     * should call it before any other thread can call {@code singleton()}.
+     *
+     * @param threadCount The number of threads used to speculatively execute transactions in
+     *     parallel. A single thread executes the transactions sequentially.
+     */
+    public static void createAndStartLongLivedAvm(int threadCount) {
+        if (aionVirtualMachine != null) {
+            throw new IllegalStateException("AVM has already been initialized!");
+        }
+        aionVirtualMachine = AionVirtualMachine.createAndInitializeNewAvm(threadCount);
+    }
+
     /**
      * Returns the singleton instance of the long-lived AVM instance.
      *
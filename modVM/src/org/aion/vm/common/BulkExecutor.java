@@ -26,6 +26,11 @@ import org.slf4j.Logger;
  * bundle as possible) to the appropriate virtual machine to be executed and will return the results
  * of these transactions to the caller.
  *
+ * <p>The bundles sent to the AVM are executed speculatively in parallel by the AVM when it was
+ * started with more than one thread (see {@link
+ * org.aion.vm.avm.LongLivedAvm#createAndStartLongLivedAvm(int)}), with conflicting transactions
+ * re-executed in order. Larger bundles therefore expose more parallelism.
+ *
  * <p>This class is thread-safe.
  */
 public final class BulkExecutor {